@@ -0,0 +1,90 @@
+package de.uni_stuttgart.informatik.canu.mobisim.extensions;
+
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SyntheticScenario;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.SpatialModel;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the lookup of vertices by their coordinates. <br>
+ * <br>
+ * Exact lookups use the coordinates of randomly chosen vertices, closest
+ * vertex lookups use random points of the simulation area.
+ * @author Canu Research group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class GraphBenchmark
+{
+  /**
+   * Number of obstacles of the synthetic road network
+   */
+  @Param({"10", "50", "200"})
+  public int obstacles;
+
+  /**
+   * Graph of the scenario
+   */
+  protected Graph graph;
+
+  /**
+   * Coordinates of vertices
+   */
+  protected double[][] vertexPoints = new double[64][2];
+
+  /**
+   * Random points
+   */
+  protected double[][] randomPoints = new double[64][2];
+
+  /**
+   * Index of the next point
+   */
+  protected int next = 0;
+
+  /**
+   * Loads the scenario. <br>
+   * <br>
+   * @throws Exception Exception if the scenario could not be loaded
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    SpatialModel spatialModel = (SpatialModel)SyntheticScenario.load(obstacles).getExtension(SpatialModel.SLOT);
+    graph = spatialModel.getGraph();
+
+    int side = SyntheticScenario.getSide(obstacles);
+    java.util.ArrayList vertices = graph.getVertices();
+    java.util.Random rand = new java.util.Random(SyntheticScenario.SEED);
+    for (int i=0; i<vertexPoints.length; i++)
+    {
+      Vertex v = (Vertex)vertices.get(rand.nextInt(vertices.size()));
+      vertexPoints[i][0] = v.getX();
+      vertexPoints[i][1] = v.getY();
+      randomPoints[i][0] = rand.nextDouble()*side;
+      randomPoints[i][1] = rand.nextDouble()*side;
+    }
+  }
+
+  @Benchmark
+  public Vertex getVertex()
+  {
+    double[] p = vertexPoints[next];
+    next = (next+1) % vertexPoints.length;
+
+    return graph.getVertex(p[0], p[1]);
+  }
+
+  @Benchmark
+  public Vertex getClosestVertex()
+  {
+    double[] p = randomPoints[next];
+    next = (next+1) % randomPoints.length;
+
+    return graph.getClosestVertex(p[0], p[1]);
+  }
+}
@@ -0,0 +1,384 @@
+package de.uni_stuttgart.informatik.canu.mobisim.simulations;
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.SpatialModel;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class measures how simulations scale with the number of vehicles. <br>
+ * <br>
+ * For every requested number of vehicles, a synthetic scenario with IDM-LC
+ * vehicles is loaded and run, and the load time, the ratio of simulated to
+ * elapsed time, the simulated steps per second, the node-steps per second,
+ * the heap high-water mark and the allocated bytes per step are appended to
+ * a CSV file. Unless it is set with the -size option, the size of the
+ * road network grows with the number of vehicles, so that all runs have
+ * the same traffic density. The first seconds of every run are
+ * not measured, to let the vehicles leave their initial positions and the
+ * JIT compiler warm up.
+ * @author Canu Research group
+ */
+public class ScalingBenchmark
+{
+  /**
+   * Header of the CSV file
+   */
+  public static final String HEADER =
+    "label,network,size,vertices,edges,nodes,threads,scheduler,load_s,steps,run_s,"+
+    "realtime_factor,steps_per_s,node_steps_per_s,heap_peak_mb,alloc_kb_per_step";
+
+  /**
+   * Label of the measured version
+   */
+  protected String label = "";
+
+  /**
+   * Type of the road network
+   */
+  protected String network = SyntheticScenario.GRID;
+
+  /**
+   * Size of the road network, 0 to scale it with the number of vehicles
+   */
+  protected int size = 0;
+
+  /**
+   * Class of the vehicles' motion model
+   */
+  protected String movement = "polito.uomm.IDM_LC";
+
+  /**
+   * Measured duration of a run (in s)
+   */
+  protected double duration = 60.0;
+
+  /**
+   * Duration of the warm-up of a run (in s)
+   */
+  protected double warmup = 10.0;
+
+  /**
+   * Number of threads running a simulation
+   */
+  protected int threads = 1;
+
+  /**
+   * Scheduler of the simulations
+   */
+  protected String scheduler = "steps";
+
+  /**
+   * Constructor
+   */
+  public ScalingBenchmark()
+  {
+  }
+
+  /**
+   * Gets the size of the road network for the given number of vehicles. <br>
+   * <br>
+   * A grid has about 10 vehicles per block, a random network about 10
+   * vehicles per obstacle.
+   * @param nodes number of vehicles
+   * @return size of the road network
+   */
+  public int getSize(int nodes)
+  {
+    if (size>0)
+      return size;
+
+    if (network.equals(SyntheticScenario.GRID))
+      return Math.max(3, (int)Math.ceil(Math.sqrt(nodes/10.0)));
+    else
+      return Math.max(10, nodes/10);
+  }
+
+  /**
+   * Gets the number of bytes allocated by the live threads so far. <br>
+   * <br>
+   * @return number of allocated bytes, -1 if not supported by the JVM
+   */
+  protected static long getAllocatedBytes()
+  {
+    java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean))
+      return -1;
+
+    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+    if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled())
+      return -1;
+
+    long res = 0;
+    long[] allocated = sunBean.getThreadAllocatedBytes(sunBean.getAllThreadIds());
+    for (int i=0; i<allocated.length; i++)
+      if (allocated[i]>0)
+        res += allocated[i];
+
+    return res;
+  }
+
+  /**
+   * Resets the peak usage of the heap. <br>
+   * <br>
+   */
+  protected static void resetHeapPeak()
+  {
+    java.util.Iterator iter = java.lang.management.ManagementFactory.getMemoryPoolMXBeans().iterator();
+    while (iter.hasNext())
+    {
+      java.lang.management.MemoryPoolMXBean pool = (java.lang.management.MemoryPoolMXBean)iter.next();
+      if (pool.getType()==java.lang.management.MemoryType.HEAP)
+        pool.resetPeakUsage();
+    }
+  }
+
+  /**
+   * Gets the peak usage of the heap since the last reset. <br>
+   * <br>
+   * @return peak usage of the heap (in bytes)
+   */
+  protected static long getHeapPeak()
+  {
+    long res = 0;
+
+    java.util.Iterator iter = java.lang.management.ManagementFactory.getMemoryPoolMXBeans().iterator();
+    while (iter.hasNext())
+    {
+      java.lang.management.MemoryPoolMXBean pool = (java.lang.management.MemoryPoolMXBean)iter.next();
+      if (pool.getType()==java.lang.management.MemoryType.HEAP)
+        res += pool.getPeakUsage().getUsed();
+    }
+
+    return res;
+  }
+
+  /**
+   * Creates the scenario of a run. <br>
+   * <br>
+   * @param nodes number of vehicles
+   * @return root tag of the scenario
+   * @throws Exception Exception if the scenario could not be created
+   */
+  protected org.w3c.dom.Element createScenario(int nodes) throws Exception
+  {
+    org.w3c.dom.Element root = SyntheticScenario.create(network, getSize(nodes), nodes,
+      movement, warmup+duration);
+    org.w3c.dom.Document document = root.getOwnerDocument();
+
+    org.w3c.dom.Element tag = document.createElement("threads");
+    tag.appendChild(document.createTextNode(Integer.toString(threads)));
+    root.insertBefore(tag, root.getFirstChild());
+
+    tag = document.createElement("scheduler");
+    tag.appendChild(document.createTextNode(scheduler));
+    root.insertBefore(tag, root.getFirstChild());
+
+    return root;
+  }
+
+  /**
+   * Runs a scenario and measures it. <br>
+   * <br>
+   * @param nodes number of vehicles
+   * @return line of the CSV file
+   * @throws Exception Exception if the scenario is invalid
+   */
+  public String measure(int nodes) throws Exception
+  {
+    org.w3c.dom.Element root = createScenario(nodes);
+
+    System.gc();
+    long loadStart = System.nanoTime();
+    Universe u = SimulationEngine.load(root);
+    long loadTime = System.nanoTime()-loadStart;
+
+    SpatialModel spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
+    int vertices = spatialModel.getGraph().getVertices().size();
+    int edges = spatialModel.getGraph().getEdges().size();
+
+    long steps, runTime, heapPeak, allocated;
+    Universe previous = Universe.setReference(u);
+    try
+    {
+      u.initialize();
+
+      long warmupEnd = (long)(warmup*1000);
+      while (!u.isFinished() && (u.getTime()<warmupEnd))
+        u.advanceTime();
+
+      System.gc();
+      resetHeapPeak();
+      long firstStep = u.getTimeInSteps();
+      long allocStart = getAllocatedBytes();
+      long runStart = System.nanoTime();
+
+      while (!u.isFinished())
+        u.advanceTime();
+
+      runTime = System.nanoTime()-runStart;
+      long allocEnd = getAllocatedBytes();
+      heapPeak = getHeapPeak();
+      steps = u.getTimeInSteps()-firstStep;
+      allocated = ((allocStart>=0)&&(allocEnd>=0)) ? allocEnd-allocStart : -1;
+    }
+    finally
+    {
+      u.close();
+      Universe.setReference(previous);
+    }
+
+    double runSeconds = runTime/1e9;
+    double stepsPerSecond = steps/runSeconds;
+
+    StringBuffer s = new StringBuffer();
+    s.append(label).append(',');
+    s.append(network).append(',');
+    s.append(getSize(nodes)).append(',');
+    s.append(vertices).append(',');
+    s.append(edges).append(',');
+    s.append(u.getNodes().size()).append(',');
+    s.append(threads).append(',');
+    s.append(scheduler).append(',');
+    s.append(format(loadTime/1e9)).append(',');
+    s.append(steps).append(',');
+    s.append(format(runSeconds)).append(',');
+    s.append(format(steps*u.getStepDuration()/1000.0/runSeconds)).append(',');
+    s.append(format(stepsPerSecond)).append(',');
+    s.append(format(stepsPerSecond*u.getNodes().size())).append(',');
+    s.append(format(heapPeak/(1024.0*1024.0))).append(',');
+    s.append((allocated>=0) ? format(allocated/1024.0/Math.max(steps, 1)) : "");
+
+    return s.toString();
+  }
+
+  /**
+   * Formats a measured value. <br>
+   * <br>
+   * @param value value
+   * @return value with 3 decimal places
+   */
+  protected static String format(double value)
+  {
+    return java.math.BigDecimal.valueOf(value).setScale(3, java.math.RoundingMode.HALF_UP).toString();
+  }
+
+  /**
+   * Runs the scenarios and appends the measurements to a CSV file. <br>
+   * <br>
+   * @param nodes numbers of vehicles
+   * @param output name of the CSV file
+   * @throws Exception Exception if a scenario is invalid
+   */
+  public void run(int[] nodes, String output) throws Exception
+  {
+    java.io.File file = new java.io.File(output);
+    boolean header = !file.exists() || (file.length()==0);
+
+    java.io.PrintWriter out = new java.io.PrintWriter(new java.io.FileWriter(file, true));
+    try
+    {
+      if (header)
+        out.println(HEADER);
+      System.out.println(HEADER);
+
+      for (int i=0; i<nodes.length; i++)
+      {
+        String line = measure(nodes[i]);
+        out.println(line);
+        out.flush();
+        System.out.println(line);
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  //----------------------------------------------------------------------------
+  //----------------------------------------------------------------------------
+  public static void main(String[] args)
+  {
+    ScalingBenchmark benchmark = new ScalingBenchmark();
+    String output = "scaling.csv";
+    int[] nodes = new int[] {100, 1000, 5000};
+
+    try
+    {
+      for (int i=0; i<args.length; i++)
+      {
+        if (args[i].equals("-help")||(i+1>=args.length))
+          throw new IllegalArgumentException();
+
+        String value = args[++i];
+        if (args[i-1].equals("-network"))
+          benchmark.network = value;
+        else
+        if (args[i-1].equals("-size"))
+          benchmark.size = Integer.parseInt(value);
+        else
+        if (args[i-1].equals("-nodes"))
+        {
+          String[] list = value.split(",");
+          nodes = new int[list.length];
+          for (int j=0; j<list.length; j++)
+            nodes[j] = Integer.parseInt(list[j].trim());
+        }
+        else
+        if (args[i-1].equals("-duration"))
+          benchmark.duration = Double.parseDouble(value);
+        else
+        if (args[i-1].equals("-warmup"))
+          benchmark.warmup = Double.parseDouble(value);
+        else
+        if (args[i-1].equals("-threads"))
+          benchmark.threads = Integer.parseInt(value);
+        else
+        if (args[i-1].equals("-scheduler"))
+          benchmark.scheduler = value;
+        else
+        if (args[i-1].equals("-movement"))
+          benchmark.movement = value;
+        else
+        if (args[i-1].equals("-label"))
+          benchmark.label = value;
+        else
+        if (args[i-1].equals("-output"))
+          output = value;
+        else
+          throw new IllegalArgumentException();
+      }
+    }
+    catch(IllegalArgumentException e)
+    {
+      System.out.println("Usage: ScalingBenchmark [-network grid|random] [-size n]"+
+        " [-nodes n1,n2,...] [-duration s] [-warmup s] [-threads n] [-scheduler steps|events]"+
+        " [-movement class] [-label text] [-output file.csv]\n");
+      return;
+    }
+
+    int errors = 0;
+    try
+    {
+      benchmark.run(nodes, output);
+    }
+    catch(Exception e)
+    {
+      System.err.println("Error running scaling benchmark");
+      e.printStackTrace(System.err);
+      errors = 1;
+    }
+
+    // stop the threads left by the extensions
+    System.exit(errors);
+  }//endproc
+
+}//endclass
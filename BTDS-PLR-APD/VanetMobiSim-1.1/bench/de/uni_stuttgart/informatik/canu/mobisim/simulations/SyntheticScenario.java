@@ -0,0 +1,234 @@
+package de.uni_stuttgart.informatik.canu.mobisim.simulations;
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import javax.xml.parsers.*;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class creates scenarios for the benchmarks. <br>
+ * <br>
+ * The road network of a scenario is either a random Voronoi graph generated
+ * by the SpaceGraph extension from the obstacles of a single cluster
+ * covering the simulation area, or a grid of square blocks loaded by the
+ * UserGraph extension, so no map files are needed. The size of a random
+ * network is its number of obstacles, the size of a grid is its number of
+ * blocks per side. The scenario's seed is fixed, so that every run of a
+ * benchmark measures the same graph.
+ * @author Canu Research group
+ */
+public class SyntheticScenario
+{
+  /**
+   * Seed of the scenarios
+   */
+  public static final long SEED = 18;
+
+  /**
+   * Random road network generated by SpaceGraph
+   */
+  public static final String RANDOM = "random";
+
+  /**
+   * Grid road network loaded by UserGraph
+   */
+  public static final String GRID = "grid";
+
+  /**
+   * Side of a grid's block (in m)
+   */
+  public static final int BLOCK = 200;
+
+  /**
+   * Constructor
+   */
+  protected SyntheticScenario()
+  {
+  }
+
+  /**
+   * Gets the side of the simulation area for the given number of obstacles. <br>
+   * <br>
+   * The area grows with the number of obstacles, so that the roads of
+   * larger graphs have the same length.
+   * @param obstacles number of obstacles
+   * @return side of the simulation area (in m)
+   */
+  public static int getSide(int obstacles)
+  {
+    return Math.max(500, (int)(100*Math.sqrt(obstacles)));
+  }
+
+  /**
+   * Gets the side of the simulation area for the given road network. <br>
+   * <br>
+   * @param network type of the road network
+   * @param size size of the road network
+   * @return side of the simulation area (in m)
+   */
+  public static int getSide(String network, int size)
+  {
+    if (network.equals(GRID))
+      return (size+1)*BLOCK;
+    else
+      return getSide(size);
+  }
+
+  /**
+   * Creates the scenario with a random road network. <br>
+   * <br>
+   * @param obstacles number of obstacles of the Voronoi graph
+   * @param nodes number of mobile nodes
+   * @param movement class of the nodes' motion model
+   * @param duration duration of the simulation (in s)
+   * @return root tag of the scenario
+   * @throws Exception Exception if the scenario could not be created
+   */
+  public static org.w3c.dom.Element create(int obstacles, int nodes, String movement,
+    double duration) throws Exception
+  {
+    return create(RANDOM, obstacles, nodes, movement, duration);
+  }
+
+  /**
+   * Creates the scenario. <br>
+   * <br>
+   * @param network type of the road network
+   * @param size size of the road network
+   * @param nodes number of mobile nodes
+   * @param movement class of the nodes' motion model
+   * @param duration duration of the simulation (in s)
+   * @return root tag of the scenario
+   * @throws Exception Exception if the scenario could not be created
+   */
+  public static org.w3c.dom.Element create(String network, int size, int nodes,
+    String movement, double duration) throws Exception
+  {
+    int side = getSide(network, size);
+
+    StringBuffer s = new StringBuffer();
+    s.append("<universe>");
+    s.append("<dimx>"+side+"</dimx><dimy>"+side+"</dimy>");
+    s.append("<seed>"+SEED+"</seed>");
+    s.append("<extension class=\"de.uni_stuttgart.informatik.canu.mobisim.simulations.TimeSimulation\" param=\""+duration+"\"/>");
+    s.append("<extension name=\"SpatialModel\" class=\"de.uni_stuttgart.informatik.canu.spatialmodel.core.SpatialModel\"");
+    s.append(" min_x=\"0\" max_x=\""+side+"\" min_y=\"0\" max_y=\""+side+"\">");
+    s.append("<reflect_directions>true</reflect_directions>");
+    s.append("<number_lane full=\"false\" max=\"4\" dir=\"true\">2</number_lane>");
+    s.append("</extension>");
+    if (network.equals(GRID))
+      appendGrid(s, size);
+    else if (network.equals(RANDOM))
+      appendRandom(s, size, side);
+    else
+      throw new Exception("Invalid road network: "+network);
+    if (nodes>0)
+    {
+      s.append("<extension name=\"PosGen\" class=\"de.uni_stuttgart.informatik.canu.tripmodel.generators.RandomInitialPositionGenerator\"/>");
+      s.append("<extension name=\"TripGen\" class=\"de.uni_stuttgart.informatik.canu.tripmodel.generators.RandomTripGenerator\">");
+      s.append("<reflect_directions>true</reflect_directions>");
+      s.append("<minstay>5.0</minstay><maxstay>30.0</maxstay>");
+      s.append("</extension>");
+      s.append("<nodegroup n=\""+nodes+"\">");
+      s.append("<extension class=\""+movement+"\" initposgenerator=\"PosGen\" tripgenerator=\"TripGen\">");
+      s.append("<minspeed>3.33</minspeed><maxspeed>13.89</maxspeed><step>0.1</step>");
+      s.append("</extension>");
+      s.append("</nodegroup>");
+    }
+    s.append("</universe>");
+
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    DocumentBuilder builder = factory.newDocumentBuilder();
+
+    org.w3c.dom.Document document = builder.parse(
+      new java.io.ByteArrayInputStream(s.toString().getBytes("UTF-8")));
+
+    return document.getDocumentElement();
+  }
+
+  /**
+   * Appends a random road network to the scenario. <br>
+   * <br>
+   * @param s scenario
+   * @param obstacles number of obstacles of the Voronoi graph
+   * @param side side of the simulation area
+   */
+  protected static void appendRandom(StringBuffer s, int obstacles, int side)
+  {
+    double area = (double)side*side;
+
+    s.append("<extension class=\"eurecom.spacegraph.SpaceGraph\" cluster=\"true\">");
+    s.append("<clusters density=\""+1.5/area+"\">");
+    s.append("<cluster id=\"synthetic\"><density>"+(obstacles+0.5)/area+"</density>");
+    s.append("<ratio>1.0</ratio><speed>13.89</speed></cluster>");
+    s.append("</clusters>");
+    s.append("</extension>");
+  }
+
+  /**
+   * Appends a grid road network to the scenario. <br>
+   * <br>
+   * @param s scenario
+   * @param blocks number of blocks per side
+   */
+  protected static void appendGrid(StringBuffer s, int blocks)
+  {
+    s.append("<extension class=\"eurecom.usergraph.UserGraph\">");
+    for (int i=0; i<=blocks; i++)
+      for (int j=0; j<=blocks; j++)
+        s.append("<vertex><id>"+i+"_"+j+"</id><x>"+(i+0.5)*BLOCK+"</x><y>"+(j+0.5)*BLOCK+"</y></vertex>");
+    for (int i=0; i<=blocks; i++)
+      for (int j=0; j<=blocks; j++)
+      {
+        if (i<blocks)
+          s.append("<edge><v1>"+i+"_"+j+"</v1><v2>"+(i+1)+"_"+j+"</v2><speed>13.89</speed></edge>");
+        if (j<blocks)
+          s.append("<edge><v1>"+i+"_"+j+"</v1><v2>"+i+"_"+(j+1)+"</v2><speed>13.89</speed></edge>");
+      }
+    s.append("</extension>");
+  }
+
+  /**
+   * Loads a scenario without mobile nodes. <br>
+   * <br>
+   * The loaded Universe object is bound to the current thread.
+   * @param obstacles number of obstacles of the Voronoi graph
+   * @return Universe object with the road network
+   * @throws Exception Exception if the scenario could not be loaded
+   */
+  public static Universe load(int obstacles) throws Exception
+  {
+    Universe u = SimulationEngine.load(create(obstacles, 0, null, 0.0));
+    Universe.setReference(u);
+
+    return u;
+  }
+
+  /**
+   * Runs a scenario with mobile nodes for the given time. <br>
+   * <br>
+   * The finished Universe object is bound to the current thread, so that
+   * the nodes' motion models can be called directly.
+   * @param obstacles number of obstacles of the Voronoi graph
+   * @param nodes number of mobile nodes
+   * @param movement class of the nodes' motion model
+   * @param duration duration of the simulation (in s)
+   * @return finished Universe object
+   * @throws Exception Exception if the scenario could not be run
+   */
+  public static Universe run(int obstacles, int nodes, String movement, double duration)
+    throws Exception
+  {
+    Universe u = SimulationEngine.run(create(obstacles, nodes, movement, duration));
+    Universe.setReference(u);
+
+    return u;
+  }
+}
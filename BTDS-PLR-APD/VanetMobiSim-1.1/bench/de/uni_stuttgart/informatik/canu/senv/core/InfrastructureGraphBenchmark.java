@@ -0,0 +1,51 @@
+package de.uni_stuttgart.informatik.canu.senv.core;
+
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SyntheticScenario;
+import de.uni_stuttgart.informatik.canu.senv.utils.ShortestPaths;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.SpatialModel;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the computation of the all-pairs shortest paths. <br>
+ * <br>
+ * The tables are quadratic in the number of vertices, so smaller road
+ * networks are used than by the other benchmarks.
+ * @author Canu Research group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class InfrastructureGraphBenchmark
+{
+  /**
+   * Number of obstacles of the synthetic road network
+   */
+  @Param({"5", "10", "25"})
+  public int obstacles;
+
+  /**
+   * Graph of the scenario
+   */
+  protected InfrastructureGraph graph;
+
+  /**
+   * Loads the scenario. <br>
+   * <br>
+   * @throws Exception Exception if the scenario could not be loaded
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    SpatialModel spatialModel = (SpatialModel)SyntheticScenario.load(obstacles).getExtension(SpatialModel.SLOT);
+    graph = spatialModel.getGraph().getInfrastructureGraph();
+  }
+
+  @Benchmark
+  public ShortestPaths calculateShortestPaths()
+  {
+    return graph.calculateShortestPaths();
+  }
+}
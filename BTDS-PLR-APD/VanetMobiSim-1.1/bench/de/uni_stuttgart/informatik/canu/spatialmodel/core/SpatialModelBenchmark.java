@@ -0,0 +1,77 @@
+package de.uni_stuttgart.informatik.canu.spatialmodel.core;
+
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SyntheticScenario;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the lookup of the edge between two vertices. <br>
+ * <br>
+ * Every invocation looks up the next edge of a fixed list of randomly
+ * chosen edges, with the vertices given in either order.
+ * @author Canu Research group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class SpatialModelBenchmark
+{
+  /**
+   * Number of obstacles of the synthetic road network
+   */
+  @Param({"10", "50", "200"})
+  public int obstacles;
+
+  /**
+   * Spatial Model of the scenario
+   */
+  protected SpatialModel spatialModel;
+
+  /**
+   * First vertices of the edges
+   */
+  protected Vertex[] vertices1 = new Vertex[64];
+
+  /**
+   * Second vertices of the edges
+   */
+  protected Vertex[] vertices2 = new Vertex[64];
+
+  /**
+   * Index of the next edge
+   */
+  protected int next = 0;
+
+  /**
+   * Loads the scenario. <br>
+   * <br>
+   * @throws Exception Exception if the scenario could not be loaded
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    spatialModel = (SpatialModel)SyntheticScenario.load(obstacles).getExtension(SpatialModel.SLOT);
+
+    java.util.ArrayList edges = spatialModel.getGraph().getEdges();
+    java.util.Random rand = new java.util.Random(SyntheticScenario.SEED);
+    for (int i=0; i<vertices1.length; i++)
+    {
+      Edge e = (Edge)edges.get(rand.nextInt(edges.size()));
+      boolean reversed = rand.nextBoolean();
+      vertices1[i] = reversed ? e.getV2() : e.getV1();
+      vertices2[i] = reversed ? e.getV1() : e.getV2();
+    }
+  }
+
+  @Benchmark
+  public Edge findEdge()
+  {
+    int i = next;
+    next = (next+1) % vertices1.length;
+
+    return spatialModel.findEdge(vertices1[i], vertices2[i]);
+  }
+}
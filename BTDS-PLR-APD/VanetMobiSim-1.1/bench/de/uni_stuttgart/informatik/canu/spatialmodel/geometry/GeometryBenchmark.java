@@ -0,0 +1,94 @@
+package de.uni_stuttgart.informatik.canu.spatialmodel.geometry;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the geometric tests of the Spatial Model. <br>
+ * <br>
+ * The polygon is a star-shaped polygon with randomly displaced vertices
+ * around the center of a 1000*1000 m area, the points and lines are
+ * randomly placed within this area.
+ * @author Canu Research group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class GeometryBenchmark
+{
+  /**
+   * Number of vertices of the polygon
+   */
+  @Param({"4", "32", "256"})
+  public int vertices;
+
+  /**
+   * Seed of the random fixtures
+   */
+  protected static final long SEED = 18;
+
+  /**
+   * Polygon
+   */
+  protected Polygon polygon;
+
+  /**
+   * Random points
+   */
+  protected Point[] points = new Point[64];
+
+  /**
+   * Random lines
+   */
+  protected Line[] lines = new Line[64];
+
+  /**
+   * Index of the next point or line
+   */
+  protected int next = 0;
+
+  /**
+   * Creates the fixtures. <br>
+   * <br>
+   */
+  @Setup
+  public void setup()
+  {
+    java.util.Random rand = new java.util.Random(SEED);
+
+    polygon = new Polygon();
+    for (int i=0; i<vertices; i++)
+    {
+      double angle = 2*Math.PI*i/vertices;
+      double r = 250+250*rand.nextDouble();
+      polygon.getPoints().add(new Point(500+r*Math.cos(angle), 500+r*Math.sin(angle)));
+    }
+
+    for (int i=0; i<points.length; i++)
+    {
+      points[i] = new Point(rand.nextDouble()*1000, rand.nextDouble()*1000);
+      lines[i] = new Line(new Point(rand.nextDouble()*1000, rand.nextDouble()*1000),
+                          new Point(rand.nextDouble()*1000, rand.nextDouble()*1000));
+    }
+  }
+
+  @Benchmark
+  public boolean polygonContains()
+  {
+    Point p = points[next];
+    next = (next+1) % points.length;
+
+    return polygon.contains(p);
+  }
+
+  @Benchmark
+  public Point lineIntersect()
+  {
+    int i = next;
+    next = (next+1) % lines.length;
+
+    return lines[i].intersect(lines[(i+1) % lines.length]);
+  }
+}
@@ -0,0 +1,96 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SyntheticScenario;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.Point;
+import de.uni_stuttgart.informatik.canu.tripmodel.core.PathSearchingAlgorithm;
+import de.uni_stuttgart.informatik.canu.tripmodel.core.Trip;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the shortest-path search of the Dijkstra algorithm. <br>
+ * <br>
+ * Every invocation searches the path between the next pair of a fixed
+ * list of randomly chosen vertices.
+ * @author Canu Research group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class DijkstraBenchmark
+{
+  /**
+   * Number of obstacles of the synthetic road network
+   */
+  @Param({"10", "50", "200"})
+  public int obstacles;
+
+  /**
+   * Spatial Model of the scenario
+   */
+  protected SpatialModel spatialModel;
+
+  /**
+   * Path-searching algorithm
+   */
+  protected Dijkstra dijkstra = new Dijkstra();
+
+  /**
+   * Source points
+   */
+  protected Point[] sources = new Point[64];
+
+  /**
+   * Destination points
+   */
+  protected Point[] destinations = new Point[64];
+
+  /**
+   * Index of the next pair of points
+   */
+  protected int next = 0;
+
+  /**
+   * Loads the scenario. <br>
+   * <br>
+   * @throws Exception Exception if the scenario could not be loaded
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    spatialModel = (SpatialModel)SyntheticScenario.load(obstacles).getExtension(SpatialModel.SLOT);
+
+    java.util.ArrayList vertices = spatialModel.getGraph().getVertices();
+    java.util.Random rand = new java.util.Random(SyntheticScenario.SEED);
+    for (int i=0; i<sources.length; i++)
+    {
+      Vertex vs = (Vertex)vertices.get(rand.nextInt(vertices.size()));
+      Vertex vd = (Vertex)vertices.get(rand.nextInt(vertices.size()));
+      sources[i] = new Point(vs.getX(), vs.getY());
+      destinations[i] = new Point(vd.getX(), vd.getY());
+    }
+  }
+
+  @Benchmark
+  public Trip getPath()
+  {
+    int i = next;
+    next = (next+1) % sources.length;
+
+    return dijkstra.getPath(spatialModel, null, sources[i], destinations[i],
+      PathSearchingAlgorithm.FLAG_REFLECT_DIRECTIONS);
+  }
+}
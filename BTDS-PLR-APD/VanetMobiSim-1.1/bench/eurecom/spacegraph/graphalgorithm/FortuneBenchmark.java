@@ -0,0 +1,75 @@
+package eurecom.spacegraph.graphalgorithm;
+
+/**
+ * <p>Title: Fortune Algorithm</p>
+ * <p>Description: Measures the generation of Voronoi Tesselations </p>
+ * <p>Copyright: Copyright (c) 2005</p>
+ * <p>Company: Institut Eurecom</p>
+ * @author Canu Research group
+ * @version 1.0
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SyntheticScenario;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the generation of Voronoi diagrams by the Fortune's
+ * algorithm. <br>
+ * <br>
+ * The obstacles are uniformly distributed over the simulation area of the
+ * synthetic scenarios. The algorithm moves the obstacles of degenerate cases,
+ * so every invocation works on a copy of them.
+ * @author Canu Research group
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class FortuneBenchmark
+{
+  /**
+   * Number of obstacles
+   */
+  @Param({"10", "50", "200", "1000"})
+  public int obstacles;
+
+  /**
+   * Side of the simulation area
+   */
+  protected int side;
+
+  /**
+   * Obstacles
+   */
+  protected MyPoint[] points;
+
+  /**
+   * Creates the obstacles. <br>
+   * <br>
+   */
+  @Setup
+  public void setup()
+  {
+    side = SyntheticScenario.getSide(obstacles);
+    points = new MyPoint[obstacles];
+
+    java.util.Random rand = new java.util.Random(SyntheticScenario.SEED);
+    for (int i=0; i<points.length; i++)
+      points[i] = new MyPoint(rand.nextDouble()*side, rand.nextDouble()*side);
+  }
+
+  @Benchmark
+  public java.util.ArrayList drawVoronoi()
+  {
+    java.util.ArrayList obstacles = new java.util.ArrayList(points.length);
+    for (int i=0; i<points.length; i++)
+      obstacles.add(new MyPoint(points[i]));
+
+    java.util.ArrayList edges = new java.util.ArrayList();
+    new Fortune(0, 0, side, side).drawVoronoi(obstacles, edges);
+
+    return edges;
+  }
+}
@@ -0,0 +1,102 @@
+package polito.uomm;
+
+/**
+ * <p>Title: Module for User-Oriented Mobility Model</p>
+ * <p>Description: Measures the acceleration computations of the
+ *    Intelligent Driver Model</p>
+ * <p>Copyright: Copyright (c) 2005</p>
+ * <p>Company: Politenico di Torino</p>
+ * @author Canu Research group
+ * @version 0.6
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.mobisim.mobilitymodels.Movement;
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SyntheticScenario;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * This class measures the acceleration computations of IDM-IM and IDM-LC. <br>
+ * <br>
+ * The nodes are taken from a synthetic scenario with IDM-LC motion run for a
+ * few seconds, so that they have a speed and a position on their roads.
+ * The number of nodes grows with the size of the road network.
+ *
+ * @author Canu Research group
+ * @version 0.6
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class IDMBenchmark
+{
+  /**
+   * Number of obstacles of the synthetic road network
+   */
+  @Param({"10", "50", "200"})
+  public int obstacles;
+
+  /**
+   * Nodes of the scenario
+   */
+  protected Node[] nodes;
+
+  /**
+   * Speed differences to the car ahead (in m/ms)
+   */
+  protected float[] speedDiffs = new float[64];
+
+  /**
+   * Distances to the car ahead (in m)
+   */
+  protected float[] gaps = new float[64];
+
+  /**
+   * Index of the next computation
+   */
+  protected int next = 0;
+
+  /**
+   * Runs the scenario. <br>
+   * <br>
+   * @throws Exception Exception if the scenario could not be run
+   */
+  @Setup
+  public void setup() throws Exception
+  {
+    Universe u = SyntheticScenario.run(obstacles, 2*obstacles, "polito.uomm.IDM_LC", 20.0);
+    nodes = (Node[])u.getNodes().toArray(new Node[0]);
+
+    java.util.Random rand = new java.util.Random(SyntheticScenario.SEED);
+    for (int i=0; i<gaps.length; i++)
+    {
+      speedDiffs[i] = (rand.nextFloat()-0.5f)*0.01f;
+      gaps[i] = rand.nextFloat()*200.0f;
+    }
+  }
+
+  @Benchmark
+  public float IDM()
+  {
+    int i = next;
+    next = (next+1) % gaps.length;
+
+    IDM_IM movement = (IDM_IM)nodes[i % nodes.length].getExtension(Movement.SLOT);
+    return movement.IDM(speedDiffs[i], gaps[i]);
+  }
+
+  @Benchmark
+  public float computeAcceleration()
+  {
+    int i = next;
+    next = (next+1) % gaps.length;
+
+    Node backNode = nodes[i % nodes.length];
+    Node frontNode = nodes[(i+1) % nodes.length];
+    IDM_LC movement = (IDM_LC)backNode.getExtension(Movement.SLOT);
+    return movement.computeAcceleration(backNode, frontNode);
+  }
+}
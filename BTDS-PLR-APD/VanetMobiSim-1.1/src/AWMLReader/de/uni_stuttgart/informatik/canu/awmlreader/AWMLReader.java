@@ -24,6 +24,11 @@ import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.*;
  */
 public class AWMLReader extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
     /**
      * Source stream
      */
@@ -482,7 +487,7 @@ public class AWMLReader extends ExtensionModule
 
       super.load(element);
 
-      spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+      spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 
       String s;
 
@@ -0,0 +1,256 @@
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SimulationEngine;
+import javax.xml.parsers.*;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class runs replications of a scenario with different seeds. <br>
+ * <br>
+ * The replications run concurrently in one process. Every replication
+ * loads its own copy of the scenario with the seed replaced and the name of
+ * every output file suffixed with the seed. <br>
+ * <br>
+ * The map is built once per batch: the replication with the first seed
+ * is loaded alone and its readers put the built spatial model into the
+ * runner's shared objects, the other replications share its elements,
+ * graph and shortest paths read-only (see
+ * {@link Universe#getSharedObjects getSharedObjects}). So the map of every
+ * replication is the one of the first seed, and only the first replication
+ * draws the map's random numbers.
+ * @author Canu Research group
+ */
+public class BatchRunner
+{
+  /**
+   * Contents of the scenario file
+   */
+  protected byte[] scenario;
+
+  /**
+   * Objects shared by the replications, e.g. the built maps
+   */
+  protected java.util.Map sharedObjects = new java.util.HashMap();
+
+  /**
+   * Number of errors
+   */
+  protected int errors = 0;
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * @param modelSource scenario file's name
+   * @throws Exception Exception if the file could not be read
+   */
+  public BatchRunner(String modelSource) throws Exception
+  {
+    java.io.InputStream in = new java.io.FileInputStream(modelSource);
+    try
+    {
+      java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer))>0)
+        out.write(buffer, 0, n);
+      scenario = out.toByteArray();
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Creates the scenario of a replication. <br>
+   * <br>
+   * @param seed seed of the replication
+   * @return root tag of the scenario
+   * @throws Exception Exception if the scenario is invalid
+   */
+  protected org.w3c.dom.Element createScenario(long seed) throws Exception
+  {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    DocumentBuilder builder = factory.newDocumentBuilder();
+
+    org.w3c.dom.Document document = builder.parse(new java.io.ByteArrayInputStream(scenario));
+
+    org.w3c.dom.Element root=document.getDocumentElement();
+
+    String rootTag=root.getNodeName();
+    if (!rootTag.equals("universe"))
+      throw new Exception("Invalid parent tag: "+rootTag);
+
+    // replace the seed
+    org.w3c.dom.NodeList list = root.getElementsByTagName("seed");
+    for (int i=list.getLength()-1; i>=0; i--)
+    {
+      org.w3c.dom.Node item = list.item(i);
+      if (item.getParentNode()==root)
+        root.removeChild(item);
+    }
+    org.w3c.dom.Element seedTag = document.createElement("seed");
+    seedTag.appendChild(document.createTextNode(Long.toString(seed)));
+    root.insertBefore(seedTag, root.getFirstChild());
+
+    // every replication writes its own output files
+    list = root.getElementsByTagName("extension");
+    for (int i=0; i<list.getLength(); i++)
+    {
+      org.w3c.dom.Element e = (org.w3c.dom.Element)list.item(i);
+      String outName = e.getAttribute("output");
+      if (outName.length()>0)
+        e.setAttribute("output", outName+"."+seed);
+    }
+
+    return root;
+  }
+
+  /**
+   * Loads a replication. <br>
+   * <br>
+   * @param seed seed of the replication
+   * @return Universe object of the replication, null if it could not be loaded
+   */
+  protected Universe loadReplication(long seed)
+  {
+    try
+    {
+      return SimulationEngine.load(createScenario(seed), sharedObjects);
+    }
+    catch(Exception e)
+    {
+      synchronized (this)
+      {
+        errors++;
+        System.err.println("Error loading replication with seed "+seed);
+        e.printStackTrace(System.err);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Runs a replication. <br>
+   * <br>
+   * @param seed seed of the replication
+   * @param u Universe object of the loaded replication, null to load it
+   */
+  protected void runReplication(long seed, Universe u)
+  {
+    if (u==null)
+      u = loadReplication(seed);
+    if (u==null)
+      return;
+
+    try
+    {
+      u.run();
+
+      synchronized (this)
+      {
+        System.out.println("Replication with seed "+seed+" finished at "+u.getTimeAsString());
+      }
+    }
+    catch(Exception e)
+    {
+      synchronized (this)
+      {
+        errors++;
+        System.err.println("Error running replication with seed "+seed);
+        e.printStackTrace(System.err);
+      }
+    }
+  }
+
+  /**
+   * Runs the replications. <br>
+   * <br>
+   * @param firstSeed seed of the first replication
+   * @param replications number of replications
+   * @param threads number of replications running at the same time
+   * @return number of failed replications
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  public int run(long firstSeed, int replications, int threads) throws InterruptedException
+  {
+    // the first replication builds the shared map, which the others need
+    Universe first = loadReplication(firstSeed);
+    if (first==null)
+      return errors;
+
+    java.util.concurrent.ExecutorService executor =
+      java.util.concurrent.Executors.newFixedThreadPool(threads);
+
+    try
+    {
+      for (int i=0; i<replications; i++)
+      {
+        final long seed = firstSeed+i;
+        final Universe loaded = (i==0) ? first : null;
+        executor.execute(new Runnable()
+        {
+          public void run()
+          {
+            runReplication(seed, loaded);
+          }
+        });
+      }
+
+      executor.shutdown();
+      while (!executor.awaitTermination(1, java.util.concurrent.TimeUnit.MINUTES))
+        ;
+    }
+    finally
+    {
+      executor.shutdownNow();
+      synchronized (sharedObjects)
+      {
+        sharedObjects.clear();
+      }
+    }
+
+    return errors;
+  }
+
+  //----------------------------------------------------------------------------
+  //----------------------------------------------------------------------------
+  public static void main(String[] args)
+  {
+    if ( (args.length<2)||(args.length>4)||(args[0].equals("-help")) )
+    {
+      System.out.println("Usage: BatchRunner modelSource.xml replications [threads [firstSeed]]\n");
+      return;
+    }
+
+    int errors;
+    try
+    {
+      int replications = Integer.parseInt(args[1]);
+      int threads = (args.length>2) ? Integer.parseInt(args[2]) :
+        Runtime.getRuntime().availableProcessors();
+      long firstSeed = (args.length>3) ? Long.parseLong(args[3]) : 1;
+      if ((replications<=0)||(threads<=0)||(firstSeed<=0))
+        throw new Exception("Invalid batch parameters");
+
+      errors = new BatchRunner(args[0]).run(firstSeed, replications, threads);
+    }
+    catch(Exception e)
+    {
+      System.err.println("Error running batch of "+args[0]);
+      e.printStackTrace(System.err);
+      errors = 1;
+    }
+
+    // stop the threads left by the extensions, e.g. the GUI
+    System.exit(errors==0 ? 0 : 1);
+  }//endproc
+
+}//endclass
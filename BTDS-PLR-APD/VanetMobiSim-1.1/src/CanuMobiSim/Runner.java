@@ -1,5 +1,5 @@
 import de.uni_stuttgart.informatik.canu.mobisim.core.*;
-import javax.xml.parsers.*;
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SimulationEngine;
 
 /**
  * Title:        Canu Mobility Simulation Environment
@@ -28,56 +28,35 @@ public class Runner
    */
   public Runner()
   {
-    Universe u=Universe.getReference();
-
-    if (!loadModel())
+    Universe u=loadModel();
+    if (u==null)
       return;
 
-    u.initialize();
-
-    // advance time in loop
-    for (;;)
-      u.advanceTime();
-
-    // an extension has to stop us ...
+    // advance time until an extension finishes the simulation
+    u.run();
   }
 
   /**
    * Initializes the model from source file. <br>
    * <br>
-   * @return true, if the model was successfully loaded
+   * @return loaded Universe object, null if the model could not be loaded
    */
-  protected boolean loadModel()
+  protected Universe loadModel()
   {
-    boolean retval=true;
-
-    Universe u=Universe.getReference();
+    Universe u=null;
 
     try
     {
       // parse the scenario
-        
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder builder = factory.newDocumentBuilder();
-
-      org.w3c.dom.Document document = builder.parse(new java.io.FileInputStream(modelSource));
-
-      org.w3c.dom.Element root=document.getDocumentElement();
-
-      String rootTag=root.getNodeName();
-      if (!rootTag.equals("universe"))
-        throw new Exception("Invalid parent tag: "+rootTag);
-
-      u.load(root);
+      u=SimulationEngine.load(SimulationEngine.parse(modelSource));
     }
     catch(Exception e)
     {
       System.err.println("Error loading model from "+modelSource);
       e.printStackTrace(System.err);
-      retval=false;
     }
 
-    return retval;
+    return u;
   }
 
   //----------------------------------------------------------------------------
@@ -93,6 +72,9 @@ public class Runner
     modelSource=args[0];
 
     new Runner();
+
+    // stop the threads left by the extensions, e.g. the GUI
+    System.exit(0);
   }//endproc
 
 }//endclass
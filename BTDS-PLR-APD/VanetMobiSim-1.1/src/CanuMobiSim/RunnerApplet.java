@@ -86,7 +86,7 @@ public class RunnerApplet extends JApplet implements ActionListener {
 		guiComponent.removeAll();
 		
     for (;;) {
-			if(forcedOut) {
+			if(forcedOut || u.isFinished()) {
 				break;
 			}
       u.advanceTime();
@@ -459,7 +459,7 @@ public class RunnerApplet extends JApplet implements ActionListener {
       float dimy = u.getDimensionY();
       float dx = 0.0f;
       float dy = 0.0f;
-      SpatialModel spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+      SpatialModel spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 			if (spatialModel == null)
 				return;
 			
@@ -16,8 +16,14 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  * @author Illya Stepanov
  */
 public class ExtendableObject implements XMLStreamable,
-                                         NotificationListener
+                                         NotificationListener,
+                                         java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Reference to the global instance of Universe object
    */
@@ -28,6 +34,29 @@ public class ExtendableObject implements XMLStreamable,
    */
   protected java.util.ArrayList extensions = new java.util.ArrayList();
 
+  /**
+   * Slot numbers of the extensions' names
+   * Key: name, Value: java.lang.Integer
+   */
+  private static final java.util.HashMap slotNumbers = new java.util.HashMap();
+
+  /**
+   * Extension modules by slot number, the first module with a name
+   * occupies the slot of the name (null if not resolved yet)
+   */
+  private transient ExtensionModule[] slots = new ExtensionModule[0];
+
+  /**
+   * Timestep at which the object is scheduled by the event scheduler
+   * (-1 if not scheduled)
+   */
+  long wakeUpTime = -1;
+
+  /**
+   * Execution order of the object within a timestep of the event scheduler
+   */
+  long wakeUpRank = -1;
+
   /**
    * Constructor
    */
@@ -50,17 +79,118 @@ public class ExtendableObject implements XMLStreamable,
     }
   }
 
+  /**
+   * Prepares the extensions due at the current timestep. <br>
+   * <br>
+   * The method is called on every simulation timestep before
+   * {@link #act act} if the nodes are stepped in parallel.
+   */
+  public void prepare()
+  {
+    long time = u.getTimeInSteps();
+    Profiler profiler = u.profiler;
+    for (int i=0; i<extensions.size(); i++)
+    {
+      ExtensionModule extension = (ExtensionModule)extensions.get(i);
+      if (extension.wakeUpTime<=time)
+      {
+        if (profiler!=null)
+        {
+          long start = System.nanoTime();
+          extension.prepare();
+          profiler.addPrepare(extension, System.nanoTime()-start);
+        }
+        else
+          extension.prepare();
+      }
+    }
+  }
+
   /**
    * Executes all extensions
    */
   public void act()
   {
+    Profiler profiler = u.profiler;
     java.util.Iterator iter = extensions.iterator();
     while (iter.hasNext())
     {
       ExtensionModule extension = (ExtensionModule)iter.next();
-      if (extension.act()==-1)
+      if (act(extension, profiler)==-1)
+      {
         iter.remove();  // remove the extension
+        updateSlots();
+      }
+
+      if (u.isFinished())
+        return;
+    }
+  }
+
+  /**
+   * Executes the extensions due at the current timestep. <br>
+   * <br>
+   * Used instead of {@link #act act} if the simulation runs in event mode.
+   * @return timestep of the next execution of an extension,
+   *         Long.MAX_VALUE if no execution is pending
+   */
+  long actDue()
+  {
+    long time = u.getTimeInSteps();
+    long next = Long.MAX_VALUE;
+    Profiler profiler = u.profiler;
+
+    java.util.Iterator iter = extensions.iterator();
+    while (iter.hasNext())
+    {
+      ExtensionModule extension = (ExtensionModule)iter.next();
+      if (extension.wakeUpTime<=time)
+      {
+        if (act(extension, profiler)==-1)
+        {
+          iter.remove();  // remove the extension
+          updateSlots();
+          continue;
+        }
+        if (u.isFinished())
+          return Long.MAX_VALUE;
+        extension.wakeUpTime = Math.max(time+1, extension.getWakeUpTime());
+      }
+      next = Math.min(next, extension.wakeUpTime);
+    }
+
+    return next;
+  }
+
+  /**
+   * Executes an extension. <br>
+   * <br>
+   * @param extension extension module
+   * @param profiler profiler recording the execution, null if none
+   * @return result of the extension's {@link ExtensionModule#act act}
+   */
+  private int act(ExtensionModule extension, Profiler profiler)
+  {
+    if (profiler==null)
+      return extension.act();
+
+    long start = System.nanoTime();
+    int res = extension.act();
+    profiler.addAct(this, extension, System.nanoTime()-start);
+
+    return res;
+  }
+
+  /**
+   * Releases the resources of the extensions. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    for (int i=0; i<extensions.size(); i++)
+    {
+      ((ExtensionModule)extensions.get(i)).close();
     }
   }
 
@@ -83,6 +213,109 @@ public class ExtendableObject implements XMLStreamable,
     return null;
   }
   
+  /**
+   * Gets the extension occupying a slot. <br>
+   * <br>
+   * The slots are resolved when the extensions are added or removed,
+   * so the method does no name comparisons.
+   * @param slot slot number obtained by {@link #getSlot getSlot}
+   * @return extension module, if found, null otherwise
+   */
+  public final ExtensionModule getExtension(int slot)
+  {
+    ExtensionModule[] slots = this.slots;
+    if (slots==null)
+      slots = updateSlots();
+
+    return ((slot>=0)&&(slot<slots.length)) ? slots[slot] : null;
+  }
+
+  /**
+   * Gets the slot number of an extension's name. <br>
+   * <br>
+   * The numbers are shared by all objects, so a slot number may be
+   * obtained once and stored in a constant.
+   * @param name extension's name
+   * @return slot number
+   */
+  public static int getSlot(String name)
+  {
+    synchronized (slotNumbers)
+    {
+      Integer slot = (Integer)slotNumbers.get(name);
+      if (slot==null)
+      {
+        slot = Integer.valueOf(slotNumbers.size());
+        slotNumbers.put(name, slot);
+      }
+
+      return slot.intValue();
+    }
+  }
+
+  /**
+   * Resolves the slots of the extensions. <br>
+   * <br>
+   * The method must be called whenever the list of extensions changes.
+   * @return extension modules by slot number
+   */
+  protected ExtensionModule[] updateSlots()
+  {
+    int n = 0;
+    int[] numbers = new int[extensions.size()];
+    for (int i=0; i<numbers.length; i++)
+    {
+      numbers[i] = getSlot(((ExtensionModule)extensions.get(i)).getName());
+      n = Math.max(n, numbers[i]+1);
+    }
+
+    ExtensionModule[] res = new ExtensionModule[n];
+    for (int i=0; i<numbers.length; i++)
+    {
+      if (res[numbers[i]]==null)
+        res[numbers[i]] = (ExtensionModule)extensions.get(i);
+    }
+
+    slots = res;
+    return res;
+  }
+
+  /**
+   * Copies the extensions of the object to a copy of the object. <br>
+   * <br>
+   * @param copy copy of the object, created by {@link Object#clone clone}
+   * @return true, if all extensions could be copied
+   */
+  protected boolean copyExtensions(ExtendableObject copy)
+  {
+    ExtensionModule[] slots = (this.slots!=null) ? this.slots : updateSlots();
+    ExtensionModule[] copySlots = new ExtensionModule[slots.length];
+
+    java.util.ArrayList res = new java.util.ArrayList(extensions.size());
+    for (int i=0; i<extensions.size(); i++)
+    {
+      ExtensionModule module = (ExtensionModule)extensions.get(i);
+      ExtensionModule moduleCopy = module.copy(copy);
+      if (moduleCopy==null)
+        return false;
+      res.add(moduleCopy);
+
+      // the copy occupies the same slot
+      for (int j=0; j<slots.length; j++)
+      {
+        if (slots[j]==module)
+          copySlots[j] = moduleCopy;
+      }
+    }
+
+    copy.extensions = res;
+    copy.slots = copySlots;
+    copy.wakeUpTime = -1;
+    copy.wakeUpRank = -1;
+
+    return true;
+  }
+
   /**
    * Gets the list of registered extensions. <br>
    * <br>
@@ -93,6 +326,50 @@ public class ExtendableObject implements XMLStreamable,
     return extensions;
   }
 
+  /**
+   * Saves the object to a checkpoint. <br>
+   * <br>
+   * The extensions which are not checkpointed
+   * (see {@link ExtensionModule#isCheckpointed}) are left out.
+   * @param out checkpoint stream
+   * @throws java.io.IOException if the object could not be written
+   */
+  private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException
+  {
+    java.util.ArrayList all = extensions;
+    extensions = new java.util.ArrayList();
+    for (int i=0; i<all.size(); i++)
+    {
+      ExtensionModule module = (ExtensionModule)all.get(i);
+      if (module.isCheckpointed())
+        extensions.add(module);
+    }
+
+    try
+    {
+      out.defaultWriteObject();
+    }
+    finally
+    {
+      extensions = all;
+    }
+  }
+
+  /**
+   * Restores the object from a checkpoint. <br>
+   * <br>
+   * The slots are resolved on first use, since the extensions
+   * may not be completely restored yet.
+   * @param in checkpoint stream
+   * @throws java.io.IOException if the object could not be read
+   * @throws ClassNotFoundException if a class of the checkpoint is not found
+   */
+  private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    slots = null;
+  }
+
   /**
    * Passes a notification to the module. <br>
    * <br>
@@ -112,6 +389,7 @@ public class ExtendableObject implements XMLStreamable,
   {
     org.w3c.dom.NodeList list = element.getChildNodes();
     int len=list.getLength();
+    int loaded=0;
 
     for(int i=0; i<len; i++)
     {
@@ -142,6 +420,7 @@ public class ExtendableObject implements XMLStreamable,
         ExtensionModule module=(ExtensionModule)Class.forName(classTag).
           newInstance();
         module.owner = this;
+        module.index = loaded++;
 
         u.sendNotification(new LoaderNotification(this, u,
           "Loading class "+classTag));
@@ -152,6 +431,7 @@ public class ExtendableObject implements XMLStreamable,
           "Finished loading class "+classTag));
 
         extensions.add(module);
+        updateSlots();
 
         u.sendNotification(new LoaderNotification(this, u,
           "Finished processing <extension> tag"));
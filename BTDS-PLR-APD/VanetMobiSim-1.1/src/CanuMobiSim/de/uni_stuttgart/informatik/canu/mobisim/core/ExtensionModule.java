@@ -14,8 +14,15 @@ package de.uni_stuttgart.informatik.canu.mobisim.core;
  * @author Illya Stepanov
  */
 public abstract class ExtensionModule implements XMLStreamable,
-                                                 NotificationListener
+                                                 NotificationListener,
+                                                 java.io.Serializable,
+                                                 Cloneable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Extendable object owning the module
    */
@@ -31,6 +38,22 @@ public abstract class ExtensionModule implements XMLStreamable,
    */
   protected Universe u;
 
+  /**
+   * Timestep of the next execution by the event scheduler
+   */
+  long wakeUpTime = 0;
+
+  /**
+   * Number of the module among the extensions loaded from the owner's tag,
+   * -1 if the module was added otherwise
+   */
+  int index = -1;
+
+  /**
+   * Module's random number generator, NULL if not requested yet
+   */
+  private java.util.Random random = null;
+
   /**
    * Constructor
    */
@@ -82,6 +105,71 @@ public abstract class ExtensionModule implements XMLStreamable,
     return owner;
   }
 
+  /**
+   * Gets the module's random number generator. <br>
+   * <br>
+   * If random streams are enabled (see {@link Universe#isRandomStreams}),
+   * the module draws from its own stream derived from its name, its number
+   * among the extensions of its owner and the ID of its owner node, so
+   * unnamed extensions of the same class draw different numbers. Otherwise
+   * the generator of the Universe is returned.
+   * @return random number generator
+   */
+  public java.util.Random getRandom()
+  {
+    if (random==null)
+    {
+      String key = (index>=0) ? name+"#"+index : name;
+      if (owner instanceof Node)
+        random = u.getRandom(((Node)owner).getID()+"/"+key);
+      else
+        random = u.getRandom(key);
+    }
+
+    return random;
+  }
+
+  /**
+   * Creates a copy of the module for another object. <br>
+   * <br>
+   * The copy has the same parameters as the module, as if it was loaded
+   * from the same tag. It is used to create the nodes of a node group from
+   * a prototype. Modules are not copied by default; subclasses supporting
+   * copies override the method, call {@link #copyModule copyModule} and
+   * replace the objects which must not be shared by the copies.
+   * @param owner owner of the copy
+   * @return copy of the module, null if the module can not be copied
+   */
+  public ExtensionModule copy(ExtendableObject owner)
+  {
+    return null;
+  }
+
+  /**
+   * Creates a shallow copy of the module for another object. <br>
+   * <br>
+   * @param owner owner of the copy
+   * @return copy of the module
+   */
+  protected ExtensionModule copyModule(ExtendableObject owner)
+  {
+    ExtensionModule res;
+    try
+    {
+      res = (ExtensionModule)clone();
+    }
+    catch (CloneNotSupportedException e)
+    {
+      throw new InternalError(e.toString());
+    }
+
+    res.owner = owner;
+    res.random = null;
+    res.wakeUpTime = 0;
+
+    return res;
+  }
+
   /**
    * Returns the module's description. <br>
    * <br>
@@ -107,6 +195,80 @@ public abstract class ExtensionModule implements XMLStreamable,
    */
   public abstract int act();
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The method is called after every execution if the simulation runs
+   * in event mode (see {@link Universe#isEventScheduling}). Extensions with
+   * nothing to do on the next timesteps should return a later time,
+   * passive extensions should return Long.MAX_VALUE.
+   * The default implementation requests the execution on the next timestep.
+   * @return timestep of the next execution
+   */
+  public long getWakeUpTime()
+  {
+    return u.getTimeInSteps()+1;
+  }
+
+  /**
+   * Gets the first timestep after the current one, at which
+   * a periodic activity is due. <br>
+   * <br>
+   * @param period activity period (in ms)
+   * @return first timestep after the current one, at which
+   *         the simulation time is a multiple of the period
+   */
+  protected long getNextPeriodTime(long period)
+  {
+    // the activity is due every period/gcd(period, step duration) steps
+    long a = period, b = u.getStepDuration();
+    while (b!=0)
+    {
+      long r = a%b;
+      a = b;
+      b = r;
+    }
+    long steps = period/a;
+
+    return (u.getTimeInSteps()/steps+1)*steps;
+  }
+
+  /**
+   * Prepares the next execution of the extension. <br>
+   * <br>
+   * The method is called on every simulation timestep before {@link #act act}
+   * if the nodes are stepped in parallel (see {@link Universe#isPreparing}).
+   * The calls for different nodes run concurrently, so the method may only
+   * modify the state of its own node and read the state published by the
+   * other nodes. The default implementation does nothing.
+   */
+  public void prepare()
+  {
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * Output modules are not saved, they are configured again by the
+   * scenario restoring the checkpoint (see {@link Universe#writeCheckpoint}).
+   * The default implementation returns true.
+   * @return true, if the module is saved
+   */
+  public boolean isCheckpointed()
+  {
+    return true;
+  }
+
+  /**
+   * Releases the resources of the module. <br>
+   * <br>
+   * The method is called after the simulation is finished, e.g. to close
+   * the output files. The default implementation does nothing.
+   */
+  public void close()
+  {
+  }
+
   /**
    * Notification passing method. <br>
    * <br>
@@ -0,0 +1,93 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class buffers the output of a module and counts the written bytes. <br>
+ * <br>
+ * The written bytes and the bytes waiting in the buffer are reported by
+ * the simulation monitor (see {@link SimulationMonitor}). The buffer
+ * only holds the output of the current timestep: the Universe flushes
+ * the open streams at the end of every timestep, so a run stopped, e.g.
+ * by Ctrl-C, loses at most the lines of the timestep being executed.
+ * @author Canu Research group
+ */
+public class MonitoredOutputStream extends java.io.BufferedOutputStream
+{
+  /**
+   * Size of the buffer (in bytes)
+   */
+  public static final int BUFFER_SIZE = 65536;
+
+  /**
+   * Monitor of the simulation
+   */
+  protected SimulationMonitor monitor;
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * @param out underlying output stream
+   * @param monitor monitor of the simulation
+   */
+  public MonitoredOutputStream(java.io.OutputStream out, SimulationMonitor monitor)
+  {
+    super(out, BUFFER_SIZE);
+    this.monitor = monitor;
+    monitor.addOutput(this);
+  }
+
+  /**
+   * Writes a byte. <br>
+   * <br>
+   * @param b byte
+   * @throws java.io.IOException if an I/O error occurs
+   */
+  public synchronized void write(int b) throws java.io.IOException
+  {
+    super.write(b);
+    monitor.addOutputBytes(1);
+  }
+
+  /**
+   * Writes a part of an array of bytes. <br>
+   * <br>
+   * @param b bytes
+   * @param off offset of the first byte
+   * @param len number of bytes
+   * @throws java.io.IOException if an I/O error occurs
+   */
+  public synchronized void write(byte[] b, int off, int len) throws java.io.IOException
+  {
+    super.write(b, off, len);
+    monitor.addOutputBytes(len);
+  }
+
+  /**
+   * Gets the number of the bytes waiting in the buffer. <br>
+   * <br>
+   * @return number of bytes
+   */
+  public int getPendingBytes()
+  {
+    return count;
+  }
+
+  /**
+   * Flushes and closes the stream. <br>
+   * <br>
+   * @throws java.io.IOException if an I/O error occurs
+   */
+  public void close() throws java.io.IOException
+  {
+    monitor.removeOutput(this);
+    super.close();
+  }
+}
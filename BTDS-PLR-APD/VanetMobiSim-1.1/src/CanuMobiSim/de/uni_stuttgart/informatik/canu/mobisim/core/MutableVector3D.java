@@ -0,0 +1,215 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/*--------------------------------------------------------------------------*/
+/* CLASS MutableVector3D */
+/********************
+** Vector which can be modified in place. <BR>
+** <BR>
+** Movement models keep instances of this class to compute their
+** per-step movement without creating new vectors.
+** @version 1.1
+** @author  Canu Research group
+*/
+
+public class MutableVector3D extends Vector3D
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+   /*--------------------------------------------------------------*/
+   /* CONSTRUCTOR */
+   /****************
+   ** Constructs a new null MutableVector3D. <BR>
+   ** <BR>
+   ** precond : none <BR>
+   ** postcond: this.x', this.y' and this.z' set to 0 <BR>
+   */
+   public MutableVector3D() {
+      super(0.0, 0.0, 0.0);
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* CONSTRUCTOR */
+   /****************
+   ** Constructs a new MutableVector3D. <BR>
+   ** <BR>
+   ** precond : x, y and z not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   */
+   public MutableVector3D(double x, double y, double z) {
+      super(x, y, z);
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* CONSTRUCTOR */
+   /****************
+   ** Constructs a new MutableVector3D. <BR>
+   ** <BR>
+   ** precond : aVector not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   */
+   public MutableVector3D(Vector3D aVector) {
+      super(aVector);
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD set */
+   /**********************
+   ** Sets the coordinates of the vector.<BR>
+   ** <BR>
+   ** precond : x, y and z not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D set(double x, double y, double z)
+   {
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD set */
+   /**********************
+   ** Copies the coordinates of a vector.<BR>
+   ** <BR>
+   ** precond : aVector not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D set(Vector3D aVector)
+   {
+      this.x = aVector.x;
+      this.y = aVector.y;
+      this.z = aVector.z;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD setScaled */
+   /**********************
+   ** Sets the vector to the product of a vector and skalar.<BR>
+   ** <BR>
+   ** The result is the same as aVector.mult(skalar).<BR>
+   ** precond : aVector and skalar not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D setScaled(Vector3D aVector, double skalar)
+   {
+      this.x = aVector.x * skalar;
+      this.y = aVector.y * skalar;
+      this.z = aVector.z * skalar;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD setDirection */
+   /**********************
+   ** Sets the vector to the direction vector between two positions.<BR>
+   ** <BR>
+   ** The result is the same as from.getDirectionVector(to).<BR>
+   ** precond : from and to not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D setDirection(Position3D from, Position3D to)
+   {
+      this.x = to.p.x - from.p.x;
+      this.y = to.p.y - from.p.y;
+      this.z = to.p.z - from.p.z;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD addInPlace */
+   /**********************
+   ** Adds a vector to the this.MutableVector3D.<BR>
+   ** <BR>
+   ** precond : pos not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D addInPlace(Vector3D pos)
+   {
+      this.x = this.x + pos.x;
+      this.y = this.y + pos.y;
+      this.z = this.z + pos.z;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD addScaledInPlace */
+   /**********************
+   ** Adds the product of a vector and skalar to the this.MutableVector3D.<BR>
+   ** <BR>
+   ** The result is the same as add(pos.mult(skalar)).<BR>
+   ** precond : pos and skalar not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D addScaledInPlace(Vector3D pos, double skalar)
+   {
+      this.x = this.x + pos.x * skalar;
+      this.y = this.y + pos.y * skalar;
+      this.z = this.z + pos.z * skalar;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD multInPlace */
+   /**********************
+   ** Multiplies the this.MutableVector3D by skalar.<BR>
+   ** <BR>
+   ** precond : skalar not null <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D multInPlace(double skalar)
+   {
+      this.x = this.x * skalar;
+      this.y = this.y * skalar;
+      this.z = this.z * skalar;
+      return this;
+   }//endproc
+
+
+   /*--------------------------------------------------------------*/
+   /* METHOD normalizeInPlace */
+   /**********************
+   ** Normalizes the this.MutableVector3D.<BR>
+   ** <BR>
+   ** The result is the same as normalize().<BR>
+   ** precond : none <BR>
+   ** postcond: this.x', this.y' and this.z' set <BR>
+   ** @return this.MutableVector3D
+   */
+   public MutableVector3D normalizeInPlace()
+   {
+      double length = getLength();
+
+      if(length != 0.0) {
+         this.x = this.x / length;
+         this.y = this.y / length;
+         this.z = this.z / length;
+      }else {
+         this.x = 0.0;
+         this.y = 0.0;
+         this.z = 0.0;
+      }//endif
+
+      return this;
+   }//endproc
+}//endclass
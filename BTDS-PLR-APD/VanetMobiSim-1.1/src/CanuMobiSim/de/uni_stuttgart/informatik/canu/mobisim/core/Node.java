@@ -28,7 +28,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  * @author 1.2 Jerome Haerri
  * @version 1.2
  */
-public class Node extends ExtendableObject implements Comparable {
+public class Node extends ExtendableObject implements Comparable, Cloneable {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
 	 
 	
   //environment
@@ -38,17 +42,68 @@ public class Node extends ExtendableObject implements Comparable {
    */
   protected String   id;
 
+  /**
+   * Node's index in the simulation
+   */
+  int index = -1;
+
   /**
    * Node's Position
    */
   protected Position3D position = new Position3D(0, 0, 0);
 
+  /**
+   * Node's speed (in meters/ms)
+   */
+  protected float speed = 0.0f;
+
+  /**
+   * Id of the road the node is moving on, -1 if not known
+   */
+  protected int edge = -1;
+
+  /**
+   * Store holding the node's state, NULL if the node has not been added
+   * to the simulation
+   */
+  NodeStateStore states = null;
+
+  /**
+   * Flag to indicate that the position object must be updated from the store
+   */
+  private volatile boolean positionChanged = false;
+
+  /**
+   * Node's random number generator, NULL if not requested yet
+   */
+  private java.util.Random random = null;
+
   
 	/**
    * Node's Attributes (GDF style)
 	 * @since 1.2
    */
-  protected java.util.Map attributes = new java.util.HashMap();
+  protected java.util.Map attributes = new AttributeMap();
+
+  /**
+   * Lane number on which the node is moving (attribute "LN")
+   */
+  protected int lane = 1;
+
+  /**
+   * Node's vehicle type (attribute "VT")
+   */
+  protected int vehicleType = 0;
+
+  /**
+   * Flag to indicate that the "LN" attribute must be updated from the lane number
+   */
+  private boolean laneChanged = false;
+
+  /**
+   * Flag to indicate that the "VT" attribute must be updated from the vehicle type
+   */
+  private boolean vehicleTypeChanged = false;
 	
 	/**
    * Constructor
@@ -79,6 +134,35 @@ public class Node extends ExtendableObject implements Comparable {
     return id;
   }
 
+  /**
+   * Gets the node's index. <br>
+   * <br>
+   * Nodes are indexed in the order of their addition to the simulation.
+   * The index does not change when other nodes are removed.
+   * @return node's index, -1 if the node has not been added
+   */
+  public final int getIndex()
+  {
+    return index;
+  }
+
+  /**
+   * Gets the node's random number generator. <br>
+   * <br>
+   * If random streams are enabled (see {@link Universe#isRandomStreams}),
+   * the node draws from its own stream derived from its ID, so that its
+   * random numbers do not depend on the order the nodes are executed in.
+   * Otherwise the generator of the Universe is returned.
+   * @return random number generator
+   */
+  public java.util.Random getRandom()
+  {
+    if (random==null)
+      random = u.getRandom(id);
+
+    return random;
+  }
+
 	
 	/**
    * Gets the node's attributes (GDF style). <br>
@@ -141,9 +225,90 @@ public class Node extends ExtendableObject implements Comparable {
    */
   public final Position3D getPosition()
   {
+    if (positionChanged)
+    {
+      position = new Position3D(states.x[index], states.y[index], states.z[index]);
+      positionChanged = false;
+    }
+
     return position;
   }
 
+  /**
+   * Gets the x-coordinate of the node's current position. <br>
+   * <br>
+   * @return x-coordinate (in meters)
+   */
+  public final double getX()
+  {
+    return states!=null ? states.x[index] : position.getX();
+  }
+
+  /**
+   * Gets the y-coordinate of the node's current position. <br>
+   * <br>
+   * @return y-coordinate (in meters)
+   */
+  public final double getY()
+  {
+    return states!=null ? states.y[index] : position.getY();
+  }
+
+  /**
+   * Gets the z-coordinate of the node's current position. <br>
+   * <br>
+   * @return z-coordinate (in meters)
+   */
+  public final double getZ()
+  {
+    return states!=null ? states.z[index] : position.getZ();
+  }
+
+  /**
+   * Gets a distance from the node's current position to a position. <br>
+   * <br>
+   * @param pos position
+   * @return distance to position
+   */
+  public final double getDistance(Position3D pos)
+  {
+    return Math.sqrt(getDistanceSq(pos));
+  }
+
+  /**
+   * Gets a squared distance from the node's current position to a position. <br>
+   * <br>
+   * @param pos position
+   * @return squared distance to position
+   */
+  public final double getDistanceSq(Position3D pos)
+  {
+    if (states==null)
+      return position.getDistanceSq(pos);
+
+    double dx = pos.getX()-states.x[index];
+    double dy = pos.getY()-states.y[index];
+    double dz = pos.getZ()-states.z[index];
+    return dx*dx + dy*dy + dz*dz;
+  }
+
+  /**
+   * Checks if the node is at a position. <br>
+   * <br>
+   * @param pos position
+   * @return true, if the node's current position is equal to the position
+   */
+  public final boolean isAt(Position3D pos)
+  {
+    if (pos==null)
+      return false;
+    if (states==null)
+      return position.equals(pos);
+
+    return (pos.getX()==states.x[index])&&(pos.getY()==states.y[index])&&
+           (pos.getZ()==states.z[index]);
+  }
+
 
   /**
    * Sets the node's current position. <br>
@@ -153,6 +318,77 @@ public class Node extends ExtendableObject implements Comparable {
   public void setPosition(Position3D position)
   {
     this.position = position;
+    if (states!=null)
+    {
+      states.setPosition(index, position.getX(), position.getY(), position.getZ());
+      positionChanged = false;
+    }
+  }
+
+  /**
+   * Moves the node. <br>
+   * <br>
+   * The position object is created only if it is requested.
+   * @param movement movement vector
+   */
+  public void move(Vector3D movement)
+  {
+    if (states==null)
+    {
+      setPosition(getPosition().add(movement));
+      return;
+    }
+
+    states.move(index, movement.getX(), movement.getY(), movement.getZ());
+    positionChanged = true;
+  }
+
+  /**
+   * Gets the node's current speed. <br>
+   * <br>
+   * The speed is set by the movement model.
+   * @return speed (in meters/ms)
+   */
+  public float getSpeed()
+  {
+    return states!=null ? states.speed[index] : speed;
+  }
+
+  /**
+   * Sets the node's current speed. <br>
+   * <br>
+   * @param speed speed (in meters/ms)
+   */
+  public void setSpeed(float speed)
+  {
+    if (states!=null)
+      states.speed[index] = speed;
+    else
+      this.speed = speed;
+  }
+
+  /**
+   * Gets the id of the road the node is moving on. <br>
+   * <br>
+   * The id is set by the movement model.
+   * @return road id, -1 if not known
+   */
+  public int getEdge()
+  {
+    return states!=null ? states.edge[index] : edge;
+  }
+
+  /**
+   * Sets the id of the road the node is moving on. <br>
+   * <br>
+   * @param edge road id, -1 if not known
+   */
+  public void setEdge(int edge)
+  {
+    if (states!=null)
+      states.edge[index] = edge;
+    else
+      this.edge = edge;
   }
 
 	/**
@@ -162,13 +398,7 @@ public class Node extends ExtendableObject implements Comparable {
 	 * @since 1.2
    */
 	public int getLane() {
-     String n_l = (String)attributes.get("LN");
-     if (n_l !=null) {
-			 int laneNumber = Integer.parseInt(n_l);
-       return laneNumber;
-     }
-     else
-        return 1;
+    return states!=null ? states.lane[index] : lane;
   } 
 	
 	/**
@@ -178,9 +408,43 @@ public class Node extends ExtendableObject implements Comparable {
 	 * @since 1.2
    */
 	public void setLane(int laneNumber) {
-		String laneNumberString = String.valueOf(laneNumber);
-		attributes.put("LN",laneNumberString);
+    storeLane(laneNumber);
+    laneChanged = true;
   } 
+
+  /**
+   * Stores the node's lane number. <br>
+   * <br>
+   * @param laneNumber lane number
+   */
+  private void storeLane(int laneNumber)
+  {
+    if (states!=null)
+      states.lane[index] = laneNumber;
+    else
+      lane = laneNumber;
+  }
+
+  /**
+   * Gets the node's vehicle type (GDF style). <br>
+   * <br>
+   * @return vehicle type code, 0 if the type is not specified
+   */
+  public int getVehicleType()
+  {
+    return vehicleType;
+  }
+
+  /**
+   * Sets the node's vehicle type (GDF style). <br>
+   * <br>
+   * @param type vehicle type code
+   */
+  public void setVehicleType(int type)
+  {
+    vehicleType = type;
+    vehicleTypeChanged = true;
+  }
 	
   /**
     * Initializes the object from XML tag. <br>
@@ -258,4 +522,180 @@ public class Node extends ExtendableObject implements Comparable {
     if (id.length()==0)
       throw new Exception("Node "+toString()+" misses id definition");
   }//proc
+
+  /**
+   * Creates a copy of the node with another id. <br>
+   * <br>
+   * The copy has copies of the node's extensions and is not added to the
+   * simulation. Used to create the nodes of a node group from a prototype
+   * instead of loading every node from the scenario.
+   * Subclasses holding other objects which must not be shared by the
+   * copies must override the method.
+   * @param id id of the copy
+   * @return copy of the node, null if an extension can not be copied
+   *         (see {@link ExtensionModule#copy ExtensionModule.copy})
+   */
+  public Node copy(String id)
+  {
+    Node res;
+    try
+    {
+      res = (Node)clone();
+    }
+    catch (CloneNotSupportedException e)
+    {
+      throw new InternalError(e.toString());
+    }
+
+    res.id = id;
+    res.index = -1;
+    res.states = null;
+    res.position = getPosition();
+    res.positionChanged = false;
+    res.random = null;
+    res.attributes = res.new AttributeMap();
+    res.attributes.putAll(attributes);
+
+    if (!copyExtensions(res))
+      return null;
+
+    return res;
+  }
+
+  /**
+   * Map of the node's attributes. <br>
+   * <br>
+   * The "LN" and "VT" attributes are kept in the lane number and vehicle type
+   * fields. Their string values are updated only when the map is read.
+   */
+  private class AttributeMap extends java.util.HashMap
+  {
+    /**
+     * Version of the class in the checkpoints
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Updates the strings of the changed attributes. <br>
+     */
+    private void update()
+    {
+      if (laneChanged)
+      {
+        laneChanged = false;
+        super.put("LN", String.valueOf(getLane()));
+      }
+      if (vehicleTypeChanged)
+      {
+        vehicleTypeChanged = false;
+        super.put("VT", String.valueOf(vehicleType));
+      }
+    }
+
+    /**
+     * Gets the value of an attribute. <br>
+     * <br>
+     * @param key attribute's code
+     * @return attribute's value
+     */
+    public Object get(Object key)
+    {
+      update();
+      return super.get(key);
+    }
+
+    /**
+     * Checks if an attribute is set. <br>
+     * <br>
+     * @param key attribute's code
+     * @return true, if the attribute is set
+     */
+    public boolean containsKey(Object key)
+    {
+      update();
+      return super.containsKey(key);
+    }
+
+    /**
+     * Checks if an attribute has a value. <br>
+     * <br>
+     * @param value attribute's value
+     * @return true, if an attribute has the value
+     */
+    public boolean containsValue(Object value)
+    {
+      update();
+      return super.containsValue(value);
+    }
+
+    /**
+     * Sets the value of an attribute. <br>
+     * <br>
+     * @param key attribute's code
+     * @param value attribute's value
+     * @return previous value of the attribute
+     */
+    public Object put(Object key, Object value)
+    {
+      update();
+      if ("LN".equals(key))
+        storeLane(Integer.parseInt((String)value));
+      else
+      if ("VT".equals(key))
+        vehicleType = Integer.parseInt((String)value);
+
+      return super.put(key, value);
+    }
+
+    /**
+     * Removes an attribute. <br>
+     * <br>
+     * @param key attribute's code
+     * @return previous value of the attribute
+     */
+    public Object remove(Object key)
+    {
+      update();
+      if ("LN".equals(key))
+        storeLane(1);
+      else
+      if ("VT".equals(key))
+        vehicleType = 0;
+
+      return super.remove(key);
+    }
+
+    /**
+     * Gets the set of attributes. <br>
+     * <br>
+     * @return set of attributes
+     */
+    public java.util.Set entrySet()
+    {
+      update();
+      return super.entrySet();
+    }
+
+    /**
+     * Gets the set of attribute codes. <br>
+     * <br>
+     * @return set of attribute codes
+     */
+    public java.util.Set keySet()
+    {
+      update();
+      return super.keySet();
+    }
+
+    /**
+     * Gets the attribute values. <br>
+     * <br>
+     * @return attribute values
+     */
+    public java.util.Collection values()
+    {
+      update();
+      return super.values();
+    }
+  }
 }
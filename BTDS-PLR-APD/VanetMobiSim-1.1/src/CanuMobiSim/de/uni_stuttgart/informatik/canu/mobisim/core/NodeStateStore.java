@@ -0,0 +1,344 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class stores the state of the nodes of the simulation. <br>
+ * <br>
+ * The state is kept in arrays of primitives indexed by the node's index,
+ * so that the movement models update it without creating objects and the
+ * nodes can be scanned sequentially. A node added to the simulation reads
+ * and writes its position, speed, lane and road in the store.
+ * @author Canu Research group
+ */
+public class NodeStateStore implements java.io.Serializable
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Initial capacity of the store
+   */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * X-coordinates of the nodes (in meters)
+   */
+  protected double[] x = new double[INITIAL_CAPACITY];
+
+  /**
+   * Y-coordinates of the nodes (in meters)
+   */
+  protected double[] y = new double[INITIAL_CAPACITY];
+
+  /**
+   * Z-coordinates of the nodes (in meters)
+   */
+  protected double[] z = new double[INITIAL_CAPACITY];
+
+  /**
+   * Speeds of the nodes (in meters/ms)
+   */
+  protected float[] speed = new float[INITIAL_CAPACITY];
+
+  /**
+   * Lane numbers of the nodes
+   */
+  protected int[] lane = new int[INITIAL_CAPACITY];
+
+  /**
+   * Ids of the roads the nodes are moving on, -1 if not known
+   */
+  protected int[] edge = new int[INITIAL_CAPACITY];
+
+  /**
+   * Number of the used entries
+   */
+  protected int size = 0;
+
+  /**
+   * Constructor
+   */
+  public NodeStateStore()
+  {
+  }
+
+  /**
+   * Moves the state of a node to the store. <br>
+   * <br>
+   * The node's index must be set.
+   * @param node node
+   */
+  void attach(Node node)
+  {
+    int i = node.index;
+    ensureCapacity(i+1);
+
+    Position3D pos = node.getPosition();
+    x[i] = pos.getX();
+    y[i] = pos.getY();
+    z[i] = pos.getZ();
+    speed[i] = node.speed;
+    lane[i] = node.lane;
+    edge[i] = node.edge;
+
+    if (i>=size)
+      size = i+1;
+
+    node.states = this;
+  }
+
+  /**
+   * Ensures that the store can hold the nodes with indices
+   * less than the given number. <br>
+   * <br>
+   * @param capacity required capacity
+   */
+  protected void ensureCapacity(int capacity)
+  {
+    if (capacity<=x.length)
+      return;
+
+    int n = Math.max(capacity, x.length*2);
+    double[] nx = new double[n];
+    double[] ny = new double[n];
+    double[] nz = new double[n];
+    float[] nspeed = new float[n];
+    int[] nlane = new int[n];
+    int[] nedge = new int[n];
+    System.arraycopy(x, 0, nx, 0, size);
+    System.arraycopy(y, 0, ny, 0, size);
+    System.arraycopy(z, 0, nz, 0, size);
+    System.arraycopy(speed, 0, nspeed, 0, size);
+    System.arraycopy(lane, 0, nlane, 0, size);
+    System.arraycopy(edge, 0, nedge, 0, size);
+    x = nx;
+    y = ny;
+    z = nz;
+    speed = nspeed;
+    lane = nlane;
+    edge = nedge;
+  }
+
+  /**
+   * Removes all entries. <br>
+   */
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Gets the number of the used entries. <br>
+   * <br>
+   * @return number of entries, i.e. the highest node index plus one
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Gets the x-coordinates of the nodes. <br>
+   * <br>
+   * The array is indexed by the node's index and replaced when the store grows.
+   * @return x-coordinates (in meters)
+   */
+  public double[] getXs()
+  {
+    return x;
+  }
+
+  /**
+   * Gets the y-coordinates of the nodes. <br>
+   * <br>
+   * The array is indexed by the node's index and replaced when the store grows.
+   * @return y-coordinates (in meters)
+   */
+  public double[] getYs()
+  {
+    return y;
+  }
+
+  /**
+   * Gets the z-coordinates of the nodes. <br>
+   * <br>
+   * The array is indexed by the node's index and replaced when the store grows.
+   * @return z-coordinates (in meters)
+   */
+  public double[] getZs()
+  {
+    return z;
+  }
+
+  /**
+   * Gets the speeds of the nodes. <br>
+   * <br>
+   * The array is indexed by the node's index and replaced when the store grows.
+   * @return speeds (in meters/ms)
+   */
+  public float[] getSpeeds()
+  {
+    return speed;
+  }
+
+  /**
+   * Gets the lane numbers of the nodes. <br>
+   * <br>
+   * The array is indexed by the node's index and replaced when the store grows.
+   * @return lane numbers
+   */
+  public int[] getLanes()
+  {
+    return lane;
+  }
+
+  /**
+   * Gets the road ids of the nodes. <br>
+   * <br>
+   * The array is indexed by the node's index and replaced when the store grows.
+   * @return road ids, -1 if not known
+   */
+  public int[] getEdges()
+  {
+    return edge;
+  }
+
+  /**
+   * Gets the x-coordinate of a node. <br>
+   * <br>
+   * @param i node's index
+   * @return x-coordinate (in meters)
+   */
+  public double getX(int i)
+  {
+    return x[i];
+  }
+
+  /**
+   * Gets the y-coordinate of a node. <br>
+   * <br>
+   * @param i node's index
+   * @return y-coordinate (in meters)
+   */
+  public double getY(int i)
+  {
+    return y[i];
+  }
+
+  /**
+   * Gets the z-coordinate of a node. <br>
+   * <br>
+   * @param i node's index
+   * @return z-coordinate (in meters)
+   */
+  public double getZ(int i)
+  {
+    return z[i];
+  }
+
+  /**
+   * Sets the position of a node. <br>
+   * <br>
+   * @param i node's index
+   * @param px x-coordinate (in meters)
+   * @param py y-coordinate (in meters)
+   * @param pz z-coordinate (in meters)
+   */
+  public void setPosition(int i, double px, double py, double pz)
+  {
+    x[i] = px;
+    y[i] = py;
+    z[i] = pz;
+  }
+
+  /**
+   * Moves a node. <br>
+   * <br>
+   * @param i node's index
+   * @param dx movement along the x-axis (in meters)
+   * @param dy movement along the y-axis (in meters)
+   * @param dz movement along the z-axis (in meters)
+   */
+  public void move(int i, double dx, double dy, double dz)
+  {
+    x[i] += dx;
+    y[i] += dy;
+    z[i] += dz;
+  }
+
+  /**
+   * Gets the speed of a node. <br>
+   * <br>
+   * @param i node's index
+   * @return speed (in meters/ms)
+   */
+  public float getSpeed(int i)
+  {
+    return speed[i];
+  }
+
+  /**
+   * Sets the speed of a node. <br>
+   * <br>
+   * @param i node's index
+   * @param s speed (in meters/ms)
+   */
+  public void setSpeed(int i, float s)
+  {
+    speed[i] = s;
+  }
+
+  /**
+   * Gets the lane number of a node. <br>
+   * <br>
+   * @param i node's index
+   * @return lane number
+   */
+  public int getLane(int i)
+  {
+    return lane[i];
+  }
+
+  /**
+   * Sets the lane number of a node. <br>
+   * <br>
+   * @param i node's index
+   * @param l lane number
+   */
+  public void setLane(int i, int l)
+  {
+    lane[i] = l;
+  }
+
+  /**
+   * Gets the id of the road a node is moving on. <br>
+   * <br>
+   * @param i node's index
+   * @return road id, -1 if not known
+   */
+  public int getEdge(int i)
+  {
+    return edge[i];
+  }
+
+  /**
+   * Sets the id of the road a node is moving on. <br>
+   * <br>
+   * @param i node's index
+   * @param e road id, -1 if not known
+   */
+  public void setEdge(int i, int e)
+  {
+    edge[i] = e;
+  }
+}
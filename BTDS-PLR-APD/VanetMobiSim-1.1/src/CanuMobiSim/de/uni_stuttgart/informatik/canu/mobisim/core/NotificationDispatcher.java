@@ -0,0 +1,212 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class delivers notifications to the listeners subscribed to their types. <br>
+ * <br>
+ * A listener subscribed to a notification class receives the notifications
+ * of this class and of its subclasses. The listeners of every notification
+ * class are computed once and kept in a dispatch table, which is rebuilt
+ * when the subscriptions change.
+ * @author Canu Research group
+ */
+public class NotificationDispatcher implements java.io.Serializable
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Empty list of listeners
+   */
+  private static final NotificationListener[] NO_LISTENERS = new NotificationListener[0];
+
+  /**
+   * Subscribed listeners, in subscription order
+   */
+  private java.util.ArrayList listeners = new java.util.ArrayList();
+
+  /**
+   * Notification classes the listeners are subscribed to
+   */
+  private java.util.ArrayList types = new java.util.ArrayList();
+
+  /**
+   * Dispatch table mapping notification classes to arrays of listeners. <br>
+   * <br>
+   * The table is never modified after publication, so that it can be
+   * read by several threads.
+   */
+  private transient volatile java.util.HashMap table = new java.util.HashMap();
+
+  /**
+   * Subscribes a listener to a notification class. <br>
+   * <br>
+   * @param listener notification listener
+   * @param type notification class
+   */
+  public synchronized void addListener(NotificationListener listener, Class type)
+  {
+    if (!Notification.class.isAssignableFrom(type))
+      throw new IllegalArgumentException("Not a notification class: "+type.getName());
+
+    listeners.add(listener);
+    types.add(type);
+    table = new java.util.HashMap();
+  }
+
+  /**
+   * Removes all subscriptions of a listener. <br>
+   * <br>
+   * @param listener notification listener
+   */
+  public synchronized void removeListener(NotificationListener listener)
+  {
+    for (int i=listeners.size()-1; i>=0; i--)
+    {
+      if (listeners.get(i)==listener)
+      {
+        listeners.remove(i);
+        types.remove(i);
+      }
+    }
+    table = new java.util.HashMap();
+  }
+
+  /**
+   * Removes all subscriptions. <br>
+   */
+  public synchronized void clear()
+  {
+    listeners.clear();
+    types.clear();
+    table = new java.util.HashMap();
+  }
+
+  /**
+   * Gets the listeners of a notification class. <br>
+   * <br>
+   * @param type notification class
+   * @return listeners in subscription order, each listener is listed once
+   */
+  public NotificationListener[] getListeners(Class type)
+  {
+    NotificationListener[] res = (NotificationListener[])table.get(type);
+    if (res==null)
+      res = addDispatchEntry(type);
+
+    return res;
+  }
+
+  /**
+   * Checks if a notification class has listeners. <br>
+   * <br>
+   * Senders may check this before constructing a notification.
+   * @param type notification class
+   * @return true, if a listener receives the notifications of the class
+   */
+  public boolean hasListeners(Class type)
+  {
+    return getListeners(type).length!=0;
+  }
+
+  /**
+   * Delivers a notification to its listeners. <br>
+   * <br>
+   * @param notification notification
+   */
+  public void dispatch(Notification notification)
+  {
+    NotificationListener[] targets = getListeners(notification.getClass());
+    for (int i=0; i<targets.length; i++)
+      targets[i].sendNotification(notification);
+  }
+
+  /**
+   * Saves the subscriptions to a checkpoint. <br>
+   * <br>
+   * The subscriptions of the modules which are not checkpointed
+   * (see {@link ExtensionModule#isCheckpointed}) are left out.
+   * @param out checkpoint stream
+   * @throws java.io.IOException if the subscriptions could not be written
+   */
+  private synchronized void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException
+  {
+    java.util.ArrayList allListeners = listeners;
+    java.util.ArrayList allTypes = types;
+    listeners = new java.util.ArrayList();
+    types = new java.util.ArrayList();
+    for (int i=0; i<allListeners.size(); i++)
+    {
+      Object listener = allListeners.get(i);
+      if ((listener instanceof ExtensionModule)&&!((ExtensionModule)listener).isCheckpointed())
+        continue;
+
+      listeners.add(listener);
+      types.add(allTypes.get(i));
+    }
+
+    try
+    {
+      out.defaultWriteObject();
+    }
+    finally
+    {
+      listeners = allListeners;
+      types = allTypes;
+    }
+  }
+
+  /**
+   * Restores the subscriptions from a checkpoint. <br>
+   * <br>
+   * @param in checkpoint stream
+   * @throws java.io.IOException if the subscriptions could not be read
+   * @throws ClassNotFoundException if a listener's class is not found
+   */
+  private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    table = new java.util.HashMap();
+  }
+
+  /**
+   * Computes the listeners of a notification class and adds them
+   * to the dispatch table. <br>
+   * <br>
+   * @param type notification class
+   * @return listeners of the notification class
+   */
+  private synchronized NotificationListener[] addDispatchEntry(Class type)
+  {
+    NotificationListener[] res = (NotificationListener[])table.get(type);
+    if (res!=null)
+      return res;
+
+    java.util.ArrayList targets = new java.util.ArrayList();
+    for (int i=0; i<listeners.size(); i++)
+    {
+      Object listener = listeners.get(i);
+      if (((Class)types.get(i)).isAssignableFrom(type) && !targets.contains(listener))
+        targets.add(listener);
+    }
+    res = targets.isEmpty() ? NO_LISTENERS :
+      (NotificationListener[])targets.toArray(new NotificationListener[targets.size()]);
+
+    // publish a new table, the current one may be read concurrently
+    java.util.HashMap newTable = new java.util.HashMap(table);
+    newTable.put(type, res);
+    table = newTable;
+
+    return res;
+  }
+}
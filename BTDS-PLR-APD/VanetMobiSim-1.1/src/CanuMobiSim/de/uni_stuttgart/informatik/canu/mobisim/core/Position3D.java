@@ -35,8 +35,13 @@ import de.uni_stuttgart.informatik.canu.senv.core.Vertex;
  * @author 1.2-1.3 Jerome Haerri
  * @version 1.3
  */
-public class Position3D implements XMLStreamable
+public class Position3D implements XMLStreamable, java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
    /**
     * Coordinates
     */
@@ -217,7 +222,21 @@ public class Position3D implements XMLStreamable
     * @return distance to position
     */
    public double getDistance(Position3D pos) {
-      return this.getDirectionVector(pos).getLength();
+      return Math.sqrt(getDistanceSq(pos));
+   }//endproc
+
+
+   /**
+    * Gets a squared distance to position. <br>
+    * <br>
+    * @param pos position
+    * @return squared distance to position
+    */
+   public double getDistanceSq(Position3D pos) {
+      double dx = pos.p.x - this.p.x;
+      double dy = pos.p.y - this.p.y;
+      double dz = pos.p.z - this.p.z;
+      return dx*dx + dy*dy + dz*dz;
    }//endproc
 
 
@@ -278,7 +297,6 @@ public class Position3D implements XMLStreamable
 					 model.rebuildGraph();
 					 graph = model.getGraph();
 					 graph.getInfrastructureGraph().reorganize(false);
-					 graph.getInfrastructureGraph().calculateShortestPaths();
 				 }
 				 else
 					 throw new Exception("Invalid model name");
@@ -290,7 +308,7 @@ public class Position3D implements XMLStreamable
 		 if (graphName.length()>0) {
 			 graph=(Graph)u.getExtension(graphName);
 			 if (graph==null) {
-				 SpatialModel model = (SpatialModel)u.getExtension("SpatialModel");
+				 SpatialModel model = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 				 if (model !=null) {
 					 model.rebuildGraph();
 					 graph = model.getGraph();
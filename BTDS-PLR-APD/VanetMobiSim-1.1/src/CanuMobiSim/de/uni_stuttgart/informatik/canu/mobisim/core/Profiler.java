@@ -0,0 +1,499 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class measures where the time of a simulation goes. <br>
+ * <br>
+ * The profiler counts the calls and the elapsed time of the extensions of
+ * the Universe and of the nodes, per extension class, and the notifications
+ * sent, per notification and sender class, including the time the
+ * listeners need to process them. Every thread records into its own table,
+ * so the nodes prepared in parallel need no synchronization; the tables are
+ * merged when the report is written. The report is a CSV file with the
+ * cumulative values, appended periodically and at the end of the run, or a
+ * table printed at the end of the run.
+ * @author Canu Research group
+ */
+public class Profiler
+{
+  /**
+   * Header of the CSV report
+   */
+  public static final String HEADER = "time_s,type,class,sender,calls,time_ms";
+
+  /**
+   * Type of the Universe's extensions
+   */
+  public static final String EXTENSION = "extension";
+
+  /**
+   * Type of the nodes' extensions
+   */
+  public static final String NODE = "node";
+
+  /**
+   * Type of the nodes' extensions prepared in parallel
+   */
+  public static final String PREPARE = "prepare";
+
+  /**
+   * Type of the notifications
+   */
+  public static final String NOTIFICATION = "notification";
+
+  /**
+   * Universe object being profiled
+   */
+  protected Universe u;
+
+  /**
+   * Name of the CSV report, null to print a table at the end of the run
+   */
+  protected String fileName;
+
+  /**
+   * Interval between the reports (in ms), 0 to report at the end only
+   */
+  protected long interval;
+
+  /**
+   * Simulation time of the next periodic report (in ms)
+   */
+  protected long nextReport;
+
+  /**
+   * Simulation time of the last report (in ms), -1 if none
+   */
+  protected long lastReport = -1;
+
+  /**
+   * CSV report (null if not opened yet)
+   */
+  protected java.io.PrintWriter out;
+
+  /**
+   * Tables of all threads
+   */
+  protected java.util.ArrayList tables = new java.util.ArrayList();
+
+  /**
+   * Table of the current thread
+   */
+  protected ThreadLocal table = new ThreadLocal();
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * @param u Universe object being profiled
+   * @param fileName name of the CSV report, null to print a table at the end of the run
+   * @param interval interval between the reports (in ms), 0 to report at the end only
+   */
+  public Profiler(Universe u, String fileName, long interval)
+  {
+    this.u = u;
+    this.fileName = fileName;
+    this.interval = interval;
+    nextReport = (interval>0) ? u.getTime()+interval : Long.MAX_VALUE;
+  }
+
+  /**
+   * Gets the table of the current thread. <br>
+   * <br>
+   * @return table of the current thread
+   */
+  protected Table getTable()
+  {
+    Table res = (Table)table.get();
+    if (res==null)
+    {
+      res = new Table();
+      table.set(res);
+      synchronized (tables)
+      {
+        tables.add(res);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Records an execution of an extension. <br>
+   * <br>
+   * @param owner object owning the extension
+   * @param extension extension module
+   * @param time elapsed time (in ns)
+   */
+  public void addAct(ExtendableObject owner, ExtensionModule extension, long time)
+  {
+    Table t = getTable();
+    t.add((owner instanceof Universe) ? t.extensions : t.nodes, extension.getClass(), 1, time);
+  }
+
+  /**
+   * Records a preparation of an extension. <br>
+   * <br>
+   * @param extension extension module
+   * @param time elapsed time (in ns)
+   */
+  public void addPrepare(ExtensionModule extension, long time)
+  {
+    Table t = getTable();
+    t.add(t.prepares, extension.getClass(), 1, time);
+  }
+
+  /**
+   * Records a notification. <br>
+   * <br>
+   * A deferred notification is counted when sent and timed when delivered.
+   * @param notification notification
+   * @param calls number of notifications to be counted (0 or 1)
+   * @param time time needed by the listeners (in ns)
+   */
+  public void addNotification(Notification notification, int calls, long time)
+  {
+    Table t = getTable();
+    java.util.HashMap senders = (java.util.HashMap)t.notifications.get(notification.getClass());
+    if (senders==null)
+    {
+      senders = new java.util.HashMap();
+      t.notifications.put(notification.getClass(), senders);
+    }
+
+    Object sender = notification.getSender();
+    t.add(senders, (sender!=null) ? sender.getClass() : Object.class, calls, time);
+  }
+
+  /**
+   * Writes a periodic report if due. <br>
+   * <br>
+   * The method is called between two timesteps.
+   * @throws java.io.IOException if the report could not be written
+   */
+  public void step() throws java.io.IOException
+  {
+    if (u.getTime()>=nextReport)
+    {
+      report();
+      nextReport += interval*((u.getTime()-nextReport)/interval+1);
+    }
+  }
+
+  /**
+   * Writes the final report. <br>
+   * <br>
+   * @throws java.io.IOException if the report could not be written
+   */
+  public void close() throws java.io.IOException
+  {
+    if (fileName==null)
+    {
+      print(System.out);
+      return;
+    }
+
+    if (lastReport!=u.getTime())
+      report();
+    if (out!=null)
+    {
+      out.close();
+      out = null;
+    }
+  }
+
+  /**
+   * Merges the tables of all threads. <br>
+   * <br>
+   * @return list of rows, sorted by type and decreasing time
+   */
+  protected java.util.ArrayList merge()
+  {
+    Table all = new Table();
+    synchronized (tables)
+    {
+      for (int i=0; i<tables.size(); i++)
+      {
+        Table t = (Table)tables.get(i);
+        all.addAll(all.extensions, t.extensions);
+        all.addAll(all.nodes, t.nodes);
+        all.addAll(all.prepares, t.prepares);
+
+        java.util.Iterator iter = t.notifications.entrySet().iterator();
+        while (iter.hasNext())
+        {
+          java.util.Map.Entry e = (java.util.Map.Entry)iter.next();
+          java.util.HashMap senders = (java.util.HashMap)all.notifications.get(e.getKey());
+          if (senders==null)
+          {
+            senders = new java.util.HashMap();
+            all.notifications.put(e.getKey(), senders);
+          }
+          all.addAll(senders, (java.util.HashMap)e.getValue());
+        }
+      }
+    }
+
+    java.util.ArrayList res = new java.util.ArrayList();
+    all.addRows(res, EXTENSION, all.extensions, null);
+    all.addRows(res, NODE, all.nodes, null);
+    all.addRows(res, PREPARE, all.prepares, null);
+    java.util.Iterator iter = all.notifications.entrySet().iterator();
+    while (iter.hasNext())
+    {
+      java.util.Map.Entry e = (java.util.Map.Entry)iter.next();
+      all.addRows(res, NOTIFICATION, (java.util.HashMap)e.getValue(), (Class)e.getKey());
+    }
+    java.util.Collections.sort(res, Row.ORDER);
+
+    return res;
+  }
+
+  /**
+   * Appends the cumulative values to the CSV report. <br>
+   * <br>
+   * @throws java.io.IOException if the report could not be written
+   */
+  protected void report() throws java.io.IOException
+  {
+    if (fileName==null)
+      return;
+
+    if (out==null)
+    {
+      out = new java.io.PrintWriter(new java.io.BufferedWriter(new java.io.FileWriter(fileName)));
+      out.println(HEADER);
+    }
+
+    lastReport = u.getTime();
+    String time = Float.toString(u.getTime()/1000f);
+    java.util.ArrayList rows = merge();
+    for (int i=0; i<rows.size(); i++)
+    {
+      Row row = (Row)rows.get(i);
+      out.println(time+","+row.type+","+row.name+","+row.sender+","+row.calls+","+row.time/1000000.0);
+    }
+    out.flush();
+
+    if (out.checkError())
+      throw new java.io.IOException("Error writing profile to "+fileName);
+  }
+
+  /**
+   * Prints the cumulative values as a table. <br>
+   * <br>
+   * @param out output stream
+   */
+  public void print(java.io.PrintStream out)
+  {
+    java.util.ArrayList rows = merge();
+    String[] names = new String[rows.size()];
+    int width = 0;
+    for (int i=0; i<rows.size(); i++)
+    {
+      Row row = (Row)rows.get(i);
+      names[i] = (row.sender.length()>0) ? row.name+" from "+row.sender : row.name;
+      width = Math.max(width, names[i].length()+2);
+    }
+
+    out.println("Profile at "+u.getTimeAsString());
+    out.println(pad("type", 14)+pad("class", width)+pad("calls", 12)+"time (ms)");
+    for (int i=0; i<rows.size(); i++)
+    {
+      Row row = (Row)rows.get(i);
+      out.println(pad(row.type, 14)+pad(names[i], width)+pad(Long.toString(row.calls), 12)+
+        row.time/1000000);
+    }
+  }
+
+  /**
+   * Pads a string with spaces. <br>
+   * <br>
+   * @param s string
+   * @param length minimal length of the result
+   * @return padded string
+   */
+  protected static String pad(String s, int length)
+  {
+    StringBuffer res = new StringBuffer(s);
+    do
+      res.append(' ');
+    while (res.length()<length);
+
+    return res.toString();
+  }
+
+  /**
+   * Counters of a class
+   */
+  protected static class Counter
+  {
+    /**
+     * Number of calls
+     */
+    long calls;
+
+    /**
+     * Elapsed time (in ns)
+     */
+    long time;
+  }
+
+  /**
+   * Counters of a thread
+   */
+  protected static class Table
+  {
+    /**
+     * Counters of the Universe's extensions by class
+     */
+    java.util.HashMap extensions = new java.util.HashMap();
+
+    /**
+     * Counters of the nodes' extensions by class
+     */
+    java.util.HashMap nodes = new java.util.HashMap();
+
+    /**
+     * Counters of the prepared nodes' extensions by class
+     */
+    java.util.HashMap prepares = new java.util.HashMap();
+
+    /**
+     * Counters of the notifications by class and sender's class
+     */
+    java.util.HashMap notifications = new java.util.HashMap();
+
+    /**
+     * Adds to a counter. <br>
+     * <br>
+     * @param map counters by class
+     * @param type class
+     * @param calls number of calls
+     * @param time elapsed time (in ns)
+     */
+    void add(java.util.HashMap map, Class type, long calls, long time)
+    {
+      Counter c = (Counter)map.get(type);
+      if (c==null)
+      {
+        c = new Counter();
+        map.put(type, c);
+      }
+      c.calls += calls;
+      c.time += time;
+    }
+
+    /**
+     * Adds all counters of a map. <br>
+     * <br>
+     * @param map counters by class
+     * @param other counters to be added
+     */
+    void addAll(java.util.HashMap map, java.util.HashMap other)
+    {
+      java.util.Iterator iter = other.entrySet().iterator();
+      while (iter.hasNext())
+      {
+        java.util.Map.Entry e = (java.util.Map.Entry)iter.next();
+        Counter c = (Counter)e.getValue();
+        add(map, (Class)e.getKey(), c.calls, c.time);
+      }
+    }
+
+    /**
+     * Converts counters to rows. <br>
+     * <br>
+     * @param rows list of rows
+     * @param type type of the rows
+     * @param map counters by class
+     * @param notification class of the notifications, null if the counters are not of notifications
+     */
+    void addRows(java.util.ArrayList rows, String type, java.util.HashMap map, Class notification)
+    {
+      java.util.Iterator iter = map.entrySet().iterator();
+      while (iter.hasNext())
+      {
+        java.util.Map.Entry e = (java.util.Map.Entry)iter.next();
+        Counter c = (Counter)e.getValue();
+        String name = ((Class)e.getKey()).getName();
+        if (notification!=null)
+          rows.add(new Row(type, notification.getName(), name, c.calls, c.time));
+        else
+          rows.add(new Row(type, name, "", c.calls, c.time));
+      }
+    }
+  }
+
+  /**
+   * Row of the report
+   */
+  protected static class Row
+  {
+    /**
+     * Orders the rows by type and decreasing time
+     */
+    static final java.util.Comparator ORDER = new java.util.Comparator()
+    {
+      public int compare(Object o1, Object o2)
+      {
+        Row r1 = (Row)o1;
+        Row r2 = (Row)o2;
+        if (r1.type!=r2.type)
+          return rank(r1.type)-rank(r2.type);
+        if (r1.time!=r2.time)
+          return (r1.time>r2.time) ? -1 : 1;
+        if (r1.calls!=r2.calls)
+          return (r1.calls>r2.calls) ? -1 : 1;
+
+        int res = r1.name.compareTo(r2.name);
+        return (res!=0) ? res : r1.sender.compareTo(r2.sender);
+      }
+
+      int rank(String type)
+      {
+        return (type==EXTENSION) ? 0 : (type==NODE) ? 1 : (type==PREPARE) ? 2 : 3;
+      }
+    };
+
+    /**
+     * Type of the row
+     */
+    String type;
+    /**
+     * Name of the class
+     */
+    String name;
+    /**
+     * Name of the sender's class, empty if not a notification
+     */
+    String sender;
+    /**
+     * Number of calls
+     */
+    long calls;
+    /**
+     * Elapsed time (in ns)
+     */
+    long time;
+
+    /**
+     * Constructor
+     */
+    Row(String type, String name, String sender, long calls, long time)
+    {
+      this.type = type;
+      this.name = name;
+      this.sender = sender;
+      this.calls = calls;
+      this.time = time;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class implements a stream of random numbers owned by a single object. <br>
+ * <br>
+ * The numbers are produced by the SplitMix64 algorithm. The seed of a stream
+ * is derived from the simulation seed and the key of its owner, so that the
+ * numbers drawn by an object do not depend on the draws of other objects.
+ * A stream is not synchronized and may only be used by its owner.
+ * @author Canu Research group
+ */
+public class RandomStream extends java.util.Random
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Increment of the generator's state
+   */
+  private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * State of the generator
+   */
+  private long state;
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * @param seed initial seed
+   */
+  public RandomStream(long seed)
+  {
+    super(seed);
+  }
+
+  /**
+   * Derives the seed of a stream. <br>
+   * <br>
+   * @param seed simulation seed
+   * @param key unique key of the stream's owner
+   * @return seed of the stream
+   */
+  public static long deriveSeed(long seed, String key)
+  {
+    long h = 1125899906842597L;
+    for (int i=0; i<key.length(); i++)
+      h = 31*h + key.charAt(i);
+
+    return mix(seed ^ mix(h));
+  }
+
+  /**
+   * Scrambles the bits of a value. <br>
+   * <br>
+   * @param z value
+   * @return scrambled value
+   */
+  protected static long mix(long z)
+  {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Sets the seed of the stream. <br>
+   * <br>
+   * @param seed initial seed
+   */
+  public void setSeed(long seed)
+  {
+    super.setSeed(seed);
+    state = seed;
+  }
+
+  /**
+   * Generates the next random number. <br>
+   * <br>
+   * @param bits number of random bits
+   * @return random number
+   */
+  protected int next(int bits)
+  {
+    return (int)(nextLong() >>> (64-bits));
+  }
+
+  /**
+   * Gets the next random long value. <br>
+   * <br>
+   * @return random value
+   */
+  public long nextLong()
+  {
+    state += GAMMA;
+    return mix(state);
+  }
+
+  /**
+   * Gets the next random double value between 0.0 and 1.0. <br>
+   * <br>
+   * @return random value
+   */
+  public double nextDouble()
+  {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+}
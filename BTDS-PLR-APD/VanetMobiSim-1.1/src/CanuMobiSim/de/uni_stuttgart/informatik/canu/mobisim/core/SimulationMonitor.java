@@ -0,0 +1,481 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class keeps the live counters of a simulation. <br>
+ * <br>
+ * The monitor is registered as a platform MBean when the simulation is
+ * initialized, so the progress of a run can be watched with a JMX client,
+ * e.g. jconsole. The simulation updates the counters without locks. The
+ * statistics of the nodes are sampled by the simulating thread between
+ * two timesteps, only while a client asks for them, so a read returns the
+ * sample taken after the previous read. The speed of a node is its
+ * displacement over the timestep following the request, so that the
+ * nodes of every movement model are sampled alike. The step rate is
+ * measured by the simulating thread over windows of one second, so
+ * reading the attributes does not change them.
+ * @author Canu Research group
+ */
+public class SimulationMonitor implements SimulationMonitorMBean
+{
+  /**
+   * Domain of the MBeans' names
+   */
+  public static final String DOMAIN = "de.uni_stuttgart.informatik.canu.mobisim";
+
+  /**
+   * Number of the created monitors
+   */
+  private static final java.util.concurrent.atomic.AtomicInteger count =
+    new java.util.concurrent.atomic.AtomicInteger();
+
+  /**
+   * Duration of the windows the step rate is measured over (in ns)
+   */
+  protected static final long RATE_WINDOW = 1000000000L;
+
+  /**
+   * Universe object being monitored
+   */
+  protected Universe u;
+
+  /**
+   * Monitor's number
+   */
+  protected int id;
+
+  /**
+   * Registered MBean's name (null if not registered)
+   */
+  protected javax.management.ObjectName name;
+
+  /**
+   * Time the simulation was started at (in ns)
+   */
+  protected volatile long startTime;
+
+  /**
+   * Number of the simulated timesteps
+   */
+  protected volatile long steps;
+
+  /**
+   * Number of the simulated timesteps at the start of the current rate window
+   */
+  protected long rateSteps;
+
+  /**
+   * Start time of the current rate window (in ns)
+   */
+  protected long rateTime;
+
+  /**
+   * Timesteps simulated per second in the last completed rate window
+   */
+  protected volatile double stepsPerSecond;
+
+  /**
+   * Flag to indicate that a client waits for a sample of the nodes
+   */
+  protected volatile boolean sampleRequested = false;
+
+  /**
+   * Nodes of the started sample, null if no sample is started
+   */
+  protected Node[] sampledNodes;
+
+  /**
+   * Positions of the nodes of the started sample
+   * (x-, y- and z-coordinates of every node)
+   */
+  protected double[] sampledPositions;
+
+  /**
+   * Timestep the started sample was taken at
+   */
+  protected long sampledStep;
+
+  /**
+   * Number of the nodes in the last sample
+   */
+  protected volatile int nodes;
+
+  /**
+   * Number of the moving nodes in the last sample
+   */
+  protected volatile int activeNodes;
+
+  /**
+   * Mean speed of the nodes in the last sample (in m/s)
+   */
+  protected volatile double meanSpeed;
+
+  /**
+   * Number of the generated trips
+   */
+  protected java.util.concurrent.atomic.AtomicLong trips = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Number of the path searches
+   */
+  protected java.util.concurrent.atomic.AtomicLong pathSearches = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Duration of the path searches (in ns)
+   */
+  protected java.util.concurrent.atomic.AtomicLong pathSearchTime = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Number of the shortest-path trees found in the cache
+   */
+  protected java.util.concurrent.atomic.AtomicLong pathTreeHits = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Number of the shortest-path trees not found in the cache
+   */
+  protected java.util.concurrent.atomic.AtomicLong pathTreeMisses = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Number of the bytes written by the output modules
+   */
+  protected java.util.concurrent.atomic.AtomicLong outputBytes = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Open output streams
+   */
+  protected java.util.concurrent.CopyOnWriteArrayList outputs = new java.util.concurrent.CopyOnWriteArrayList();
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * @param u Universe object being monitored
+   */
+  public SimulationMonitor(Universe u)
+  {
+    this.u = u;
+    id = count.incrementAndGet();
+    startTime = System.nanoTime();
+    rateTime = startTime;
+  }
+
+  /**
+   * Registers the monitor as a platform MBean. <br>
+   * <br>
+   * The name of the MBean is "de.uni_stuttgart.informatik.canu.mobisim:type=Universe,id=<i>n</i>",
+   * where <i>n</i> numbers the simulations of the JVM.
+   */
+  public void register()
+  {
+    if (name!=null)
+      return;
+
+    startTime = System.nanoTime();
+    rateSteps = steps;
+    rateTime = startTime;
+
+    try
+    {
+      javax.management.ObjectName objectName = new javax.management.ObjectName(DOMAIN+":type=Universe,id="+id);
+      java.lang.management.ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      name = objectName;
+    }
+    catch (Exception e)
+    {
+      System.err.println("Warning: simulation monitor not registered: "+e.getMessage());
+    }
+  }
+
+  /**
+   * Unregisters the MBean of the monitor. <br>
+   */
+  public void unregister()
+  {
+    if (name==null)
+      return;
+
+    try
+    {
+      java.lang.management.ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+    catch (Exception e)
+    {
+      System.err.println("Warning: simulation monitor not unregistered: "+e.getMessage());
+    }
+    name = null;
+  }
+
+  /**
+   * Gets the registered MBean's name. <br>
+   * <br>
+   * @return MBean's name, null if not registered
+   */
+  public javax.management.ObjectName getName()
+  {
+    return name;
+  }
+
+  /**
+   * Records the end of a timestep. <br>
+   * <br>
+   * The method is called by the simulating thread.
+   * @param steps number of the simulated timesteps
+   */
+  void step(long steps)
+  {
+    this.steps = steps;
+
+    long now = System.nanoTime();
+    if (now-rateTime>=RATE_WINDOW)
+    {
+      stepsPerSecond = (steps-rateSteps)*1e9/(now-rateTime);
+      rateSteps = steps;
+      rateTime = now;
+    }
+
+    if (sampledNodes!=null)
+    {
+      if (steps>sampledStep)
+        sampleNodes(steps);
+    }
+    else if (sampleRequested)
+    {
+      sampleRequested = false;
+      startSample(steps);
+    }
+  }
+
+  /**
+   * Records the positions of the nodes to be sampled. <br>
+   * <br>
+   * @param steps number of the simulated timesteps
+   */
+  protected void startSample(long steps)
+  {
+    java.util.ArrayList list = u.getNodes();
+    Node[] res = (Node[])list.toArray(new Node[list.size()]);
+    double[] positions = new double[3*res.length];
+    for (int i=0; i<res.length; i++)
+    {
+      positions[3*i] = res[i].getX();
+      positions[3*i+1] = res[i].getY();
+      positions[3*i+2] = res[i].getZ();
+    }
+
+    sampledPositions = positions;
+    sampledStep = steps;
+    sampledNodes = res;
+  }
+
+  /**
+   * Samples the statistics of the nodes. <br>
+   * <br>
+   * The speed of a node is computed from its displacement since
+   * the sample was started.
+   * @param steps number of the simulated timesteps
+   */
+  protected void sampleNodes(long steps)
+  {
+    Node[] list = sampledNodes;
+    double[] positions = sampledPositions;
+    // duration of the sample (in ms)
+    double duration = (steps-sampledStep)*(double)u.getStepDuration();
+    int active = 0;
+    double sum = 0.0;
+    for (int i=0; i<list.length; i++)
+    {
+      double dx = list[i].getX()-positions[3*i];
+      double dy = list[i].getY()-positions[3*i+1];
+      double dz = list[i].getZ()-positions[3*i+2];
+      double distance = Math.sqrt(dx*dx+dy*dy+dz*dz);
+      if (distance!=0.0)
+        active++;
+      sum += distance/duration;
+    }
+
+    sampledNodes = null;
+    sampledPositions = null;
+    activeNodes = active;
+    meanSpeed = (list.length>0) ? sum*1000.0/list.length : 0.0;
+    nodes = list.length;
+  }
+
+  /**
+   * Records a generated trip. <br>
+   */
+  public void addTrip()
+  {
+    trips.incrementAndGet();
+  }
+
+  /**
+   * Records a path search. <br>
+   * <br>
+   * @param time duration of the search (in ns)
+   */
+  public void addPathSearch(long time)
+  {
+    pathSearches.incrementAndGet();
+    pathSearchTime.addAndGet(time);
+  }
+
+  /**
+   * Records a lookup of a shortest-path tree in the cache. <br>
+   * <br>
+   * @param hit true, if the tree was found
+   */
+  public void addPathTreeLookup(boolean hit)
+  {
+    if (hit)
+      pathTreeHits.incrementAndGet();
+    else
+      pathTreeMisses.incrementAndGet();
+  }
+
+  /**
+   * Records the bytes written by an output module. <br>
+   * <br>
+   * @param bytes number of bytes
+   */
+  void addOutputBytes(long bytes)
+  {
+    outputBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Adds an open output stream. <br>
+   * <br>
+   * @param stream output stream
+   */
+  void addOutput(MonitoredOutputStream stream)
+  {
+    outputs.add(stream);
+  }
+
+  /**
+   * Removes a closed output stream. <br>
+   * <br>
+   * @param stream output stream
+   */
+  void removeOutput(MonitoredOutputStream stream)
+  {
+    outputs.remove(stream);
+  }
+
+  /**
+   * Writes the buffered output of the open output streams to their files. <br>
+   * <br>
+   * The method is called by the simulating thread at the end of
+   * every timestep.
+   * @throws java.io.IOException if an I/O error occurs
+   */
+  void flushOutputs() throws java.io.IOException
+  {
+    java.util.Iterator iter = outputs.iterator();
+    while (iter.hasNext())
+      ((MonitoredOutputStream)iter.next()).flush();
+  }
+
+  public double getSimulatedTime()
+  {
+    return steps*u.getStepDuration()/1000.0;
+  }
+
+  public long getSteps()
+  {
+    return steps;
+  }
+
+  public double getElapsedTime()
+  {
+    return (System.nanoTime()-startTime)/1e9;
+  }
+
+  public double getStepsPerSecond()
+  {
+    return stepsPerSecond;
+  }
+
+  public double getRealtimeFactor()
+  {
+    double elapsed = getElapsedTime();
+    return (elapsed>0.0) ? getSimulatedTime()/elapsed : 0.0;
+  }
+
+  public int getNodes()
+  {
+    sampleRequested = true;
+    return nodes;
+  }
+
+  public int getActiveNodes()
+  {
+    sampleRequested = true;
+    return activeNodes;
+  }
+
+  public int getParkedNodes()
+  {
+    sampleRequested = true;
+    return nodes-activeNodes;
+  }
+
+  public double getMeanSpeed()
+  {
+    sampleRequested = true;
+    return meanSpeed;
+  }
+
+  public long getTripsGenerated()
+  {
+    return trips.get();
+  }
+
+  public long getPathSearches()
+  {
+    return pathSearches.get();
+  }
+
+  public double getAveragePathSearchTime()
+  {
+    long n = pathSearches.get();
+    return (n>0) ? pathSearchTime.get()/1e6/n : 0.0;
+  }
+
+  public long getPathTreeHits()
+  {
+    return pathTreeHits.get();
+  }
+
+  public long getPathTreeMisses()
+  {
+    return pathTreeMisses.get();
+  }
+
+  public long getOutputBytes()
+  {
+    return outputBytes.get();
+  }
+
+  public long getPendingOutputBytes()
+  {
+    long res = 0;
+    java.util.Iterator iter = outputs.iterator();
+    while (iter.hasNext())
+      res += ((MonitoredOutputStream)iter.next()).getPendingBytes();
+
+    return res;
+  }
+
+  public boolean isFinished()
+  {
+    return u.isFinished();
+  }
+}
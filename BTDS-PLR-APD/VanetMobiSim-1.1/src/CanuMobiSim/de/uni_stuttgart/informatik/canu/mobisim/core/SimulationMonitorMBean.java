@@ -0,0 +1,155 @@
+package de.uni_stuttgart.informatik.canu.mobisim.core;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * Management interface of the live counters of a simulation. <br>
+ * <br>
+ * The counters are read by JMX clients, e.g. jconsole, while the
+ * simulation runs.
+ * @author Canu Research group
+ */
+public interface SimulationMonitorMBean
+{
+  /**
+   * Gets the current simulation time. <br>
+   * <br>
+   * @return simulation time (in s)
+   */
+  public double getSimulatedTime();
+
+  /**
+   * Gets the number of the timesteps simulated so far. <br>
+   * <br>
+   * @return number of timesteps, including the ones skipped by the event scheduler
+   */
+  public long getSteps();
+
+  /**
+   * Gets the elapsed time since the simulation was started. <br>
+   * <br>
+   * @return elapsed time (in s)
+   */
+  public double getElapsedTime();
+
+  /**
+   * Gets the number of the timesteps simulated per second. <br>
+   * <br>
+   * The rate is measured over windows of one second of elapsed time,
+   * the value is the rate of the last completed window.
+   * @return timesteps per second, 0 until the first window completes
+   */
+  public double getStepsPerSecond();
+
+  /**
+   * Gets the ratio of the simulation time to the elapsed time. <br>
+   * <br>
+   * @return simulated seconds per elapsed second
+   */
+  public double getRealtimeFactor();
+
+  /**
+   * Gets the number of the nodes of the simulation. <br>
+   * <br>
+   * The value is taken from the previous sample of the nodes,
+   * the call requests a new sample.
+   * @return number of nodes, 0 until the first sample completes
+   */
+  public int getNodes();
+
+  /**
+   * Gets the number of the moving nodes. <br>
+   * <br>
+   * The value is taken from the previous sample of the nodes,
+   * the call requests a new sample.
+   * @return number of the nodes with non-zero speed, 0 until
+   * the first sample completes
+   */
+  public int getActiveNodes();
+
+  /**
+   * Gets the number of the standing nodes. <br>
+   * <br>
+   * The value is taken from the previous sample of the nodes,
+   * the call requests a new sample.
+   * @return number of the nodes with zero speed, e.g. staying at
+   * their destinations or stopped in a jam, 0 until the first
+   * sample completes
+   */
+  public int getParkedNodes();
+
+  /**
+   * Gets the mean speed of the nodes. <br>
+   * <br>
+   * The value is taken from the previous sample of the nodes,
+   * the call requests a new sample.
+   * @return mean speed (in m/s), 0 until the first sample completes
+   */
+  public double getMeanSpeed();
+
+  /**
+   * Gets the number of the trips generated so far. <br>
+   * <br>
+   * @return number of trips
+   */
+  public long getTripsGenerated();
+
+  /**
+   * Gets the number of the path searches so far. <br>
+   * <br>
+   * @return number of path searches
+   */
+  public long getPathSearches();
+
+  /**
+   * Gets the average duration of a path search. <br>
+   * <br>
+   * @return average duration (in ms)
+   */
+  public double getAveragePathSearchTime();
+
+  /**
+   * Gets the number of the shortest-path trees reused from the cache. <br>
+   * <br>
+   * @return number of cache hits
+   */
+  public long getPathTreeHits();
+
+  /**
+   * Gets the number of the shortest-path trees not found in the cache. <br>
+   * <br>
+   * @return number of cache misses
+   */
+  public long getPathTreeMisses();
+
+  /**
+   * Gets the number of the bytes written by the output modules so far. <br>
+   * <br>
+   * @return number of bytes
+   */
+  public long getOutputBytes();
+
+  /**
+   * Gets the number of the bytes buffered by the output modules and
+   * not written to their files yet. <br>
+   * <br>
+   * The buffers are flushed at the end of every timestep, so the
+   * value is the output of the timestep being executed.
+   * @return number of bytes
+   */
+  public long getPendingOutputBytes();
+
+  /**
+   * Checks if the simulation is finished. <br>
+   * <br>
+   * @return true, if the simulation is finished
+   */
+  public boolean isFinished();
+}
@@ -37,7 +37,16 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
 public final class Universe extends ExtendableObject
                             implements NotificationListener
 {
-  // Allow only one instance of this class
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Instances bound to the threads
+   */
+  private static final ThreadLocal current = new ThreadLocal();
+
   /**
    * Global instance of the object
    */
@@ -46,11 +55,32 @@ public final class Universe extends ExtendableObject
   /**
    * Gets a reference to the Universe object. <br>
    * <br>
+   * Returns the instance bound to the current thread, or the
+   * global instance if no instance is bound.
    * @return reference to the Universe object
    */
   public static final Universe getReference()
   {
-    return ui;
+    Universe res = (Universe)current.get();
+    return (res!=null) ? res : ui;
+  }
+
+  /**
+   * Binds a Universe object to the current thread. <br>
+   * <br>
+   * Objects created by the thread are added to the bound instance.
+   * Several instances may be bound to different threads at the same time.
+   * @param universe instance to be bound, null to use the global instance
+   * @return instance bound before, null if none
+   */
+  public static Universe setReference(Universe universe)
+  {
+    Universe res = (Universe)current.get();
+    if (universe!=null)
+      current.set(universe);
+    else
+      current.remove();
+    return res;
   }
 
   /**
@@ -73,7 +103,12 @@ public final class Universe extends ExtendableObject
   /**
    * Simulation events receivers
    */
-  private java.util.Collection listeners;
+  private NotificationDispatcher listeners;
+
+  /**
+   * Highest level of the debug notifications to be sent
+   */
+  private int debugLevel = DebugNotification.FINEST;
 
   /**
    * Current simulation time (in steps)
@@ -83,6 +118,14 @@ public final class Universe extends ExtendableObject
    * Random number generator
    */
   private java.util.Random rand;
+  /**
+   * Flag to indicate that the nodes and extensions draw from their own random streams
+   */
+  private boolean randomStreams = false;
+  /**
+   * Seed the random streams are derived from
+   */
+  private long streamSeed = 0;
 
   /**
    * Array of nodes
@@ -90,15 +133,119 @@ public final class Universe extends ExtendableObject
   private java.util.ArrayList allNodes;
 
   /**
-   * Constructor
+   * Map of node ids to nodes
+   */
+  private java.util.HashMap nodesByID = new java.util.HashMap();
+
+  /**
+   * Index of the next node to be added
+   */
+  private int nextNodeIndex = 0;
+
+  /**
+   * State of the nodes
+   */
+  private NodeStateStore nodeStates = new NodeStateStore();
+
+  /**
+   * Number of threads preparing the nodes
+   * (0 if the nodes are stepped sequentially)
+   */
+  private int threads = 0;
+  /**
+   * Pool of threads preparing the nodes
+   * (null if the nodes are prepared by the calling thread)
+   */
+  private transient java.util.concurrent.ForkJoinPool pool;
+  /**
+   * Flag to indicate that the nodes are being prepared
+   */
+  private volatile boolean preparing = false;
+  /**
+   * Notifications sent by the nodes while being prepared, per node
+   */
+  private java.util.ArrayList deferredNotifications = new java.util.ArrayList();
+  /**
+   * Notification buffer of the node prepared by the current thread
+   */
+  private transient ThreadLocal deferredBuffer = new ThreadLocal();
+
+  /**
+   * Flag to indicate that the simulation runs in event mode
+   */
+  private boolean eventScheduling = false;
+  /**
+   * Pending wake-ups of the event scheduler
+   * (null if the scheduler is not started yet)
+   */
+  private transient java.util.PriorityQueue wakeUps;
+  /**
+   * Execution order assigned to the next node registered by the event scheduler
+   */
+  private long nextWakeUpRank = 0;
+  /**
+   * Objects due at the current timestep of the event scheduler
+   */
+  private java.util.ArrayList dueNodes = new java.util.ArrayList();
+  /**
+   * Objects due at the next timestep of the event scheduler, in execution order
+   */
+  private java.util.ArrayList nextDue = new java.util.ArrayList();
+
+  /**
+   * Flag to indicate that the simulation is finished
+   */
+  private volatile boolean finished = false;
+
+  /**
+   * Flag to indicate that the modules are initialized
+   */
+  private boolean initialized = false;
+  /**
+   * Extensions and nodes added to a restored simulation, to be initialized
+   * (null if the simulation is not restored)
+   */
+  private transient java.util.ArrayList restoredAdditions;
+
+  /**
+   * Name of the checkpoint file to be written (null if none)
+   */
+  private String checkpointFile;
+  /**
+   * Simulation time at which the checkpoint is written (in ms)
+   */
+  private long checkpointTime;
+
+  /**
+   * Profiler of the simulation (null if the simulation is not profiled)
+   */
+  transient Profiler profiler;
+
+  /**
+   * Live counters of the simulation
+   */
+  private transient SimulationMonitor monitor;
+
+  /**
+   * Objects shared read-only with other simulations, e.g. the maps of the
+   * replications of a batch (null if nothing is shared)
    */
-  private Universe()
+  private transient java.util.Map sharedObjects;
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * The instance must be bound to the thread loading the scenario
+   * (see {@link #setReference setReference}).
+   */
+  public Universe()
   {
     u = this;
     
     allNodes        = new java.util.ArrayList();
     rand            = new java.util.Random();
-    listeners       = new java.util.ArrayList();
+    listeners       = new NotificationDispatcher();
+    monitor         = new SimulationMonitor(this);
   }
 
   /**
@@ -106,12 +253,32 @@ public final class Universe extends ExtendableObject
    */
   public void initialize()
   {
-    super.initialize();
+    monitor.register();
 
-    // initialize mobile nodes
-    for (int i=0; i<allNodes.size(); i++)
+    if (!initialized)
     {
-      ((ExtendableObject)allNodes.get(i)).initialize();
+      super.initialize();
+
+      // initialize mobile nodes
+      for (int i=0; i<allNodes.size(); i++)
+      {
+        ((ExtendableObject)allNodes.get(i)).initialize();
+      }
+      initialized = true;
+    }
+    else
+    if (restoredAdditions!=null)
+    {
+      // only the modules added after restoring are initialized
+      for (int i=0; i<restoredAdditions.size(); i++)
+      {
+        Object object = restoredAdditions.get(i);
+        if (object instanceof ExtensionModule)
+          ((ExtensionModule)object).initialize();
+        else
+          ((ExtendableObject)object).initialize();
+      }
+      restoredAdditions = null;
     }
     
     u.sendNotification(new DebugNotification(this, u,
@@ -130,11 +297,25 @@ public final class Universe extends ExtendableObject
   /**
    * Adds a simulation events receiver. <br>
    * <br>
+   * The receiver gets all notifications.
    * @param listener new event listener
    */
   public void addNotificationListener(NotificationListener listener)
   {
-    listeners.add(listener);
+    listeners.addListener(listener, Notification.class);
+  }
+
+  /**
+   * Adds a simulation events receiver for a notification class. <br>
+   * <br>
+   * The receiver gets the notifications of the given class and its subclasses.
+   * A receiver may be added for several classes.
+   * @param listener new event listener
+   * @param type notification class
+   */
+  public void addNotificationListener(NotificationListener listener, Class type)
+  {
+    listeners.addListener(listener, type);
   }
 
   /**
@@ -144,7 +325,63 @@ public final class Universe extends ExtendableObject
    */
   public void removeNotificationListener(NotificationListener listener)
   {
-    listeners.remove(listener);
+    listeners.removeListener(listener);
+  }
+
+  /**
+   * Checks if notifications of a class have receivers. <br>
+   * <br>
+   * Notifications without receivers need not be constructed.
+   * @param type notification class
+   * @return true, if a receiver gets the notifications of the class
+   */
+  public boolean hasNotificationListeners(Class type)
+  {
+    return listeners.hasListeners(type);
+  }
+
+  /**
+   * Sets the highest level of the debug notifications to be sent. <br>
+   * <br>
+   * @param level debug level
+   */
+  public void setDebugLevel(int level)
+  {
+    debugLevel = level;
+  }
+
+  /**
+   * Gets the highest level of the debug notifications to be sent. <br>
+   * <br>
+   * @return debug level
+   */
+  public int getDebugLevel()
+  {
+    return debugLevel;
+  }
+
+  /**
+   * Checks if debug notifications of a level have receivers. <br>
+   * <br>
+   * Senders check this before building the description of the event.
+   * @param level debug level
+   * @return true, if debug notifications of the level are to be sent
+   */
+  public boolean isDebugEnabled(int level)
+  {
+    return level<=debugLevel && listeners.hasListeners(DebugNotification.class);
+  }
+
+  /**
+   * Checks if loader notifications are processed. <br>
+   * <br>
+   * The loader notifications are only processed if a listener is
+   * registered for them, e.g. a LoaderOutput extension.
+   * @return true, if loader notifications are processed
+   */
+  public boolean isLoaderEnabled()
+  {
+    return listeners.hasListeners(LoaderNotification.class);
   }
 
   /**
@@ -155,17 +392,74 @@ public final class Universe extends ExtendableObject
    * {@link #addNotificationListener addNotificationListener}
    * method.
    * The simulation environment sends the notification to all
-   * registered listeners.
+   * listeners registered for its class.
    * @param notification notification
    */
   public void sendNotification(Notification notification)
   {
-    java.util.Iterator iter = listeners.iterator();
-    while (iter.hasNext())
+    // notifications of the nodes being prepared are delivered in order later
+    if (preparing)
     {
-      NotificationListener listener = (NotificationListener)iter.next();
-      listener.sendNotification(notification);
+      java.util.ArrayList buffer = (java.util.ArrayList)deferredBuffer.get();
+      if (buffer!=null)
+      {
+        buffer.add(notification);
+        if (profiler!=null)
+          profiler.addNotification(notification, 1, 0);
+        return;
+      }
     }
+
+    if (profiler!=null)
+      dispatch(notification, 1);
+    else
+      listeners.dispatch(notification);
+  }
+
+  /**
+   * Passes a notification to the listeners and records it. <br>
+   * <br>
+   * @param notification notification
+   * @param calls number of notifications to be counted (0 if counted when deferred)
+   */
+  private void dispatch(Notification notification, int calls)
+  {
+    long start = System.nanoTime();
+    listeners.dispatch(notification);
+    profiler.addNotification(notification, calls, System.nanoTime()-start);
+  }
+
+  /**
+   * Gets the profiler of the simulation. <br>
+   * <br>
+   * @return profiler, null if the simulation is not profiled
+   */
+  public Profiler getProfiler()
+  {
+    return profiler;
+  }
+
+  /**
+   * Starts profiling the simulation. <br>
+   * <br>
+   * The profile is written when the simulation is closed, and periodically
+   * if an interval is given.
+   * @param fileName name of the CSV report, null to print a table at the end of the run
+   * @param interval interval between the reports (in ms), 0 to report at the end only
+   */
+  public void setProfiler(String fileName, long interval)
+  {
+    profiler = new Profiler(this, fileName, interval);
+  }
+
+  /**
+   * Gets the live counters of the simulation. <br>
+   * <br>
+   * @return monitor of the simulation
+   */
+  public final SimulationMonitor getMonitor()
+  {
+    return monitor;
   }
 
   /**
@@ -178,6 +472,16 @@ public final class Universe extends ExtendableObject
     return allNodes;
   }
 
+  /**
+   * Gets the state of the nodes. <br>
+   * <br>
+   * @return store holding the state of the nodes
+   */
+  public final NodeStateStore getNodeStates()
+  {
+    return nodeStates;
+  }
+
   /**
    * Searches a node by id. <br>
    * <br>
@@ -186,15 +490,7 @@ public final class Universe extends ExtendableObject
    */
   public final Node getNode(String id)
   {
-    java.util.Iterator iter=allNodes.iterator();
-    while (iter.hasNext())
-    {
-      Node node=(Node)iter.next();
-      if (node.id.equals(id))
-        return node;
-    }
-
-    return null;
+    return (Node)nodesByID.get(id);
   }
 
   /**
@@ -205,6 +501,18 @@ public final class Universe extends ExtendableObject
   public void addNode(Node aNode)
   {
     allNodes.add(aNode);
+    if (aNode.index<0)
+      aNode.index = nextNodeIndex++;
+    if (aNode.states!=nodeStates)
+      nodeStates.attach(aNode);
+    // the first node with an id is found, as by a search in the list
+    if (!nodesByID.containsKey(aNode.id))
+      nodesByID.put(aNode.id, aNode);
+    if (wakeUps!=null)
+    {
+      aNode.wakeUpRank = nextWakeUpRank++;
+      schedule(aNode, currentTime);
+    }
     sendNotification(new NodeAddedNotification(this, this, aNode));
   }
 
@@ -216,6 +524,20 @@ public final class Universe extends ExtendableObject
   public void removeNode(Node aNode)
   {
     allNodes.remove(aNode);
+    if (nodesByID.get(aNode.id)==aNode)
+    {
+      nodesByID.remove(aNode.id);
+      for (int i=0; i<allNodes.size(); i++)
+      {
+        Node node = (Node)allNodes.get(i);
+        if (node.id.equals(aNode.id))
+        {
+          nodesByID.put(node.id, node);
+          break;
+        }
+      }
+    }
+    aNode.wakeUpTime = -1;
     sendNotification(new NodeRemovedNotification(this, this, aNode));
   }
 
@@ -229,6 +551,58 @@ public final class Universe extends ExtendableObject
     return rand;
   }
 
+  /**
+   * Gets a random number generator for an object. <br>
+   * <br>
+   * If random streams are enabled, returns a new stream derived from the
+   * simulation seed and the object's key, otherwise the generator of the
+   * Universe is returned.
+   * @param key unique key of the object, e.g. node's ID
+   * @return random number generator
+   */
+  public java.util.Random getRandom(String key)
+  {
+    if (!randomStreams)
+      return rand;
+
+    return new RandomStream(RandomStream.deriveSeed(streamSeed, key));
+  }
+
+  /**
+   * Checks if the nodes and extensions draw from their own random streams. <br>
+   * <br>
+   * @return true, if random streams are enabled
+   */
+  public boolean isRandomStreams()
+  {
+    return randomStreams;
+  }
+
+  /**
+   * Gets the objects shared with other simulations. <br>
+   * <br>
+   * The map is used by the extensions building costly read-only objects,
+   * e.g. the readers of a spatial model: the first simulation puts the
+   * objects under a key naming their source, the other simulations take
+   * them instead of building them again. Accesses must be synchronized on
+   * the map.
+   * @return shared objects, null if the simulation doesn't share objects
+   */
+  public java.util.Map getSharedObjects()
+  {
+    return sharedObjects;
+  }
+
+  /**
+   * Sets the objects shared with other simulations. <br>
+   * <br>
+   * @param sharedObjects shared objects, null if the simulation doesn't share objects
+   */
+  public void setSharedObjects(java.util.Map sharedObjects)
+  {
+    this.sharedObjects = sharedObjects;
+  }
+
   /**
    * Gets the X-dimension of Universe. <br>
    * <br>
@@ -346,20 +720,666 @@ public final class Universe extends ExtendableObject
    * <br>
    * Performs execution of the exetensions and nodes,
    * increments simulation time.
+   * In event mode, the timesteps with no execution due are skipped.
    */
   public void advanceTime()
   {
+    if (profiler!=null)
+    {
+      try
+      {
+        profiler.step();
+      }
+      catch (java.io.IOException e)
+      {
+        throw new RuntimeException("Error writing profile", e);
+      }
+    }
+
+    if ((checkpointFile!=null)&&(getTime()>=checkpointTime))
+    {
+      String fileName = checkpointFile;
+      checkpointFile = null;
+      try
+      {
+        writeCheckpoint(fileName);
+      }
+      catch (java.io.IOException e)
+      {
+        throw new RuntimeException("Error writing checkpoint to "+fileName, e);
+      }
+    }
+
+    if (eventScheduling)
+    {
+      advanceToNextWakeUp();
+      flushOutputs();
+      monitor.step(currentTime);
+      return;
+    }
+
     // execute extensions
     super.act();
+    if (finished)
+      return;
 
     // execute mobile nodes
-    for (int i=0, n=allNodes.size(); i<n; i++)
+    actNodes(allNodes);
+
+    currentTime++;
+    flushOutputs();
+    monitor.step(currentTime);
+  }
+
+  /**
+   * Writes the output buffered during the timestep to the files. <br>
+   * <br>
+   * A run stopped between two timesteps leaves complete trace files.
+   */
+  protected void flushOutputs()
+  {
+    try
     {
-      ((Node)allNodes.get(i)).act();
+      monitor.flushOutputs();
     }
+    catch (java.io.IOException e)
+    {
+      throw new RuntimeException("Error writing output", e);
+    }
+  }
+
+  /**
+   * Executes the next timestep with an execution due. <br>
+   * <br>
+   * Performs execution of the extensions and nodes registered for the
+   * timestep, in the same order as in fixed-step mode.
+   */
+  protected void advanceToNextWakeUp()
+  {
+    if (wakeUps==null)
+    {
+      // register the Universe and all nodes for the current timestep
+      wakeUps = new java.util.PriorityQueue(Math.max(16, allNodes.size()+1), WakeUp.ORDER);
+      wakeUpRank = -1;
+      schedule(this, currentTime);
+      for (int i=0; i<allNodes.size(); i++)
+      {
+        Node node = (Node)allNodes.get(i);
+        node.wakeUpRank = nextWakeUpRank++;
+        schedule(node, currentTime);
+      }
+    }
+
+    // skip the timesteps with nothing due
+    if (nextDue.isEmpty())
+    {
+      WakeUp next = (WakeUp)wakeUps.peek();
+      if ((next!=null)&&(next.time>currentTime))
+        currentTime = next.time;
+    }
+
+    // objects registered for the next timestep are already in execution order
+    java.util.ArrayList due = nextDue;
+    nextDue = dueNodes;
+    dueNodes = due;
+    int n = 0;
+    for (int i=0; i<due.size(); i++)
+    {
+      ExtendableObject object = (ExtendableObject)due.get(i);
+
+      // skip removed nodes
+      if (object.wakeUpTime!=currentTime)
+        continue;
+
+      object.wakeUpTime = -1;
+      due.set(n++, object);
+    }
+    while (due.size()>n)
+      due.remove(due.size()-1);
+
+    if (pollWakeUps(due))
+      java.util.Collections.sort(due, WakeUp.RANK_ORDER);
+
+    if (!due.isEmpty()&&(due.get(0)==this))
+    {
+      // execute extensions
+      due.remove(0);
+      schedule(this, actDue());
+      if (finished)
+        return;
+
+      // nodes added by the extensions are executed at the current timestep
+      if (pollWakeUps(due))
+        java.util.Collections.sort(due, WakeUp.RANK_ORDER);
+    }
+
+    // execute mobile nodes
+    actNodes(due);
+    due.clear();
 
     currentTime++;
   }
+
+  /**
+   * Moves the objects due at the current timestep from the queue
+   * of the event scheduler to a list. <br>
+   * <br>
+   * @param due list of objects due at the current timestep
+   * @return true, if an object has been added to the list
+   */
+  private boolean pollWakeUps(java.util.ArrayList due)
+  {
+    boolean added = false;
+    while (!wakeUps.isEmpty()&&(((WakeUp)wakeUps.peek()).time<=currentTime))
+    {
+      WakeUp wakeUp = (WakeUp)wakeUps.poll();
+      ExtendableObject object = wakeUp.object;
+
+      // skip outdated wake-ups
+      if (object.wakeUpTime!=wakeUp.time)
+        continue;
+
+      object.wakeUpTime = -1;
+      due.add(object);
+      added = true;
+    }
+
+    return added;
+  }
+
+  /**
+   * Registers an object for execution by the event scheduler. <br>
+   * <br>
+   * An object already registered for an earlier timestep is not modified.
+   * @param object Universe or node
+   * @param time timestep of the execution, Long.MAX_VALUE if none
+   */
+  void schedule(ExtendableObject object, long time)
+  {
+    if ((time==Long.MAX_VALUE)||
+        ((object.wakeUpTime!=-1)&&(object.wakeUpTime<=time)))
+      return;
+
+    object.wakeUpTime = time;
+    // objects are executed in order, so the next timestep needs no queue
+    if (time==currentTime+1)
+      nextDue.add(object);
+    else
+      wakeUps.add(new WakeUp(object, time));
+  }
+
+  /**
+   * Executes the nodes of the current simulation timestep. <br>
+   * <br>
+   * If the nodes are stepped in parallel, the nodes are prepared first.
+   * @param nodes nodes to be executed, in execution order
+   */
+  protected void actNodes(java.util.List nodes)
+  {
+    int n = nodes.size();
+
+    if (threads>0)
+    {
+      // prepare mobile nodes in parallel
+      prepareNodes(nodes);
+
+      // commit mobile nodes in order
+      for (int i=0; i<n; i++)
+      {
+        java.util.ArrayList buffer = (java.util.ArrayList)deferredNotifications.get(i);
+        for (int j=0; j<buffer.size(); j++)
+        {
+          // deferred notifications are counted when sent
+          if (profiler!=null)
+            dispatch((Notification)buffer.get(j), 0);
+          else
+            sendNotification((Notification)buffer.get(j));
+        }
+        buffer.clear();
+
+        actNode((Node)nodes.get(i));
+      }
+    }
+    else
+    {
+      for (int i=0; i<n; i++)
+      {
+        actNode((Node)nodes.get(i));
+      }
+    }
+  }
+
+  /**
+   * Executes a node. <br>
+   * <br>
+   * @param node node to be executed
+   */
+  private void actNode(Node node)
+  {
+    if (eventScheduling)
+      schedule(node, node.actDue());
+    else
+      node.act();
+  }
+
+  /**
+   * Prepares the nodes for the current simulation timestep. <br>
+   * <br>
+   * Calls {@link ExtendableObject#prepare prepare} of the nodes using the
+   * configured number of threads. Notifications sent by the nodes are
+   * deferred until the nodes are executed, so that the results do not depend
+   * on the number of threads.
+   * @param nodes nodes to be prepared
+   */
+  protected void prepareNodes(java.util.List nodes)
+  {
+    int n = nodes.size();
+    while (deferredNotifications.size()<n)
+      deferredNotifications.add(new java.util.ArrayList());
+
+    preparing = true;
+    try
+    {
+      // small populations are not worth dispatching to the pool
+      int grain = Math.max(64, n/(threads*4));
+      if ((pool!=null)&&(n>grain))
+        pool.invoke(new PrepareTask(nodes, 0, n, grain));
+      else
+        new PrepareTask(nodes, 0, n, n).compute();
+    }
+    finally
+    {
+      preparing = false;
+    }
+  }
+
+  /**
+   * Checks if the nodes are being prepared in parallel. <br>
+   * <br>
+   * While the flag is set, a node may only modify its own state and read
+   * the state published by the other nodes during the previous timestep.
+   * @return true, if the nodes are being prepared
+   */
+  public boolean isPreparing()
+  {
+    return preparing;
+  }
+
+  /**
+   * Gets the number of threads preparing the nodes. <br>
+   * <br>
+   * @return number of threads, 0 if the nodes are stepped sequentially
+   */
+  public int getThreads()
+  {
+    return threads;
+  }
+
+  /**
+   * Checks if the simulation runs in event mode. <br>
+   * <br>
+   * In event mode, the extensions and nodes are only executed at the
+   * timesteps they register with {@link ExtensionModule#getWakeUpTime
+   * getWakeUpTime}, the timesteps with nothing due are skipped.
+   * @return true, if the simulation runs in event mode
+   */
+  public boolean isEventScheduling()
+  {
+    return eventScheduling;
+  }
+
+  /**
+   * Finishes the simulation. <br>
+   * <br>
+   * No further extensions and nodes are executed at the current timestep.
+   */
+  public void finish()
+  {
+    finished = true;
+  }
+
+  /**
+   * Checks if the simulation is finished. <br>
+   * <br>
+   * @return true, if the simulation is finished
+   */
+  public boolean isFinished()
+  {
+    return finished;
+  }
+
+  /**
+   * Runs the loaded simulation to completion. <br>
+   * <br>
+   * Initializes the modules, executes the timesteps until a simulation
+   * controlling module finishes the simulation and releases the resources
+   * of the modules. The instance is bound to the calling thread during
+   * the run.
+   */
+  public void run()
+  {
+    Universe previous = setReference(this);
+    try
+    {
+      initialize();
+
+      while (!finished)
+        advanceTime();
+    }
+    finally
+    {
+      close();
+      setReference(previous);
+    }
+  }
+
+  /**
+   * Writes a checkpoint of the simulation. <br>
+   * <br>
+   * The checkpoint holds the state of the Universe, the nodes and the
+   * extensions, including the random number generators, in a compressed
+   * binary file. Output modules are left out (see
+   * {@link ExtensionModule#isCheckpointed}). The method must be called
+   * between two timesteps. <br>
+   * <br>
+   * The checkpointed classes declare their serialVersionUID, so that a
+   * checkpoint can be read by another build, as long as the fields of
+   * these classes are unchanged. A build changing them must increase
+   * the serialVersionUID of the changed classes.
+   * @param fileName name of the checkpoint file
+   * @throws java.io.IOException if the checkpoint could not be written
+   */
+  public void writeCheckpoint(String fileName) throws java.io.IOException
+  {
+    u.sendNotification(new DebugNotification(this, u,
+      "Writing checkpoint to "+fileName));
+
+    java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(
+      new java.io.BufferedOutputStream(new java.util.zip.GZIPOutputStream(
+        new java.io.FileOutputStream(fileName))));
+    try
+    {
+      out.writeObject(this);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a checkpoint of a simulation. <br>
+   * <br>
+   * The restored simulation continues at the timestep the checkpoint was
+   * written at. Output modules and other extensions may be added by
+   * loading a scenario into the restored Universe, extensions replace the
+   * restored extensions with the same name. A checkpoint written by a
+   * build with other fields of the checkpointed classes can't be read
+   * (see {@link #writeCheckpoint writeCheckpoint}).
+   * @param fileName name of the checkpoint file
+   * @return restored Universe object
+   * @throws Exception Exception if the checkpoint could not be read
+   */
+  public static Universe readCheckpoint(String fileName) throws Exception
+  {
+    java.io.ObjectInputStream in = new java.io.ObjectInputStream(
+      new java.io.BufferedInputStream(new java.util.zip.GZIPInputStream(
+        new java.io.FileInputStream(fileName))));
+    try
+    {
+      Universe res = (Universe)in.readObject();
+      res.restoredAdditions = new java.util.ArrayList();
+
+      // resolve the slots before the nodes are stepped in parallel
+      res.updateSlots();
+      for (int i=0; i<res.allNodes.size(); i++)
+        ((ExtendableObject)res.allNodes.get(i)).updateSlots();
+      return res;
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Merges the modules loaded into a restored simulation. <br>
+   * <br>
+   * A loaded extension replaces the restored extension with the same name,
+   * other extensions are appended. The loaded extensions and nodes are
+   * initialized by {@link #initialize initialize}.
+   * @param restoredExtensions extensions of the restored simulation
+   * @param restoredNodes number of the nodes of the restored simulation
+   */
+  private void addToRestored(java.util.ArrayList restoredExtensions, int restoredNodes)
+  {
+    java.util.ArrayList extensions = getExtensions();
+    for (int i=restoredExtensions.size(); i<extensions.size(); i++)
+    {
+      ExtensionModule module = (ExtensionModule)extensions.get(i);
+      restoredAdditions.add(module);
+
+      for (int j=0; j<restoredExtensions.size(); j++)
+      {
+        ExtensionModule old = (ExtensionModule)restoredExtensions.get(j);
+        if (old.getName().equals(module.getName()))
+        {
+          listeners.removeListener(old);
+          restoredExtensions.set(j, module);
+          extensions.set(extensions.indexOf(old), module);
+          extensions.remove(i--);
+          break;
+        }
+      }
+    }
+    updateSlots();
+
+    for (int i=restoredNodes; i<allNodes.size(); i++)
+      restoredAdditions.add(allNodes.get(i));
+
+    // the added extensions are executed at the current timestep
+    if (wakeUps!=null)
+      schedule(this, currentTime);
+  }
+
+  /**
+   * Saves the Universe to a checkpoint. <br>
+   * <br>
+   * @param out checkpoint stream
+   * @throws java.io.IOException if the object could not be written
+   */
+  private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException
+  {
+    out.defaultWriteObject();
+    out.writeObject((wakeUps!=null) ? wakeUps.toArray() : null);
+  }
+
+  /**
+   * Restores the Universe from a checkpoint. <br>
+   * <br>
+   * @param in checkpoint stream
+   * @throws java.io.IOException if the object could not be read
+   * @throws ClassNotFoundException if a class of the checkpoint is not found
+   */
+  private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    Object[] pending = (Object[])in.readObject();
+    if (pending!=null)
+    {
+      wakeUps = new java.util.PriorityQueue(Math.max(16, pending.length), WakeUp.ORDER);
+      for (int i=0; i<pending.length; i++)
+        wakeUps.add(pending[i]);
+    }
+
+    deferredBuffer = new ThreadLocal();
+    monitor = new SimulationMonitor(this);
+    pool = (threads>1) ? new java.util.concurrent.ForkJoinPool(threads) : null;
+  }
+
+  /**
+   * Releases the resources of the extensions and nodes. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    super.close();
+
+    for (int i=0; i<allNodes.size(); i++)
+    {
+      ((ExtendableObject)allNodes.get(i)).close();
+    }
+
+    if (pool!=null)
+    {
+      pool.shutdown();
+      pool = null;
+    }
+
+    if (profiler!=null)
+    {
+      try
+      {
+        profiler.close();
+      }
+      catch (java.io.IOException e)
+      {
+        System.err.println("Error writing profile: "+e.getMessage());
+      }
+      profiler = null;
+    }
+
+    monitor.unregister();
+  }
+
+  /**
+   * Wake-up of an object registered by the event scheduler
+   */
+  private static class WakeUp implements java.io.Serializable
+  {
+    /**
+     * Version of the class in the checkpoints
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Orders the wake-ups by time and execution order
+     */
+    static final java.util.Comparator ORDER = new java.util.Comparator()
+    {
+      public int compare(Object o1, Object o2)
+      {
+        WakeUp w1 = (WakeUp)o1;
+        WakeUp w2 = (WakeUp)o2;
+        if (w1.time!=w2.time)
+          return (w1.time<w2.time) ? -1 : 1;
+
+        return RANK_ORDER.compare(w1.object, w2.object);
+      }
+    };
+
+    /**
+     * Orders the objects by execution order
+     */
+    static final java.util.Comparator RANK_ORDER = new java.util.Comparator()
+    {
+      public int compare(Object o1, Object o2)
+      {
+        long r1 = ((ExtendableObject)o1).wakeUpRank;
+        long r2 = ((ExtendableObject)o2).wakeUpRank;
+        return (r1<r2) ? -1 : ((r1==r2) ? 0 : 1);
+      }
+    };
+
+    /**
+     * Object to be executed
+     */
+    ExtendableObject object;
+    /**
+     * Timestep of the execution
+     */
+    long time;
+
+    /**
+     * Constructor
+     */
+    WakeUp(ExtendableObject object, long time)
+    {
+      this.object = object;
+      this.time = time;
+    }
+  }
+
+  /**
+   * Task preparing a range of nodes
+   */
+  private class PrepareTask extends java.util.concurrent.RecursiveAction
+  {
+    /**
+     * Version of the class in the checkpoints
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nodes to be prepared
+     */
+    private java.util.List nodes;
+    /**
+     * First node of the range
+     */
+    private int from;
+    /**
+     * Node following the last node of the range
+     */
+    private int to;
+    /**
+     * Maximal number of nodes prepared without splitting the range
+     */
+    private int grain;
+
+    /**
+     * Constructor
+     */
+    PrepareTask(java.util.List nodes, int from, int to, int grain)
+    {
+      this.nodes = nodes;
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+    }
+
+    /**
+     * Prepares the nodes of the range
+     */
+    protected void compute()
+    {
+      if (to-from>grain)
+      {
+        int middle = (from+to)>>>1;
+        invokeAll(new PrepareTask(nodes, from, middle, grain),
+                  new PrepareTask(nodes, middle, to, grain));
+        return;
+      }
+
+      // worker threads must see the Universe owning the nodes
+      Universe previous = setReference(Universe.this);
+      try
+      {
+        for (int i=from; i<to; i++)
+        {
+          deferredBuffer.set(deferredNotifications.get(i));
+          ((Node)nodes.get(i)).prepare();
+        }
+      }
+      finally
+      {
+        deferredBuffer.set(null);
+        setReference(previous);
+      }
+    }
+  }
 	
 	/**
     * Re-Initializes all variables. <br>
@@ -371,11 +1391,35 @@ public final class Universe extends ExtendableObject
 	public void flush() {
 	  currentTime = 0;
 		allNodes.clear();
+    nodesByID.clear();
+    nextNodeIndex = 0;
+    nodeStates = new NodeStateStore();
 		getExtensions().clear();
+		updateSlots();
     rand = new java.util.Random();
+    randomStreams = false;
+    streamSeed = 0;
     listeners.clear();
-		
-		
+    debugLevel = DebugNotification.FINEST;
+    eventScheduling = false;
+    wakeUps = null;
+    nextWakeUpRank = 0;
+    dueNodes.clear();
+    nextDue.clear();
+    threads = 0;
+    if (pool!=null)
+    {
+      pool.shutdown();
+      pool = null;
+    }
+    finished = false;
+    initialized = false;
+    restoredAdditions = null;
+    checkpointFile = null;
+    profiler = null;
+    sharedObjects = null;
+    monitor.unregister();
+    monitor = new SimulationMonitor(this);
 	}
   /**
     * Initializes the object from XML tag. <br>
@@ -419,14 +1463,105 @@ public final class Universe extends ExtendableObject
 				u.sendNotification(new LoaderNotification(this, u,
           "Processing <seed> tag"));
 				long seed = (Long.parseLong(item.getFirstChild().getNodeValue()));
+				// a restored simulation continues with the checkpointed generators
+				if (restoredAdditions!=null)
+				  System.err.println("Warning: <seed> tag ignored by the restored simulation");
+				else
 				if (seed > 0) {
 					//System.out.println("Setting seed to " + seed);
 					u.getRandom().setSeed(seed);
+					streamSeed = seed;
 				}
 				u.sendNotification(new LoaderNotification(this, u,
           "Finished processing <seed> tag"));
 			}
 			else
+      if(tag.equals("threads")) {
+        u.sendNotification(new LoaderNotification(this, u,
+          "Processing <threads> tag"));
+
+        threads=Integer.parseInt(item.getFirstChild().getNodeValue().trim());
+        if (threads<=0)
+          throw new Exception("Number of threads is invalid: "+threads);
+        pool = (threads>1) ? new java.util.concurrent.ForkJoinPool(threads) : null;
+
+        u.sendNotification(new LoaderNotification(this, u,
+          "Finished processing <threads> tag"));
+      }
+      else
+      if(tag.equals("checkpoint")) {
+        u.sendNotification(new LoaderNotification(this, u,
+          "Processing <checkpoint> tag"));
+
+        org.w3c.dom.Element e = (org.w3c.dom.Element)item;
+        float time=Float.parseFloat(e.getAttribute("time"));
+        if (time<0)
+          throw new Exception("Invalid checkpoint time: "+time);
+        checkpointTime=(long)(time*1000f);
+        checkpointFile=e.getFirstChild().getNodeValue().trim();
+
+        u.sendNotification(new LoaderNotification(this, u,
+          "Finished processing <checkpoint> tag"));
+      }
+      else
+      if(tag.equals("profile")) {
+        u.sendNotification(new LoaderNotification(this, u,
+          "Processing <profile> tag"));
+
+        org.w3c.dom.Element e = (org.w3c.dom.Element)item;
+        long interval=0;
+        if (e.getAttribute("interval").length()>0)
+        {
+          float time=Float.parseFloat(e.getAttribute("interval"));
+          if (time<=0)
+            throw new Exception("Invalid profile interval: "+time);
+          interval=(long)(time*1000f);
+        }
+        String fileName=null;
+        if ((e.getFirstChild()!=null)&&(e.getFirstChild().getNodeValue().trim().length()>0))
+          fileName=e.getFirstChild().getNodeValue().trim();
+        if ((fileName==null)&&(interval>0))
+          throw new Exception("A periodic profile needs a file name");
+        setProfiler(fileName, interval);
+
+        u.sendNotification(new LoaderNotification(this, u,
+          "Finished processing <profile> tag"));
+      }
+      else
+      if(tag.equals("random")) {
+        u.sendNotification(new LoaderNotification(this, u,
+          "Processing <random> tag"));
+
+        String mode=item.getFirstChild().getNodeValue().trim();
+        if ( (!mode.equals("streams")) && (!mode.equals("global")) )
+          throw new Exception("Invalid random mode: "+mode);
+
+        if (restoredAdditions!=null)
+          System.err.println("Warning: <random> tag ignored by the restored simulation");
+        else
+          randomStreams=mode.equals("streams");
+
+        u.sendNotification(new LoaderNotification(this, u,
+          "Finished processing <random> tag"));
+      }
+      else
+      if(tag.equals("scheduler")) {
+        u.sendNotification(new LoaderNotification(this, u,
+          "Processing <scheduler> tag"));
+
+        String mode=item.getFirstChild().getNodeValue().trim();
+        if (mode.equals("events"))
+          eventScheduling=true;
+        else
+        if (mode.equals("steps"))
+          eventScheduling=false;
+        else
+          throw new Exception("Invalid scheduler mode: "+mode);
+
+        u.sendNotification(new LoaderNotification(this, u,
+          "Finished processing <scheduler> tag"));
+      }
+			else
       if(tag.equals("step")) {
         u.sendNotification(new LoaderNotification(this, u,
           "Processing <step> tag"));
@@ -469,6 +1604,10 @@ public final class Universe extends ExtendableObject
       }
 		}
 		
+		// streams of an unseeded simulation differ from run to run
+		if (randomStreams && (streamSeed==0))
+		  streamSeed = new java.util.Random().nextLong();
+
 		// checkout
     if (stepDuration<=0)
       throw new Exception("Simulation step is invalid: "+
@@ -484,6 +1623,12 @@ public final class Universe extends ExtendableObject
 		
 		u.sendNotification(new LoaderNotification(this, u,
           "Finished preprocessing tags"));
+
+    // modules of a restored simulation
+    java.util.ArrayList restoredExtensions = null;
+    int restoredNodes = allNodes.size();
+    if (restoredAdditions!=null)
+      restoredExtensions = new java.util.ArrayList(getExtensions());
 		
     super.load(element);
 		
@@ -548,19 +1693,38 @@ public final class Universe extends ExtendableObject
         if (classTag.length()==0)
           classTag = Node.class.getName();
 
+        // the first node is loaded from the tag,
+        // the other nodes are copies of the first node if possible
+        Node prototype = null;
         for (int n_i=0; n_i<n; n_i++)
         {
-          u.sendNotification(new LoaderNotification(this, u,
-            "Creating mobile node"));
+          boolean notify = isLoaderEnabled();
+          if (notify)
+            u.sendNotification(new LoaderNotification(this, u,
+              "Creating mobile node"));
           
-          Node node=(Node)Class.forName(classTag).newInstance();
-          e.setAttribute("id", g_id+"#"+n_i);
-          node.load(e);
+          Node node = null;
+          if (prototype!=null)
+          {
+            node = prototype.copy(g_id+"#"+n_i);
+            // an extension can not be copied, every node is loaded
+            if (node==null)
+              prototype = null;
+          }
+          if (node==null)
+          {
+            node=(Node)Class.forName(classTag).newInstance();
+            e.setAttribute("id", g_id+"#"+n_i);
+            node.load(e);
+            if (n_i==0)
+              prototype = node;
+          }
 
           addNode(node);
           
-          u.sendNotification(new LoaderNotification(this, u,
-            "Finished creating mobile node"));
+          if (notify)
+            u.sendNotification(new LoaderNotification(this, u,
+              "Finished creating mobile node"));
         }
 
         u.sendNotification(new LoaderNotification(this, u,
@@ -615,6 +1779,9 @@ public final class Universe extends ExtendableObject
 
 		u.sendNotification(new LoaderNotification(this, u,
           "Finished postprocessing tags"));
+
+    if (restoredExtensions!=null)
+      addToRestored(restoredExtensions, restoredNodes);
 		
    /* // checkout
     if (stepDuration<=0)
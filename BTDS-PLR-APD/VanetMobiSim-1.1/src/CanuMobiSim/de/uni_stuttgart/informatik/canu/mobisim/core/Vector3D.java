@@ -8,8 +8,13 @@ package de.uni_stuttgart.informatik.canu.mobisim.core;
 ** @author  Torsten Brodbeck
 */
 
-public class Vector3D
+public class Vector3D implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
    protected double x;
    protected double y;
    protected double z;
@@ -161,6 +166,21 @@ public class Vector3D
    }//endproc
 
 
+   /*--------------------------------------------------------------*/
+   /* METHOD getLengthSq */
+   /**********************
+   ** Returns the squared length of the vector.<BR>
+   ** <BR>
+   ** precond : none <BR>
+   ** postcond:none<BR>
+   ** @return double with value squared length of this.Vector3D
+   */
+   public double getLengthSq()
+   {
+      return this.x * this.x + this.y * this.y + this.z * this.z;
+   }//endproc
+
+
    /*--------------------------------------------------------------*/
    /* METHOD add */
    /**********************
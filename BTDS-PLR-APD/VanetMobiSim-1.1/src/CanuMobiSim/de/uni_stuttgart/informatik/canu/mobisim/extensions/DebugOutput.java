@@ -18,10 +18,20 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class DebugOutput extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Output Stream
    */
   protected java.io.PrintStream o = System.err;
+
+  /**
+   * Highest level of the debug notifications to be displayed
+   */
+  protected int level = DebugNotification.FINEST;
   
   /**
    * Constructor
@@ -41,6 +51,29 @@ public class DebugOutput extends ExtensionModule
     return "Debug output displaying module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Notification passing method. <br>
    * <br>
@@ -48,6 +81,10 @@ public class DebugOutput extends ExtensionModule
    */
   public void sendNotification(Notification notification)
   {
+    if ((notification instanceof DebugNotification)&&
+        (((DebugNotification)notification).getLevel()>level))
+      return;
+
     String s = notification.toString();
     if (s.length()>0)
       o.println(s);
@@ -64,6 +101,17 @@ public class DebugOutput extends ExtensionModule
   {
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
   
   /**
     * Initializes the object from XML tag. <br>
@@ -84,6 +132,23 @@ public class DebugOutput extends ExtensionModule
     if (outName.length()>0)
       o = new java.io.PrintStream(new java.io.FileOutputStream(outName));    
 
+    String levelName = element.getAttribute("level");
+    if (levelName.length()>0)
+    {
+      if (levelName.equalsIgnoreCase("info"))
+        level = DebugNotification.INFO;
+      else
+      if (levelName.equalsIgnoreCase("fine"))
+        level = DebugNotification.FINE;
+      else
+      if (levelName.equalsIgnoreCase("finest"))
+        level = DebugNotification.FINEST;
+      else
+        throw new Exception("Invalid debug level: "+levelName);
+    }
+    // the debug messages above the level are not built at all
+    u.setDebugLevel(level);
+
 	u.addNotificationListener(this);
 
     u.sendNotification(new LoaderNotification(this, u,
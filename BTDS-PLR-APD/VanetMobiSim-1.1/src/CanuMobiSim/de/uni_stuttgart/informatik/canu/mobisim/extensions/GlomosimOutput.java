@@ -20,6 +20,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class GlomosimOutput extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   java.io.PrintStream nodePlacement;
 
   java.io.PrintStream nodeMobility;
@@ -34,12 +39,13 @@ public class GlomosimOutput extends ExtensionModule
     super("GlomosimOutput");
     
     nodePlacement = new java.io.PrintStream(
-      new java.io.FileOutputStream("nodes.input"));
+      new MonitoredOutputStream(new java.io.FileOutputStream("nodes.input"), u.getMonitor()));
 
     nodeMobility = new java.io.PrintStream(
-      new java.io.FileOutputStream("mobility.in"));
+      new MonitoredOutputStream(new java.io.FileOutputStream("mobility.in"), u.getMonitor()));
 
-    u.addNotificationListener(this);
+    u.addNotificationListener(this, StartingPositionSetNotification.class);
+    u.addNotificationListener(this, MovementNotification.class);
   }
 
   /**
@@ -52,6 +58,27 @@ public class GlomosimOutput extends ExtensionModule
     return "GlomoSim tracing module";
   }
 
+  /**
+   * Closes the output files. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    nodePlacement.close();
+    nodeMobility.close();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -88,7 +115,7 @@ public class GlomosimOutput extends ExtensionModule
   {
     Node node = (Node)((Movement)notification.getSender()).getOwner();
 
-    int i = u.getNodes().indexOf(node);
+    int i = node.getIndex();
 
     nodeMobility.println(i+" "+u.getTime()/1000f+"S"+
       " ("+node.getPosition().getX()+" "
@@ -105,10 +132,10 @@ public class GlomosimOutput extends ExtensionModule
     Node node = (Node)notification.getSender();
 
     // output position of a mobile node only
-    if (node.getExtension("Movement")==null)
+    if (node.getExtension(Movement.SLOT)==null)
       return;
 
-    int i = u.getNodes().indexOf(node);
+    int i = node.getIndex();
 
     nodePlacement.println(i+" 0 ("+node.getPosition().getX()+" "
       +node.getPosition().getY()+" "+node.getPosition().getZ()+")");
@@ -138,4 +165,14 @@ public class GlomosimOutput extends ExtensionModule
     
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return timestep preceding the end of the simulation
+   */
+  public long getWakeUpTime()
+  {
+    return (simulation.getFinishTime()+u.getStepDuration()-1)/u.getStepDuration()-1;
+  }
 }
\ No newline at end of file
@@ -34,6 +34,11 @@ import de.uni_stuttgart.informatik.canu.senv.utils.*;
  */
 public class Graph extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Aggregated graph object
    */
@@ -71,6 +76,17 @@ public class Graph extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Returns module's description. <br>
    * <br>
@@ -230,12 +246,24 @@ public class Graph extends ExtensionModule
     return graph.getLowermostCoordinate();
   }
 
+  /**
+   * Gets the shortest paths between all the pairs of vertices. <br>
+   * <br>
+   * @return shortest paths between all the pairs of vertices
+   */
+  public ShortestPaths getShortestPaths()
+  {
+    return graph.getShortestPaths();
+  }
+
   /**
    * Gets a matrix with the shortest paths between all the pairs of vertices. <br>
    * <br>
    * @return matrix with the shortest paths between all the pairs
-   *         of vertices. (The matrix should have been calculated before).
+   *         of vertices
+   * @deprecated use {@link #getShortestPaths()}
    */
+  @Deprecated
   public Path[][] getPathMatrix()
   {
     return graph.getPathMatrix();
@@ -257,7 +285,7 @@ public class Graph extends ExtensionModule
     u.sendNotification(new LoaderNotification(this, u,
       "Loading Graph extension"));
 		
-		SpatialModel model = (SpatialModel)u.getExtension("SpatialModel");
+		SpatialModel model = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		if (model != null)
 			throw new Exception("A Spatial model can only be loaded after the Graph model");
 		
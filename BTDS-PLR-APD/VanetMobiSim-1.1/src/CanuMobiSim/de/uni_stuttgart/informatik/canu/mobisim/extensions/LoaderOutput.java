@@ -18,6 +18,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class LoaderOutput extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Buffer to store messages before initialization is completed
    */
@@ -35,7 +40,7 @@ public class LoaderOutput extends ExtensionModule
   {
     super("LoaderOutput");
     
-    u.addNotificationListener(this);    
+    u.addNotificationListener(this, LoaderNotification.class);
   }
 
   /**
@@ -48,6 +53,29 @@ public class LoaderOutput extends ExtensionModule
     return "Loader tracing module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Notification passing method. <br>
    * <br>
@@ -75,6 +103,17 @@ public class LoaderOutput extends ExtensionModule
   {
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
   
   /**
     * Initializes the object from XML tag. <br>
@@ -20,6 +20,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.mobilitymodels.Movement;
  */
 public class NSOutput extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Output Stream
    */
@@ -43,6 +48,29 @@ public class NSOutput extends ExtensionModule
     return "NS-2 tracing module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -82,7 +110,7 @@ public class NSOutput extends ExtensionModule
     Position3D destination = notification.getDestination();
     Node node = (Node)((Movement)notification.getSender()).getOwner();
 
-    int i = u.getNodes().indexOf(node);
+    int i = node.getIndex();
 
     o.println("$ns_ at "+u.getTime()/1000f+
       " \"$node_("+i+") setdest "+
@@ -101,10 +129,10 @@ public class NSOutput extends ExtensionModule
     Node node = (Node)notification.getSender();
 
     // output position of mobile nodes only
-    if (node.getExtension("Movement")==null)
+    if (node.getExtension(Movement.SLOT)==null)
       return;
 
-    int i = u.getNodes().indexOf(node);
+    int i = node.getIndex();
 
     o.println("$node_("+i+") set X_ "+
       (node.getPosition().getX()+0.000001));
@@ -124,6 +152,17 @@ public class NSOutput extends ExtensionModule
   {
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
   
   /**
     * Initializes the object from XML tag. <br>
@@ -142,9 +181,11 @@ public class NSOutput extends ExtensionModule
 
     String outName = element.getAttribute("output");
     if (outName.length()>0)
-      o = new java.io.PrintStream(new java.io.FileOutputStream(outName));    
+      o = new java.io.PrintStream(new MonitoredOutputStream(
+        new java.io.FileOutputStream(outName), u.getMonitor()));    
 
-    u.addNotificationListener(this);
+    u.addNotificationListener(this, StartingPositionSetNotification.class);
+    u.addNotificationListener(this, MovementChangedNotification.class);
 
     u.sendNotification(new LoaderNotification(this, u,
       "Finished loading NSOutput extension"));
@@ -19,6 +19,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.mobilitymodels.*;
  */
 public class ReportNodeMobility extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Step of reporting (in ms)
    */
@@ -56,6 +61,16 @@ public class ReportNodeMobility extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return next timestep, at which the simulation time is a multiple of the step
+   */
+  public long getWakeUpTime()
+  {
+    return getNextPeriodTime(step);
+  }
+
   /**
    * Dumps node positions
    */
@@ -66,7 +81,7 @@ public class ReportNodeMobility extends ExtensionModule
     while (iter.hasNext())
     {
       Node node = (Node)iter.next();
-      Movement movement = (Movement)node.getExtension("Movement");
+      Movement movement = (Movement)node.getExtension(Movement.SLOT);
       o.println(node.getID()+" "+(float)u.getTime()/1000+" "+
                 node.getPosition().getX()+" "+node.getPosition().getY()+" "+
                 movement.getSpeed()*1000);
@@ -83,6 +98,29 @@ public class ReportNodeMobility extends ExtensionModule
     return "Node positions and speeds reporting module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
     * Initializes the object from XML tag. <br>
     * <br>
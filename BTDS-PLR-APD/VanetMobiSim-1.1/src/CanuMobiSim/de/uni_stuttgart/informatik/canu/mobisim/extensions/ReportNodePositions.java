@@ -18,6 +18,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class ReportNodePositions extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Step of reporting (in ms)
    */
@@ -55,6 +60,16 @@ public class ReportNodePositions extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return next timestep, at which the simulation time is a multiple of the step
+   */
+  public long getWakeUpTime()
+  {
+    return getNextPeriodTime(step);
+  }
+
   /**
    * Dumps node positions
    */
@@ -79,6 +94,29 @@ public class ReportNodePositions extends ExtensionModule
     return "Node positions reporting module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
     * Initializes the object from XML tag. <br>
     * <br>
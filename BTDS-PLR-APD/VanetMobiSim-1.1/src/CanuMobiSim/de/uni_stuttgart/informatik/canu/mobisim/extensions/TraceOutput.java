@@ -20,6 +20,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.mobilitymodels.Movement;
  */
 public class TraceOutput extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   protected boolean firstTime = true;
 
   /**
@@ -45,6 +50,29 @@ public class TraceOutput extends ExtensionModule
     return "Traces producing module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Notification passing method. <br>
    * <br>
@@ -69,7 +97,7 @@ public class TraceOutput extends ExtensionModule
     Position3D destination = notification.getDestination();
     Node node = (Node)((Movement)notification.getSender()).getOwner();
 
-    int i = u.getNodes().indexOf(node);
+    int i = node.getIndex();
 
     o.println(i+" "+u.getTime()/1000f+" "+
       destination.getX()+" "+
@@ -93,10 +121,10 @@ public class TraceOutput extends ExtensionModule
     Node node = (Node)notification.getSender();
 
     // output position of mobile nodes only
-    if (node.getExtension("Movement")==null)
+    if (node.getExtension(Movement.SLOT)==null)
       return;
 
-    int i = u.getNodes().indexOf(node);
+    int i = node.getIndex();
 
     o.println(""+i+" "+node.getPosition().getX()+" "+node.getPosition().getY());
   }
@@ -116,7 +144,7 @@ public class TraceOutput extends ExtensionModule
     while (iter.hasNext())
     {
       Node node = (Node)iter.next();
-      Movement movement = (Movement)node.getExtension("Movement");
+      Movement movement = (Movement)node.getExtension(Movement.SLOT);
       
       if (count==0)
       {
@@ -156,6 +184,17 @@ public class TraceOutput extends ExtensionModule
   {
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
   
   /**
     * Initializes the object from XML tag. <br>
@@ -174,9 +213,11 @@ public class TraceOutput extends ExtensionModule
 
     String outName = element.getAttribute("output");
     if (outName.length()>0)
-      o = new java.io.PrintStream(new java.io.FileOutputStream(outName));    
+      o = new java.io.PrintStream(new MonitoredOutputStream(
+        new java.io.FileOutputStream(outName), u.getMonitor()));    
 
-    u.addNotificationListener(this);
+    u.addNotificationListener(this, StartingPositionSetNotification.class);
+    u.addNotificationListener(this, MovementChangedNotification.class);
 
     u.sendNotification(new LoaderNotification(this, u,
       "Finished loading TraceOutput extension"));
@@ -23,6 +23,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class BrownianWalk extends Movement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Constant
    */
@@ -92,7 +97,7 @@ public class BrownianWalk extends Movement
    */
   protected void chooseNewMovement()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     Node owner=(Node)this.owner;
 
     Position3D destination = null;
@@ -121,8 +126,9 @@ public class BrownianWalk extends Movement
     // set absolute time
     movementChangeTime+=u.getTime();
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000.0f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000.0f));
   }
 
   /**
@@ -139,7 +145,7 @@ public class BrownianWalk extends Movement
     if (u.getTime() >= movementChangeTime )
       chooseNewMovement();
 
-    owner.setPosition(owner.getPosition().add(movement));
+    owner.move(movement);
     
     return 0;
   }
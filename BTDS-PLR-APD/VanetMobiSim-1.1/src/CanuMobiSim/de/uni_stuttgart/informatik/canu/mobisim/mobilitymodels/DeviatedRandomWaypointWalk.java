@@ -25,6 +25,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Name of a notification listener for the non-deviated movement
    */
@@ -95,7 +100,7 @@ public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
    */
   public void chooseNewPath()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     Node owner=(Node)this.owner;
 
     double x = rand.nextDouble()*u.getDimensionX();
@@ -104,7 +109,7 @@ public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
     destination = new Position3D(x, y, 0);
     speed = minSpeed + (maxSpeed-minSpeed)*rand.nextFloat();
 
-    double dist = owner.getPosition().getDistance(destination);
+    double dist = owner.getDistance(destination);
     arrivalTime = u.getTime()+(long)Math.floor(dist/speed);
     
     movement = owner.getPosition().getNormalizedDirectionVector(destination).mult(dist/n_points);
@@ -120,8 +125,9 @@ public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
     intermediatePositions.add(destination);
 
     // inform about the non-deviated path
-    u.sendNotification(new DebugNotification(this, u,
-      owner.getID()+" moves to "+destination+" with speed "+speed*1000f+" m/s"));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+        owner.getID()+" moves to "+destination+" with speed "+speed*1000f+" m/s"));
 
     if (altListener!=null)
       altListener.sendNotification(new MovementChangedNotification(this, altListener,
@@ -133,7 +139,7 @@ public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
    */
   public void chooseNewMovement()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     Node owner = (Node)this.owner;
 
     if (intermediatePositions.size()==0)
@@ -179,15 +185,16 @@ public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
       destination = new Position3D(x, y, 0);
     }
 
-    speed = (float)owner.getPosition().getDistance(destination)/((arrivalTime-u.getTime())/(intermediatePositions.size()+1));
+    speed = (float)owner.getDistance(destination)/((arrivalTime-u.getTime())/(intermediatePositions.size()+1));
     
     stay = 0;
 
     movement = owner.getPosition().getNormalizedDirectionVector(destination).
       mult(speed*u.getStepDuration());
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000f));
   }
 
   /**
@@ -202,10 +209,11 @@ public class DeviatedRandomWaypointWalk extends RandomWaypointWalk
       // wait at the destination
       Node owner=(Node)this.owner;
 
-      stay=(int)(minStay+(maxStay-minStay)*u.getRandom().nextFloat());
+      stay=(int)(minStay+(maxStay-minStay)*getRandom().nextFloat());
 
-      u.sendNotification(new DestinationReachedNotification(this, u,
-        owner.getPosition(), stay/1000.0f));
+      if (u.hasNotificationListeners(DestinationReachedNotification.class))
+        u.sendNotification(new DestinationReachedNotification(this, u,
+          owner.getPosition(), stay/1000.0f));
     }
     else
     {
@@ -23,6 +23,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class GaussMarkovWalk extends Movement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Tuning parameter
    */
@@ -70,7 +75,7 @@ public class GaussMarkovWalk extends Movement
    */
   protected void chooseNewMovement()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     Node owner=(Node)this.owner;
 
     Position3D destination = null;
@@ -97,8 +102,9 @@ public class GaussMarkovWalk extends Movement
 
     speed = (float)wholeMovement.getLength()/step;
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000.0f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000.0f));
   }
 
   /**
@@ -115,7 +121,7 @@ public class GaussMarkovWalk extends Movement
     if (u.getTime() % step == 0 )
       chooseNewMovement();
 
-    owner.setPosition(owner.getPosition().add(movement));
+    owner.move(movement);
     
     return 0;
   }
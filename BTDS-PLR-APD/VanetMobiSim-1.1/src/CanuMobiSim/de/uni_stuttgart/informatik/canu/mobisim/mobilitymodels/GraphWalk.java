@@ -35,6 +35,11 @@ import de.uni_stuttgart.informatik.canu.senv.core.Vertex;
  */
 public class GraphWalk extends RandomWaypointWalk
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Associated graph
    */
@@ -146,8 +151,9 @@ public class GraphWalk extends RandomWaypointWalk
 
     lastVertex = (Vertex)vertices.get(pointId);
 
-    u.sendNotification(new DebugNotification(this, u,
-      owner.getID()+" located at vertex "+lastVertex.getID()));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+        owner.getID()+" located at vertex "+lastVertex.getID()));
   }
 
 
@@ -159,7 +165,7 @@ public class GraphWalk extends RandomWaypointWalk
    */
   public void chooseNewPath()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     java.util.ArrayList vect=graph.getVertices();
 
     // move to random point
@@ -167,14 +173,15 @@ public class GraphWalk extends RandomWaypointWalk
 
     speed=minSpeed + (maxSpeed-minSpeed)*rand.nextFloat();
 
-    int pathVertices[]=graph.getPathMatrix()[pointId][destId].getVertices();
+    int pathVertices[]=graph.getShortestPaths().getPath(pointId, destId).getVertices();
 
     for (int i=1; i<pathVertices.length; i++)
       path.add(new Integer(pathVertices[i]));
 
-    u.sendNotification(new DebugNotification(this, u,
-      ((Node)owner).getID()+" started movement to vertex "+
-      ((Vertex)vect.get(destId)).getID()));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+        ((Node)owner).getID()+" started movement to vertex "+
+        ((Vertex)vect.get(destId)).getID()));
   }
 
 
@@ -203,10 +210,12 @@ public class GraphWalk extends RandomWaypointWalk
     movement = owner.getPosition().getNormalizedDirectionVector(destination).
       mult(speed*u.getStepDuration());
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000f));
-    u.sendNotification(new DebugNotification(this, u,
-      owner.getID()+" moves to checkpoint vertex "+destVertex.getID()));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000f));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+        owner.getID()+" moves to checkpoint vertex "+destVertex.getID()));
   }
 
 
@@ -217,17 +226,19 @@ public class GraphWalk extends RandomWaypointWalk
   {
     Node owner = (Node)this.owner;
 
-    u.sendNotification(new DebugNotification(this, u,
-      owner.getID()+" arrived to checkpoint "+destVertex.getID()));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+        owner.getID()+" arrived to checkpoint "+destVertex.getID()));
     lastVertex = destVertex;
 
     if (path.size()==0)
     {
       // wait at destination
-      stay = (int)(minStay+(maxStay-minStay) * u.getRandom().nextFloat());
+      stay = (int)(minStay+(maxStay-minStay) * getRandom().nextFloat());
 
-      u.sendNotification(new DestinationReachedNotification(this, u,
-        owner.getPosition(), stay/1000.0f));
+      if (u.hasNotificationListeners(DestinationReachedNotification.class))
+        u.sendNotification(new DestinationReachedNotification(this, u,
+          owner.getPosition(), stay/1000.0f));
     }
     else
     {
@@ -23,6 +23,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class IncrementalWalk extends Movement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Constant
    */
@@ -54,7 +59,7 @@ public class IncrementalWalk extends Movement
   /**
    * Current movement vector
    */
-  protected Vector3D movement;
+  protected MutableVector3D movement = new MutableVector3D();
 
   /**
    * Constructor
@@ -88,10 +93,10 @@ public class IncrementalWalk extends Movement
    */
   protected void chooseNewMovement()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     Node owner=(Node)this.owner;
 
-    Position3D destination = null;
+    double x, y;
     // choose new motion parameters unless the movement takes place
     // in the simulation area
     do
@@ -100,17 +105,20 @@ public class IncrementalWalk extends Movement
         (maxAcc-minAcc)*rand.nextFloat(), minSpeed), maxSpeed);
       angle = angle + minAngle + (maxAngle-minAngle)*rand.nextFloat();
 
-      movement = new Vector3D((double)speed*u.getStepDuration()*Math.cos(angle),
-                              (double)speed*u.getStepDuration()*Math.sin(angle),
-                              0.0);
+      movement.set((double)speed*u.getStepDuration()*Math.cos(angle),
+                   (double)speed*u.getStepDuration()*Math.sin(angle),
+                   0.0);
 
-      destination = owner.getPosition().add(movement);
+      // calculate destination
+      x = owner.getX()+movement.getX();
+      y = owner.getY()+movement.getY();
     }
-    while ( (destination.getX()<0.0f)||(destination.getX()>u.getDimensionX())
-           ||(destination.getY()<0.0f)||(destination.getY()>u.getDimensionY()) );
+    while ( (x<0.0f)||(x>u.getDimensionX())
+           ||(y<0.0f)||(y>u.getDimensionY()) );
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000.0f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        owner.getPosition().add(movement), speed*1000.0f));
   }
 
   /**
@@ -126,7 +134,7 @@ public class IncrementalWalk extends Movement
 
     chooseNewMovement();
 
-    owner.setPosition(owner.getPosition().add(movement));
+    owner.move(movement);
     
     return 0;
   }
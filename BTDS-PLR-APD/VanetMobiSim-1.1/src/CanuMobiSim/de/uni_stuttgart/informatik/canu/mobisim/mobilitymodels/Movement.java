@@ -21,6 +21,16 @@ import de.uni_stuttgart.informatik.canu.mobisim.core.*;
  */
 public abstract class Movement extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Slot of the mobility model in the node's extensions
+   */
+  public static final int SLOT = ExtendableObject.getSlot("Movement");
+
   /**
    * Minimal speed (meters/ms)
    */
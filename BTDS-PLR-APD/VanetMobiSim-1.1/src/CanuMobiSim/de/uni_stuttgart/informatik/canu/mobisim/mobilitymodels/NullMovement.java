@@ -18,6 +18,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class NullMovement extends Movement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Constructor
    */
@@ -57,6 +62,17 @@ public class NullMovement extends Movement
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Initializes the object from XML tag. <br>
    * <br>
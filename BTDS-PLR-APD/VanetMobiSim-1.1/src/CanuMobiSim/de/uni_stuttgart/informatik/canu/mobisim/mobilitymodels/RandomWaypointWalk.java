@@ -23,6 +23,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class RandomWaypointWalk extends Movement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Minimal stay duration at destination (ms)
    */
@@ -35,6 +40,11 @@ public class RandomWaypointWalk extends Movement
    * Current stay duration at destination (ms)
    */
   protected int stay = 0;           // in ms
+
+  /**
+   * Timesteps of the stay skipped by the event scheduler
+   */
+  protected int skippedStaySteps = 0;
   /**
    * Current speed (in meters/ms)
    */
@@ -82,7 +92,7 @@ public class RandomWaypointWalk extends Movement
    */
   protected void chooseNewMovement()
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
     Node owner=(Node)this.owner;
 
     double x = rand.nextDouble()*u.getDimensionX();
@@ -97,8 +107,9 @@ public class RandomWaypointWalk extends Movement
     movement = owner.getPosition().getNormalizedDirectionVector(destination).
       mult(speed*u.getStepDuration());
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000.0f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000.0f));
   }
 
   /**
@@ -110,10 +121,11 @@ public class RandomWaypointWalk extends Movement
   {
     Node owner=(Node)this.owner;
 
-    stay=(int)(minStay+(maxStay-minStay)*u.getRandom().nextFloat());
+    stay=(int)(minStay+(maxStay-minStay)*getRandom().nextFloat());
 
-    u.sendNotification(new DestinationReachedNotification(this, u,
-      owner.getPosition(), stay/1000.0f));
+    if (u.hasNotificationListeners(DestinationReachedNotification.class))
+      u.sendNotification(new DestinationReachedNotification(this, u,
+        owner.getPosition(), stay/1000.0f));
   }//proc
 
   /**
@@ -127,9 +139,13 @@ public class RandomWaypointWalk extends Movement
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     //if node has arrived to destination and stayed enough, a new destination
     //choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -148,8 +164,8 @@ public class RandomWaypointWalk extends Movement
     if (movement!=null)
     {
       //move towards destination
-      if(owner.getPosition().getDistance(destination) >= movement.getLength())
-        owner.setPosition(owner.getPosition().add(movement));
+      if(owner.getDistance(destination) >= movement.getLength())
+        owner.move(movement);
       else
         owner.setPosition(destination);
     }
@@ -157,6 +173,30 @@ public class RandomWaypointWalk extends Movement
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * A node staying at its destination is not executed until the last
+   * timestep of its stay.
+   * @return timestep of the next execution
+   */
+  public long getWakeUpTime()
+  {
+    Node owner = (Node)this.owner;
+
+    if ((movement==null)&&((destination==null)||(owner.isAt(destination))))
+    {
+      int steps = (stay+u.getStepDuration()-1)/u.getStepDuration();
+      if (steps>1)
+      {
+        skippedStaySteps = steps-1;
+        return u.getTimeInSteps()+steps;
+      }
+    }
+
+    return super.getWakeUpTime();
+  }
+
   /**
    * Initializes the object from XML tag. <br>
    * <br>
@@ -257,7 +297,7 @@ public class RandomWaypointWalk extends Movement
            u.sendNotification(new LoaderNotification(this, u,
              "Processing 'random' attribute"));
 
-           stay=(int) (minStay+(maxStay-minStay) * u.getRandom().nextFloat());
+           stay=(int) (minStay+(maxStay-minStay) * getRandom().nextFloat());
 
            u.sendNotification(new LoaderNotification(this, u,
              "Finished processing 'random' attribute"));
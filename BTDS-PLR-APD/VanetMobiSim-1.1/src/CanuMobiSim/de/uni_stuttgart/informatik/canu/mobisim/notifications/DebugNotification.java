@@ -17,11 +17,31 @@ import de.uni_stuttgart.informatik.canu.mobisim.core.Notification;
  */
 public class DebugNotification extends Notification
 {
+  /**
+   * Level of the messages describing the simulation setup
+   */
+  public static final int INFO = 0;
+
+  /**
+   * Level of the messages tracing the movement decisions
+   */
+  public static final int FINE = 1;
+
+  /**
+   * Level of the detailed per-step messages
+   */
+  public static final int FINEST = 2;
+
   /**
    * Debug event's description
    */
    protected String description;
 
+  /**
+   * Debug event's level
+   */
+  protected int level;
+
   /**
    * Constructor. <br>
    * <br>
@@ -30,11 +50,38 @@ public class DebugNotification extends Notification
    * @param string a string describing the event
    */
   public DebugNotification(Object sender, Object receiver, String string)
+  {
+    this(sender, receiver, INFO, string);
+  }
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * Senders of frequent messages should check
+   * {@link de.uni_stuttgart.informatik.canu.mobisim.core.Universe#isDebugEnabled
+   * Universe.isDebugEnabled} before building the description.
+   * @param sender notification's sender
+   * @param receiver notification's receiver
+   * @param level debug level
+   * @param string a string describing the event
+   */
+  public DebugNotification(Object sender, Object receiver, int level, String string)
   {
     super(sender, receiver);
+    this.level = level;
     description = string;
   }
 
+  /**
+   * Gets the debug level of the event. <br>
+   * <br>
+   * @return debug level
+   */
+  public int getLevel()
+  {
+    return level;
+  }
+
   /**
    * Returns a string representation of the object. <br>
    * <br>
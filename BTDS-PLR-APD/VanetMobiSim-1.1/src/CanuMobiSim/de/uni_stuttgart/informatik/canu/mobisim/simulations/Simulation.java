@@ -17,6 +17,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.core.*;
  */
 abstract public class Simulation extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
     * Constructor
     */
@@ -46,7 +51,7 @@ abstract public class Simulation extends ExtensionModule
     if (isFinished())
     {
       printResults();
-      System.exit(0);
+      u.finish();
     }
     
     return 0;
@@ -0,0 +1,158 @@
+package de.uni_stuttgart.informatik.canu.mobisim.simulations;
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import javax.xml.parsers.*;
+
+/**
+ * Title:        Canu Mobility Simulation Environment
+ * Description:
+ * Copyright:    Copyright (c) 2001-2003
+ * Company:      University of Stuttgart
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class runs simulations embedded in an application. <br>
+ * <br>
+ * Every scenario is loaded into a new Universe object, which is run to
+ * completion and returned with its nodes and extensions. Several scenarios
+ * can be run one after another or by different threads in the same process.
+ * @author Canu Research group
+ */
+public class SimulationEngine
+{
+  /**
+   * Constructor
+   */
+  protected SimulationEngine()
+  {
+  }
+
+  /**
+   * Parses a scenario file. <br>
+   * <br>
+   * @param source scenario file's name
+   * @return root tag of the scenario
+   * @throws Exception Exception if the file is not a valid scenario
+   */
+  public static org.w3c.dom.Element parse(String source) throws Exception
+  {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    DocumentBuilder builder = factory.newDocumentBuilder();
+
+    java.io.InputStream in = new java.io.FileInputStream(source);
+    org.w3c.dom.Document document;
+    try
+    {
+      document = builder.parse(in);
+    }
+    finally
+    {
+      in.close();
+    }
+
+    org.w3c.dom.Element root=document.getDocumentElement();
+
+    String rootTag=root.getNodeName();
+    if (!rootTag.equals("universe"))
+      throw new Exception("Invalid parent tag: "+rootTag);
+
+    return root;
+  }
+
+  /**
+   * Loads a scenario into a new Universe object. <br>
+   * <br>
+   * If the scenario contains a &lt;restore&gt; tag, the Universe is restored
+   * from the checkpoint file named by the tag and the scenario's extensions
+   * are added to the restored simulation. The restored simulation keeps
+   * its random number generators, &lt;seed&gt; and &lt;random&gt; tags are
+   * ignored with a warning.
+   * @param root root tag of the scenario
+   * @return Universe object ready to be run
+   * @throws Exception Exception if the scenario is invalid
+   */
+  public static Universe load(org.w3c.dom.Element root) throws Exception
+  {
+    return load(root, null);
+  }
+
+  /**
+   * Loads a scenario into a new Universe object sharing objects with
+   * other simulations. <br>
+   * <br>
+   * @param root root tag of the scenario
+   * @param sharedObjects objects shared with other simulations,
+   * null if nothing is shared (see {@link Universe#getSharedObjects getSharedObjects})
+   * @return Universe object ready to be run
+   * @throws Exception Exception if the scenario is invalid
+   */
+  public static Universe load(org.w3c.dom.Element root, java.util.Map sharedObjects) throws Exception
+  {
+    Universe u = null;
+
+    org.w3c.dom.NodeList list = root.getChildNodes();
+    for (int i=0; i<list.getLength(); i++)
+    {
+      org.w3c.dom.Node item = list.item(i);
+      if (item.getNodeName().equals("restore"))
+        u = Universe.readCheckpoint(item.getFirstChild().getNodeValue().trim());
+    }
+    if (u==null)
+      u = new Universe();
+    u.setSharedObjects(sharedObjects);
+
+    Universe previous = Universe.setReference(u);
+    try
+    {
+      u.load(root);
+    }
+    finally
+    {
+      Universe.setReference(previous);
+    }
+
+    return u;
+  }
+
+  /**
+   * Runs a scenario to completion. <br>
+   * <br>
+   * @param root root tag of the scenario
+   * @return finished Universe object
+   * @throws Exception Exception if the scenario is invalid
+   */
+  public static Universe run(org.w3c.dom.Element root) throws Exception
+  {
+    return run(root, null);
+  }
+
+  /**
+   * Runs a scenario to completion sharing objects with other simulations. <br>
+   * <br>
+   * @param root root tag of the scenario
+   * @param sharedObjects objects shared with other simulations, null if nothing is shared
+   * @return finished Universe object
+   * @throws Exception Exception if the scenario is invalid
+   */
+  public static Universe run(org.w3c.dom.Element root, java.util.Map sharedObjects) throws Exception
+  {
+    Universe u = load(root, sharedObjects);
+    u.run();
+
+    return u;
+  }
+
+  /**
+   * Runs a scenario file to completion. <br>
+   * <br>
+   * @param source scenario file's name
+   * @return finished Universe object
+   * @throws Exception Exception if the scenario is invalid
+   */
+  public static Universe run(String source) throws Exception
+  {
+    return run(parse(source));
+  }
+}
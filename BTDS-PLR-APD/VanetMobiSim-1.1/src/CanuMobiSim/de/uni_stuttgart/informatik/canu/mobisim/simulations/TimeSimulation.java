@@ -15,6 +15,11 @@ package de.uni_stuttgart.informatik.canu.mobisim.simulations;
  */
 public class TimeSimulation extends Simulation
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Time when the simulation should finish (in milliseconds)
    */
@@ -59,6 +64,16 @@ public class TimeSimulation extends Simulation
     return (time>=nMillis);
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return timestep, at which the simulation should finish
+   */
+  public long getWakeUpTime()
+  {
+    return (nMillis+u.getStepDuration()-1)/u.getStepDuration();
+  }
+
   /**
    * Displays the simulation results
    */
@@ -624,7 +624,7 @@ public class ScenGen
       }
 
       // get the spatial model
-      spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+      spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
       if (spatialModel==null)
         throw new Exception("Spatial Model does not exist!");
     }
@@ -48,6 +48,11 @@ import java.awt.event.MouseEvent;
  */
 public class GUI extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Main component
    */
@@ -339,6 +344,19 @@ public class GUI extends ExtensionModule
     
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return next timestep, at which the simulation time is a multiple of the step
+   */
+  public long getWakeUpTime()
+  {
+    if (step==0)
+      return Long.MAX_VALUE;
+
+    return getNextPeriodTime(step);
+  }
 	
   /**
    * Returns the module's description. <br>
@@ -350,6 +368,16 @@ public class GUI extends ExtensionModule
     return "GUI module";
   }
 
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
     * Initializes the object from XML tag. <br>
     * <br>
@@ -370,7 +398,7 @@ public class GUI extends ExtensionModule
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
@@ -21,6 +21,11 @@ import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.*;
  */
 public class UDAWriter extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Output Stream
    */
@@ -54,6 +59,16 @@ public class UDAWriter extends ExtensionModule
     return "UDA Writer module";
   }
 
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Executes the extension. <br>
    * <br>
@@ -175,7 +190,7 @@ public class UDAWriter extends ExtensionModule
     if(n!=null)
       uniformHeight = Float.parseFloat(n.getFirstChild().getNodeValue());
 
-    spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+    spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
     if (spatialModel==null)
       throw new Exception("SpatialModel instance does not exist!");
     
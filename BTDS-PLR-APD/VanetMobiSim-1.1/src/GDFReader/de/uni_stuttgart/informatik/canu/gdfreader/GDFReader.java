@@ -37,6 +37,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class GDFReader extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Source stream
    */
@@ -798,7 +803,7 @@ outer:
 
     super.load(element);
 
-    spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+    spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 
     String s;
 		
@@ -26,6 +26,11 @@ import eurecom.spacegraph.RelationshipRecord;
 	* @version 1.0
  */
 public class GDFWriter extends ExtensionModule {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Output Stream
    */
@@ -813,7 +818,7 @@ public class GDFWriter extends ExtensionModule {
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		
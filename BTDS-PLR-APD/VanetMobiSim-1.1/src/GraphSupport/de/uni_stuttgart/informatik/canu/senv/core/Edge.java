@@ -30,8 +30,12 @@ import de.uni_stuttgart.informatik.canu.senv.core.Vertex;
  * @author      Mario Hegele
  * @author      Illya Stepanov
  */
-public class Edge
+public class Edge implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
     
 	 /**
      * the ID of the Edge
@@ -22,6 +22,7 @@
 package de.uni_stuttgart.informatik.canu.senv.core;
 
 import de.uni_stuttgart.informatik.canu.senv.utils.Path;
+import de.uni_stuttgart.informatik.canu.senv.utils.ShortestPaths;
 
 /**
  * Represents an infrastructure graph with vertices and edges.
@@ -29,8 +30,13 @@ import de.uni_stuttgart.informatik.canu.senv.utils.Path;
  * @author      Mario Hegele
  * @author      Illya Stepanov
  */
-public class InfrastructureGraph
+public class InfrastructureGraph implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
     /**
      * contains all the vertices of the infrastructure graph
      */
@@ -66,10 +72,15 @@ public class InfrastructureGraph
      */
     private double maxY = Double.MIN_VALUE;
 
+    /**
+     * the shortest paths between all pairs of vertices
+     */
+    private transient ShortestPaths shortestPaths = null;
+
     /**
      * this matrix contains the shortest paths between all pairs of vertices
      */
-    private Path[][] pathMatrix = null;
+    private transient Path[][] pathMatrix = null;
 
     /**
      * Constructor for the InfrastructureGraph class. For setting the
@@ -83,6 +94,7 @@ public class InfrastructureGraph
       vertices = new java.util.ArrayList();
       edges = new java.util.ArrayList();
       description = new String();
+      shortestPaths = null;
       pathMatrix = null;
     }
 
@@ -164,6 +176,7 @@ public class InfrastructureGraph
         if (vertex.getX() > maxX) maxX = vertex.getX();
         if (vertex.getY() < minY) minY = vertex.getY();
         if (vertex.getY() > maxY) maxY = vertex.getY();
+        shortestPaths = null;
         pathMatrix = null;
       }
 //      else
@@ -189,6 +202,7 @@ public class InfrastructureGraph
 //      if (!edgeExists(edge))
       {
         edges.add(edge);
+        shortestPaths = null;
         pathMatrix = null;
       }
 //      else
@@ -211,6 +225,7 @@ public class InfrastructureGraph
       Vertex v1 = null;
       Vertex v2 = null;
 
+      shortestPaths = null;
       pathMatrix = null;
 
       if (debug)
@@ -403,62 +418,54 @@ public class InfrastructureGraph
     }
 
     /**
-     * Calculates "All-Pairs Shortest Path" after Floyd-Warshall Algorithm. 
+     * Calculates "All-Pairs Shortest Path" by Dijkstra's algorithm from
+     * every vertex, in parallel on all available processors.
      * <br>
-     * O(n^3), but very handy
+     * O(n*m*log(n)), the paths are stored as a next-hop table of O(n^2)
      *
-     * @return returns a matrix with all pairs of shortest paths
+     * @return returns the shortest paths between all pairs of vertices
      */
-    public Path[][] calculateShortestPaths()
+    public synchronized ShortestPaths calculateShortestPaths()
     {
-      int numberOfVertices = vertices.size();
-      Object[] graphEdges = edges.toArray();
-      Edge e = null;
-      int id1, id2;
-      pathMatrix = new Path[numberOfVertices][numberOfVertices];
-
-      // initialize path matrix 
-      for (int i = 0; i < numberOfVertices; i++) 
-        for (int j = 0; j < numberOfVertices; j++) 
-          if (i == j) 
-            pathMatrix[i][i] = new Path(i, i, 0);
-          else 
-             pathMatrix[i][j] = new Path(i, j, Double.MAX_VALUE);
-	
-      //enter all existing edges into the path matrix
-      for (int i = 0; i < graphEdges.length; i++)
-      {
-        e = (Edge)graphEdges[i];
-        id1 = e.getV1().getInternalID();
-        id2 = e.getV2().getInternalID();
-        pathMatrix[id1][id2] = new Path(id1, id2, e.getDistance(), e.getInternalID());
-        pathMatrix[id2][id1] = new Path(id2, id1, e.getDistance(), e.getInternalID());
-      }
+      shortestPaths = new ShortestPaths(vertices, edges);
+      pathMatrix = null;
 
-      //Floyd-Warshall (All-Pairs Shortest Path)
-      for (int k = 0; k < numberOfVertices; k++)
-        for (int i = 0; i < numberOfVertices; i++)
-          for (int j = i + 1; j < numberOfVertices; j++)
-          {
-            if ((pathMatrix[i][k].getPathLength() + pathMatrix[k][j].getPathLength())
-               < pathMatrix[i][j].getPathLength())
-            {
-              pathMatrix[i][j] = Path.connectPaths(pathMatrix[i][k],
-              pathMatrix[k][j]);
-              pathMatrix[j][i] = Path.connectPaths(pathMatrix[j][k], pathMatrix[k][i]);
-            }
-          }
+      return shortestPaths;
+    }
 
-      return pathMatrix;
+    /**
+     * @return Returns the shortest paths between all pairs of vertices.
+     *         They are calculated if necessary, once for all threads
+     *         sharing the graph.
+     * @see #calculateShortestPaths()
+     */
+    public synchronized ShortestPaths getShortestPaths()
+    {
+      if (shortestPaths == null)
+        calculateShortestPaths();
+
+      return shortestPaths;
     }
 
     /**
      * @return Returns a matrix with the shortest paths between all pairs 
-     *         of vertices. (The matrix should have been calculated before).
-     * @see #calculateShortestPaths()
+     *         of vertices.
+     * @deprecated The matrix needs a Path object for every pair of vertices,
+     *             use {@link #getShortestPaths()} to walk the paths on demand
      */
-    public Path[][] getPathMatrix()
+    @Deprecated
+    public synchronized Path[][] getPathMatrix()
     {
+      if (pathMatrix == null)
+      {
+        ShortestPaths paths = getShortestPaths();
+        int numberOfVertices = paths.getNoOfVertices();
+        pathMatrix = new Path[numberOfVertices][numberOfVertices];
+        for (int i = 0; i < numberOfVertices; i++)
+          for (int j = 0; j < numberOfVertices; j++)
+            pathMatrix[i][j] = paths.getPath(i, j);
+      }
+
       return pathMatrix;
     }
 }
@@ -27,8 +27,13 @@ package de.uni_stuttgart.informatik.canu.senv.core;
  * @author      Mario Hegele
  * @author      Illya Stepanov
  */
-public class Vertex extends Object
+public class Vertex extends Object implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
     /**
      * the ID of this vertex
      */
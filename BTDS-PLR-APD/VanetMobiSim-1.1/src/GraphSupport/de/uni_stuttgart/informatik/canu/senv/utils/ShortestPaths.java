@@ -0,0 +1,343 @@
+package de.uni_stuttgart.informatik.canu.senv.utils;
+
+import de.uni_stuttgart.informatik.canu.senv.core.Edge;
+
+/**
+ * Represents the shortest paths between all pairs of vertices of a graph.
+ * <br>
+ * For every pair the length of the shortest path and the next vertex on
+ * it are stored in primitive arrays, indexed by the vertices' internal IDs.
+ * A path is walked from vertex to vertex on demand, so the tables need
+ * O(n^2) memory instead of a Path object per pair.
+ * <br>
+ * The rows of the tables are calculated by Dijkstra's algorithm from every
+ * vertex, in parallel on all available processors.
+ *
+ * @author      Canu Research group
+ */
+public class ShortestPaths
+{
+    /**
+     * number of vertices
+     */
+    private int n;
+
+    /**
+     * index of the first arc of every vertex, the arcs of vertex i are
+     * first[i]..first[i+1]-1
+     */
+    private int[] first;
+
+    /**
+     * target vertices of the arcs
+     */
+    private int[] target;
+
+    /**
+     * lengths of the arcs
+     */
+    private double[] length;
+
+    /**
+     * lengths of the shortest paths, Double.MAX_VALUE if there is no path
+     */
+    private double[][] distance;
+
+    /**
+     * next vertices on the shortest paths, -1 if there is no path
+     * or the vertices are the same
+     */
+    private int[][] next;
+
+    /**
+     * Calculates the shortest paths between all pairs of vertices.
+     *
+     * @param vertices vertices of the graph, ordered by their internal IDs
+     * @param edges edges of the graph
+     */
+    public ShortestPaths(java.util.ArrayList vertices, java.util.ArrayList edges)
+    {
+      n = vertices.size();
+
+      // build the arrays of the arcs, in both directions of the edges
+      first = new int[n+1];
+      for (int i = 0; i < edges.size(); i++)
+      {
+        Edge e = (Edge)edges.get(i);
+        first[e.getV1().getInternalID()+1]++;
+        first[e.getV2().getInternalID()+1]++;
+      }
+      for (int i = 0; i < n; i++)
+        first[i+1] += first[i];
+
+      target = new int[first[n]];
+      length = new double[first[n]];
+      int[] pos = first.clone();
+      for (int i = 0; i < edges.size(); i++)
+      {
+        Edge e = (Edge)edges.get(i);
+        int id1 = e.getV1().getInternalID();
+        int id2 = e.getV2().getInternalID();
+        double d = e.getDistance();
+        target[pos[id1]] = id2;
+        length[pos[id1]++] = d;
+        target[pos[id2]] = id1;
+        length[pos[id2]++] = d;
+      }
+
+      distance = new double[n][];
+      next = new int[n][];
+      calculate();
+    }
+
+    /**
+     * Calculates the rows of the tables on all available processors.
+     */
+    private void calculate()
+    {
+      final java.util.concurrent.atomic.AtomicInteger rows =
+        new java.util.concurrent.atomic.AtomicInteger();
+
+      int threads = Math.min(Runtime.getRuntime().availableProcessors(), n/64+1);
+      Thread[] workers = new Thread[threads-1];
+      for (int i = 0; i < workers.length; i++)
+      {
+        workers[i] = new Thread(new Runnable()
+        {
+          public void run()
+          {
+            calculateRows(rows);
+          }
+        }, "ShortestPaths-"+i);
+        workers[i].setDaemon(true);
+        workers[i].start();
+      }
+
+      // the current thread calculates rows as well
+      calculateRows(rows);
+
+      for (int i = 0; i < workers.length; i++)
+      {
+        try
+        {
+          workers[i].join();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Calculation of the shortest paths interrupted");
+        }
+      }
+    }
+
+    /**
+     * Calculates rows of the tables until all rows are taken.
+     *
+     * @param rows counter of the taken rows
+     */
+    private void calculateRows(java.util.concurrent.atomic.AtomicInteger rows)
+    {
+      int[] heap = new int[n];
+      int[] heapPos = new int[n];
+
+      int s;
+      while ((s = rows.getAndIncrement()) < n)
+      {
+        double[] dist = new double[n];
+        int[] hop = new int[n];
+        calculateRow(s, dist, hop, heap, heapPos);
+        distance[s] = dist;
+        next[s] = hop;
+      }
+    }
+
+    /**
+     * Calculates the shortest paths from a vertex by Dijkstra's algorithm.
+     *
+     * @param s source vertex
+     * @param dist result lengths of the paths
+     * @param hop result next vertices on the paths
+     * @param heap work array of the binary heap
+     * @param heapPos work array of the vertices' positions in the heap,
+     * -1 if not reached, -2 if settled
+     */
+    private void calculateRow(int s, double[] dist, int[] hop, int[] heap, int[] heapPos)
+    {
+      java.util.Arrays.fill(dist, Double.MAX_VALUE);
+      java.util.Arrays.fill(hop, -1);
+      java.util.Arrays.fill(heapPos, -1);
+
+      dist[s] = 0.0;
+      heap[0] = s;
+      heapPos[s] = 0;
+      int size = 1;
+
+      while (size > 0)
+      {
+        // settle the closest vertex
+        int v = heap[0];
+        heapPos[v] = -2;
+        size--;
+        if (size > 0)
+        {
+          heap[0] = heap[size];
+          heapPos[heap[0]] = 0;
+          down(0, size, dist, heap, heapPos);
+        }
+
+        for (int a = first[v]; a < first[v+1]; a++)
+        {
+          int w = target[a];
+          double d = dist[v] + length[a];
+          if ((heapPos[w] == -2) || (d >= dist[w]))
+            continue;
+
+          dist[w] = d;
+          // the next vertex is the first one after the source
+          hop[w] = (v == s) ? w : hop[v];
+          if (heapPos[w] == -1)
+          {
+            heap[size] = w;
+            heapPos[w] = size;
+            size++;
+          }
+          up(heapPos[w], dist, heap, heapPos);
+        }
+      }
+    }
+
+    /**
+     * Moves an entry of the heap towards the root.
+     */
+    private static void up(int i, double[] dist, int[] heap, int[] heapPos)
+    {
+      int v = heap[i];
+      while (i > 0)
+      {
+        int parent = (i-1) >> 1;
+        int p = heap[parent];
+        if ((dist[p] < dist[v]) || ((dist[p] == dist[v]) && (p < v)))
+          break;
+
+        heap[i] = p;
+        heapPos[p] = i;
+        i = parent;
+      }
+      heap[i] = v;
+      heapPos[v] = i;
+    }
+
+    /**
+     * Moves an entry of the heap towards the leaves.
+     */
+    private static void down(int i, int size, double[] dist, int[] heap, int[] heapPos)
+    {
+      int v = heap[i];
+      for (;;)
+      {
+        int child = 2*i+1;
+        if (child >= size)
+          break;
+        int c = heap[child];
+        if (child+1 < size)
+        {
+          int c2 = heap[child+1];
+          if ((dist[c2] < dist[c]) || ((dist[c2] == dist[c]) && (c2 < c)))
+          {
+            child++;
+            c = c2;
+          }
+        }
+        if ((dist[v] < dist[c]) || ((dist[v] == dist[c]) && (v < c)))
+          break;
+
+        heap[i] = c;
+        heapPos[c] = i;
+        i = child;
+      }
+      heap[i] = v;
+      heapPos[v] = i;
+    }
+
+    /**
+     * @return returns the number of vertices
+     */
+    public int getNoOfVertices()
+    {
+      return n;
+    }
+
+    /**
+     * @param from internal ID of the initial vertex
+     * @param to internal ID of the final vertex
+     * @return returns the length of the shortest path,
+     * Double.MAX_VALUE if there is no path
+     */
+    public double getDistance(int from, int to)
+    {
+      return distance[from][to];
+    }
+
+    /**
+     * @param from internal ID of the initial vertex
+     * @param to internal ID of the final vertex
+     * @return returns the internal ID of the vertex following the initial
+     * one on the shortest path, -1 if there is no path or the vertices
+     * are the same
+     */
+    public int getNextHop(int from, int to)
+    {
+      return next[from][to];
+    }
+
+    /**
+     * Walks the shortest path between two vertices.
+     * <br>
+     * Like the paths of the former path matrix, the path from a vertex
+     * to itself consists of the vertex twice and the path between two
+     * unconnected vertices consists of the two vertices only. Where several
+     * paths have the same length, the one walked may differ from the path
+     * of the former Floyd-Warshall matrix.
+     *
+     * @param from internal ID of the initial vertex
+     * @param to internal ID of the final vertex
+     * @return returns the path
+     */
+    public Path getPath(int from, int to)
+    {
+      if ((from == to) || (next[from][to] == -1))
+        return new Path(from, to, (from == to) ? 0 : Double.MAX_VALUE);
+
+      int count = 1;
+      for (int v = from; v != to; v = next[v][to])
+        count++;
+
+      int[] vertex = new int[count];
+      double[] dist = new double[count-1];
+      int i = 0;
+      vertex[0] = from;
+      for (int v = from; v != to; v = next[v][to])
+      {
+        int w = next[v][to];
+        dist[i] = getArcLength(v, w);
+        vertex[++i] = w;
+      }
+
+      return new Path(vertex, dist, distance[from][to]);
+    }
+
+    /**
+     * @param v first vertex
+     * @param w second vertex
+     * @return returns the length of the shortest edge between the vertices
+     */
+    private double getArcLength(int v, int w)
+    {
+      double res = Double.MAX_VALUE;
+      for (int a = first[v]; a < first[v+1]; a++)
+        if ((target[a] == w) && (length[a] < res))
+          res = length[a];
+
+      return res;
+    }
+}
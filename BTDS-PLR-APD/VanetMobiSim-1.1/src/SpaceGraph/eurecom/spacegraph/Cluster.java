@@ -23,7 +23,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  *
  * @author Jerome Haerri, Marco Fiore
  */
-public class Cluster {
+public class Cluster implements java.io.Serializable {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
  
 	protected String name;
 	protected double density;
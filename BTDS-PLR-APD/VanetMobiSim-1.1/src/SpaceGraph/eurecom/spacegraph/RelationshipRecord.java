@@ -13,7 +13,11 @@ package eurecom.spacegraph;
  * Relationship Record
  * @author Jerome Haerri 
  */
-public class RelationshipRecord {
+public class RelationshipRecord implements java.io.Serializable {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 	/**
    * Relationship ID
@@ -120,4 +124,21 @@ public class RelationshipRecord {
 	public String getDescr() {
 	  return (String.valueOf(sourceDesc));
 	}
+
+  /**
+   * Reads the record from a checkpoint. <br>
+   * <br>
+   * The codes are interned, since they are compared by reference.
+   * @param in input stream
+   * @throws java.io.IOException if the record could not be read
+   * @throws ClassNotFoundException if a class of the record is not found
+   */
+  private void readObject(java.io.ObjectInputStream in)
+    throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    if (relationshipCode!=null)
+      relationshipCode = relationshipCode.intern();
+  }
 }
\ No newline at end of file
@@ -27,6 +27,10 @@ import eurecom.spatialmodel.extensions.*;
  * @version 1.0
  */
 public class SpaceGraph extends ExtensionModule {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
   /**
    * Storage for default attributes values:
@@ -172,7 +176,7 @@ public class SpaceGraph extends ExtensionModule {
 		try {
 			
 			java.util.Map elements = spatialModel.getElements();
-			java.util.Random rand=u.getRandom();
+			java.util.Random rand=getRandom();
 			
 			// JHNote (18/08/2005): We only consider roadElements and junctions.
 			String class_code = "41";
@@ -309,7 +313,7 @@ public class SpaceGraph extends ExtensionModule {
 		Double p,q;
 		try {
 				java.util.Map elements = spatialModel.getElements();
-				java.util.Random rand=u.getRandom();
+				java.util.Random rand=getRandom();
 				
 				// JHNote (18/08/2005): We only consider buildings.
 				String class_code = "71";
@@ -826,7 +830,7 @@ public class SpaceGraph extends ExtensionModule {
 			// Two methodes here: either we scramble the ArrayList and pop
 			// or we randomly generate an ArrayList index and extract the
 			// value.
-			java.util.Random rand=u.getRandom();
+			java.util.Random rand=getRandom();
 		
 			// shalow cloning here. We just clone the pointers, s.th we keep
 			// the original clusters unaltered.
@@ -864,7 +868,7 @@ public class SpaceGraph extends ExtensionModule {
     * <br>
     */
 	protected void distributeClusterObstacles() {
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
 		java.util.ArrayList clusters = spatialModel.getClusters();
 	
 			for (int i = 0; i < clusters.size(); i++) {
@@ -1027,7 +1031,7 @@ public class SpaceGraph extends ExtensionModule {
 				// Two methodes here: either we scramble the ArrayList and pop
 				// or we randomly generate an ArrayList index and extract the
 				// value.
-				java.util.Random rand=u.getRandom();
+				java.util.Random rand=getRandom();
 		
 				// shalow cloning here. We just clone the pointers, s.th we keep
 				// the original clusters unaltered.
@@ -1078,7 +1082,7 @@ public class SpaceGraph extends ExtensionModule {
     * <br>
     */
 	protected void distributeRandomObstacles() throws Exception {
-	  java.util.Random rand=u.getRandom();
+	  java.util.Random rand=getRandom();
 		java.util.ArrayList points = clipArea.getPoints();
 		
 		double clipAreaX,clipAreaY; 
@@ -1189,7 +1193,7 @@ public class SpaceGraph extends ExtensionModule {
 		org.w3c.dom.Node n;
 		boolean rand_obs = true;
 
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
     
 	
 		String s;
@@ -1200,7 +1204,7 @@ public class SpaceGraph extends ExtensionModule {
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
@@ -58,6 +58,16 @@ import eurecom.spatialmodel.extensions.*;
  */
 public class SpatialModel extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Slot of the Spatial Model in the Universe's extensions
+   */
+  public static final int SLOT = ExtendableObject.getSlot("SpatialModel");
+
   /**
    * Spatial Model elements
    */
@@ -93,6 +103,12 @@ public class SpatialModel extends ExtensionModule
 	 * @since 1.3
    */
   protected java.util.Map nbVehiclesInJunction;
+
+  /**
+   * Current pausings of pedestrians at street crossings
+   * Key: Junction ID, Value: Long representing time in ms when the pause elapses
+   */
+  protected java.util.Map pausesAtCrossings;
   
   /**
    * Vertex - edge mapping
@@ -100,6 +116,11 @@ public class SpatialModel extends ExtensionModule
    */
   protected java.util.Map edgesCache;
 
+  /**
+   * Index of the vehicles moving on the roads
+   */
+  protected TrafficIndex trafficIndex = new TrafficIndex();
+
 	
 	/**
    * Clipping Region
@@ -125,7 +146,12 @@ public class SpatialModel extends ExtensionModule
 	 * name of the traffic light extension
 	 * @since 1.5
 	 */
-	private static String trafficLightName= null;
+	private String trafficLightName= null;
+
+	/**
+	 * slot of the traffic light extension
+	 */
+	private int trafficLightSlot = -1;
 	
 	/**
    * Trafficlight Model
@@ -317,6 +343,38 @@ public class SpatialModel extends ExtensionModule
 		}
 	}
 	
+  /**
+   * Gets the time when the current pause at a street crossing elapses. <br>
+   * <br>
+   * @param junction junction of the crossing
+   * @return time in ms when the pause elapses, null if there is no pause
+   */
+  public Long getPauseAtCrossing(SpatialModelElement junction)
+  {
+    return (Long)pausesAtCrossings.get(junction.getID());
+  }
+
+  /**
+   * Sets the time when the current pause at a street crossing elapses. <br>
+   * <br>
+   * @param junction junction of the crossing
+   * @param time time in ms when the pause elapses
+   */
+  public void setPauseAtCrossing(SpatialModelElement junction, long time)
+  {
+    pausesAtCrossings.put(junction.getID(), Long.valueOf(time));
+  }
+
+  /**
+   * Removes the current pause at a street crossing. <br>
+   * <br>
+   * @param junction junction of the crossing
+   */
+  public void removePauseAtCrossing(SpatialModelElement junction)
+  {
+    pausesAtCrossings.remove(junction.getID());
+  }
+
 	/**
 	* Considers the type of vehicule, and the roadElement where    
   *the vehicule is and the Junction it will reach, to know if
@@ -389,7 +447,7 @@ public class SpatialModel extends ExtensionModule
 				plusDirection = true;
 			
 			// obtaining the node's type for traffic rules appliance
-			String myVehicleCode = (String)me.getAttributes().get("VT");
+			int myVehicleType = me.getVehicleType();
 			
 				
 			if ((edge !=null) && !isMovementProhibited(whichJunctionIamreaching,whereIwantToGo) && !isMovementProhibited(whereIam,whichJunctionIamreaching,edge,me)) {
@@ -433,7 +491,7 @@ public class SpatialModel extends ExtensionModule
 						if ((String)trafficSign.getAttributes().get("TS") == rightofWayCode) {
 						  // if the traffic sign applies to our type of car or to all cars
 							if (((String)trafficSign.getAttributes().get("SY") == allVehicleCode) 
-									|| ( (myVehicleCode != null) && ((String)trafficSign.getAttributes().get("SY") == myVehicleCode)) ) {
+									|| isVehicleCode((String)trafficSign.getAttributes().get("SY"), myVehicleType) ) {
 								if ((String)trafficSign.getAttributes().get("50") == yieldCode) {
 									return 3;
 								}
@@ -464,7 +522,7 @@ public class SpatialModel extends ExtensionModule
 						
 						//JHNote (06/02/2006): The name of the TrafficLight extension is loaded at the beginning 
 						//TrafficLight trafficLight = (TrafficLight)u.getExtension("TrafficLight");
-						TrafficLight trafficLight = (TrafficLight)u.getExtension(trafficLightName);
+						TrafficLight trafficLight = (TrafficLight)u.getExtension(trafficLightSlot);
 						if (trafficLight == null) {
 							return 2;
 						}
@@ -541,6 +599,29 @@ public class SpatialModel extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Notification passing method. <br>
+   * <br>
+   * Removes the nodes removed from the simulation from the traffic index.
+   * @param notification notification
+   */
+  public void sendNotification(Notification notification)
+  {
+    if (notification instanceof NodeRemovedNotification)
+      trafficIndex.remove(((NodeRemovedNotification)notification).getNode());
+  }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Visualizes a collection of elements. <br>
    * <br>
@@ -555,7 +636,7 @@ public class SpatialModel extends ExtensionModule
    * @param collection collection of elements
    * @param color color
    */
-  protected static void visualizeCollection(java.awt.Graphics g, java.util.Collection collection, java.awt.Color color)
+  protected void visualizeCollection(java.awt.Graphics g, java.util.Collection collection, java.awt.Color color)
   {
     java.util.Iterator iter = collection.iterator();
     while (iter.hasNext())
@@ -812,6 +893,16 @@ public class SpatialModel extends ExtensionModule
     return (SpatialModelElement)elements.get(id);
   }
 
+  /**
+   * Gets the index of the vehicles moving on the roads. <br>
+   * <br>
+   * @return traffic index
+   */
+  public TrafficIndex getTrafficIndex()
+  {
+    return trafficIndex;
+  }
+
   /**
    * Gets the movement area's graph. <br>
    * <br>
@@ -849,7 +940,7 @@ public class SpatialModel extends ExtensionModule
    */
   public void rebuildGraph() throws Exception
   {
-    java.util.Random rand=u.getRandom();
+    java.util.Random rand=getRandom();
 		
 		//System.out.println("Rebuilding Graph");
 		
@@ -857,6 +948,7 @@ public class SpatialModel extends ExtensionModule
     verticesToJunctions = new java.util.HashMap();
     edgesParents = new java.util.HashMap();
     edgesCache = new java.util.HashMap();
+    trafficIndex = new TrafficIndex();
 
     java.util.ArrayList elements_arr = new java.util.ArrayList(elements.values());
 
@@ -959,6 +1051,41 @@ public class SpatialModel extends ExtensionModule
     }
   }
 
+  /**
+   * Takes the map built by another spatial model. <br>
+   * <br>
+   * The elements, the graph and the mappings between them are shared
+   * read-only, so the graph's shortest paths are calculated once for both
+   * models. The state changed during the simulation, i.e. the traffic index,
+   * the vehicles in the junctions and the pauses at the crossings, is kept
+   * by every model. Used by the simulations of a batch
+   * (see {@link Universe#getSharedObjects getSharedObjects}).
+   * @param source spatial model whose map is complete
+   */
+  public void shareMap(SpatialModel source)
+  {
+    elements = source.elements;
+    graph = source.graph;
+    edgesParents = source.edgesParents;
+    verticesToJunctions = source.verticesToJunctions;
+    verticesToIntersections = source.verticesToIntersections;
+    edgesCache = source.edgesCache;
+    clusters = source.clusters;
+    bounderyPoints = source.bounderyPoints;
+    clipArea = source.clipArea;
+    min_x_clip = source.min_x_clip;
+    max_x_clip = source.max_x_clip;
+    min_y_clip = source.min_y_clip;
+    max_y_clip = source.max_y_clip;
+
+    trafficIndex = new TrafficIndex();
+    nbVehiclesInJunction = new java.util.HashMap();
+    pausesAtCrossings = new java.util.HashMap();
+
+    u.setDimensionX(source.u.getDimensionX());
+    u.setDimensionY(source.u.getDimensionY());
+  }
+
   /**
    * Finds an edge between two points. <br>
    * <br>
@@ -1058,6 +1185,28 @@ public class SpatialModel extends ExtensionModule
     return res;
   }
 	
+  /**
+   * Checks if a vehicle type code (GDF style) denotes the given vehicle type. <br>
+   * <br>
+   * @param code vehicle type code
+   * @param vehicleType vehicle type
+   * @return true if the code is set and denotes the vehicle type
+   */
+  protected static boolean isVehicleCode(String code, int vehicleType)
+  {
+    if (code==null)
+      return false;
+
+    try
+    {
+      return Integer.parseInt(code)==vehicleType;
+    }
+    catch (NumberFormatException e)
+    {
+      return false;
+    }
+  }
+
 	/**
    * Determines if the movement on the edge is prohibited in the given direction. <br>
    * <br>
@@ -1110,8 +1259,7 @@ public class SpatialModel extends ExtensionModule
 										}
 										else {
 										  String attributeSign = (String)signElement.getAttributes().get("VT");
-										  String attributeCar = (String)nd.getAttributes().get("VT");
-										  if (attributeSign == attributeCar) {
+										  if (isVehicleCode(attributeSign, nd.getVehicleType())) {
 												return true;
 											}
 										}
@@ -1133,7 +1281,7 @@ public class SpatialModel extends ExtensionModule
    */
   public void clip(SpatialModelElement elem)
   {
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
 		//java.util.Map elements = spatialModel.getElements();
 		
 		java.util.ArrayList points = ((Polyline)elem.getGeometry()).getPoints();
@@ -1305,7 +1453,7 @@ public class SpatialModel extends ExtensionModule
 		Double p,q;
 		try {
 				//java.util.Map elements = spatialModel.getElements();
-				java.util.Random rand=u.getRandom();
+				java.util.Random rand=getRandom();
 				
 				
 				// JHNote (10/11/2005): Now we also add traffic signs and traffic lights
@@ -1495,7 +1643,7 @@ public class SpatialModel extends ExtensionModule
 		 
 		int nb_traffic_light = 0;
    
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
 		
 		// we add traffic lights
 		
@@ -1659,6 +1807,7 @@ public class SpatialModel extends ExtensionModule
 	
 	public void setTrafficLightName(String name) {
 	  trafficLightName=name;
+	  trafficLightSlot=ExtendableObject.getSlot(name);
 	}
 	
 	/**
@@ -1683,7 +1832,7 @@ public class SpatialModel extends ExtensionModule
 				Node tmpNode = new Node();
 				String laneNumberString = String.valueOf(numberLane);	
 				
-				java.util.Random rand=u.getRandom();
+				java.util.Random rand=getRandom();
 				java.util.ArrayList tmpBoundaryPoints = new java.util.ArrayList();
 				
 				tmpBoundaryPoints.addAll(bounderyPoints);
@@ -1783,7 +1932,7 @@ public class SpatialModel extends ExtensionModule
 				String class_code = "41";
 				String subclass_code = "10";
 				
-				java.util.Random rand=u.getRandom();
+				java.util.Random rand=getRandom();
 			  java.util.ArrayList tmpElements = new java.util.ArrayList(elements.values());
 				for (int i=0; i<tmpElements.size(); i++) {
 				  SpatialModelElement tmpElement = (SpatialModelElement)tmpElements.get(i);
@@ -2024,7 +2173,7 @@ public class SpatialModel extends ExtensionModule
     
     super.load(element);
 		
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
 		
 		String s;
 		
@@ -2040,6 +2189,7 @@ public class SpatialModel extends ExtensionModule
 		if(trafficLightName==null) {
 			throw new Exception("A SpatialModel is missing!");
 		}
+		trafficLightSlot = ExtendableObject.getSlot(trafficLightName);
 		
 		s = element.getAttribute("min_x");
     if(s.length()>0) 
@@ -2124,7 +2274,10 @@ public class SpatialModel extends ExtensionModule
 		 }
 		
 		nbVehiclesInJunction = new java.util.HashMap();
+		pausesAtCrossings = new java.util.HashMap();
 		
+    u.addNotificationListener(this, NodeRemovedNotification.class);
+
     u.sendNotification(new LoaderNotification(this, u,
       "Finished loading SpatialModel extension"));
   }
@@ -24,8 +24,13 @@ import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.*;
  * @author 1.2 Jerome Haerri
  * @version 1.2 
  */
-public class SpatialModelElement
+public class SpatialModelElement implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Element's ID
    */
@@ -152,4 +157,39 @@ public class SpatialModelElement
   {
     return relations;
   }
+
+  /**
+   * Reads the element from a checkpoint. <br>
+   * <br>
+   * The codes and attributes are interned, since they are compared
+   * by reference.
+   * @param in input stream
+   * @throws java.io.IOException if the element could not be read
+   * @throws ClassNotFoundException if a class of the element is not found
+   */
+  private void readObject(java.io.ObjectInputStream in)
+    throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    if (class_code!=null)
+      class_code = class_code.intern();
+    if (subclass_code!=null)
+      subclass_code = subclass_code.intern();
+
+    java.util.Map restored = attributes;
+    attributes = new java.util.HashMap();
+    java.util.Iterator iter = restored.entrySet().iterator();
+    while (iter.hasNext())
+    {
+      java.util.Map.Entry e = (java.util.Map.Entry)iter.next();
+      Object key = e.getKey();
+      Object value = e.getValue();
+      if (key instanceof String)
+        key = ((String)key).intern();
+      if (value instanceof String)
+        value = ((String)value).intern();
+      attributes.put(key, value);
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,674 @@
+package de.uni_stuttgart.informatik.canu.spatialmodel.core;
+
+/**
+ * <p>Title: Spatial Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002</p>
+ * <p>Company: University of Stuttgart</p>
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.*;
+
+/**
+ * This class implements an index of the vehicles moving on the roads
+ * of the Spatial Model. <br>
+ * <br>
+ * Vehicles are grouped by road and lane. A road is either a road element
+ * travelled towards a given intersection, or, if no road element is
+ * associated to the edge, a pair of source and destination vertices.
+ * Within a lane, vehicles are ordered by their distance to the next
+ * intersection, so that the vehicles ahead of or behind a given position
+ * are retrieved in logarithmic time instead of scanning all nodes.
+ * <br>
+ * Vehicles update their entry when they enter a new road, change lane
+ * or move.
+ * @version 1.1
+ */
+public class TrafficIndex implements java.io.Serializable
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Orders the entries of a lane by distance to the next intersection. <br>
+   * <br>
+   * Entries at the same distance are ordered by decreasing registration
+   * order, so that iterating towards the intersection returns the
+   * earliest registered vehicle first.
+   */
+  protected static final java.util.Comparator ORDER = new EntryOrder();
+
+  /**
+   * This class implements the order of the entries of a lane
+   */
+  protected static class EntryOrder implements java.util.Comparator, java.io.Serializable
+  {
+    /**
+     * Version of the class in the checkpoints
+     */
+    private static final long serialVersionUID = 1L;
+
+    public int compare(Object o1, Object o2)
+    {
+      Entry e1 = (Entry)o1;
+      Entry e2 = (Entry)o2;
+
+      if (e1.distance < e2.distance)
+        return -1;
+      if (e1.distance > e2.distance)
+        return 1;
+      if (e1.order > e2.order)
+        return -1;
+      if (e1.order < e2.order)
+        return 1;
+      return 0;
+    }
+  }
+
+  /**
+   * Roads of the index
+   * Key: Road, Value: the same Road (canonical instance)
+   */
+  protected transient java.util.Map roads = new java.util.HashMap();
+
+  /**
+   * Roads read from a checkpoint, not yet added to the map of roads
+   */
+  protected transient java.util.ArrayList restoredRoads;
+
+  /**
+   * Registered vehicles
+   * Key: Node, Value: Entry
+   */
+  protected java.util.Map entries = new java.util.IdentityHashMap();
+
+  /**
+   * Number of registered vehicles, used as registration order
+   */
+  protected int registrations = 0;
+
+  /**
+   * Maximum length of the registered vehicles (in meters)
+   */
+  protected float maxLength = 0.0f;
+
+  /**
+   * Constructor
+   */
+  public TrafficIndex()
+  {
+  }
+
+  /**
+   * Gets the road corresponding to a road element travelled
+   * towards an intersection. <br>
+   * <br>
+   * @param element road element
+   * @param towards intersection the vehicles are moving to
+   * @return the road of the index
+   */
+  public Road getRoad(SpatialModelElement element, Point towards)
+  {
+    return canonical(new Road(element, null, towards.getX(), towards.getY()));
+  }
+
+  /**
+   * Gets the road corresponding to a pair of graph vertices. <br>
+   * <br>
+   * @param from source vertex
+   * @param to destination vertex
+   * @return the road of the index
+   */
+  public Road getRoad(Vertex from, Vertex to)
+  {
+    return canonical(new Road(from, to, 0.0, 0.0));
+  }
+
+  /**
+   * Gets the canonical instance of a road. <br>
+   * <br>
+   * @param road road
+   * @return the canonical instance of the road
+   */
+  protected Road canonical(Road road)
+  {
+    // the hash codes of the roads are only valid once the checkpoint is read
+    if (restoredRoads!=null)
+    {
+      for (int i=0; i<restoredRoads.size(); i++)
+      {
+        Road r = (Road)restoredRoads.get(i);
+        roads.put(r, r);
+      }
+      restoredRoads = null;
+    }
+
+    Road res = (Road)roads.get(road);
+    if (res==null)
+    {
+      road.id = roads.size();
+      roads.put(road, road);
+      res = road;
+    }
+
+    return res;
+  }
+
+  /**
+   * Updates the position of a vehicle in the index. <br>
+   * <br>
+   * The method does nothing if the vehicle's road, lane and
+   * distance have not changed since the last update.
+   * @param node vehicle
+   * @param road road the vehicle is moving on (NULL if not on a road)
+   * @param lane lane the vehicle is moving on
+   * @param distance distance to next intersection (in meters)
+   * @param length vehicle length (in meters)
+   */
+  public void update(Node node, Road road, int lane, float distance, float length)
+  {
+    Entry entry = (Entry)entries.get(node);
+    if (entry==null)
+    {
+      entry = new Entry(node, registrations++);
+      entries.put(node, entry);
+    }
+    else
+    {
+      if ((entry.road==road)&&(entry.lane==lane)&&(entry.distance==distance))
+        return;
+
+      if (entry.road!=null)
+        entry.road.getLane(entry.lane).remove(entry);
+    }
+
+    entry.road = road;
+    entry.lane = lane;
+    entry.distance = distance;
+    entry.length = length;
+
+    if (length>maxLength)
+      maxLength = length;
+
+    if (road!=null)
+      road.getLane(lane).add(entry);
+  }
+
+  /**
+   * Removes a vehicle from the index. <br>
+   * <br>
+   * @param node vehicle
+   */
+  public void remove(Node node)
+  {
+    Entry entry = (Entry)entries.remove(node);
+    if ((entry!=null)&&(entry.road!=null))
+      entry.road.getLane(entry.lane).remove(entry);
+  }
+
+  /**
+   * Gets the maximum length of the registered vehicles. <br>
+   * <br>
+   * @return maximum vehicle length (in meters)
+   */
+  public float getMaxLength()
+  {
+    return maxLength;
+  }
+
+  /**
+   * Gets the vehicles ahead of a position, closest first. <br>
+   * <br>
+   * A vehicle is ahead if its distance to the next intersection
+   * is lower than or equal to the given distance.
+   * @param road road
+   * @param lane lane
+   * @param distance distance to next intersection (in meters)
+   * @return iterator over the vehicles (Node objects) ahead
+   */
+  public java.util.Iterator getAhead(Road road, int lane, float distance)
+  {
+    if (road==null)
+      return java.util.Collections.EMPTY_LIST.iterator();
+
+    java.util.TreeSet vehicles = road.findLane(lane);
+    if (vehicles==null)
+      return java.util.Collections.EMPTY_LIST.iterator();
+
+    Entry probe = new Entry(null, Integer.MIN_VALUE);
+    probe.distance = distance;
+
+    return new NodeIterator(vehicles.headSet(probe, true).descendingIterator());
+  }
+
+  /**
+   * Gets the vehicles behind a position, closest first. <br>
+   * <br>
+   * A vehicle is behind if its distance to the next intersection
+   * is greater than the given distance.
+   * @param road road
+   * @param lane lane
+   * @param distance distance to next intersection (in meters)
+   * @return iterator over the vehicles (Node objects) behind
+   */
+  public java.util.Iterator getBehind(Road road, int lane, float distance)
+  {
+    if (road==null)
+      return java.util.Collections.EMPTY_LIST.iterator();
+
+    java.util.TreeSet vehicles = road.findLane(lane);
+    if (vehicles==null)
+      return java.util.Collections.EMPTY_LIST.iterator();
+
+    Entry probe = new Entry(null, Integer.MIN_VALUE);
+    probe.distance = distance;
+
+    return new NodeIterator(vehicles.tailSet(probe, false).iterator());
+  }
+
+  /**
+   * Finds the closest vehicle ahead of a position. <br>
+   * <br>
+   * The gap to a vehicle ahead is the difference between the given
+   * distance and the vehicle's distance to the next intersection, minus
+   * the vehicle's length. Among vehicles with the same gap, the earliest
+   * registered one is returned.
+   * @param road road
+   * @param lane lane
+   * @param distance distance to next intersection (in meters)
+   * @param filter filter selecting the vehicles to consider
+   * @return the closest vehicle ahead and its gap
+   */
+  public Neighbour findAhead(Road road, int lane, float distance, Filter filter)
+  {
+    Neighbour res = new Neighbour();
+    if (road==null)
+      return res;
+
+    java.util.TreeSet vehicles = road.findLane(lane);
+    if (vehicles==null)
+      return res;
+
+    Entry probe = new Entry(null, Integer.MIN_VALUE);
+    probe.distance = distance;
+
+    int order = Integer.MAX_VALUE;
+    java.util.Iterator iter = vehicles.headSet(probe, true).descendingIterator();
+    while (iter.hasNext())
+    {
+      Entry entry = (Entry)iter.next();
+
+      // no further vehicle can be closer
+      if (distance-entry.distance-maxLength>res.gap)
+        break;
+
+      if (!filter.accept(entry.node))
+        continue;
+
+      float gap = distance-entry.distance-entry.length;
+      if ((gap<res.gap)||((gap==res.gap)&&(entry.order<order)))
+      {
+        res.node = entry.node;
+        res.gap = gap;
+        order = entry.order;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Finds the closest vehicle behind a position. <br>
+   * <br>
+   * The gap to a vehicle behind is the difference between the vehicle's
+   * distance to the next intersection and the given distance, minus
+   * the given length. Among vehicles with the same gap, the earliest
+   * registered one is returned.
+   * @param road road
+   * @param lane lane
+   * @param distance distance to next intersection (in meters)
+   * @param length length of the vehicle at the given position (in meters)
+   * @param filter filter selecting the vehicles to consider
+   * @return the closest vehicle behind and its gap
+   */
+  public Neighbour findBehind(Road road, int lane, float distance, float length, Filter filter)
+  {
+    Neighbour res = new Neighbour();
+    if (road==null)
+      return res;
+
+    java.util.TreeSet vehicles = road.findLane(lane);
+    if (vehicles==null)
+      return res;
+
+    Entry probe = new Entry(null, Integer.MIN_VALUE);
+    probe.distance = distance;
+
+    int order = Integer.MAX_VALUE;
+    java.util.Iterator iter = vehicles.tailSet(probe, false).iterator();
+    while (iter.hasNext())
+    {
+      Entry entry = (Entry)iter.next();
+
+      float gap = entry.distance-distance-length;
+      // no further vehicle can be closer
+      if (gap>res.gap)
+        break;
+
+      if (!filter.accept(entry.node))
+        continue;
+
+      if ((gap<res.gap)||((gap==res.gap)&&(entry.order<order)))
+      {
+        res.node = entry.node;
+        res.gap = gap;
+        order = entry.order;
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Writes the index to a checkpoint. <br>
+   * <br>
+   * @param out output stream
+   * @throws java.io.IOException if the index could not be written
+   */
+  private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException
+  {
+    out.defaultWriteObject();
+
+    java.util.ArrayList list = new java.util.ArrayList(roads.keySet());
+    if (restoredRoads!=null)
+      list.addAll(restoredRoads);
+    out.writeObject(list);
+  }
+
+  /**
+   * Reads the index from a checkpoint. <br>
+   * <br>
+   * @param in input stream
+   * @throws java.io.IOException if the index could not be read
+   * @throws ClassNotFoundException if a class of the index is not found
+   */
+  private void readObject(java.io.ObjectInputStream in)
+    throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    roads = new java.util.HashMap();
+    restoredRoads = (java.util.ArrayList)in.readObject();
+  }
+
+  /**
+   * This interface selects the vehicles considered by neighbour queries
+   */
+  public static interface Filter extends java.io.Serializable
+  {
+    /**
+     * Checks if a vehicle should be considered. <br>
+     * <br>
+     * @param node vehicle
+     * @return true, if the vehicle should be considered
+     */
+    public boolean accept(Node node);
+  }
+
+  /**
+   * This class holds the result of a neighbour query
+   */
+  public static class Neighbour
+  {
+    /**
+     * Neighbour vehicle, NULL if none
+     */
+    protected Node node = null;
+
+    /**
+     * Gap to the neighbour vehicle (in meters), Float.MAX_VALUE if none
+     */
+    protected float gap = Float.MAX_VALUE;
+
+    /**
+     * Gets the neighbour vehicle. <br>
+     * <br>
+     * @return neighbour vehicle, NULL if none
+     */
+    public Node getNode()
+    {
+      return node;
+    }
+
+    /**
+     * Gets the gap to the neighbour vehicle. <br>
+     * <br>
+     * @return gap (in meters), Float.MAX_VALUE if no neighbour
+     */
+    public float getGap()
+    {
+      return gap;
+    }
+  }
+
+  /**
+   * This class implements a road of the index
+   */
+  public static class Road implements java.io.Serializable
+  {
+    /**
+     * Version of the class in the checkpoints
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Road element or source vertex
+     */
+    protected Object from;
+
+    /**
+     * Destination vertex, NULL for road elements
+     */
+    protected Object to;
+
+    /**
+     * Coordinates of the intersection the vehicles are moving to
+     */
+    protected double x, y;
+
+    /**
+     * Lanes of the road
+     * Index: lane number, Value: java.util.TreeSet of entries
+     */
+    protected java.util.ArrayList lanes = new java.util.ArrayList(2);
+
+    /**
+     * Road's id in the index
+     */
+    protected int id = -1;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param from road element or source vertex
+     * @param to destination vertex
+     * @param x x-coordinate of the intersection
+     * @param y y-coordinate of the intersection
+     */
+    protected Road(Object from, Object to, double x, double y)
+    {
+      this.from = from;
+      this.to = to;
+      this.x = x;
+      this.y = y;
+    }
+
+    /**
+     * Gets the road's id. <br>
+     * <br>
+     * The roads are numbered in the order they are first requested.
+     * @return road's id
+     */
+    public int getID()
+    {
+      return id;
+    }
+
+    /**
+     * Gets the entries of a lane. <br>
+     * <br>
+     * @param lane lane number
+     * @return entries of the lane, NULL if the lane has never been used
+     */
+    protected java.util.TreeSet findLane(int lane)
+    {
+      if ((lane>=0)&&(lane<lanes.size()))
+        return (java.util.TreeSet)lanes.get(lane);
+
+      return null;
+    }
+
+    /**
+     * Gets the entries of a lane, creating the lane if needed. <br>
+     * <br>
+     * @param lane lane number
+     * @return entries of the lane
+     */
+    protected java.util.TreeSet getLane(int lane)
+    {
+      while (lanes.size()<=lane)
+        lanes.add(null);
+
+      java.util.TreeSet res = (java.util.TreeSet)lanes.get(lane);
+      if (res==null)
+      {
+        res = new java.util.TreeSet(ORDER);
+        lanes.set(lane, res);
+      }
+
+      return res;
+    }
+
+    /**
+     * Indicates whether this road is equal to another road. <br>
+     * <br>
+     * @param o road to compare with
+     * @return true, if the roads are the same
+     */
+    public boolean equals(Object o)
+    {
+      if (o instanceof Road)
+      {
+        Road road = (Road)o;
+        return (from==road.from)&&(to==road.to)&&(x==road.x)&&(y==road.y);
+      }
+      return false;
+    }
+
+    /**
+     * Returns a hash code for the road. <br>
+     * <br>
+     * @return hash code
+     */
+    public int hashCode()
+    {
+      long bits = Double.doubleToLongBits(x)*31+Double.doubleToLongBits(y);
+      int res = System.identityHashCode(from)*31+System.identityHashCode(to);
+      return res*31+(int)(bits^(bits>>>32));
+    }
+  }
+
+  /**
+   * This class implements an entry of the index
+   */
+  protected static class Entry implements java.io.Serializable
+  {
+    /**
+     * Version of the class in the checkpoints
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Vehicle
+     */
+    protected Node node;
+
+    /**
+     * Registration order
+     */
+    protected int order;
+
+    /**
+     * Current road
+     */
+    protected Road road;
+
+    /**
+     * Current lane
+     */
+    protected int lane;
+
+    /**
+     * Distance to next intersection (in meters)
+     */
+    protected float distance;
+
+    /**
+     * Vehicle length (in meters)
+     */
+    protected float length;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param node vehicle
+     * @param order registration order
+     */
+    protected Entry(Node node, int order)
+    {
+      this.node = node;
+      this.order = order;
+    }
+  }
+
+  /**
+   * This class iterates over the vehicles of a set of entries
+   */
+  protected static class NodeIterator implements java.util.Iterator
+  {
+    /**
+     * Iterator over the entries
+     */
+    protected java.util.Iterator iter;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param iter iterator over the entries
+     */
+    protected NodeIterator(java.util.Iterator iter)
+    {
+      this.iter = iter;
+    }
+
+    public boolean hasNext()
+    {
+      return iter.hasNext();
+    }
+
+    public Object next()
+    {
+      return ((Entry)iter.next()).node;
+    }
+
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
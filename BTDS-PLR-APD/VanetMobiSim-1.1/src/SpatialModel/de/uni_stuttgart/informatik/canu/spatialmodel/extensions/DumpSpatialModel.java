@@ -29,6 +29,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class DumpSpatialModel extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Spatial Model
    */
@@ -57,6 +62,29 @@ public class DumpSpatialModel extends ExtensionModule
     return "Spatial Model dumping module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Performs the module initialization. <br>
 	 * <i>Version 1.2 by  Jerome Haerri (haerri@ieee.org): 
@@ -217,7 +245,7 @@ public class DumpSpatialModel extends ExtensionModule
       spatialModel = (SpatialModel)u.getExtension(sm);
     }	
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
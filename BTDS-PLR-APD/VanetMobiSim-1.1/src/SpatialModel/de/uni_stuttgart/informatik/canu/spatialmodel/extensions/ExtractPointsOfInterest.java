@@ -20,6 +20,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
  */
 public class ExtractPointsOfInterest extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Code of elements to be extracted
    */
@@ -53,6 +58,29 @@ public class ExtractPointsOfInterest extends ExtensionModule
     return "Point of Interest extracting module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -118,7 +146,7 @@ public class ExtractPointsOfInterest extends ExtensionModule
       spatialModel = (SpatialModel)u.getExtension(sm);
     }	
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
@@ -22,6 +22,10 @@ import de.uni_stuttgart.informatik.canu.spatialmodel.core.SpatialModel;
  */
 public class NodeDensityMonitor extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 	/**
 	* Spatial Model
@@ -70,6 +74,16 @@ public class NodeDensityMonitor extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return next timestep, at which the simulation time is a multiple of the step
+   */
+  public long getWakeUpTime()
+  {
+    return getNextPeriodTime(step);
+  }
+
   /**
    * Calculates and outputs the data
    */
@@ -142,6 +156,29 @@ public class NodeDensityMonitor extends ExtensionModule
     return "Density monitoring module";
   }
 
+  /**
+   * Closes the output file. <br>
+   * <br>
+   * The method is called after the simulation is finished.
+   */
+  public void close()
+  {
+    if ((o!=System.out)&&(o!=System.err))
+      o.close();
+    else
+      o.flush();
+  }
+
+  /**
+   * Checks if the module is saved in simulation checkpoints. <br>
+   * <br>
+   * @return false, output modules are configured by the restoring scenario
+   */
+  public boolean isCheckpointed()
+  {
+    return false;
+  }
+
   /**
     * Initializes the object from XML tag. <br>
     * <br>
@@ -161,7 +198,7 @@ public class NodeDensityMonitor extends ExtensionModule
       spatialModel = (SpatialModel)u.getExtension(sm);
     }	
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
@@ -15,6 +15,11 @@ package de.uni_stuttgart.informatik.canu.spatialmodel.geometry;
  */
 public class Line extends Polyline
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Constructor
    */
@@ -15,8 +15,13 @@ import de.uni_stuttgart.informatik.canu.mobisim.core.Position3D;
  * This class implements a point
  * @author Illya Stepanov 
  */
-public class Point extends GeometryElement
+public class Point extends GeometryElement implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Point coordinates
    */
@@ -13,8 +13,13 @@ package de.uni_stuttgart.informatik.canu.spatialmodel.geometry;
  * This class implements a closed line connecting several points
  * @author Illya Stepanov 
  */
-public class Polygon extends Polyline
+public class Polygon extends Polyline implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Constructor
    */
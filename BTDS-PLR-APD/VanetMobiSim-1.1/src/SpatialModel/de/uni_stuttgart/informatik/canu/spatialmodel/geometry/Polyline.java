@@ -13,8 +13,13 @@ package de.uni_stuttgart.informatik.canu.spatialmodel.geometry;
  * This class implements a line connecting several points
  * @author Illya Stepanov 
  */
-public class Polyline extends GeometryElement
+public class Polyline extends GeometryElement implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Array of points
    */
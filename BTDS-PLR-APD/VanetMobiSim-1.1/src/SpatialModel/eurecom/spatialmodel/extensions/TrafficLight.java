@@ -23,6 +23,10 @@ import eurecom.spacegraph.*;
  * @version 1.0
  */
 public class TrafficLight extends ExtensionModule {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
  
 	/**
    * Spatial Model
@@ -79,7 +83,7 @@ public class TrafficLight extends ExtensionModule {
 																								"Initializing TrafficLight extension"));
 		
     java.util.Map elements = spatialModel.getElements();
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
 		String trafficLightPlusCode = "2303";
 		String trafficLightMinusCode = "2304";
 		
@@ -169,8 +173,9 @@ public class TrafficLight extends ExtensionModule {
 		// first increment the iterator
 		// second get the Edge from the vertex
 		// update the greenLight to the SpatialElement
-		u.sendNotification(new LoaderNotification(this, u,
-																								"Changing TrafficLight Status"));
+		if (u.isLoaderEnabled())
+			u.sendNotification(new LoaderNotification(this, u,
+																									"Changing TrafficLight Status"));
 		
 		long time = u.getTime();
 		if ((time % trafficStep) == 0) {
@@ -185,10 +190,20 @@ public class TrafficLight extends ExtensionModule {
 				 }
 			 }
 		}
-		u.sendNotification(new LoaderNotification(this, u,
-																								"Finished changing TrafficLight Status"));
+		if (u.isLoaderEnabled())
+			u.sendNotification(new LoaderNotification(this, u,
+																									"Finished changing TrafficLight Status"));
     return 0;
   }
+
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * @return next timestep, at which the traffic lights change
+   */
+  public long getWakeUpTime() {
+    return getNextPeriodTime(trafficStep);
+  }
 	
 	/**
    * Initializes simulation parameters from XML tag. <br>
@@ -209,7 +224,7 @@ public class TrafficLight extends ExtensionModule {
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		
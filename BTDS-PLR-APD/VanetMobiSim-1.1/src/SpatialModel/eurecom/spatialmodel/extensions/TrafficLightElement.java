@@ -18,7 +18,11 @@ import de.uni_stuttgart.informatik.canu.mobisim.core.Position3D;
  * @author Jerome Haerri
   * @version 1.0
  */
-public class TrafficLightElement {
+public class TrafficLightElement implements java.io.Serializable {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
  	
 	/**
    * Element's class specifier
@@ -79,7 +83,7 @@ public class TrafficLightElement {
 	/**
    * Iterator to all connected roadelements
    */
-	protected java.util.Iterator iter;
+	protected transient java.util.Iterator iter;
 	
 	
 	 /**
@@ -201,7 +205,7 @@ public class TrafficLightElement {
 		   status = (String)iter.next();
        opposite = status;
        
-       SpatialModel model = (SpatialModel)u.getExtension("SpatialModel");
+       SpatialModel model = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 
        if(adjacentRoadIDs.size() == 4) {
          // compute the derivative of road 'status'
@@ -281,6 +285,25 @@ public class TrafficLightElement {
 	 public void start(long now) {
 	   nextUpdate = now + step;
 	 }
+
+  /**
+   * Restores the traffic light from a checkpoint. <br>
+   * <br>
+   * The iterator is positioned after the active roadElement.
+   * @param in input stream
+   * @throws java.io.IOException if the object could not be read
+   * @throws ClassNotFoundException if a class of the object is not found
+   */
+  private void readObject(java.io.ObjectInputStream in)
+    throws java.io.IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    iter = adjacentRoadIDs.iterator();
+    int index = adjacentRoadIDs.indexOf(status);
+    for (int i=0; i<=index; i++)
+      iter.next();
+  }
 	 
 	 
 
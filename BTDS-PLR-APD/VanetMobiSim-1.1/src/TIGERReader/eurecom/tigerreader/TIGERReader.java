@@ -37,6 +37,11 @@ import eurecom.spatialmodel.extensions.*;
  */
 public class TIGERReader extends ExtensionModule
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Source stream
    */
@@ -460,7 +465,7 @@ public class TIGERReader extends ExtensionModule
 		
 		double longStart,latStart,longEnd,latEnd,recordType;
 		String sign1, sign2,sign3,sign4=null;
-		java.util.Random rand=u.getRandom();
+		java.util.Random rand=getRandom();
 		java.util.Map elements = spatialModel.getElements();
 		
 		// JHNote (15/05/2006): We only consider roadElements and junctions.
@@ -755,7 +760,7 @@ public class TIGERReader extends ExtensionModule
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		s = element.getAttribute("shapeCoord");
@@ -784,6 +789,25 @@ public class TIGERReader extends ExtensionModule
       throw new Exception("Invalid source name: "+s);
 		
 		tigerAddress=s;
+
+    // the simulations of a batch take the map built by the first one
+    java.util.Map shared = u.getSharedObjects();
+    String sharedKey = "TIGERReader:"+tigerAddress+":"+centerLatitude+":"+centerLongitude+":"+sizeX+":"+sizeY+":"+tr2;
+    if (shared!=null)
+    {
+      SpatialModel built;
+      synchronized (shared)
+      {
+        built = (SpatialModel)shared.get(sharedKey);
+      }
+      if (built!=null)
+      {
+        spatialModel.shareMap(built);
+        u.sendNotification(new LoaderNotification(this, u, "Finished loading TIGERReader extension"));
+        return;
+      }
+    }
+
 		String fullAddress = tigerAddress+".RT1";
 		try {
       // JHNote (24/01/2006): In order to ease the compatibility between the Applet version and 
@@ -850,6 +874,14 @@ public class TIGERReader extends ExtensionModule
 			
 			spatialModel.createSecondLayerElements();
 			
+			if (shared!=null)
+			{
+			  synchronized (shared)
+			  {
+			    shared.put(sharedKey, spatialModel);
+			  }
+			}
+			
 			u.sendNotification(new LoaderNotification(this, u, "Finished loading TIGERReader extension"));
 		}
   }
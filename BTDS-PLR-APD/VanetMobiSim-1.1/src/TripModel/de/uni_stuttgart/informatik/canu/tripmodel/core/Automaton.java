@@ -128,9 +128,18 @@ public class Automaton implements Cloneable
    * Switches the automaton to the next state
    */
   public void switchToNextState()
+  {
+    switchToNextState(Universe.getReference().getRandom());
+  }
+
+  /**
+   * Switches the automaton to the next state. <br>
+   * <br>
+   * @param rand random number generator of the node
+   */
+  public void switchToNextState(java.util.Random rand)
   {
     Universe u = Universe.getReference();
-    java.util.Random rand = u.getRandom();
 
     float alpha = rand.nextFloat();
 
@@ -153,7 +162,8 @@ public class Automaton implements Cloneable
     if (stateID==null)
       stateID="";
     
-    u.sendNotification(new DebugNotification(this, u, "Automaton switched to state "+currentState+" ("+stateID+")"));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "Automaton switched to state "+currentState+" ("+stateID+")"));
   }
 
   /**
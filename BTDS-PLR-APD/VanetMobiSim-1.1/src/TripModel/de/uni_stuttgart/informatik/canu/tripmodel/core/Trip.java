@@ -13,8 +13,13 @@ package de.uni_stuttgart.informatik.canu.tripmodel.core;
  * This class contains a node trip
  * @author Illya Stepanov
  */
-public class Trip
+public class Trip implements java.io.Serializable
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Point approximated path
    */
@@ -37,6 +37,10 @@ public class ActivityBasedTripGenerator extends ExtensionModule
                                       implements InitialPositionGenerator,
                                                   TripGenerator
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 	/**
 	* Spatial Model
@@ -128,6 +132,10 @@ public class ActivityBasedTripGenerator extends ExtensionModule
         }
       }
     }
+
+    // preprocess the graph once for all trips
+    if ( (graph!=null) && (algo instanceof ContractionHierarchies) )
+      ((ContractionHierarchies)algo).prepare(spatialModel, reflect_directions);
   }
 
   /**
@@ -142,6 +150,17 @@ public class ActivityBasedTripGenerator extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Chooses a node initial position according to the automaton of activity sequences. <br>
    * <br>
@@ -150,7 +169,7 @@ public class ActivityBasedTripGenerator extends ExtensionModule
    */
   public Point getInitialPosition(Node node)
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = node.getRandom();
 
     // create the automaton for the node
     Automaton a = (Automaton)template_automaton.clone();
@@ -171,7 +190,8 @@ public class ActivityBasedTripGenerator extends ExtensionModule
    */
   public Trip genTrip(Node node)
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = node.getRandom();
+    u.getMonitor().addTrip();
     //SpatialModel spatialModel = (SpatialModel)u.getExtension("SpatialModel");
     // JHNote (06/02/2006): Now the SpatialModel is loaded at the beginning.
 		
@@ -180,7 +200,7 @@ public class ActivityBasedTripGenerator extends ExtensionModule
 
     // switch automata to the next state
     Automaton a = (Automaton)automata.get(node);
-    a.switchToNextState();
+    a.switchToNextState(rand);
 
     // choose a trip destination
     java.util.ArrayList locations = a.getCurrentState().getLocations();
@@ -205,7 +225,9 @@ public class ActivityBasedTripGenerator extends ExtensionModule
     else
     {
       // use the path searching algorithm to calculate the path
+      long start = System.nanoTime();
       Trip trip = algo.getPath(spatialModel, node, ps, pd, reflect_directions);
+      u.getMonitor().addPathSearch(System.nanoTime()-start);
       if (trip==null)
       {
         // add an empty trip
@@ -238,7 +260,7 @@ public class ActivityBasedTripGenerator extends ExtensionModule
 
     // choose an appropriate stay duration for the current location
     Location ll = (Location)destinations.get(node);
-    return (int)(ll.getMinStay()+(ll.getMaxStay()-ll.getMinStay())*u.getRandom().nextFloat());
+    return (int)(ll.getMinStay()+(ll.getMaxStay()-ll.getMinStay())*node.getRandom().nextFloat());
   }
 
   /**
@@ -265,7 +287,7 @@ public class ActivityBasedTripGenerator extends ExtensionModule
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
@@ -298,6 +320,22 @@ public class ActivityBasedTripGenerator extends ExtensionModule
         
         ((SpeedPathSelection)algo).setSpeedWeight(speedWeight);
       }
+
+      // handle the metric of the shortest-path searches
+      String metric = element.getAttribute("metric").trim();
+      if (metric.length()!=0)
+      {
+        if (algo instanceof AStar)
+          ((AStar)algo).setMetric(ShortestPathEngine.parseMetric(metric));
+        else
+        if (algo instanceof BidirectionalDijkstra)
+          ((BidirectionalDijkstra)algo).setMetric(ShortestPathEngine.parseMetric(metric));
+        else
+        if (algo instanceof ContractionHierarchies)
+          ((ContractionHierarchies)algo).setMetric(ShortestPathEngine.parseMetric(metric));
+        else
+          throw new Exception("\"metric\" attribute is not supported by "+classTag);
+      }
     }
 
     n = element.getElementsByTagName("reflect_directions").item(0);
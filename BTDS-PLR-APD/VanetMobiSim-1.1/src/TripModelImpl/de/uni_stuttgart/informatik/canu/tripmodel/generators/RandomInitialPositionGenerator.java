@@ -24,6 +24,10 @@ import de.uni_stuttgart.informatik.canu.tripmodel.core.*;
 public class RandomInitialPositionGenerator extends ExtensionModule
                                             implements InitialPositionGenerator
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 	/** 
 	* Spatial Model
@@ -103,6 +107,17 @@ public class RandomInitialPositionGenerator extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Chooses the node's initial position. <br>
    * <br>
@@ -111,7 +126,7 @@ public class RandomInitialPositionGenerator extends ExtensionModule
    */
   public Point getInitialPosition(Node node)
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = node.getRandom();
 
     // check if the set of points is defined
     if (points.size()>0)
@@ -163,7 +178,7 @@ public class RandomInitialPositionGenerator extends ExtensionModule
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
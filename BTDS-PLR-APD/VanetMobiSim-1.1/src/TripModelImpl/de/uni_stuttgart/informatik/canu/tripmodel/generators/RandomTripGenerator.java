@@ -40,6 +40,10 @@ import de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms.*;
 public class RandomTripGenerator extends ExtensionModule
                                        implements TripGenerator
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 	/**
 	* Spatial Model
@@ -135,6 +139,10 @@ public class RandomTripGenerator extends ExtensionModule
         }
       }
     }
+
+    // preprocess the graph once for all trips
+    if ( (graph!=null) && (algo instanceof ContractionHierarchies) )
+      ((ContractionHierarchies)algo).prepare(spatialModel, reflect_directions);
   }
 
   /**
@@ -149,6 +157,17 @@ public class RandomTripGenerator extends ExtensionModule
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * The extension is passive and does not need to be executed.
+   * @return Long.MAX_VALUE
+   */
+  public long getWakeUpTime()
+  {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Generates a new trip for the node. <br>
    * <br>
@@ -157,7 +176,8 @@ public class RandomTripGenerator extends ExtensionModule
    */
   public Trip genTrip(Node node)
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = node.getRandom();
+    u.getMonitor().addTrip();
 
     //SpatialModel spatialModel = (SpatialModel)u.getExtension("SpatialModel");
 		// JHNote (06/02/2006): Now the SpatialModel is loaded at the beginning.
@@ -182,9 +202,11 @@ public class RandomTripGenerator extends ExtensionModule
       else
       {
         // get a path from the current location to the destination
+        long start = System.nanoTime();
         Trip trip = algo.getPath(spatialModel, node,
           new Point(node.getPosition().getX(), node.getPosition().getY()),
           new Point(p.getX(), p.getY()), reflect_directions);
+        u.getMonitor().addPathSearch(System.nanoTime()-start);
         if (trip==null)
         {
           // add an empty trip
@@ -222,9 +244,11 @@ public class RandomTripGenerator extends ExtensionModule
         Vertex vd = (Vertex)vertices.get(rand.nextInt(vertices.size()));
 
         // get a path from the current location to the destination
+        long start = System.nanoTime();
         Trip trip = algo.getPath(spatialModel, node,
           new Point(node.getPosition().getX(), node.getPosition().getY()),
           new Point(vd.getX(), vd.getY()), reflect_directions);
+        u.getMonitor().addPathSearch(System.nanoTime()-start);
         if (trip==null)
         {
           // add an empty trip
@@ -248,7 +272,7 @@ public class RandomTripGenerator extends ExtensionModule
    */
   public int chooseStayDuration(Node node)
   {
-    return (int)(minStay+(maxStay-minStay)*u.getRandom().nextFloat());
+    return (int)(minStay+(maxStay-minStay)*node.getRandom().nextFloat());
   }
   
   /**
@@ -275,7 +299,7 @@ public class RandomTripGenerator extends ExtensionModule
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if(spatialModel==null)
@@ -309,6 +333,22 @@ public class RandomTripGenerator extends ExtensionModule
         
         ((SpeedPathSelection)algo).setSpeedWeight(speedWeight);
       }
+
+      // handle the metric of the shortest-path searches
+      String metric = element.getAttribute("metric").trim();
+      if (metric.length()!=0)
+      {
+        if (algo instanceof AStar)
+          ((AStar)algo).setMetric(ShortestPathEngine.parseMetric(metric));
+        else
+        if (algo instanceof BidirectionalDijkstra)
+          ((BidirectionalDijkstra)algo).setMetric(ShortestPathEngine.parseMetric(metric));
+        else
+        if (algo instanceof ContractionHierarchies)
+          ((ContractionHierarchies)algo).setMetric(ShortestPathEngine.parseMetric(metric));
+        else
+          throw new Exception("\"metric\" attribute is not supported by "+classTag);
+      }
     }
 
     n = element.getElementsByTagName("reflect_directions").item(0);
@@ -0,0 +1,86 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.mobisim.extensions.Graph;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.Point;
+import de.uni_stuttgart.informatik.canu.tripmodel.core.*;
+
+/**
+ * This class implements the A* Shortest-Path Algorithm. <br>
+ * <br>
+ * The search is guided by the straight-line distance to the destination,
+ * so it settles only the vertices around the line between the trip's
+ * origin and destination instead of the whole graph. The path minimizes
+ * the length (the default) or the travel time at the roads' speed limits.
+ * @author Canu Research group
+ */
+public class AStar implements java.io.Serializable, PathSearchingAlgorithm
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Metric of the paths
+   */
+  protected int metric = ShortestPathEngine.DISTANCE;
+
+  /**
+   * Gets the metric of the paths. <br>
+   * <br>
+   * @return {@link ShortestPathEngine#DISTANCE DISTANCE} or
+   * {@link ShortestPathEngine#TRAVEL_TIME TRAVEL_TIME}
+   */
+  public int getMetric()
+  {
+    return metric;
+  }
+
+  /**
+   * Sets the metric of the paths. <br>
+   * <br>
+   * @param metric {@link ShortestPathEngine#DISTANCE DISTANCE} or
+   * {@link ShortestPathEngine#TRAVEL_TIME TRAVEL_TIME}
+   */
+  public void setMetric(int metric)
+  {
+    this.metric = metric;
+  }
+
+  /**
+   * Searches the shortest path between two vertices for the given mobile node. <br>
+   * <br>
+   * @param spatialModel Spatial Model
+   * @param node node
+   * @param ps source point
+   * @param pd destination point
+   * @param flag path-searching flags
+   * @return path between vertices (array of points)
+   */
+  public Trip getPath(SpatialModel spatialModel, Node node, Point ps, Point pd, int flag)
+  {
+    Graph graph = spatialModel.getGraph();
+    Vertex vs = graph.getClosestVertex(ps.getX(), ps.getY());
+    Vertex vd = graph.getClosestVertex(pd.getX(), pd.getY());
+
+    int[] path = ShortestPathEngine.getInstance(spatialModel).findPathAStar(spatialModel, vs, vd, flag, metric);
+
+    // check if the path doesn't exist
+    if (path==null)
+      return null;
+
+    return ShortestPathEngine.createTrip(graph, path, vs, vd, ps, pd);
+  }
+}
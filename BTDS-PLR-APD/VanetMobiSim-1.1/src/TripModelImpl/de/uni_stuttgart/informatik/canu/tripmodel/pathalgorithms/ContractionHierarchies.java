@@ -0,0 +1,100 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.mobisim.extensions.Graph;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.Point;
+import de.uni_stuttgart.informatik.canu.tripmodel.core.*;
+
+/**
+ * This class implements the shortest-path search with Contraction
+ * Hierarchies. <br>
+ * <br>
+ * The graph is preprocessed once, when the simulation is initialized
+ * (see {@link #prepare prepare}) or at the first search, and a search
+ * settles only a small part of the vertices Dijkstra's algorithm settles.
+ * This pays off when many trips are searched on a static graph. The path
+ * minimizes the length (the default) or the travel time at the roads'
+ * speed limits.
+ * @author Canu Research group
+ */
+public class ContractionHierarchies implements java.io.Serializable, PathSearchingAlgorithm
+{
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Metric of the paths
+   */
+  protected int metric = ShortestPathEngine.DISTANCE;
+
+  /**
+   * Gets the metric of the paths. <br>
+   * <br>
+   * @return {@link ShortestPathEngine#DISTANCE DISTANCE} or
+   * {@link ShortestPathEngine#TRAVEL_TIME TRAVEL_TIME}
+   */
+  public int getMetric()
+  {
+    return metric;
+  }
+
+  /**
+   * Sets the metric of the paths. <br>
+   * <br>
+   * @param metric {@link ShortestPathEngine#DISTANCE DISTANCE} or
+   * {@link ShortestPathEngine#TRAVEL_TIME TRAVEL_TIME}
+   */
+  public void setMetric(int metric)
+  {
+    this.metric = metric;
+  }
+
+  /**
+   * Builds the contraction hierarchy of the spatial model's graph. <br>
+   * <br>
+   * @param spatialModel Spatial Model
+   * @param flag path-searching flags
+   */
+  public void prepare(SpatialModel spatialModel, int flag)
+  {
+    ShortestPathEngine.getInstance(spatialModel).getHierarchy(spatialModel, flag, metric);
+  }
+
+  /**
+   * Searches the shortest path between two vertices for the given mobile node. <br>
+   * <br>
+   * @param spatialModel Spatial Model
+   * @param node node
+   * @param ps source point
+   * @param pd destination point
+   * @param flag path-searching flags
+   * @return path between vertices (array of points)
+   */
+  public Trip getPath(SpatialModel spatialModel, Node node, Point ps, Point pd, int flag)
+  {
+    Graph graph = spatialModel.getGraph();
+    Vertex vs = graph.getClosestVertex(ps.getX(), ps.getY());
+    Vertex vd = graph.getClosestVertex(pd.getX(), pd.getY());
+
+    int[] path = ShortestPathEngine.getInstance(spatialModel).findPathHierarchy(spatialModel, vs, vd, flag, metric);
+
+    // check if the path doesn't exist
+    if (path==null)
+      return null;
+
+    return ShortestPathEngine.createTrip(graph, path, vs, vd, ps, pd);
+  }
+}
@@ -0,0 +1,737 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class implements a Contraction Hierarchy of a graph. <br>
+ * <br>
+ * The vertices are contracted one by one, the least important first.
+ * Contracting a vertex removes it from the graph and adds a shortcut
+ * between each pair of its neighbours whose shortest path leads through
+ * it, unless a local search finds another path at most as long (a witness).
+ * The importance of a vertex is the ratio of the shortcuts its contraction
+ * adds to the arcs it removes, plus the number of its contracted neighbours
+ * and its level in the hierarchy, so the contraction proceeds evenly
+ * across the map. <br>
+ * <br>
+ * A query is a bidirectional Dijkstra search which only follows the arcs
+ * and shortcuts towards more important vertices, forward from the source
+ * and backward from the destination. Both searches meet at the most
+ * important vertex of a shortest path, after settling a few dozens of
+ * vertices, and don't continue from the vertices reached by a shorter
+ * path from above. The shortcuts of the path found are unpacked into the arcs
+ * of the graph they replace. <br>
+ * <br>
+ * The hierarchy is built for fixed costs and one-way restrictions of
+ * the arcs, a query gives the same costs as Dijkstra's algorithm.
+ * @author Canu Research group
+ */
+public class ContractionHierarchy
+{
+  /**
+   * Maximum number of vertices settled by a witness search
+   */
+  protected static final int WITNESS_LIMIT = 500;
+
+  /**
+   * Maximum number of vertices settled by a witness search estimating
+   * the importance of a vertex
+   */
+  protected static final int ESTIMATE_LIMIT = 50;
+
+  /**
+   * Number of vertices
+   */
+  protected int vertices;
+
+  /**
+   * Ranks of the vertices in the contraction order
+   */
+  protected int[] rank;
+
+  /**
+   * Source vertices of the arcs and shortcuts
+   */
+  protected int[] arcFrom;
+
+  /**
+   * Target vertices of the arcs and shortcuts
+   */
+  protected int[] arcTo;
+
+  /**
+   * Costs of the arcs and shortcuts
+   */
+  protected double[] arcCost;
+
+  /**
+   * First replaced arc of the shortcuts, -1 for the arcs of the graph
+   */
+  protected int[] arcFirst;
+
+  /**
+   * Second replaced arc of the shortcuts, -1 for the arcs of the graph
+   */
+  protected int[] arcSecond;
+
+  /**
+   * Number of the arcs and shortcuts
+   */
+  protected int arcs;
+
+  /**
+   * Index of the first upward arc of every vertex, the upward arcs of
+   * vertex i are upFirst[i]..upFirst[i+1]-1
+   */
+  protected int[] upFirst;
+
+  /**
+   * Target vertices of the upward arcs
+   */
+  protected int[] upTarget;
+
+  /**
+   * Costs of the upward arcs
+   */
+  protected double[] upCost;
+
+  /**
+   * Indices of the upward arcs among all arcs
+   */
+  protected int[] upArc;
+
+  /**
+   * Index of the first downward arc of every vertex, the downward arcs
+   * leading to vertex i are downFirst[i]..downFirst[i+1]-1
+   */
+  protected int[] downFirst;
+
+  /**
+   * Source vertices of the downward arcs
+   */
+  protected int[] downSource;
+
+  /**
+   * Costs of the downward arcs
+   */
+  protected double[] downCost;
+
+  /**
+   * Indices of the downward arcs among all arcs
+   */
+  protected int[] downArc;
+
+  /**
+   * Outgoing arcs of the vertices during the contraction
+   */
+  private int[][] out;
+
+  /**
+   * Numbers of the outgoing arcs of the vertices during the contraction
+   */
+  private int[] outSize;
+
+  /**
+   * Incoming arcs of the vertices during the contraction
+   */
+  private int[][] in;
+
+  /**
+   * Numbers of the incoming arcs of the vertices during the contraction
+   */
+  private int[] inSize;
+
+  /**
+   * Flags to indicate that the vertices are contracted
+   */
+  private boolean[] contracted;
+
+  /**
+   * Work arrays of the witness searches
+   */
+  private ShortestPathEngine.Workspace witness;
+
+  /**
+   * Numbers of the witness searches the vertices are targets of
+   */
+  private int[] mark;
+
+  /**
+   * Number of the current witness search
+   */
+  private int current;
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * Contracts the graph and builds the arrays of the queries.
+   * @param g graph
+   * @param cost costs of the graph's arcs
+   * @param skip flags of the graph's arcs to be skipped, null if none
+   */
+  ContractionHierarchy(ShortestPathEngine g, double[] cost, boolean[] skip)
+  {
+    vertices = g.vertices;
+    rank = new int[vertices];
+    contracted = new boolean[vertices];
+    witness = new ShortestPathEngine.Workspace(vertices);
+    mark = new int[vertices];
+
+    int n = g.target.length;
+    arcFrom = new int[n];
+    arcTo = new int[n];
+    arcCost = new double[n];
+    arcFirst = new int[n];
+    arcSecond = new int[n];
+
+    out = new int[vertices][];
+    in = new int[vertices][];
+    outSize = new int[vertices];
+    inSize = new int[vertices];
+    for (int i=0; i<vertices; i++)
+    {
+      out[i] = new int[g.first[i+1]-g.first[i]+1];
+      in[i] = new int[4];
+    }
+
+    for (int i=0; i<vertices; i++)
+      for (int a=g.first[i]; a<g.first[i+1]; a++)
+      {
+        // check if v-w edge is a one-way road
+        if ( ((skip!=null)&&skip[a]) || (g.target[a]==i) )
+          continue;
+
+        addArc(i, g.target[a], cost[a], -1, -1);
+      }
+
+    contract();
+    buildQueryArcs();
+
+    out = null;
+    in = null;
+    outSize = null;
+    inSize = null;
+    contracted = null;
+    witness = null;
+    mark = null;
+  }
+
+  /**
+   * Gets the number of the arcs and shortcuts. <br>
+   * <br>
+   * @return number of the arcs and shortcuts of the hierarchy
+   */
+  public int getArcs()
+  {
+    return arcs;
+  }
+
+  /**
+   * Adds an arc or a shortcut, or lowers the cost of an existing one. <br>
+   * <br>
+   * @param u source vertex
+   * @param w target vertex
+   * @param c cost
+   * @param first first replaced arc, -1 if none
+   * @param second second replaced arc, -1 if none
+   */
+  private void addArc(int u, int w, double c, int first, int second)
+  {
+    for (int i=0; i<outSize[u]; i++)
+    {
+      int a = out[u][i];
+      if (arcTo[a]==w)
+      {
+        if (c<arcCost[a])
+        {
+          arcCost[a] = c;
+          arcFirst[a] = first;
+          arcSecond[a] = second;
+        }
+        return;
+      }
+    }
+
+    if (arcs==arcTo.length)
+    {
+      int n = 2*arcs+1;
+      arcFrom = grow(arcFrom, n);
+      arcTo = grow(arcTo, n);
+      arcFirst = grow(arcFirst, n);
+      arcSecond = grow(arcSecond, n);
+      double[] t = new double[n];
+      System.arraycopy(arcCost, 0, t, 0, arcs);
+      arcCost = t;
+    }
+
+    int a = arcs++;
+    arcFrom[a] = u;
+    arcTo[a] = w;
+    arcCost[a] = c;
+    arcFirst[a] = first;
+    arcSecond[a] = second;
+
+    if (outSize[u]==out[u].length)
+      out[u] = grow(out[u], 2*outSize[u]);
+    out[u][outSize[u]++] = a;
+    if (inSize[w]==in[w].length)
+      in[w] = grow(in[w], 2*inSize[w]);
+    in[w][inSize[w]++] = a;
+  }
+
+  /**
+   * Copies an array to a larger one. <br>
+   * <br>
+   * @param a array
+   * @param n new length
+   * @return new array
+   */
+  private static int[] grow(int[] a, int n)
+  {
+    int[] res = new int[n];
+    System.arraycopy(a, 0, res, 0, a.length);
+    return res;
+  }
+
+  /**
+   * Contracts the vertices in the order of their importance. <br>
+   * <br>
+   * The importance of the neighbours of a contracted vertex is updated at
+   * once, the one of the other vertices lazily: a vertex is contracted only
+   * if its current importance isn't greater than the importance of the
+   * next one.
+   */
+  private void contract()
+  {
+    int[] deleted = new int[vertices];
+    int[] updated = new int[vertices];
+    int[] level = new int[vertices];
+    long[] keys = new long[vertices];
+    java.util.PriorityQueue queue = new java.util.PriorityQueue();
+    for (int i=0; i<vertices; i++)
+    {
+      keys[i] = encode(importance(i, 0), i);
+      queue.add(Long.valueOf(keys[i]));
+    }
+
+    int order = 0;
+    while (!queue.isEmpty())
+    {
+      long k = ((Long)queue.poll()).longValue();
+      int v = (int)k;
+
+      // skip the outdated entries
+      if ( contracted[v] || (k!=keys[v]) )
+        continue;
+
+      keys[v] = encode(importance(v, deleted[v]+level[v]), v);
+      if ( (!queue.isEmpty()) && (keys[v]>((Long)queue.peek()).longValue()) )
+      {
+        queue.add(Long.valueOf(keys[v]));
+        continue;
+      }
+
+      contract(v, false);
+      contracted[v] = true;
+      rank[v] = order++;
+      detach(v);
+
+      // update the importance of the neighbours
+      for (int i=0; i<outSize[v]+inSize[v]; i++)
+      {
+        int w = (i<outSize[v]) ? arcTo[out[v][i]] : arcFrom[in[v][i-outSize[v]]];
+        if (updated[w]==order)
+          continue;
+        updated[w] = order;
+
+        deleted[w]++;
+        level[w] = Math.max(level[w], level[v]+1);
+        long t = encode(importance(w, deleted[w]+level[w]), w);
+        if (t!=keys[w])
+        {
+          keys[w] = t;
+          queue.add(Long.valueOf(t));
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the arcs of a contracted vertex from the lists of its neighbours. <br>
+   * <br>
+   * @param v vertex
+   */
+  private void detach(int v)
+  {
+    for (int i=0; i<outSize[v]; i++)
+    {
+      int w = arcTo[out[v][i]];
+      inSize[w] = remove(in[w], inSize[w], out[v][i]);
+    }
+    for (int i=0; i<inSize[v]; i++)
+    {
+      int u = arcFrom[in[v][i]];
+      outSize[u] = remove(out[u], outSize[u], in[v][i]);
+    }
+  }
+
+  /**
+   * Removes an arc from a list. <br>
+   * <br>
+   * @param list list of arcs
+   * @param size size of the list
+   * @param a arc
+   * @return new size of the list
+   */
+  private static int remove(int[] list, int size, int a)
+  {
+    for (int i=0; i<size; i++)
+      if (list[i]==a)
+      {
+        list[i] = list[--size];
+        break;
+      }
+
+    return size;
+  }
+
+  /**
+   * Encodes the importance of a vertex as a key of the contraction queue. <br>
+   * <br>
+   * @param importance importance
+   * @param v vertex
+   * @return key, ordered by the importance, then by the vertex
+   */
+  private static long encode(int importance, int v)
+  {
+    return ((long)importance+Integer.MAX_VALUE)<<32 | v;
+  }
+
+  /**
+   * Calculates the importance of a vertex. <br>
+   * <br>
+   * @param v vertex
+   * @param depth number of the contracted neighbours plus the level of the vertex
+   * @return importance (in thousandths)
+   */
+  private int importance(int v, int depth)
+  {
+    int removed = Math.max(1, outSize[v]+inSize[v]);
+
+    return (int)(1000L*contract(v, true)/removed)+1000*depth;
+  }
+
+  /**
+   * Contracts a vertex. <br>
+   * <br>
+   * @param v vertex
+   * @param simulate true to count the shortcuts without adding them
+   * @return number of the shortcuts
+   */
+  private int contract(int v, boolean simulate)
+  {
+    int res = 0;
+    for (int i=0; i<inSize[v]; i++)
+    {
+      int a1 = in[v][i];
+      int u = arcFrom[a1];
+
+      // mark the targets of the witness search
+      current++;
+      int targets = 0;
+      double max = -1.0;
+      for (int j=0; j<outSize[v]; j++)
+      {
+        int w = arcTo[out[v][j]];
+        if ( (w!=u) && (mark[w]!=current) )
+        {
+          mark[w] = current;
+          targets++;
+          max = Math.max(max, arcCost[a1]+arcCost[out[v][j]]);
+        }
+      }
+      if (targets==0)
+        continue;
+
+      searchWitnesses(u, v, max, targets, simulate ? ESTIMATE_LIMIT : WITNESS_LIMIT);
+
+      for (int j=0; j<outSize[v]; j++)
+      {
+        int a2 = out[v][j];
+        int w = arcTo[a2];
+        if (w==u)
+          continue;
+
+        // check if a path avoiding v is at most as long
+        double c = arcCost[a1]+arcCost[a2];
+        if ( (witness.stamp[w]==witness.current) && (witness.dist[w]<=c) )
+          continue;
+
+        res++;
+        if (!simulate)
+          addArc(u, w, c, a1, a2);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Searches the paths from a vertex avoiding a vertex being contracted. <br>
+   * <br>
+   * The search stops when the marked targets are settled, at the maximum
+   * cost or at the maximum number of settled vertices. Missing a witness
+   * only adds an unnecessary shortcut.
+   * @param u source vertex
+   * @param v vertex being contracted
+   * @param max maximum cost
+   * @param targets number of the marked targets
+   * @param limit maximum number of settled vertices
+   */
+  private void searchWitnesses(int u, int v, double max, int targets, int limit)
+  {
+    ShortestPathEngine.Workspace ws = witness;
+    ws.start(u, -1, null, null, 0.0);
+
+    int settled = 0;
+    while ( (ws.size>0) && (settled++<limit) )
+    {
+      int x = ws.poll();
+      if (ws.dist[x]>max)
+        break;
+      if ( (mark[x]==current) && (--targets==0) )
+        break;
+
+      for (int i=0; i<outSize[x]; i++)
+      {
+        int a = out[x][i];
+        int y = arcTo[a];
+        if (y!=v)
+          ws.update(y, ws.dist[x]+arcCost[a], x);
+      }
+    }
+  }
+
+  /**
+   * Builds the arrays of the upward and the downward arcs. <br>
+   */
+  private void buildQueryArcs()
+  {
+    upFirst = new int[vertices+1];
+    downFirst = new int[vertices+1];
+    for (int a=0; a<arcs; a++)
+    {
+      if (rank[arcFrom[a]]<rank[arcTo[a]])
+        upFirst[arcFrom[a]+1]++;
+      else
+        downFirst[arcTo[a]+1]++;
+    }
+    for (int i=0; i<vertices; i++)
+    {
+      upFirst[i+1] += upFirst[i];
+      downFirst[i+1] += downFirst[i];
+    }
+
+    upTarget = new int[upFirst[vertices]];
+    upCost = new double[upFirst[vertices]];
+    upArc = new int[upFirst[vertices]];
+    downSource = new int[downFirst[vertices]];
+    downCost = new double[downFirst[vertices]];
+    downArc = new int[downFirst[vertices]];
+
+    int[] upNext = upFirst.clone();
+    int[] downNext = downFirst.clone();
+    for (int a=0; a<arcs; a++)
+    {
+      if (rank[arcFrom[a]]<rank[arcTo[a]])
+      {
+        int i = upNext[arcFrom[a]]++;
+        upTarget[i] = arcTo[a];
+        upCost[i] = arcCost[a];
+        upArc[i] = a;
+      }
+      else
+      {
+        int i = downNext[arcTo[a]]++;
+        downSource[i] = arcFrom[a];
+        downCost[i] = arcCost[a];
+        downArc[i] = a;
+      }
+    }
+  }
+
+  /**
+   * Searches the shortest path between two vertices. <br>
+   * <br>
+   * @param ws work arrays of the forward and the backward search
+   * @param s source vertex
+   * @param d destination vertex
+   * @return vertices of the path from s to d,
+   * null if the path doesn't exist or s equals d
+   */
+  int[] findPath(ShortestPathEngine.Workspace[] ws, int s, int d)
+  {
+    if (s==d)
+      return null;
+
+    ShortestPathEngine.Workspace forward = ws[0];
+    ShortestPathEngine.Workspace backward = ws[1];
+    forward.start(s, -1, null, null, 0.0);
+    backward.start(d, -1, null, null, 0.0);
+
+    // each search stops when it can't improve the best connection anymore
+    for (;;)
+    {
+      double best = Math.min(forward.best, backward.best);
+      boolean f = (forward.size>0) && (forward.key[forward.heap[0]]<best);
+      boolean b = (backward.size>0) && (backward.key[backward.heap[0]]<best);
+      if ( (!f) && (!b) )
+        break;
+
+      if ( f && ((!b) || (forward.key[forward.heap[0]]<=backward.key[backward.heap[0]])) )
+      {
+        int v = forward.poll();
+        if (!isStalled(forward, v, downFirst, downSource, downCost))
+          forward.relax(v, upFirst, upTarget, null, upCost, null, backward);
+      }
+      else
+      {
+        int v = backward.poll();
+        if (!isStalled(backward, v, upFirst, upTarget, upCost))
+          backward.relax(v, downFirst, downSource, null, downCost, null, forward);
+      }
+    }
+
+    // the best connection joins the forward and the backward search trees
+    int from, to;
+    if (forward.best<=backward.best)
+    {
+      from = forward.meetFrom;
+      to = forward.meetTo;
+    }
+    else
+    {
+      from = backward.meetTo;
+      to = backward.meetFrom;
+    }
+    if (from==-1)
+      return null;
+
+    int m = 0;
+    for (int i=from; forward.pred[i]!=-1; i=forward.pred[i])
+      m++;
+    int n = m+1;
+    for (int i=to; backward.pred[i]!=-1; i=backward.pred[i])
+      n++;
+
+    int[] path = new int[n];
+    int k = m;
+    for (int i=from; forward.pred[i]!=-1; i=forward.pred[i])
+      path[--k] = findArc(forward.pred[i], i);
+    k = m;
+    path[k++] = findArc(from, to);
+    for (int i=to; backward.pred[i]!=-1; i=backward.pred[i])
+      path[k++] = findArc(i, backward.pred[i]);
+
+    return unpack(path, s);
+  }
+
+  /**
+   * Checks if a settled vertex is reached by a shorter path from a more
+   * important vertex. <br>
+   * <br>
+   * The path found by the search isn't shortest then, so the search
+   * doesn't continue from the vertex (stall-on-demand).
+   * @param ws work arrays of the search
+   * @param v settled vertex
+   * @param first index of the first arc from the more important vertices
+   * @param adjacent more important vertices of the arcs
+   * @param cost costs of the arcs
+   * @return true, if the vertex is stalled
+   */
+  private static boolean isStalled(ShortestPathEngine.Workspace ws, int v, int[] first, int[] adjacent, double[] cost)
+  {
+    for (int i=first[v]; i<first[v+1]; i++)
+    {
+      int w = adjacent[i];
+      if ( (ws.stamp[w]==ws.current) && (ws.dist[w]+cost[i]<ws.dist[v]) )
+        return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Finds the arc or shortcut between two vertices. <br>
+   * <br>
+   * @param u source vertex
+   * @param w target vertex
+   * @return index of the arc
+   */
+  private int findArc(int u, int w)
+  {
+    if (rank[u]<rank[w])
+    {
+      for (int i=upFirst[u]; i<upFirst[u+1]; i++)
+        if (upTarget[i]==w)
+          return upArc[i];
+    }
+    else
+    {
+      for (int i=downFirst[w]; i<downFirst[w+1]; i++)
+        if (downSource[i]==u)
+          return downArc[i];
+    }
+
+    throw new IllegalStateException("No arc "+u+"-"+w+" in the hierarchy");
+  }
+
+  /**
+   * Unpacks the shortcuts of a path. <br>
+   * <br>
+   * @param path arcs and shortcuts of the path
+   * @param s source vertex
+   * @return vertices of the path
+   */
+  private int[] unpack(int[] path, int s)
+  {
+    int[] res = new int[path.length+1];
+    int n = 0;
+    res[n++] = s;
+
+    int[] stack = new int[16];
+    for (int i=0; i<path.length; i++)
+    {
+      int size = 0;
+      stack[size++] = path[i];
+      while (size>0)
+      {
+        int a = stack[--size];
+        if (arcFirst[a]==-1)
+        {
+          if (n==res.length)
+            res = grow(res, 2*n);
+          res[n++] = arcTo[a];
+        }
+        else
+        {
+          if (size+2>stack.length)
+            stack = grow(stack, 2*stack.length);
+          stack[size++] = arcSecond[a];
+          stack[size++] = arcFirst[a];
+        }
+      }
+    }
+
+    int[] t = new int[n];
+    System.arraycopy(res, 0, t, 0, n);
+    return t;
+  }
+}
@@ -0,0 +1,457 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+/**
+ * This class keeps the shortest-path trees searched on a graph. <br>
+ * <br>
+ * A tree holds the minimum costs and the predecessors of all vertices
+ * for a source vertex. The trees are identified by the source's internal
+ * id, the epoch of the arcs' costs and the path-searching flags. An epoch
+ * is assigned to every distinct array of costs, so the trees of the same
+ * weights are found again even if other weights were used in between.
+ * Only the most recently used epochs are kept, the trees of an expired
+ * epoch are dropped. <br>
+ * <br>
+ * The number of trees is bounded, the least recently used tree is
+ * dropped first. Like in TinyLFU, the lookups are counted in a small
+ * frequency sketch, which forgets old lookups by halving all counts from
+ * time to time, and a new tree is only admitted if it is requested more
+ * often than the tree it would push out (see {@link #admit admit}). So
+ * the trees of the frequent sources are kept, and the sources requested
+ * only once don't pay for a whole tree. The cache is shared by all path
+ * searches on a graph (see
+ * {@link ShortestPathEngine#getTreeCache getTreeCache}).
+ * @author Canu Research group
+ */
+public class PathTreeCache
+{
+  /**
+   * Memory the trees may use by default (in bytes)
+   */
+  public static final long DEFAULT_MEMORY = 32L << 20;
+
+  /**
+   * Number of the epochs kept
+   */
+  public static final int EPOCHS = 8;
+
+  /**
+   * Maximum number of trees
+   */
+  protected int capacity;
+
+  /**
+   * Trees, in the order of their use
+   */
+  protected java.util.LinkedHashMap trees = new java.util.LinkedHashMap(16, 0.75f, true)
+  {
+    protected boolean removeEldestEntry(java.util.Map.Entry eldest)
+    {
+      return size()>capacity;
+    }
+  };
+
+  /**
+   * Counts of the lookups, four per key, each in 4 bits
+   */
+  protected long[] sketch;
+
+  /**
+   * Number of the lookups counted since the counts were halved
+   */
+  protected int sketchSize;
+
+  /**
+   * Costs of the arcs of the kept epochs, from the oldest to the newest
+   */
+  protected java.util.ArrayList costs = new java.util.ArrayList();
+
+  /**
+   * Numbers of the kept epochs, in the order of the costs
+   */
+  protected java.util.ArrayList epochs = new java.util.ArrayList();
+
+  /**
+   * Number of the last epoch
+   */
+  protected int epoch = 0;
+
+  /**
+   * Number of the lookups which found a tree
+   */
+  protected java.util.concurrent.atomic.AtomicLong hits = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Number of the lookups which didn't find a tree
+   */
+  protected java.util.concurrent.atomic.AtomicLong misses = new java.util.concurrent.atomic.AtomicLong();
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * The capacity is chosen so that the trees need about
+   * {@link #DEFAULT_MEMORY DEFAULT_MEMORY} bytes.
+   * @param vertices number of vertices
+   */
+  public PathTreeCache(int vertices)
+  {
+    setCapacity((int)Math.max(16, Math.min(1<<24, DEFAULT_MEMORY/(12L*Math.max(1, vertices)))));
+  }
+
+  /**
+   * Gets the maximum number of trees. <br>
+   * <br>
+   * @return maximum number of trees
+   */
+  public synchronized int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Sets the maximum number of trees. <br>
+   * <br>
+   * @param capacity maximum number of trees, 0 to disable the cache
+   */
+  public synchronized void setCapacity(int capacity)
+  {
+    this.capacity = capacity;
+
+    // count the lookups of about four times more trees than kept ones
+    int n = 16;
+    while (n<capacity)
+      n <<= 1;
+    sketch = new long[n];
+    sketchSize = 0;
+
+    java.util.Iterator iter = trees.keySet().iterator();
+    while (trees.size()>capacity)
+    {
+      iter.next();
+      iter.remove();
+    }
+  }
+
+  /**
+   * Gets the number of the kept trees. <br>
+   * <br>
+   * @return number of trees
+   */
+  public synchronized int getSize()
+  {
+    return trees.size();
+  }
+
+  /**
+   * Gets the number of the lookups which found a tree. <br>
+   * <br>
+   * @return number of hits
+   */
+  public long getHits()
+  {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of the lookups which didn't find a tree. <br>
+   * <br>
+   * @return number of misses
+   */
+  public long getMisses()
+  {
+    return misses.get();
+  }
+
+  /**
+   * Drops all trees and epochs. <br>
+   */
+  public synchronized void clear()
+  {
+    trees.clear();
+    java.util.Arrays.fill(sketch, 0L);
+    sketchSize = 0;
+    costs.clear();
+    epochs.clear();
+  }
+
+  /**
+   * Gets the epoch of the arcs' costs. <br>
+   * <br>
+   * A new epoch is started if the costs differ from the ones of all
+   * kept epochs. The array of a new epoch is kept, not copied, so that
+   * later lookups with the same array are found by identity; it must not
+   * be changed afterwards.
+   * @param cost costs of the arcs
+   * @return epoch
+   */
+  public synchronized int getEpoch(double[] cost)
+  {
+    int res = findEpoch(cost);
+    if (res!=-1)
+      return res;
+
+    // drop the oldest epoch together with its trees
+    if (costs.size()==EPOCHS)
+    {
+      costs.remove(0);
+      int expired = ((Integer)epochs.remove(0)).intValue();
+
+      java.util.Iterator iter = trees.keySet().iterator();
+      while (iter.hasNext())
+        if ((int)(((Long)iter.next()).longValue()>>>33)==expired)
+          iter.remove();
+    }
+
+    epoch = (epoch+1) & Integer.MAX_VALUE;
+    costs.add(cost);
+    epochs.add(Integer.valueOf(epoch));
+
+    return epoch;
+  }
+
+  /**
+   * Finds the epoch of the arcs' costs. <br>
+   * <br>
+   * @param cost costs of the arcs
+   * @return epoch, -1 if the costs don't belong to any kept epoch
+   */
+  public synchronized int findEpoch(double[] cost)
+  {
+    int i = costs.size()-1;
+    while ( (i>=0) && (costs.get(i)!=cost) )
+      i--;
+    if (i<0)
+    {
+      i = costs.size()-1;
+      while ( (i>=0) && !java.util.Arrays.equals((double[])costs.get(i), cost) )
+        i--;
+    }
+    if (i<0)
+      return -1;
+
+    // the least recently used epoch is dropped first
+    costs.add(costs.remove(i));
+    epochs.add(epochs.remove(i));
+
+    return ((Integer)epochs.get(epochs.size()-1)).intValue();
+  }
+
+  /**
+   * Gets a tree. <br>
+   * <br>
+   * @param source internal id of the source vertex
+   * @param epoch epoch of the arcs' costs
+   * @param skip true if the movement along one-way roads is restricted
+   * @return tree, null if not kept
+   */
+  public synchronized Tree get(int source, int epoch, boolean skip)
+  {
+    long k = key(source, epoch, skip);
+    increment(k);
+
+    Tree res = (Tree)trees.get(Long.valueOf(k));
+    if (res!=null)
+      hits.incrementAndGet();
+    else
+      misses.incrementAndGet();
+
+    return res;
+  }
+
+  /**
+   * Checks if a missed tree is worth searching and adding. <br>
+   * <br>
+   * While the cache isn't full, a tree is admitted if it was requested
+   * before, afterwards if it is requested more often than the least
+   * recently used tree.
+   * @param source internal id of the source vertex
+   * @param epoch epoch of the arcs' costs
+   * @param skip true if the movement along one-way roads is restricted
+   * @return true, if the tree should be added
+   */
+  public synchronized boolean admit(int source, int epoch, boolean skip)
+  {
+    if (capacity==0)
+      return false;
+
+    int f = frequency(key(source, epoch, skip));
+    if (trees.size()<capacity)
+      return f>1;
+
+    long victim = ((Long)trees.keySet().iterator().next()).longValue();
+    return f>frequency(victim);
+  }
+
+  /**
+   * Counts a lookup of a tree. <br>
+   * <br>
+   * @param k key of the tree
+   */
+  protected void increment(long k)
+  {
+    for (int i=0; i<4; i++)
+    {
+      int j = index(k, i);
+      int shift = counter(k, i);
+      if (((sketch[j]>>>shift) & 15L)<15L)
+        sketch[j] += 1L<<shift;
+    }
+
+    // forget the old lookups
+    if (++sketchSize>=10*16*sketch.length)
+    {
+      for (int j=0; j<sketch.length; j++)
+        sketch[j] = (sketch[j]>>>1) & 0x7777777777777777L;
+      sketchSize /= 2;
+    }
+  }
+
+  /**
+   * Estimates the number of the lookups of a tree. <br>
+   * <br>
+   * @param k key of the tree
+   * @return smallest of the tree's counts
+   */
+  protected int frequency(long k)
+  {
+    int res = 15;
+    for (int i=0; i<4; i++)
+      res = Math.min(res, (int)((sketch[index(k, i)]>>>counter(k, i)) & 15L));
+
+    return res;
+  }
+
+  /**
+   * Gets the word of a count of a tree in the sketch. <br>
+   * <br>
+   * @param k key of the tree
+   * @param i number of the count
+   * @return index of the word
+   */
+  protected int index(long k, int i)
+  {
+    long h = (k+i)*0x9E3779B97F4A7C15L;
+    return (int)(h>>>40) & (sketch.length-1);
+  }
+
+  /**
+   * Gets the position of a count of a tree in its word. <br>
+   * <br>
+   * @param k key of the tree
+   * @param i number of the count
+   * @return bit position of the count
+   */
+  protected int counter(long k, int i)
+  {
+    long h = (k^(i*0xC2B2AE3D27D4EB4FL))*0xBF58476D1CE4E5B9L;
+    return (int)(h>>>60)<<2;
+  }
+
+  /**
+   * Adds a tree. <br>
+   * <br>
+   * @param source internal id of the source vertex
+   * @param epoch epoch of the arcs' costs
+   * @param skip true if the movement along one-way roads is restricted
+   * @param tree tree
+   */
+  public synchronized void put(int source, int epoch, boolean skip, Tree tree)
+  {
+    if (capacity>0)
+      trees.put(Long.valueOf(key(source, epoch, skip)), tree);
+  }
+
+  /**
+   * Gets the key of a tree. <br>
+   * <br>
+   * @param source internal id of the source vertex
+   * @param epoch epoch of the arcs' costs
+   * @param skip true if the movement along one-way roads is restricted
+   * @return key
+   */
+  protected static long key(int source, int epoch, boolean skip)
+  {
+    return ((long)epoch<<33) | ((skip) ? 1L<<32 : 0L) | source;
+  }
+
+  /**
+   * Shortest-path tree of a source vertex
+   */
+  public static class Tree
+  {
+    /**
+     * Minimum costs of the vertices, Double.MAX_VALUE for unreachable vertices
+     */
+    protected double[] dist;
+
+    /**
+     * Predecessors of the vertices, -1 for the source and unreachable vertices
+     */
+    protected int[] pred;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param dist minimum costs of the vertices
+     * @param pred predecessors of the vertices
+     */
+    public Tree(double[] dist, int[] pred)
+    {
+      this.dist = dist;
+      this.pred = pred;
+    }
+
+    /**
+     * Gets the minimum cost of a vertex. <br>
+     * <br>
+     * @param v internal id of the vertex
+     * @return minimum cost, Double.MAX_VALUE if the vertex is unreachable
+     */
+    public double getCost(int v)
+    {
+      return dist[v];
+    }
+
+    /**
+     * Gets the predecessor of a vertex. <br>
+     * <br>
+     * @param v internal id of the vertex
+     * @return internal id of the predecessor, -1 for the source and unreachable vertices
+     */
+    public int getPredecessor(int v)
+    {
+      return pred[v];
+    }
+
+    /**
+     * Gets the path to a vertex. <br>
+     * <br>
+     * @param d internal id of the destination vertex
+     * @return internal ids of the path's vertices from the source to d,
+     * null if d isn't reachable or is the source
+     */
+    public int[] getPath(int d)
+    {
+      if (pred[d]==-1)
+        return null;
+
+      int n = 0;
+      for (int i=d; i!=-1; i=pred[i])
+        n++;
+
+      int[] res = new int[n];
+      for (int i=d; i!=-1; i=pred[i])
+        res[--n] = i;
+
+      return res;
+    }
+  }
+}
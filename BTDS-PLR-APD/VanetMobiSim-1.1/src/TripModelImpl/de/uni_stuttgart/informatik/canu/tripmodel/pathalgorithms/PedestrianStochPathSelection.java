@@ -21,16 +21,33 @@ import de.uni_stuttgart.informatik.canu.mobisim.notifications.*;
 public class PedestrianStochPathSelection implements PathSearchingAlgorithm
 {
   /**
-   * Edge selection probabilities for the given trip source and destination
-   * Key: "vs_id:vd_id", Value: array of edges selection probabilities 
+   * Memory the estimated probabilities may use (in bytes)
    */
-  protected java.util.Map edgeProbabilities = new java.util.HashMap();
+  public static final long ESTIMATES_MEMORY = 32L << 20;
 
   /**
-   * Shortest path distances to vertices from the given origin vertex
-   * Key: origin vertex, Value: array of distances 
+   * Maximum number of the kept estimates, 0 if not calculated yet
    */
-  protected java.util.Map shortestPathDistances = new java.util.HashMap();
+  protected int estimatesCapacity = 0;
+
+  /**
+   * Edge selection probabilities for the given trip source and destination,
+   * the least recently used ones are dropped first
+   * Key: TripKey, Value: Estimate
+   */
+  protected java.util.Map edgeProbabilities = new java.util.LinkedHashMap(16, 0.75f, true)
+  {
+    protected boolean removeEldestEntry(java.util.Map.Entry eldest)
+    {
+      return size()>estimatesCapacity;
+    }
+  };
+
+  /**
+   * Indicates that the shortest-path trees of the engine may be reused,
+   * false if the edge weights change with every trip
+   */
+  protected boolean reuseTrees = true;
   
   /**
    * Indicates that edge weights must be calculated based on estimated travel times 
@@ -61,7 +78,6 @@ public class PedestrianStochPathSelection implements PathSearchingAlgorithm
   {
     this.theta = theta;
     edgeProbabilities.clear();
-    shortestPathDistances.clear();    
   }
   
   /**
@@ -112,26 +128,39 @@ public class PedestrianStochPathSelection implements PathSearchingAlgorithm
     Vertex vs = graph.getClosestVertex(ps.getX(), ps.getY());
     Vertex vd = graph.getClosestVertex(pd.getX(), pd.getY());
 
-    Universe.getReference().sendNotification(new DebugNotification(this, Universe.getReference(),
-     "Getting a path from the vertex ("+vs.getX()+" "+vs.getY()+") to the vertex ("+vd.getX()+" "+vd.getY()+")"));
+    if (Universe.getReference().isDebugEnabled(DebugNotification.FINE))
+      Universe.getReference().sendNotification(new DebugNotification(this, Universe.getReference(), DebugNotification.FINE,
+       "Getting a path from the vertex ("+vs.getX()+" "+vs.getY()+") to the vertex ("+vd.getX()+" "+vd.getY()+")"));
 
     // get the typical movement speed for the node
-    Movement movement = (Movement)node.getExtension("Movement");
+    Movement movement = (Movement)node.getExtension(Movement.SLOT);
     float typicalSpeed = (movement.getMinSpeed() + movement.getMaxSpeed()) / 2 ;
     
     // get the estimated probabilities
-    double[] p = (double[])edgeProbabilities.get(vs.getID()+':'+vd.getID()+':'+typicalSpeed);
-    if (p==null)
+    TripKey key = new TripKey(vs.getInternalID(), vd.getInternalID(), flag, typicalSpeed);
+    Estimate estimate = (Estimate)edgeProbabilities.get(key);
+    if (estimate==null)
     {
-      // calculate edge weights if necessary
-      if (calculateWeights)
-        calculateEdgeWeights(spatialModel, typicalSpeed);
+      estimate = new Estimate(graph.getVertices().size());
+
+      // the weights are kept by the edges, which may be shared by
+      // the simulations of a batch
+      synchronized (graph)
+      {
+        // calculate edge weights if necessary
+        if (calculateWeights)
+          calculateEdgeWeights(spatialModel, typicalSpeed);
       
-      p = estimateEdgeSelectionProbabilities(spatialModel, vs, vd, flag);
-      edgeProbabilities.put(vs.getID()+':'+vd.getID()+':'+typicalSpeed, p);
+        estimate.p = estimateEdgeSelectionProbabilities(spatialModel, vs, vd, flag, estimate.dv);
+      }
+
+      if (estimatesCapacity==0)
+        estimatesCapacity = (int)Math.max(16, ESTIMATES_MEMORY/(8L*(estimate.p.length+estimate.dv.length)));
+      edgeProbabilities.put(key, estimate);
     }
 
-    double[] dv = (double[])shortestPathDistances.get(vs); 
+    double[] p = estimate.p;
+    double[] dv = estimate.dv;
     
     // result trip
     Trip trip = new Trip();
@@ -149,7 +178,7 @@ public class PedestrianStochPathSelection implements PathSearchingAlgorithm
     Vertex v = vd;
     while (v!=vs)
     {
-      double r = Universe.getReference().getRandom().nextDouble();
+      double r = node.getRandom().nextDouble();
 
       // randomly choose a neighbour connected with the incoming edge which has a non-zero selection probability
       Vertex vv = null;
@@ -181,8 +210,9 @@ public class PedestrianStochPathSelection implements PathSearchingAlgorithm
       if (vv==null)
       {
         // STOCH failed, try the original shortest-path algorithm
-        Universe.getReference().sendNotification(new DebugNotification(this, Universe.getReference(),
-           "STOCH failed to find a path from the vertex ("+vs.getX()+" "+vs.getY()+") to the vertex ("+vd.getX()+" "+vd.getY()+")"));
+        if (Universe.getReference().isDebugEnabled(DebugNotification.FINE))
+          Universe.getReference().sendNotification(new DebugNotification(this, Universe.getReference(), DebugNotification.FINE,
+             "STOCH failed to find a path from the vertex ("+vs.getX()+" "+vs.getY()+") to the vertex ("+vd.getX()+" "+vd.getY()+")"));
         return new Dijkstra().getPath(spatialModel, node, ps, pd, flag);
       }
 
@@ -213,18 +243,17 @@ public class PedestrianStochPathSelection implements PathSearchingAlgorithm
    * @param vs source vertex
    * @param vd destination vertex
    * @param flag path-searching flags
+   * @param dv result minimum costs from vs to the vertices
    * @return estimated selection probabilities
    */
-  protected double[] estimateEdgeSelectionProbabilities(SpatialModel spatialModel, Vertex vs, Vertex vd, int flag)
+  protected double[] estimateEdgeSelectionProbabilities(SpatialModel spatialModel, Vertex vs, Vertex vd, int flag, double[] dv)
   {
     Graph graph = spatialModel.getGraph();
 
     // estimate minimum costs from the trip origin to other graph vertices
-    double[] dv = new double[graph.getVertices().size()];
     int[] pv = new int[graph.getVertices().size()];
 
     applyDijkstra(spatialModel, vs, flag, dv, pv);
-    shortestPathDistances.put(vs, dv);
 
     // estimate initial edge costs 
     double[] a = new double [graph.getEdges().size()];
@@ -424,61 +453,92 @@ outer:
   {
     Graph graph = spatialModel.getGraph();
 
-    boolean known[] = new boolean[graph.getVertices().size()];
-
-    // init buffer
-    for (int i=0; i<graph.getVertices().size(); i++)
+    // edge weights are read on every search, they may change between trips
+    double[] weights = new double[graph.getEdges().size()];
+    for (int i=0; i<graph.getEdges().size(); i++)
     {
-      dv[i]=Double.MAX_VALUE;
-      pv[i]=-1;
+      Edge e = (Edge)graph.getEdges().get(i);
+      weights[e.getInternalID()] = e.getWeight();
     }
 
-    // currently selected vertex
-    dv[vs.getInternalID()] = 0;
+    ShortestPathEngine.getInstance(spatialModel).calculateCosts(spatialModel, vs, flag, weights, dv, pv, reuseTrees);
+  }
 
-    for (;;)
+  /**
+   * Key of the estimated probabilities of a trip
+   */
+  protected static class TripKey
+  {
+    /**
+     * Internal ids of the source and the destination vertices
+     */
+    int source, destination;
+
+    /**
+     * Path-searching flags
+     */
+    int flag;
+
+    /**
+     * Typical movement speed of the node
+     */
+    float speed;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param source internal id of the source vertex
+     * @param destination internal id of the destination vertex
+     * @param flag path-searching flags
+     * @param speed typical movement speed of the node
+     */
+    TripKey(int source, int destination, int flag, float speed)
     {
-      // choose unknown vertex with the smallest cost
-      double min_dv = Double.MAX_VALUE;
-      Vertex v = null;
-      for (int i=0; i<graph.getVertices().size(); i++)
-        if ( !known[i] && (dv[i]<min_dv) )
-        {
-          min_dv = dv[i];
-          v = (Vertex)graph.getVertices().get(i);
-        }
-
-      if (v==null)
-        break;
-
-      known[v.getInternalID()] = true;
+      this.source = source;
+      this.destination = destination;
+      this.flag = flag;
+      this.speed = speed;
+    }
 
-      // update costs of adjacent vertices
-      java.util.ArrayList vv = v.getNeighbours();
-      for (int i=0; i<vv.size(); i++)
-      {
-        Vertex w = (Vertex)vv.get(i);
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof TripKey))
+        return false;
 
-        // check if v-w edge is a one-way road
-        if ( ((flag & FLAG_REFLECT_DIRECTIONS)==1) && spatialModel.isMovementProhibited(v, w) )
-        {
-          // skip it
-          continue;
-        }
+      TripKey k = (TripKey)o;
+      return (source==k.source) && (destination==k.destination) &&
+             (flag==k.flag) && (Float.floatToIntBits(speed)==Float.floatToIntBits(k.speed));
+    }
 
-        if (!known[w.getInternalID()])
-        {
-           Edge e = (Edge)spatialModel.findEdge(v, w);
-           double weight = e.getWeight();
+    public int hashCode()
+    {
+      return ((source*31+destination)*31+flag)*31+Float.floatToIntBits(speed);
+    }
+  }
 
-          // update path cost if necessary
-          if (dv[v.getInternalID()]+weight<dv[w.getInternalID()])
-          {
-            dv[w.getInternalID()] = dv[v.getInternalID()]+weight;
-            pv[w.getInternalID()] = v.getInternalID();
-          }
-        }
-      }
+  /**
+   * Estimated probabilities of a trip
+   */
+  protected static class Estimate
+  {
+    /**
+     * Edge selection probabilities, per edge's internal id
+     */
+    double[] p;
+
+    /**
+     * Minimum costs from the source vertex, per vertex's internal id
+     */
+    double[] dv;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param vertices number of vertices
+     */
+    Estimate(int vertices)
+    {
+      dv = new double[vertices];
     }
-  }  
+  }
 }
\ No newline at end of file
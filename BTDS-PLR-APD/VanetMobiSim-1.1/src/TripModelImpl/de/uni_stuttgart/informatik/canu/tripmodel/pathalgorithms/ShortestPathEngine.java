@@ -0,0 +1,1233 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.Universe;
+import de.uni_stuttgart.informatik.canu.mobisim.extensions.Graph;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.Point;
+import de.uni_stuttgart.informatik.canu.tripmodel.core.*;
+
+/**
+ * This class searches shortest paths with a binary heap over a compact
+ * copy of the graph. <br>
+ * <br>
+ * The adjacency lists are stored in arrays indexed by the vertices'
+ * internal ids, in the order of the vertices' neighbours, together with
+ * the lengths of the arcs. Unlike a linear scan for the closest vertex,
+ * a search costs O(E log V) and stops as soon as the destination is
+ * reached. Vertices with equal costs are settled in the order of their
+ * internal ids, or in a random order, so the paths found are the same as
+ * the ones of the linear scan. <br>
+ * <br>
+ * Besides Dijkstra's algorithm, the engine searches single paths with A*,
+ * guided by the straight-line distance to the destination, and with a
+ * bidirectional Dijkstra search, which meets in the middle, and with a
+ * contraction hierarchy built at the first request
+ * (see {@link ContractionHierarchy}). These minimize either the length or
+ * the travel time at the roads' speed limits. <br>
+ * <br>
+ * The shortest-path trees searched by Dijkstra's algorithm are kept in a
+ * bounded cache (see {@link PathTreeCache}) and reused by the later
+ * searches from the same vertex with the same costs, whatever the
+ * algorithm. <br>
+ * <br>
+ * One instance is shared by all searches on a graph
+ * (see {@link #getInstance getInstance}), every thread searches with
+ * its own work arrays.
+ * @author Canu Research group
+ */
+public class ShortestPathEngine
+{
+  /**
+   * Metric of the paths' length (in meters)
+   */
+  public static final int DISTANCE = 0;
+
+  /**
+   * Metric of the travel time at the roads' speed limits (in ms)
+   */
+  public static final int TRAVEL_TIME = 1;
+
+  /**
+   * Speed on the roads without a speed limit (in meters/ms), 80e-3 m/ms
+   * is 288 km/h, the fallback of the motion models
+   */
+  public static final float DEFAULT_SPEED = 80e-3f;
+
+  /**
+   * Instances, per graph
+   */
+  private static final java.util.WeakHashMap instances = new java.util.WeakHashMap();
+
+  /**
+   * Number of vertices
+   */
+  protected int vertices;
+
+  /**
+   * Number of edges of the graph the instance is built for
+   */
+  protected int edges;
+
+  /**
+   * Index of the first arc of every vertex, the arcs of vertex i are
+   * first[i]..first[i+1]-1
+   */
+  protected int[] first;
+
+  /**
+   * Target vertices of the arcs
+   */
+  protected int[] target;
+
+  /**
+   * Lengths of the arcs (in meters)
+   */
+  protected double[] length;
+
+  /**
+   * Coordinates of the vertices
+   */
+  protected double[] x, y;
+
+  /**
+   * Travel times along the arcs at the speed limits (in ms)
+   * (null if not calculated yet)
+   */
+  protected double[] time;
+
+  /**
+   * Highest speed limit of the graph (in meters/ms)
+   */
+  protected double maxSpeed;
+
+  /**
+   * Index of the first incoming arc of every vertex, the incoming arcs of
+   * vertex i are reverseFirst[i]..reverseFirst[i+1]-1
+   * (null if not calculated yet)
+   */
+  protected int[] reverseFirst;
+
+  /**
+   * Source vertices of the incoming arcs
+   */
+  protected int[] reverseSource;
+
+  /**
+   * Indices of the incoming arcs in the arrays of the outgoing arcs
+   */
+  protected int[] reverseArc;
+
+  /**
+   * Internal ids of the arcs' edges, -1 if not found
+   * (null if not calculated yet)
+   */
+  protected int[] edge;
+
+  /**
+   * Flags to indicate that the movement along the arcs is prohibited
+   * (null if not calculated yet)
+   */
+  protected boolean[] prohibited;
+
+  /**
+   * Contraction hierarchies, per metric and path-searching flags
+   * (null if not built yet)
+   */
+  protected ContractionHierarchy[] hierarchies = new ContractionHierarchy[4];
+
+  /**
+   * Shortest-path trees searched so far
+   */
+  protected PathTreeCache trees;
+
+  /**
+   * Work arrays of the current thread
+   */
+  protected ThreadLocal workspace = new ThreadLocal();
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * @param graph graph
+   */
+  protected ShortestPathEngine(Graph graph)
+  {
+    java.util.ArrayList vv = graph.getVertices();
+    vertices = vv.size();
+    edges = graph.getEdges().size();
+
+    int arcs = 0;
+    for (int i=0; i<vertices; i++)
+      arcs += ((Vertex)vv.get(i)).getNeighbours().size();
+
+    first = new int[vertices+1];
+    target = new int[arcs];
+    length = new double[arcs];
+    x = new double[vertices];
+    y = new double[vertices];
+
+    int a = 0;
+    for (int i=0; i<vertices; i++)
+    {
+      Vertex v = (Vertex)vv.get(i);
+      first[v.getInternalID()] = a;
+      x[v.getInternalID()] = v.getX();
+      y[v.getInternalID()] = v.getY();
+
+      java.util.ArrayList neighbours = v.getNeighbours();
+      for (int j=0; j<neighbours.size(); j++)
+      {
+        Vertex w = (Vertex)neighbours.get(j);
+        target[a] = w.getInternalID();
+        length[a] = Math.sqrt( ((v.getX() - w.getX())
+                               * (v.getX() - w.getX()))
+                              + ((v.getY() - w.getY())
+                               * (v.getY() - w.getY())) );
+        a++;
+      }
+    }
+    first[vertices] = a;
+
+    trees = new PathTreeCache(vertices);
+  }
+
+  /**
+   * Gets the instance for the graph of a spatial model. <br>
+   * <br>
+   * The instance is built at the first request and rebuilt if
+   * vertices or edges are added to the graph, or after a
+   * {@link #reset reset}.
+   * @param spatialModel spatial model
+   * @return instance for the spatial model's graph
+   */
+  public static ShortestPathEngine getInstance(SpatialModel spatialModel)
+  {
+    Graph graph = spatialModel.getGraph();
+
+    synchronized (instances)
+    {
+      ShortestPathEngine res = (ShortestPathEngine)instances.get(graph);
+      if ( (res==null) || (res.vertices!=graph.getVertices().size()) ||
+           (res.edges!=graph.getEdges().size()) )
+      {
+        res = new ShortestPathEngine(graph);
+        instances.put(graph, res);
+      }
+
+      return res;
+    }
+  }
+
+  /**
+   * Discards the instance for the graph of a spatial model. <br>
+   * <br>
+   * The instance keeps the prohibited arcs, the speed limits and the
+   * shortest paths found so far. The method must be called when the
+   * directions or the speed limits of the roads change, the next request
+   * builds a new instance.
+   * @param spatialModel spatial model
+   */
+  public static void reset(SpatialModel spatialModel)
+  {
+    synchronized (instances)
+    {
+      instances.remove(spatialModel.getGraph());
+    }
+  }
+
+  /**
+   * Parses the name of a metric. <br>
+   * <br>
+   * @param name "distance" or "time"
+   * @return {@link #DISTANCE DISTANCE} or {@link #TRAVEL_TIME TRAVEL_TIME}
+   * @throws Exception Exception if the name is invalid
+   */
+  public static int parseMetric(String name) throws Exception
+  {
+    if (name.equals("distance"))
+      return DISTANCE;
+    if (name.equals("time"))
+      return TRAVEL_TIME;
+
+    throw new Exception("Invalid path metric: "+name);
+  }
+
+  /**
+   * Gets the flags to indicate that the movement along the arcs is prohibited. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @return flags, per arc
+   */
+  protected synchronized boolean[] getProhibited(SpatialModel spatialModel)
+  {
+    if (prohibited==null)
+    {
+      java.util.ArrayList vv = spatialModel.getGraph().getVertices();
+      boolean[] res = new boolean[target.length];
+      for (int i=0; i<vertices; i++)
+        for (int a=first[i]; a<first[i+1]; a++)
+          res[a] = spatialModel.isMovementProhibited((Vertex)vv.get(i), (Vertex)vv.get(target[a]));
+      prohibited = res;
+    }
+
+    return prohibited;
+  }
+
+  /**
+   * Gets the internal ids of the arcs' edges. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @return edges' internal ids, per arc
+   */
+  protected synchronized int[] getEdges(SpatialModel spatialModel)
+  {
+    if (edge==null)
+    {
+      java.util.ArrayList vv = spatialModel.getGraph().getVertices();
+      int[] res = new int[target.length];
+      for (int i=0; i<vertices; i++)
+        for (int a=first[i]; a<first[i+1]; a++)
+        {
+          Edge e = spatialModel.findEdge((Vertex)vv.get(i), (Vertex)vv.get(target[a]));
+          res[a] = (e!=null) ? e.getInternalID() : -1;
+        }
+      edge = res;
+    }
+
+    return edge;
+  }
+
+  /**
+   * Gets the travel times along the arcs. <br>
+   * <br>
+   * The speed limit of an arc is the one of its road in the spatial model,
+   * or {@link #DEFAULT_SPEED DEFAULT_SPEED}, as used by the motion models.
+   * @param spatialModel spatial model
+   * @return travel times (in ms), per arc
+   */
+  protected synchronized double[] getTimes(SpatialModel spatialModel)
+  {
+    if (time==null)
+    {
+      java.util.ArrayList vv = spatialModel.getGraph().getVertices();
+      double[] res = new double[target.length];
+      double max = 0.0;
+      for (int i=0; i<vertices; i++)
+        for (int a=first[i]; a<first[i+1]; a++)
+        {
+          float speed = DEFAULT_SPEED;
+
+          Edge e = spatialModel.findEdge((Vertex)vv.get(i), (Vertex)vv.get(target[a]));
+          SpatialModelElement road = (e!=null) ? spatialModel.mapEdgeToElement(e) : null;
+          if (road!=null)
+          {
+            String limit = (String)road.getAttributes().get("SP");
+            if (limit!=null)
+              speed = Float.parseFloat(limit)/1000.0f;
+          }
+
+          res[a] = length[a]/speed;
+          max = Math.max(max, speed);
+        }
+      maxSpeed = max;
+      time = res;
+    }
+
+    return time;
+  }
+
+  /**
+   * Builds the arrays of the incoming arcs. <br>
+   */
+  protected synchronized void buildReverseArcs()
+  {
+    if (reverseFirst!=null)
+      return;
+
+    int[] count = new int[vertices+1];
+    for (int a=0; a<target.length; a++)
+      count[target[a]+1]++;
+    for (int i=0; i<vertices; i++)
+      count[i+1] += count[i];
+
+    int[] source = new int[target.length];
+    int[] arc = new int[target.length];
+    int[] next = count.clone();
+    for (int i=0; i<vertices; i++)
+      for (int a=first[i]; a<first[i+1]; a++)
+      {
+        int r = next[target[a]]++;
+        source[r] = i;
+        arc[r] = a;
+      }
+
+    reverseSource = source;
+    reverseArc = arc;
+    reverseFirst = count;
+  }
+
+  /**
+   * Gets the cache of the shortest-path trees. <br>
+   * <br>
+   * @return cache of the trees searched on the graph
+   */
+  public PathTreeCache getTreeCache()
+  {
+    return trees;
+  }
+
+  /**
+   * Gets the shortest-path tree of a vertex, searching it if it isn't
+   * kept in the cache. <br>
+   * <br>
+   * @param s source vertex
+   * @param cost costs of the arcs
+   * @param skip flags of the arcs to be skipped, null if none
+   * @return shortest-path tree
+   */
+  protected PathTreeCache.Tree getTree(int s, double[] cost, boolean[] skip)
+  {
+    int epoch = getEpoch(cost);
+    PathTreeCache.Tree res = trees.get(s, epoch, skip!=null);
+    addTreeLookup(res!=null);
+    if (res==null)
+    {
+      res = searchTree(s, cost, skip);
+      if (trees.admit(s, epoch, skip!=null))
+        trees.put(s, epoch, skip!=null, res);
+    }
+
+    return res;
+  }
+
+  /**
+   * Gets the epoch of the arcs' costs in the cache of the trees. <br>
+   * <br>
+   * @param cost costs of the arcs
+   * @return epoch
+   */
+  protected int getEpoch(double[] cost)
+  {
+    int res = trees.findEpoch(cost);
+    if (res!=-1)
+      return res;
+
+    // the costs of the metrics never change and are kept by reference,
+    // the caller may reuse other arrays, so they are copied
+    return trees.getEpoch((cost==length)||(cost==time) ? cost : cost.clone());
+  }
+
+  /**
+   * Searches the shortest-path tree of a vertex. <br>
+   * <br>
+   * @param s source vertex
+   * @param cost costs of the arcs
+   * @param skip flags of the arcs to be skipped, null if none
+   * @return shortest-path tree
+   */
+  protected PathTreeCache.Tree searchTree(int s, double[] cost, boolean[] skip)
+  {
+    Workspace ws = getWorkspace();
+    ws.search(this, s, -1, cost, skip, null, 0.0);
+
+    double[] dv = new double[vertices];
+    int[] pv = new int[vertices];
+    for (int i=0; i<vertices; i++)
+    {
+      if (ws.stamp[i]==ws.current)
+      {
+        dv[i] = ws.dist[i];
+        pv[i] = ws.pred[i];
+      }
+      else
+      {
+        dv[i] = Double.MAX_VALUE;
+        pv[i] = -1;
+      }
+    }
+
+    return new PathTreeCache.Tree(dv, pv);
+  }
+
+  /**
+   * Finds the shortest-path tree of a vertex in the cache. <br>
+   * <br>
+   * @param s source vertex
+   * @param cost costs of the arcs
+   * @param skip flags of the arcs to be skipped, null if none
+   * @return shortest-path tree, null if not kept
+   */
+  protected PathTreeCache.Tree findTree(int s, double[] cost, boolean[] skip)
+  {
+    // no tree can be kept for unknown costs
+    int epoch = trees.findEpoch(cost);
+    if (epoch==-1)
+      return null;
+
+    PathTreeCache.Tree res = trees.get(s, epoch, skip!=null);
+    addTreeLookup(res!=null);
+
+    return res;
+  }
+
+  /**
+   * Records a lookup of a tree in the live counters of the simulation. <br>
+   * <br>
+   * @param hit true, if the tree was found
+   */
+  protected void addTreeLookup(boolean hit)
+  {
+    Universe u = Universe.getReference();
+    if ((u!=null)&&(u.getMonitor()!=null))
+      u.getMonitor().addPathTreeLookup(hit);
+  }
+
+  /**
+   * Gets the work arrays of the current thread. <br>
+   * <br>
+   * @return work arrays
+   */
+  protected Workspace getWorkspace()
+  {
+    return getWorkspaces()[0];
+  }
+
+  /**
+   * Gets the work arrays of the current thread for both directions of a search. <br>
+   * <br>
+   * @return work arrays of the forward and the backward search
+   */
+  protected Workspace[] getWorkspaces()
+  {
+    Workspace[] res = (Workspace[])workspace.get();
+    if (res==null)
+    {
+      res = new Workspace[] {new Workspace(vertices), new Workspace(vertices)};
+      workspace.set(res);
+    }
+
+    return res;
+  }
+
+  /**
+   * Gets the costs of the arcs for a metric. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @param metric {@link #DISTANCE DISTANCE} or {@link #TRAVEL_TIME TRAVEL_TIME}
+   * @return costs, per arc
+   */
+  protected double[] getCosts(SpatialModel spatialModel, int metric)
+  {
+    return (metric==TRAVEL_TIME) ? getTimes(spatialModel) : length;
+  }
+
+  /**
+   * Gets the flags of the arcs to be skipped. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @param flag path-searching flags
+   * @return flags, per arc, null if no arc is to be skipped
+   */
+  protected boolean[] getSkipped(SpatialModel spatialModel, int flag)
+  {
+    return ((flag & PathSearchingAlgorithm.FLAG_REFLECT_DIRECTIONS)!=0) ?
+      getProhibited(spatialModel) : null;
+  }
+
+  /**
+   * Searches the shortest path between two vertices. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @param vs source vertex
+   * @param vd destination vertex
+   * @param flag path-searching flags
+   * @param rand random number generator choosing among the vertices with
+   * equal costs, null to choose in the order of the internal ids
+   * @return internal ids of the path's vertices from vs to vd,
+   * null if the path doesn't exist or vs equals vd
+   */
+  public int[] findPath(SpatialModel spatialModel, Vertex vs, Vertex vd, int flag, java.util.Random rand)
+  {
+    int s = vs.getInternalID();
+    int d = vd.getInternalID();
+    boolean[] skip = getSkipped(spatialModel, flag);
+
+    // a whole tree gives the same path as a search stopped at vd,
+    // unless the ties are broken randomly
+    if (rand==null)
+    {
+      int epoch = getEpoch(length);
+      PathTreeCache.Tree tree = trees.get(s, epoch, skip!=null);
+      addTreeLookup(tree!=null);
+      if ( (tree==null) && trees.admit(s, epoch, skip!=null) )
+      {
+        tree = searchTree(s, length, skip);
+        trees.put(s, epoch, skip!=null, tree);
+      }
+      if (tree!=null)
+        return tree.getPath(d);
+    }
+
+    Workspace ws = getWorkspace();
+    ws.search(this, s, d, length, skip, rand, 0.0);
+
+    return ws.getPath(d);
+  }
+
+  /**
+   * Searches the shortest path between two vertices with A*. <br>
+   * <br>
+   * The search is guided by the straight-line distance to the destination,
+   * divided by the highest speed limit for the travel time. Both never
+   * overestimate the remaining cost, so the paths found are shortest.
+   * @param spatialModel spatial model
+   * @param vs source vertex
+   * @param vd destination vertex
+   * @param flag path-searching flags
+   * @param metric {@link #DISTANCE DISTANCE} or {@link #TRAVEL_TIME TRAVEL_TIME}
+   * @return internal ids of the path's vertices from vs to vd,
+   * null if the path doesn't exist or vs equals vd
+   */
+  public int[] findPathAStar(SpatialModel spatialModel, Vertex vs, Vertex vd, int flag, int metric)
+  {
+    double[] cost = getCosts(spatialModel, metric);
+    double scale = (metric!=TRAVEL_TIME) ? 1.0 : (maxSpeed>0.0) ? 1.0/maxSpeed : 0.0;
+    boolean[] skip = getSkipped(spatialModel, flag);
+
+    int d = vd.getInternalID();
+    PathTreeCache.Tree tree = findTree(vs.getInternalID(), cost, skip);
+    if (tree!=null)
+      return tree.getPath(d);
+
+    Workspace ws = getWorkspace();
+    ws.search(this, vs.getInternalID(), d, cost, skip, null, scale);
+
+    return ws.getPath(d);
+  }
+
+  /**
+   * Searches the shortest path between two vertices with a bidirectional
+   * Dijkstra search. <br>
+   * <br>
+   * The search grows from both vertices, always on the side with fewer
+   * vertices waiting, and stops when no shorter path than the best
+   * connection found so far can exist.
+   * @param spatialModel spatial model
+   * @param vs source vertex
+   * @param vd destination vertex
+   * @param flag path-searching flags
+   * @param metric {@link #DISTANCE DISTANCE} or {@link #TRAVEL_TIME TRAVEL_TIME}
+   * @return internal ids of the path's vertices from vs to vd,
+   * null if the path doesn't exist or vs equals vd
+   */
+  public int[] findPathBidirectional(SpatialModel spatialModel, Vertex vs, Vertex vd, int flag, int metric)
+  {
+    double[] cost = getCosts(spatialModel, metric);
+    boolean[] skip = getSkipped(spatialModel, flag);
+    buildReverseArcs();
+
+    int s = vs.getInternalID();
+    int d = vd.getInternalID();
+    if (s==d)
+      return null;
+
+    PathTreeCache.Tree tree = findTree(s, cost, skip);
+    if (tree!=null)
+      return tree.getPath(d);
+
+    Workspace[] ws = getWorkspaces();
+    Workspace forward = ws[0];
+    Workspace backward = ws[1];
+    forward.start(s, -1, null, null, 0.0);
+    backward.start(d, -1, null, null, 0.0);
+
+    while ( (forward.size>0) && (backward.size>0) )
+    {
+      double best = Math.min(forward.best, backward.best);
+      if (forward.key[forward.heap[0]]+backward.key[backward.heap[0]]>=best)
+        break;
+
+      if (forward.size<=backward.size)
+        forward.relax(forward.poll(), first, target, null, cost, skip, backward);
+      else
+        backward.relax(backward.poll(), reverseFirst, reverseSource, reverseArc, cost, skip, forward);
+    }
+
+    // the best connection joins the forward and the backward search trees
+    int from, to;
+    if (forward.best<=backward.best)
+    {
+      from = forward.meetFrom;
+      to = forward.meetTo;
+    }
+    else
+    {
+      from = backward.meetTo;
+      to = backward.meetFrom;
+    }
+    if (from==-1)
+      return null;
+
+    int n = 0;
+    for (int i=from; i!=-1; i=forward.pred[i])
+      n++;
+    for (int i=to; i!=-1; i=backward.pred[i])
+      n++;
+
+    int[] res = new int[n];
+    int k = 0;
+    for (int i=from; i!=-1; i=forward.pred[i])
+      res[k++] = i;
+    for (int i=0, j=k-1; i<j; i++, j--)
+    {
+      int t = res[i];
+      res[i] = res[j];
+      res[j] = t;
+    }
+    for (int i=to; i!=-1; i=backward.pred[i])
+      res[k++] = i;
+
+    return res;
+  }
+
+  /**
+   * Gets the contraction hierarchy of the graph. <br>
+   * <br>
+   * The hierarchy is built at the first request for the metric and the
+   * flags, and kept as long as the graph doesn't change.
+   * @param spatialModel spatial model
+   * @param flag path-searching flags
+   * @param metric {@link #DISTANCE DISTANCE} or {@link #TRAVEL_TIME TRAVEL_TIME}
+   * @return contraction hierarchy
+   */
+  public synchronized ContractionHierarchy getHierarchy(SpatialModel spatialModel, int flag, int metric)
+  {
+    boolean[] skip = getSkipped(spatialModel, flag);
+    int i = 2*metric+((skip!=null) ? 1 : 0);
+    if (hierarchies[i]==null)
+      hierarchies[i] = new ContractionHierarchy(this, getCosts(spatialModel, metric), skip);
+
+    return hierarchies[i];
+  }
+
+  /**
+   * Searches the shortest path between two vertices with the contraction
+   * hierarchy of the graph. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @param vs source vertex
+   * @param vd destination vertex
+   * @param flag path-searching flags
+   * @param metric {@link #DISTANCE DISTANCE} or {@link #TRAVEL_TIME TRAVEL_TIME}
+   * @return internal ids of the path's vertices from vs to vd,
+   * null if the path doesn't exist or vs equals vd
+   */
+  public int[] findPathHierarchy(SpatialModel spatialModel, Vertex vs, Vertex vd, int flag, int metric)
+  {
+    PathTreeCache.Tree tree = findTree(vs.getInternalID(), getCosts(spatialModel, metric), getSkipped(spatialModel, flag));
+    if (tree!=null)
+      return tree.getPath(vd.getInternalID());
+
+    ContractionHierarchy ch = getHierarchy(spatialModel, flag, metric);
+
+    return ch.findPath(getWorkspaces(), vs.getInternalID(), vd.getInternalID());
+  }
+
+  /**
+   * Calculates minimum costs from a vertex to all vertices of the graph. <br>
+   * <br>
+   * The tree is reused from the cache if it was searched before with the
+   * same weights.
+   * @param spatialModel spatial model
+   * @param vs source vertex
+   * @param flag path-searching flags
+   * @param weights edges' weights, per edge's internal id
+   * @param dv result costs, Double.MAX_VALUE for unreachable vertices
+   * @param pv result predecessors, -1 for vs and unreachable vertices
+   */
+  public void calculateCosts(SpatialModel spatialModel, Vertex vs, int flag, double[] weights, double[] dv, int[] pv)
+  {
+    calculateCosts(spatialModel, vs, flag, weights, dv, pv, true);
+  }
+
+  /**
+   * Calculates minimum costs from a vertex to all vertices of the graph. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @param vs source vertex
+   * @param flag path-searching flags
+   * @param weights edges' weights, per edge's internal id
+   * @param dv result costs, Double.MAX_VALUE for unreachable vertices
+   * @param pv result predecessors, -1 for vs and unreachable vertices
+   * @param reuse true to reuse the trees of the cache, false if the
+   * weights change with every search
+   */
+  public void calculateCosts(SpatialModel spatialModel, Vertex vs, int flag, double[] weights, double[] dv, int[] pv,
+    boolean reuse)
+  {
+    boolean[] skip = getSkipped(spatialModel, flag);
+
+    int[] e = getEdges(spatialModel);
+    Workspace ws = getWorkspace();
+    double[] cost = ws.arcCosts(target.length);
+    for (int a=0; a<e.length; a++)
+      cost[a] = weights[e[a]];
+
+    if (reuse)
+    {
+      PathTreeCache.Tree tree = getTree(vs.getInternalID(), cost, skip);
+      System.arraycopy(tree.dist, 0, dv, 0, vertices);
+      System.arraycopy(tree.pred, 0, pv, 0, vertices);
+      return;
+    }
+
+    ws.search(this, vs.getInternalID(), -1, cost, skip, null, 0.0);
+    for (int i=0; i<vertices; i++)
+    {
+      if (ws.stamp[i]==ws.current)
+      {
+        dv[i] = ws.dist[i];
+        pv[i] = ws.pred[i];
+      }
+      else
+      {
+        dv[i] = Double.MAX_VALUE;
+        pv[i] = -1;
+      }
+    }
+  }
+
+  /**
+   * Creates a trip along a path. <br>
+   * <br>
+   * @param graph graph
+   * @param path internal ids of the path's vertices
+   * @param vs source vertex
+   * @param vd destination vertex
+   * @param ps source point
+   * @param pd destination point
+   * @return trip from ps to pd
+   */
+  public static Trip createTrip(Graph graph, int[] path, Vertex vs, Vertex vd, Point ps, Point pd)
+  {
+    Trip trip = new Trip();
+    java.util.ArrayList trip_points = trip.getPath();
+
+    // add ps-vs if necessary
+    Vertex ps_v = graph.getVertex(ps.getX(), ps.getY());
+    if (ps_v!=vs)
+      trip_points.add(ps);
+
+    for (int i=0; i<path.length; i++)
+    {
+      Vertex v = (Vertex)graph.getVertices().get(path[i]);
+
+      Point p = new Point(v.getX(), v.getY());
+      if ( (trip_points.size()==0) ||
+           (!p.equals((Point)trip_points.get(trip_points.size()-1))) )
+        trip_points.add(p);
+    }
+
+    // add vd-pd if necessary
+    Vertex pd_v = graph.getVertex(pd.getX(), pd.getY());
+    if (pd_v!=vd)
+      trip_points.add(pd);
+
+    return trip;
+  }
+
+  /**
+   * Work arrays of a thread
+   */
+  protected static class Workspace
+  {
+    /**
+     * Number of the current search
+     */
+    int current = 0;
+
+    /**
+     * Numbers of the searches the vertices were reached by
+     */
+    int[] stamp;
+
+    /**
+     * Costs of the vertices
+     */
+    double[] dist;
+
+    /**
+     * Priorities of the vertices, the costs plus the estimated remaining costs
+     */
+    double[] key;
+
+    /**
+     * Predecessors of the vertices, -1 if none
+     */
+    int[] pred;
+
+    /**
+     * Random priorities of the vertices with equal costs
+     */
+    int[] tie;
+
+    /**
+     * Positions of the vertices in the heap, -1 if settled
+     */
+    int[] pos;
+
+    /**
+     * Binary heap of the reached vertices
+     */
+    int[] heap;
+
+    /**
+     * Number of the vertices in the heap
+     */
+    int size;
+
+    /**
+     * Random number generator breaking the ties, null if none
+     */
+    java.util.Random rand;
+
+    /**
+     * Coordinates of the destination guiding the search
+     */
+    double destX, destY;
+
+    /**
+     * Ratio of the estimated remaining cost to the straight-line distance,
+     * 0 if the search is not guided
+     */
+    double scale;
+
+    /**
+     * Coordinates of the vertices
+     */
+    double[] x, y;
+
+    /**
+     * Cost of the best connection to the opposite search found so far
+     */
+    double best;
+
+    /**
+     * Vertices of the best connection to the opposite search,
+     * -1 if none
+     */
+    int meetFrom, meetTo;
+
+    /**
+     * Costs of the arcs of a weighted search
+     */
+    double[] costs;
+
+    /**
+     * Constructor. <br>
+     * <br>
+     * @param n number of vertices
+     */
+    Workspace(int n)
+    {
+      stamp = new int[n];
+      dist = new double[n];
+      key = new double[n];
+      pred = new int[n];
+      tie = new int[n];
+      pos = new int[n];
+      heap = new int[n];
+    }
+
+    /**
+     * Gets the array for the costs of the arcs. <br>
+     * <br>
+     * @param n number of arcs
+     * @return array of the costs
+     */
+    double[] arcCosts(int n)
+    {
+      if ((costs==null)||(costs.length!=n))
+        costs = new double[n];
+
+      return costs;
+    }
+
+    /**
+     * Starts a search. <br>
+     * <br>
+     * @param source source vertex
+     * @param dest vertex guiding the search, -1 if none
+     * @param g graph, if the search is guided
+     * @param rand random number generator breaking the ties, null if none
+     * @param scale ratio of the estimated remaining cost to the straight-line distance
+     */
+    void start(int source, int dest, ShortestPathEngine g, java.util.Random rand, double scale)
+    {
+      this.rand = rand;
+      if (++current==0)
+      {
+        java.util.Arrays.fill(stamp, 0);
+        current = 1;
+      }
+      size = 0;
+      best = Double.MAX_VALUE;
+      meetFrom = -1;
+      meetTo = -1;
+
+      this.scale = (dest!=-1) ? scale : 0.0;
+      if (this.scale!=0.0)
+      {
+        x = g.x;
+        y = g.y;
+        destX = x[dest];
+        destY = y[dest];
+      }
+
+      reach(source, 0.0, -1);
+    }
+
+    /**
+     * Searches the shortest paths from a vertex. <br>
+     * <br>
+     * @param g graph
+     * @param source source vertex
+     * @param dest destination vertex, -1 to reach all vertices
+     * @param cost costs of the arcs
+     * @param skip flags of the arcs to be skipped, null if none
+     * @param rand random number generator breaking the ties, null if none
+     * @param scale ratio of the estimated remaining cost to the straight-line
+     * distance to the destination, 0 for Dijkstra's algorithm
+     */
+    void search(ShortestPathEngine g, int source, int dest, double[] cost, boolean[] skip,
+      java.util.Random rand, double scale)
+    {
+      start(source, dest, g, rand, scale);
+      while (size>0)
+      {
+        int v = poll();
+        if (v==dest)
+          break;
+
+        relax(v, g.first, g.target, null, cost, skip, null);
+      }
+    }
+
+    /**
+     * Updates the costs of the vertices adjacent to a settled vertex. <br>
+     * <br>
+     * @param v settled vertex
+     * @param first index of the first arc of every vertex
+     * @param target adjacent vertices of the arcs
+     * @param arc indices of the arcs' costs and flags, null if the same as the arcs' indices
+     * @param cost costs of the arcs
+     * @param skip flags of the arcs to be skipped, null if none
+     * @param opposite search from the opposite direction, null if none
+     */
+    void relax(int v, int[] first, int[] target, int[] arc, double[] cost, boolean[] skip,
+      Workspace opposite)
+    {
+      double dv = dist[v];
+      for (int i=first[v]; i<first[v+1]; i++)
+      {
+        int a = (arc!=null) ? arc[i] : i;
+
+        // check if v-w edge is a one-way road
+        if ((skip!=null)&&skip[a])
+          continue;
+
+        int w = target[i];
+        double d = dv+cost[a];
+        update(w, d, v);
+
+        // check if the opposite search is met
+        if ( (opposite!=null) && (opposite.stamp[w]==opposite.current) &&
+             (d+opposite.dist[w]<best) )
+        {
+          best = d+opposite.dist[w];
+          meetFrom = v;
+          meetTo = w;
+        }
+      }
+    }
+
+    /**
+     * Offers a new path to a vertex. <br>
+     * <br>
+     * @param w vertex
+     * @param d cost of the path
+     * @param p predecessor on the path
+     */
+    void update(int w, double d, int p)
+    {
+      if (stamp[w]!=current)
+      {
+        if (d<Double.MAX_VALUE)
+          reach(w, d, p);
+      }
+      else
+      if ( (pos[w]>=0) && (d<dist[w]) )
+      {
+        // update path cost
+        dist[w] = d;
+        key[w] = d+estimate(w);
+        pred[w] = p;
+        up(pos[w]);
+      }
+    }
+
+    /**
+     * Gets the path to a vertex found by the last search. <br>
+     * <br>
+     * @param d destination vertex
+     * @return vertices of the path from the source to d,
+     * null if d isn't reached or is the source
+     */
+    int[] getPath(int d)
+    {
+      if ((stamp[d]!=current)||(pred[d]==-1))
+        return null;
+
+      int n = 0;
+      for (int i=d; i!=-1; i=pred[i])
+        n++;
+
+      int[] res = new int[n];
+      for (int i=d; i!=-1; i=pred[i])
+        res[--n] = i;
+
+      return res;
+    }
+
+    /**
+     * Adds a vertex reached for the first time. <br>
+     * <br>
+     * @param v vertex
+     * @param d cost
+     * @param p predecessor
+     */
+    void reach(int v, double d, int p)
+    {
+      stamp[v] = current;
+      dist[v] = d;
+      key[v] = d+estimate(v);
+      pred[v] = p;
+      if (rand!=null)
+        tie[v] = rand.nextInt();
+      heap[size] = v;
+      pos[v] = size;
+      up(size++);
+    }
+
+    /**
+     * Estimates the remaining cost from a vertex. <br>
+     * <br>
+     * @param v vertex
+     * @return estimated cost to the destination, 0 if the search is not guided
+     */
+    double estimate(int v)
+    {
+      if (scale==0.0)
+        return 0.0;
+
+      return scale*Math.sqrt((x[v]-destX)*(x[v]-destX)+(y[v]-destY)*(y[v]-destY));
+    }
+
+    /**
+     * Removes the vertex with the smallest priority from the heap. <br>
+     * <br>
+     * @return settled vertex
+     */
+    int poll()
+    {
+      int res = heap[0];
+      pos[res] = -1;
+
+      size--;
+      if (size>0)
+      {
+        heap[0] = heap[size];
+        pos[heap[0]] = 0;
+        down(0);
+      }
+
+      return res;
+    }
+
+    /**
+     * Checks if a vertex precedes another one. <br>
+     * <br>
+     * @param v first vertex
+     * @param w second vertex
+     * @return true, if v is settled before w
+     */
+    boolean less(int v, int w)
+    {
+      if (key[v]!=key[w])
+        return key[v]<key[w];
+      if ((rand!=null)&&(tie[v]!=tie[w]))
+        return tie[v]<tie[w];
+
+      return v<w;
+    }
+
+    /**
+     * Moves an entry of the heap towards the root. <br>
+     * <br>
+     * @param i entry's position
+     */
+    void up(int i)
+    {
+      int v = heap[i];
+      while (i>0)
+      {
+        int parent = (i-1)>>1;
+        int p = heap[parent];
+        if (!less(v, p))
+          break;
+
+        heap[i] = p;
+        pos[p] = i;
+        i = parent;
+      }
+      heap[i] = v;
+      pos[v] = i;
+    }
+
+    /**
+     * Moves an entry of the heap towards the leaves. <br>
+     * <br>
+     * @param i entry's position
+     */
+    void down(int i)
+    {
+      int v = heap[i];
+      for (;;)
+      {
+        int child = 2*i+1;
+        if (child>=size)
+          break;
+        if ( (child+1<size) && less(heap[child+1], heap[child]) )
+          child++;
+        if (!less(heap[child], v))
+          break;
+
+        heap[i] = heap[child];
+        pos[heap[i]] = i;
+        i = child;
+      }
+      heap[i] = v;
+      pos[v] = i;
+    }
+  }
+}
@@ -26,6 +26,17 @@ public class SpeedPathSelection extends PedestrianStochPathSelection
   public void setSpeedWeight(float sw) {
     this.speedWeight = sw;
   }
+
+  /**
+   * Constructor. <br>
+   * <br>
+   * The edge weights are drawn anew for every trip, so the shortest-path
+   * trees are not reused.
+   */
+  public SpeedPathSelection()
+  {
+    reuseTrees = false;
+  }
 	
   /**
    * Calculates weights for edges of the spatial model graph. <br>
@@ -77,7 +88,6 @@ public class SpeedPathSelection extends PedestrianStochPathSelection
     // always recalculate link weights
     setCalculateWeights(true);
     // clear previous results
-    shortestPathDistances.clear();
     edgeProbabilities.clear();
     
     // get a path
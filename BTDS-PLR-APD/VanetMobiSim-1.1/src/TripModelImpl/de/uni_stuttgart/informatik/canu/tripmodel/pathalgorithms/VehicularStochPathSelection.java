@@ -17,6 +17,17 @@ import de.uni_stuttgart.informatik.canu.uomm.IntelligentDriverMotion;
  */
 public class VehicularStochPathSelection extends PedestrianStochPathSelection
 {
+  /**
+   * Constructor. <br>
+   * <br>
+   * The edge weights follow the current traffic, so the shortest-path
+   * trees are not reused.
+   */
+  public VehicularStochPathSelection()
+  {
+    reuseTrees = false;
+  }
+
   /**
    * Calculates weights for edges of the spatial model graph. <br>
    * <br>
@@ -54,7 +65,7 @@ public class VehicularStochPathSelection extends PedestrianStochPathSelection
         Vertex vs = null;
         Vertex vd = null;
 
-        Movement m = (Movement)node.getExtension("Movement");
+        Movement m = (Movement)node.getExtension(Movement.SLOT);
         if (m instanceof FluidTrafficMotion)
         {
           FluidTrafficMotion mf = (FluidTrafficMotion)m;
@@ -111,7 +122,6 @@ public class VehicularStochPathSelection extends PedestrianStochPathSelection
     // always recalculate link weights
     setCalculateWeights(true);
     // clear previous results
-    shortestPathDistances.clear();
     edgeProbabilities.clear();
     
     // get a path
@@ -27,6 +27,11 @@ import de.uni_stuttgart.informatik.canu.senv.core.*;
  */
 public class ConstantSpeedMotion extends UserOrientedMovement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Flag to indicate that a random stay duration must be chosen at the beginning of the simulation
    */
@@ -36,6 +41,11 @@ public class ConstantSpeedMotion extends UserOrientedMovement
    * Current stay duration at destination (ms)
    */
   protected int stay = 0;           // in ms
+
+  /**
+   * Timesteps of the stay skipped by the event scheduler
+   */
+  protected int skippedStaySteps = 0;
   
   /**
    * Minimal pause duration at a street crossing (ms) 
@@ -47,13 +57,6 @@ public class ConstantSpeedMotion extends UserOrientedMovement
    */
   protected int maxPauseAtCrossing = 0; //in ms
   
-  /**
-   * Current pausings at crossings
-   * Key: SpatialModelElement corresponding to junction
-   * Value: Long representing time in ms when the pause elapses
-   */
-  protected static java.util.HashMap currentPausesAtCrossings = new java.util.HashMap();
-
   /**
    * Current speed (in meters/ms)
    */
@@ -91,6 +94,20 @@ public class ConstantSpeedMotion extends UserOrientedMovement
     return "Constant Speed Motion Movement Behavior";
   }
 
+  /**
+   * Creates a copy of the module for another object. <br>
+   * <br>
+   * @param owner owner of the copy
+   * @return copy of the module
+   */
+  public ExtensionModule copy(ExtendableObject owner)
+  {
+    ConstantSpeedMotion res = (ConstantSpeedMotion)copyModule(owner);
+    res.trip = new Trip();
+
+    return res;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -121,18 +138,21 @@ public class ConstantSpeedMotion extends UserOrientedMovement
 
     trip = tripGenerator.genTrip(node);
 
-    u.sendNotification(new DebugNotification(this, u, "New trip generated for "+node.getID()+":"));
-    for (int i=0; i<trip.getPath().size(); i++)
+    if (u.isDebugEnabled(DebugNotification.FINE))
     {
-      Point p = (Point)trip.getPath().get(i);
-      u.sendNotification(new DebugNotification(this, u,
-        ""+p.getX()+" "+p.getY()));
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "New trip generated for "+node.getID()+":"));
+      for (int i=0; i<trip.getPath().size(); i++)
+      {
+        Point p = (Point)trip.getPath().get(i);
+        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+          ""+p.getX()+" "+p.getY()));
+      }
     }
     
     // delete the current node position from the path
     trip.getPath().remove(0);
 
-    speed=minSpeed + (maxSpeed-minSpeed)*u.getRandom().nextFloat();
+    speed=minSpeed + (maxSpeed-minSpeed)*getRandom().nextFloat();
   }
 
   /**
@@ -155,8 +175,9 @@ public class ConstantSpeedMotion extends UserOrientedMovement
     movement = owner.getPosition().getNormalizedDirectionVector(destination).
       mult(speed*u.getStepDuration());
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000f));
   }
 
   /**
@@ -172,13 +193,14 @@ public class ConstantSpeedMotion extends UserOrientedMovement
       // wait at destination
       stay = tripGenerator.chooseStayDuration(owner);
 
-      u.sendNotification(new DestinationReachedNotification(this, u,
-        owner.getPosition(), stay/1000.0f));
+      if (u.hasNotificationListeners(DestinationReachedNotification.class))
+        u.sendNotification(new DestinationReachedNotification(this, u,
+          owner.getPosition(), stay/1000.0f));
     }
     else
     {
       // check if a street crossing
-      SpatialModel spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+      SpatialModel spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
       if (spatialModel!=null)
       {
         Vertex v = spatialModel.getGraph().getVertex(owner.getPosition().getX(), owner.getPosition().getY());
@@ -186,16 +208,16 @@ public class ConstantSpeedMotion extends UserOrientedMovement
         if (element!=null)
         {
           // check current pause at the crossing
-          Long pauseAsLong = (Long)currentPausesAtCrossings.get(element);
+          Long pauseAsLong = spatialModel.getPauseAtCrossing(element);
           if (pauseAsLong!=null)
           {
             int pause = (int)(pauseAsLong.longValue()-u.getTime());
             if (pause<0)
             {
               // the value is obsolete, choose a new one
-              currentPausesAtCrossings.remove(element);
+              spatialModel.removePauseAtCrossing(element);
               // initiate a pause at the street crossing
-              stay = (int)(minPauseAtCrossing+(maxPauseAtCrossing-minPauseAtCrossing)*u.getRandom().nextFloat());
+              stay = (int)(minPauseAtCrossing+(maxPauseAtCrossing-minPauseAtCrossing)*getRandom().nextFloat());
             }
             else
               stay = pause;
@@ -203,16 +225,17 @@ public class ConstantSpeedMotion extends UserOrientedMovement
           else
           {
             // initiate a pause at the street crossing
-            stay = (int)(minPauseAtCrossing+(maxPauseAtCrossing-minPauseAtCrossing)*u.getRandom().nextFloat());
+            stay = (int)(minPauseAtCrossing+(maxPauseAtCrossing-minPauseAtCrossing)*getRandom().nextFloat());
           }
       
           if (stay!=0)
           {
-            u.sendNotification(new DestinationReachedNotification(this, u,
-              owner.getPosition(), stay/1000.0f));
+            if (u.hasNotificationListeners(DestinationReachedNotification.class))
+              u.sendNotification(new DestinationReachedNotification(this, u,
+                owner.getPosition(), stay/1000.0f));
             
             // make other arriving nodes pause too
-            currentPausesAtCrossings.put(element, new Long(u.getTime()+stay));
+            spatialModel.setPauseAtCrossing(element, u.getTime()+stay);
           }
           else
           {
@@ -245,9 +268,13 @@ public class ConstantSpeedMotion extends UserOrientedMovement
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     //if node has arrived to destination and stayed enough, a new destination
     //choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -266,8 +293,8 @@ public class ConstantSpeedMotion extends UserOrientedMovement
     if (movement!=null)
     {
       //move towards destination
-      if(owner.getPosition().getDistance(destination) >= movement.getLength())
-        owner.setPosition(owner.getPosition().add(movement));
+      if(owner.getDistance(destination) >= movement.getLength())
+        owner.move(movement);
       else
         owner.setPosition(destination);
     }
@@ -275,6 +302,30 @@ public class ConstantSpeedMotion extends UserOrientedMovement
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * A node staying at its destination is not executed until the last
+   * timestep of its stay.
+   * @return timestep of the next execution
+   */
+  public long getWakeUpTime()
+  {
+    Node owner = (Node)this.owner;
+
+    if ((movement==null)&&((destination==null)||(owner.isAt(destination))))
+    {
+      int steps = (stay+u.getStepDuration()-1)/u.getStepDuration();
+      if (steps>1)
+      {
+        skippedStaySteps = steps-1;
+        return u.getTimeInSteps()+steps;
+      }
+    }
+
+    return super.getWakeUpTime();
+  }
+
   /**
    * Initializes the object from XML tag. <br>
    * <br>
@@ -20,6 +20,11 @@ import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.*;
  */
 public class DeviatedConstantSpeedMotion extends ConstantSpeedMotion
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Name of a notification listener for the non-deviated movement
    */
@@ -78,7 +83,7 @@ public class DeviatedConstantSpeedMotion extends ConstantSpeedMotion
    */
   protected void chooseNewMovement()
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = getRandom();
     Node owner = (Node)this.owner;
 
     if (trip.getPath().size()==0)
@@ -133,15 +138,16 @@ public class DeviatedConstantSpeedMotion extends ConstantSpeedMotion
       destination = new Position3D(x, y, 0);
     }
     
-    speed = (float)(owner.getPosition().getDistance(destination)/ori_position.getDistance(ori_destination)*ori_speed);
+    speed = (float)(owner.getDistance(destination)/ori_position.getDistance(ori_destination)*ori_speed);
 
     stay = 0;
 
     movement = owner.getPosition().getNormalizedDirectionVector(destination).
       mult(speed*u.getStepDuration());
 
-    u.sendNotification(new MovementChangedNotification(this, u,
-      destination, speed*1000f));
+    if (u.hasNotificationListeners(MovementChangedNotification.class))
+      u.sendNotification(new MovementChangedNotification(this, u,
+        destination, speed*1000f));
       
     if (altListener!=null)
     {
@@ -34,6 +34,11 @@ import de.uni_stuttgart.informatik.canu.tripmodel.core.*;
  */
 public class FluidTrafficMotion extends UserOrientedMovement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Flag to indicate that a random stay duration must be chosen at the beginning of the simulation
    */
@@ -44,6 +49,11 @@ public class FluidTrafficMotion extends UserOrientedMovement
    */
   protected int stay = 0;           // in ms
 
+  /**
+   * Timesteps of the stay skipped by the event scheduler
+   */
+  protected int skippedStaySteps = 0;
+
   /**
    * Current speed (in meters/ms)
    */
@@ -74,6 +84,11 @@ public class FluidTrafficMotion extends UserOrientedMovement
    */
   protected Vector3D movement;
 
+  /**
+   * Movement of the current step, reused on every step
+   */
+  protected MutableVector3D stepMovement = new MutableVector3D();
+
   /**
    * Current trip
    */
@@ -96,6 +111,21 @@ public class FluidTrafficMotion extends UserOrientedMovement
     return "Fluid Traffic Movement Behavior";
   }
 
+  /**
+   * Creates a copy of the module for another object. <br>
+   * <br>
+   * @param owner owner of the copy
+   * @return copy of the module
+   */
+  public ExtensionModule copy(ExtendableObject owner)
+  {
+    FluidTrafficMotion res = (FluidTrafficMotion)copyModule(owner);
+    res.stepMovement = new MutableVector3D();
+    res.trip = new Trip();
+
+    return res;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -156,12 +186,15 @@ public class FluidTrafficMotion extends UserOrientedMovement
 
     trip = tripGenerator.genTrip(node);
 
-    u.sendNotification(new DebugNotification(this, u, "New trip generated:"));
-    for (int i=0; i<trip.getPath().size(); i++)
+    if (u.isDebugEnabled(DebugNotification.FINE))
     {
-      Point p = (Point)trip.getPath().get(i);
-      u.sendNotification(new DebugNotification(this, u,
-        ""+p.getX()+" "+p.getY()));
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "New trip generated:"));
+      for (int i=0; i<trip.getPath().size(); i++)
+      {
+        Point p = (Point)trip.getPath().get(i);
+        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+          ""+p.getX()+" "+p.getY()));
+      }
     }
     
     // delete the current node position from the path
@@ -206,8 +239,9 @@ public class FluidTrafficMotion extends UserOrientedMovement
       // wait at destination
       stay = tripGenerator.chooseStayDuration(owner);
 
-      u.sendNotification(new DestinationReachedNotification(this, u,
-        owner.getPosition(), stay/1000.0f));
+      if (u.hasNotificationListeners(DestinationReachedNotification.class))
+        u.sendNotification(new DestinationReachedNotification(this, u,
+          owner.getPosition(), stay/1000.0f));
     }
     else
     {
@@ -220,7 +254,7 @@ public class FluidTrafficMotion extends UserOrientedMovement
    */
   protected void recalculateTrafficSpeed()
   {
-    SpatialModel spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+    SpatialModel spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
     Graph graph = spatialModel.getGraph();
 
     if (graph==null)
@@ -253,7 +287,7 @@ public class FluidTrafficMotion extends UserOrientedMovement
           if (owner==node)
             continue;
 
-          Movement n_m = (Movement)node.getExtension("Movement");
+          Movement n_m = (Movement)node.getExtension(Movement.SLOT);
           if (n_m instanceof FluidTrafficMotion)
           {
             FluidTrafficMotion n_mf = (FluidTrafficMotion)n_m;
@@ -277,7 +311,8 @@ public class FluidTrafficMotion extends UserOrientedMovement
         speed = minSpeed;
     }
     
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
   }
 
   /**
@@ -291,11 +326,15 @@ public class FluidTrafficMotion extends UserOrientedMovement
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     boolean speedChanged = false;
     
     //if node has arrived to destination and stayed enough, a new destination
     //choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -322,30 +361,32 @@ public class FluidTrafficMotion extends UserOrientedMovement
       }
 
       //move towards destination
-      Vector3D m = movement.mult(speed*u.getStepDuration());
-      if(owner.getPosition().getDistance(destination) >= m.getLength())
+      Vector3D m = stepMovement.setScaled(movement, speed*u.getStepDuration());
+      if(owner.getDistance(destination) >= m.getLength())
       {
         if (speedChanged)
         {
           // check if the next speed change event is about to occur before arriving to destination
           double dist = (recalculation_step-u.getTimeInSteps()%recalculation_step)*u.getStepDuration()*(double)speed;
-          if (owner.getPosition().getDistance(destination) < dist)
+          if (owner.getDistance(destination) < dist)
           {
             // move to destination
-            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
           }
           else
           {
             // move until the next speed change event occur
-            u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
           }
         }
         
-        owner.setPosition(owner.getPosition().add(m));
+        owner.move(m);
       }
       else
       {
-        if (speedChanged)
+        if (speedChanged && u.hasNotificationListeners(MovementChangedNotification.class))
           u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
 
         owner.setPosition(destination);
@@ -355,6 +396,30 @@ public class FluidTrafficMotion extends UserOrientedMovement
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * A node staying at its destination is not executed until the last
+   * timestep of its stay.
+   * @return timestep of the next execution
+   */
+  public long getWakeUpTime()
+  {
+    Node owner = (Node)this.owner;
+
+    if ((movement==null)&&((destination==null)||(owner.isAt(destination))))
+    {
+      int steps = (stay+u.getStepDuration()-1)/u.getStepDuration();
+      if (steps>1)
+      {
+        skippedStaySteps = steps-1;
+        return u.getTimeInSteps()+steps;
+      }
+    }
+
+    return super.getWakeUpTime();
+  }
+
   /**
    * Initializes the object from XML tag. <br>
    * <br>
@@ -51,6 +51,11 @@ import polito.uomm.*;
  */
 public class IntelligentDriverMotion extends UserOrientedMovement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Flag to indicate that a random stay duration must be chosen at the beginning of the simulation
    */
@@ -61,6 +66,11 @@ public class IntelligentDriverMotion extends UserOrientedMovement
    */
   protected int stay = 0;                 // in ms
 
+  /**
+   * Timesteps of the stay skipped by the event scheduler
+   */
+  protected int skippedStaySteps = 0;
+
   /**
    * Desired speed (in meters/ms)
    */
@@ -111,6 +121,11 @@ public class IntelligentDriverMotion extends UserOrientedMovement
    */
   protected Vector3D movement;
 
+  /**
+   * Movement of the current step, reused on every step
+   */
+  protected MutableVector3D stepMovement = new MutableVector3D();
+
   /**
    * Current trip
    */
@@ -136,6 +151,21 @@ public class IntelligentDriverMotion extends UserOrientedMovement
    */
   protected float distanceToIntersection = 0.0f;
 
+  /**
+   * Road of the traffic index the vehicle is moving on (NULL if not on a road)
+   */
+  protected TrafficIndex.Road trafficRoad = null;
+
+  /**
+   * Speed published to the other vehicles at the end of the last step (in meters/ms)
+   */
+  protected float publishedSpeed = 0.0f;
+
+  /**
+   * Flag to indicate that the current step has been computed by {@link #prepare prepare}
+   */
+  protected boolean prepared = false;
+
 
   /**
    * Constructor
@@ -154,6 +184,21 @@ public class IntelligentDriverMotion extends UserOrientedMovement
     return "Intelligent Driver Movement Behavior";
   }
 
+  /**
+   * Creates a copy of the module for another object. <br>
+   * <br>
+   * @param owner owner of the copy
+   * @return copy of the module
+   */
+  public ExtensionModule copy(ExtendableObject owner)
+  {
+    IntelligentDriverMotion res = (IntelligentDriverMotion)copyModule(owner);
+    res.stepMovement = new MutableVector3D();
+    res.trip = new Trip();
+
+    return res;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -281,7 +326,7 @@ public class IntelligentDriverMotion extends UserOrientedMovement
       Node owner = (Node)this.owner;
 
       // init distance with current destination
-      distance = (float)owner.getPosition().getDistance(destination);
+      distance = (float)owner.getDistance(destination);
 			
       // check if current destination corresponds to an intersection
       Vertex vertexDest = graph.getVertex(destination.getX(), destination.getY());
@@ -308,6 +353,97 @@ public class IntelligentDriverMotion extends UserOrientedMovement
     return distance;
   }
 
+  /**
+   * Finds the road of the traffic index matching the current movement. <br>
+   * <br>
+   * Two vehicles are on the same road of the index if and only if
+   * {@link #onSameRoad onSameRoad} holds for them.
+   * @return the road of the traffic index, NULL if not on a road
+   */
+  protected TrafficIndex.Road findTrafficRoad() {
+    if (spatialModel == null || currentRoad == null)
+      return null;
+
+    TrafficIndex index = spatialModel.getTrafficIndex();
+
+    // if a road topology is being used, roads are
+    // identified by road element and direction
+    SpatialModelElement roadElement = spatialModel.mapEdgeToElement(currentRoad);
+    if (roadElement != null) {
+      if (nextIntersection == null)
+        return null;
+      return index.getRoad(roadElement, nextIntersection);
+    }
+
+    // if a graph is being used, roads are identified
+    // by source and destination vertices
+    Graph graph = spatialModel.getGraph();
+    Vertex vs = graph.getVertex(oldPosition.getX(), oldPosition.getY());
+    Vertex vd = graph.getVertex(destination.getX(), destination.getY());
+    return index.getRoad(vs, vd);
+  }
+
+  /**
+   * Updates the vehicle's entry in the traffic index. <br>
+   * <br>
+   * The method is called at the end of every movement step.
+   */
+  protected void updateTrafficIndex() {
+    if (spatialModel != null)
+      spatialModel.getTrafficIndex().update((Node)owner, trafficRoad,
+        ((Node)owner).getLane(), distanceToIntersection, vehicleLength);
+  }
+
+  /**
+   * Publishes the vehicle's state to the other vehicles. <br>
+   * <br>
+   * The method is called at the end of every movement step.
+   */
+  protected void publishState() {
+    Node owner = (Node)this.owner;
+    publishedSpeed = speed;
+    owner.setSpeed(speed);
+    owner.setEdge(trafficRoad!=null ? trafficRoad.getID() : -1);
+    updateTrafficIndex();
+  }
+
+  /**
+   * Gets the speed of the vehicle as observed by the other vehicles. <br>
+   * <br>
+   * While the nodes are prepared in parallel, the other vehicles
+   * observe the speed published at the end of the last step.
+   * @return speed (in meters/ms)
+   */
+  protected float getObservedSpeed() {
+    return u.isPreparing() ? publishedSpeed : speed;
+  }
+
+  /**
+   * Checks if the current step can be computed by {@link #prepare prepare}. <br>
+   * <br>
+   * Only vehicles moving towards their destination are prepared, vehicles
+   * choosing a new movement or stay duration are executed in order.
+   * @return true, if the current step can be prepared
+   */
+  protected boolean isPreparable() {
+    Node owner = (Node)this.owner;
+    return (movement!=null)&&(destination!=null)&&(!owner.isAt(destination));
+  }
+
+  /**
+   * Prepares the next execution of the extension. <br>
+   * <br>
+   * Recalculates the vehicle's speed before the nodes are executed.
+   */
+  public void prepare()
+  {
+    if (isPreparable() && (u.getTimeInSteps()%recalculation_step==0))
+    {
+      recalculateSpeed();
+      prepared = true;
+    }
+  }
+
   /**
    * Checks if nodes are on the same road. <br>
    * <br>
@@ -326,11 +462,11 @@ public class IntelligentDriverMotion extends UserOrientedMovement
     
     if (graph != null) {
       // find node1 edge
-      IntelligentDriverMotion mov1 = (IntelligentDriverMotion) node1.getExtension("Movement");
+      IntelligentDriverMotion mov1 = (IntelligentDriverMotion) node1.getExtension(Movement.SLOT);
       Edge edge1 = mov1.getCurrentRoad();
     
       // find node2 edge
-      IntelligentDriverMotion mov2 = (IntelligentDriverMotion) node2.getExtension("Movement");
+      IntelligentDriverMotion mov2 = (IntelligentDriverMotion) node2.getExtension(Movement.SLOT);
       Edge edge2 = mov2.getCurrentRoad();
       
       if (edge1 != null && edge2 != null) {
@@ -369,18 +505,20 @@ public class IntelligentDriverMotion extends UserOrientedMovement
    */
   protected void chooseNewPath()
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = getRandom();
     
     Node node = (Node)this.owner;
 
     trip = tripGenerator.genTrip(node);
 
-    u.sendNotification(new DebugNotification(this, u, "New trip generated:"));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "New trip generated:"));
     for (int i=0; i<trip.getPath().size(); i++)
     {
       Point p = (Point)trip.getPath().get(i);
-      u.sendNotification(new DebugNotification(this, u,
-        ""+p.getX()+" "+p.getY()));
+      if (u.isDebugEnabled(DebugNotification.FINE))
+        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+          ""+p.getX()+" "+p.getY()));
     }
     
     // delete the current node position from the path
@@ -431,6 +569,7 @@ public class IntelligentDriverMotion extends UserOrientedMovement
       nextIntersection = findNextIntersection();
       distanceToIntersection = findDistanceToIntersection();
     }
+    trafficRoad = findTrafficRoad();
 
     // look for a new maximum allowed speed, if any,
     // and for the number of available lanes
@@ -450,9 +589,10 @@ public class IntelligentDriverMotion extends UserOrientedMovement
           String segmentAttribute = (String)road_a.getAttributes().get("SP");
           if (segmentAttribute != null) {
             allowedSpeed = Float.parseFloat(segmentAttribute)/1000.0f;
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" new maximum"+
-                                                     " allowed speed "+allowedSpeed*1000.0f));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" new maximum"+
+                                                       " allowed speed "+allowedSpeed*1000.0f));
           }
 
           // get number of lanes on current road
@@ -463,18 +603,20 @@ public class IntelligentDriverMotion extends UserOrientedMovement
             // if the current lane does not exist in this road,
             // move to a random new lane among these available
             if(owner.getLane() == 0 || owner.getLane() > currNumLanes) {
-              java.util.Random rand = u.getRandom();
+              java.util.Random rand = getRandom();
               owner.setLane(rand.nextInt(currNumLanes)+1);
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" moving to lane "+
-                                                       owner.getLane()));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" moving to lane "+
+                                                         owner.getLane()));
 
             }
             // otherwise, keep moving on the same lane
             else {
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" staying in lane "+
-                                                       owner.getLane()));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" staying in lane "+
+                                                         owner.getLane()));
             }
           }
         }
@@ -493,14 +635,16 @@ public class IntelligentDriverMotion extends UserOrientedMovement
     Node owner = (Node)this.owner;
 
     oldPosition = owner.getPosition();
+    trafficRoad = findTrafficRoad();
 
     if (trip.getPath().size()==0)
     {
       // wait at destination
       stay = tripGenerator.chooseStayDuration(owner);
       
-      u.sendNotification(new DestinationReachedNotification(this, u,
-        owner.getPosition(), stay/1000.0f));
+      if (u.hasNotificationListeners(DestinationReachedNotification.class))
+        u.sendNotification(new DestinationReachedNotification(this, u,
+          owner.getPosition(), stay/1000.0f));
         
       speed = 0.0f;        
     }
@@ -538,94 +682,81 @@ public class IntelligentDriverMotion extends UserOrientedMovement
         float d_speed1 = 0.0f;
         float d_1 = Float.MAX_VALUE;
 
-        float d_speed2 = 0.0f;
-        float d_2 = Float.MAX_VALUE;
-
         // this vechile's distance from next intersection
         float thisDistance = getDistanceToIntersection();
 
-        // find two closest cars in front
-        java.util.Iterator iter = u.getNodes().iterator();
+        // find the closest car in front, looking only at
+        // cars on the same road and lane, closest first
+        TrafficIndex index = spatialModel.getTrafficIndex();
+        float maxLength = index.getMaxLength();
+        java.util.Iterator iter = index.getAhead(trafficRoad, owner.getLane(), thisDistance);
         while (iter.hasNext())
         {
           Node node = (Node)iter.next();
           if (owner==node)
             continue;
 
-          Movement n_m = (Movement)node.getExtension("Movement");
+          Movement n_m = (Movement)node.getExtension(Movement.SLOT);
           if (!(n_m instanceof IntelligentDriverMotion))
             continue;
           
           IntelligentDriverMotion n_mf = (IntelligentDriverMotion)n_m;
-          // ignore paused cars
-          if ((n_mf.destination==null)||(n_mf.stay!=0))
-            continue;
-
-          // check if on the same road
-          if(!onSameRoad(owner, node))
-            continue;
-
-          // check if on the same lane
-          if(owner.getLane() != node.getLane())
-            continue;
 
           // current vehicle's distance from intersection
           float nodeDistance = n_mf.getDistanceToIntersection();
 
-          // check if in front
-          if (thisDistance >= nodeDistance)
+          // stop when no further car can be closer, nor within jam distance
+          float minDistance = thisDistance - nodeDistance - maxLength;
+          if (minDistance>=d_1 && (speed!=0 || minDistance>=s0))
+            break;
+
+          // ignore paused cars
+          if ((n_mf.destination==null)||(n_mf.stay!=0))
+            continue;
+
+          float d = thisDistance - nodeDistance - n_mf.vehicleLength;
+          // check if closer than at jam distance
+          if (d<s0)
           {
-            float d = thisDistance - nodeDistance - n_mf.vehicleLength;
-            // check if closer than at jam distance
-            if (d<s0)
+            if (speed==0)
             {
-              if (speed==0)
+              // wait till nodes with lower IDs depart
+              //if (owner.getID().compareTo(node.getID())>=0)
+              if (Integer.parseInt(owner.getID().substring(1)) >= Integer.parseInt(node.getID().substring(1)))
               {
-                // wait till nodes with lower IDs depart
-                //if (owner.getID().compareTo(node.getID())>=0)
-                if (Integer.parseInt(owner.getID().substring(1)) >= Integer.parseInt(node.getID().substring(1)))
-                {
-                  //speed = Float.NaN;
-                  speed = 0.0f;
-                  u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
+                //speed = Float.NaN;
+                speed = 0.0f;
+                if (u.isDebugEnabled(DebugNotification.FINEST))
+                  u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
                                                    ((Node)owner).getID()+" found identical node "+
                                                    ((Node)node).getID()));
-                  return;
-                }
-                else {
-                  // if distance is less than zero, it means that the nodes
-                  // are overlapped at some entry/exit point. Ignore the node
-                  if (d <= 0)
-                    continue;
-                  // if the distance is less than than the safety, but higher
-                  // than zero, it means that the current car stopped within
-                  // safety distance from the ahead vehicle, due to the finite
-                  // precision of the model. The node has to be considered in
-                  // the front node discovery process
-                  else
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                   ((Node)owner).getID()+" found node within safety distance "+
-                                                   ((Node)node).getID()));
-                }
+                return;
+              }
+              else {
+                // if distance is less than zero, it means that the nodes
+                // are overlapped at some entry/exit point. Ignore the node
+                if (d <= 0)
+                  continue;
+                // if the distance is less than than the safety, but higher
+                // than zero, it means that the current car stopped within
+                // safety distance from the ahead vehicle, due to the finite
+                // precision of the model. The node has to be considered in
+                // the front node discovery process
+                else
+                if (u.isDebugEnabled(DebugNotification.FINEST))
+                  u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
+                                                 ((Node)owner).getID()+" found node within safety distance "+
+                                                 ((Node)node).getID()));
               }
-            }
-            
-            if (d<d_1)
-            {
-              d_2 = d_1;
-              d_speed2 = d_speed1;
-
-              d_1 = d;
-              d_speed1 = speed - n_mf.speed;
-              n1_mf = n_mf;
-            }
-            else
-            if (d<d_2)
-            {
-              d_2 = d;
-              d_speed2 = speed - n_mf.speed;
             }
           }
+          
+          if (d<d_1)
+          {
+            d_1 = d;
+            d_speed1 = speed - n_mf.getObservedSpeed();
+            n1_mf = n_mf;
+          }
         }
 
         float ss = (float)(s0 + Math.max(speed*t+speed*d_speed1/(2.0*Math.sqrt(a*b)), 0));
@@ -645,7 +776,8 @@ public class IntelligentDriverMotion extends UserOrientedMovement
       }
     }
     
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
   }
 
   /**
@@ -659,11 +791,19 @@ public class IntelligentDriverMotion extends UserOrientedMovement
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     boolean speedChanged = false;
+
+    // the speed may have been recalculated by prepare()
+    boolean prepared = this.prepared;
+    this.prepared = false;
     
     // if node has arrived to destination and
     // stayed enough, a new destination is choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -685,64 +825,117 @@ public class IntelligentDriverMotion extends UserOrientedMovement
     {
       if ((!speedChanged) && (u.getTimeInSteps()%recalculation_step==0))
       {
-        recalculateSpeed();
+        if (!prepared)
+          recalculateSpeed();
         speedChanged = true;
       }
 
       // do not move in a jam, wait for the next recalculation
       if (speed==0.0f)
+      {
+        publishState();
         return 0;
+      }
       
       //move towards destination
-      Vector3D m = movement.mult(speed*u.getStepDuration());
-      if(owner.getPosition().getDistance(destination) >= m.getLength())
+      Vector3D m = stepMovement.setScaled(movement, speed*u.getStepDuration());
+      if(owner.getDistance(destination) >= m.getLength())
       {
         if (speedChanged)
         {
           // check if the next speed change event is about to occur before arriving to destination
           double dist = (recalculation_step-u.getTimeInSteps()%recalculation_step)*u.getStepDuration()*(double)speed;
-          if (owner.getPosition().getDistance(destination) < dist)
+          if (owner.getDistance(destination) < dist)
           {
             // move to destination
-            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
             // update distance to next intersection
-            distanceToIntersection -= (float)owner.getPosition().getDistance(destination);
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" new distance to intersection "+
-                                                     distanceToIntersection));
+            distanceToIntersection -= (float)owner.getDistance(destination);
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" new distance to intersection "+
+                                                       distanceToIntersection));
           }
           else
           {
             // move until the next speed change event occur
-            u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
             // update distance to next intersection
             distanceToIntersection -= (float)dist;
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" new distance to intersection "+
-                                                     distanceToIntersection));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" new distance to intersection "+
+                                                       distanceToIntersection));
           }
         }
         
-        owner.setPosition(owner.getPosition().add(m));
+        owner.move(m);
       }
       else
       {
         if (speedChanged) {
-          u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+          if (u.hasNotificationListeners(MovementChangedNotification.class))
+            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
           // update distance to next intersection
           distanceToIntersection -= (float)m.getLength();
-          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                   ((Node)owner).getID()+" new distance to intersection "+
-                                                   distanceToIntersection));
+          if (u.isDebugEnabled(DebugNotification.FINE))
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                     ((Node)owner).getID()+" new distance to intersection "+
+                                                     distanceToIntersection));
        }
 
         owner.setPosition(destination);
       }
     }
+
+    publishState();
     
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * A node staying at its destination is not executed until the last
+   * timestep of its stay, a vehicle stopped in a jam is not executed
+   * until the next recalculation of its speed.
+   * @return timestep of the next execution
+   */
+  public long getWakeUpTime()
+  {
+    Node owner = (Node)this.owner;
+
+    if ((destination==null)||(owner.isAt(destination)))
+    {
+      if (movement==null)
+      {
+        int steps = (stay+u.getStepDuration()-1)/u.getStepDuration();
+        if (steps>1)
+        {
+          skippedStaySteps = steps-1;
+          return u.getTimeInSteps()+steps;
+        }
+      }
+    }
+    else
+    if ((movement!=null)&&(speed==0.0f))
+      return getNextRecalculationTime();
+
+    return super.getWakeUpTime();
+  }
+
+  /**
+   * Gets the next timestep, at which the vehicle's speed or lane may change. <br>
+   * <br>
+   * @return first timestep after the current one, at which the speed is recalculated
+   */
+  protected long getNextRecalculationTime()
+  {
+    return (u.getTimeInSteps()/recalculation_step+1)*recalculation_step;
+  }
+
   /**
    * Initializes the object from XML tag. <br>
    * <br>
@@ -30,6 +30,11 @@ import de.uni_stuttgart.informatik.canu.spatialmodel.geometry.*;
  */
 public class SmoothMotion extends UserOrientedMovement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Flag to indicate that a random stay duration must be chosen at the beginning of the simulation
    */
@@ -40,6 +45,11 @@ public class SmoothMotion extends UserOrientedMovement
    */
   protected int stay = 0;           // in ms
 
+  /**
+   * Timesteps of the stay skipped by the event scheduler
+   */
+  protected int skippedStaySteps = 0;
+
   /**
    * Current speed (in meters/ms)
    */
@@ -55,6 +65,11 @@ public class SmoothMotion extends UserOrientedMovement
    */
   protected Vector3D movement;
 
+  /**
+   * Movement of the current step, reused on every step
+   */
+  protected MutableVector3D stepMovement = new MutableVector3D();
+
   /**
    * Current trip
    */
@@ -112,6 +127,21 @@ public class SmoothMotion extends UserOrientedMovement
     return "Smooth Motion Movement Behavior";
   }
 
+  /**
+   * Creates a copy of the module for another object. <br>
+   * <br>
+   * @param owner owner of the copy
+   * @return copy of the module
+   */
+  public ExtensionModule copy(ExtendableObject owner)
+  {
+    SmoothMotion res = (SmoothMotion)copyModule(owner);
+    res.stepMovement = new MutableVector3D();
+    res.trip = new Trip();
+
+    return res;
+  }
+
   /**
    * Performs the module initialization. <br>
    * <br>
@@ -138,7 +168,7 @@ public class SmoothMotion extends UserOrientedMovement
    */
   protected void chooseNewSpeed()
   {
-    java.util.Random rand = u.getRandom();
+    java.util.Random rand = getRandom();
 
     float p = rand.nextFloat();
 
@@ -162,7 +192,8 @@ public class SmoothMotion extends UserOrientedMovement
 
     nextSpeedChangeTime = u.getTimeInSteps()+(long)((1.0f-rand.nextFloat())*maxSpeedChangeInterval);
 
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed from "+speed*1000.0f+" m/s to "+targetSpeed*1000.0f+" m/s with a="+a*1e6+" m/s^2"));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed from "+speed*1000.0f+" m/s to "+targetSpeed*1000.0f+" m/s with a="+a*1e6+" m/s^2"));
   }
 
   /**
@@ -174,12 +205,15 @@ public class SmoothMotion extends UserOrientedMovement
 
     trip = tripGenerator.genTrip(node);
 
-    u.sendNotification(new DebugNotification(this, u, "New trip generated:"));
-    for (int i=0; i<trip.getPath().size(); i++)
+    if (u.isDebugEnabled(DebugNotification.FINE))
     {
-      Point p = (Point)trip.getPath().get(i);
-      u.sendNotification(new DebugNotification(this, u,
-        ""+p.getX()+" "+p.getY()));
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "New trip generated:"));
+      for (int i=0; i<trip.getPath().size(); i++)
+      {
+        Point p = (Point)trip.getPath().get(i);
+        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE,
+          ""+p.getX()+" "+p.getY()));
+      }
     }
     
     // delete the current node position from the path
@@ -221,8 +255,9 @@ public class SmoothMotion extends UserOrientedMovement
       // wait at destination
       stay = tripGenerator.chooseStayDuration(owner);
 
-      u.sendNotification(new DestinationReachedNotification(this, u,
-        owner.getPosition(), stay/1000.0f));
+      if (u.hasNotificationListeners(DestinationReachedNotification.class))
+        u.sendNotification(new DestinationReachedNotification(this, u,
+          owner.getPosition(), stay/1000.0f));
         
       speed = 0.0f;
     }
@@ -243,13 +278,17 @@ public class SmoothMotion extends UserOrientedMovement
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     boolean speedChanged = false;
     boolean targetSpeedReached = false;
     boolean checkPointReached = false;
 
     //if node has arrived to destination and stayed enough, a new destination
     //choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -290,35 +329,41 @@ public class SmoothMotion extends UserOrientedMovement
       }
 
       //move towards destination
-      Vector3D m = movement.mult(speed*u.getStepDuration());
-      if(owner.getPosition().getDistance(destination) >= m.getLength())
+      Vector3D m = stepMovement.setScaled(movement, speed*u.getStepDuration());
+      if(owner.getDistance(destination) >= m.getLength())
       {
-        Position3D d = owner.getPosition().add(m);
-
         if (speedChanged)
-          u.sendNotification(new MovementChangedNotification(this, u, d, speed*1000f));
+        {
+          if (u.hasNotificationListeners(MovementChangedNotification.class))
+            u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(m), speed*1000f));
+        }
         else
         if (targetSpeedReached || checkPointReached)
         {
+          Position3D d = owner.getPosition().add(m);
+
           // check if speed change event is about to occur before arriving to destination
           double dist = (nextSpeedChangeTime-u.getTimeInSteps()-1)*m.getLength();
           if (d.getDistance(destination) < dist)
           {
             // move to destination
-            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
           }
           else
           {
             // move until the next speed change event occur
-            u.sendNotification(new MovementChangedNotification(this, u, d.add(movement.mult(dist)), speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, d.add(movement.mult(dist)), speed*1000f));
           }
         }
         
-        owner.setPosition(d);
+        owner.move(m);
       }
       else
       {
-        if (speedChanged || targetSpeedReached || checkPointReached)
+        if ((speedChanged || targetSpeedReached || checkPointReached) &&
+            u.hasNotificationListeners(MovementChangedNotification.class))
           u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
 
         owner.setPosition(destination);
@@ -328,6 +373,30 @@ public class SmoothMotion extends UserOrientedMovement
     return 0;
   }
 
+  /**
+   * Gets the timestep of the next execution of the extension. <br>
+   * <br>
+   * A node staying at its destination is not executed until the last
+   * timestep of its stay.
+   * @return timestep of the next execution
+   */
+  public long getWakeUpTime()
+  {
+    Node owner = (Node)this.owner;
+
+    if ((movement==null)&&((destination==null)||(owner.isAt(destination))))
+    {
+      int steps = (stay+u.getStepDuration()-1)/u.getStepDuration();
+      if (steps>1)
+      {
+        skippedStaySteps = steps-1;
+        return u.getTimeInSteps()+steps;
+      }
+    }
+
+    return super.getWakeUpTime();
+  }
+
   /**
    * Initializes the object from XML tag. <br>
    * <br>
@@ -20,6 +20,10 @@ import de.uni_stuttgart.informatik.canu.tripmodel.core.*;
  */
 abstract public class UserOrientedMovement extends Movement
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 	/**
    * Initial Position Generator
@@ -84,7 +88,7 @@ abstract public class UserOrientedMovement extends Movement
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
     s = element.getAttribute("initposgenerator");
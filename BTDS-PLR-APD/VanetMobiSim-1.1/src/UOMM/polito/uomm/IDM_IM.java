@@ -33,6 +33,11 @@ import de.uni_stuttgart.informatik.canu.uomm.*;
  */
 public class IDM_IM extends IntelligentDriverMotion
 { 
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Maximum deceleration factor
    */  
@@ -78,6 +83,26 @@ public class IDM_IM extends IntelligentDriverMotion
    */
   protected float distanceToTripEnd = 0.0f;
 
+  /**
+   * Lights management flag published to the other vehicles at the end of the last step
+   */
+  protected boolean publishedLightsManagement = false;
+
+  /**
+   * Stop management flag published to the other vehicles at the end of the last step
+   */
+  protected boolean publishedStopManagement = false;
+
+  /**
+   * Stop wait time published to the other vehicles at the end of the last step
+   */
+  protected float publishedStopWaitTime = 0.0f;       // in ms
+
+  /**
+   * Junction to be joined at the next execution (NULL if none)
+   */
+  protected Vertex pendingJunction = null;
+
   /**
    * Constructor
    */
@@ -230,6 +255,7 @@ public class IDM_IM extends IntelligentDriverMotion
       distanceToIntersection = findDistanceToIntersection();
       segmentsToIntersection = findSegmentsToIntersection();
     }
+    trafficRoad = findTrafficRoad();
 
     // look for a new maximum allowed speed, if any
     allowedSpeed = 80e-3f;
@@ -249,9 +275,10 @@ public class IDM_IM extends IntelligentDriverMotion
 
           if (segmentAttribute != null) {
             allowedSpeed = Float.parseFloat(segmentAttribute)/1000.0f;
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" new maximum"+
-                                                     " allowed speed "+allowedSpeed*1000.0f));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" new maximum"+
+                                                       " allowed speed "+allowedSpeed*1000.0f));
           }
         
           // get number of lanes on current road
@@ -262,18 +289,20 @@ public class IDM_IM extends IntelligentDriverMotion
             // if the current lane does not exist in this road,
             // move to a random new lane among these available
             if(owner.getLane() == 0 || owner.getLane() > currNumLanes) {
-              java.util.Random rand = u.getRandom();
+              java.util.Random rand = getRandom();
               owner.setLane(rand.nextInt(currNumLanes)+1);
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" moving to lane "+
-                                                       owner.getLane()));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" moving to lane "+
+                                                         owner.getLane()));
 
             }
             // otherwise, keep moving on the same lane
             else {
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" staying in lane "+
-                                                       owner.getLane()));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" staying in lane "+
+                                                         owner.getLane()));
             }
           }
         }
@@ -326,11 +355,12 @@ public class IDM_IM extends IntelligentDriverMotion
     if (Float.isNaN(newSpeed)||(newSpeed<0.0f))
       newSpeed = 0.0f;
 
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                             ((Node)owner).getID()+" speed "+
-                                             speed*1000+" DeltaV "+
-                                             d_speed1*1000+" distance "+d_1+" --> newSpeed "+
-                                             newSpeed*1000+" (desired "+desiredSpeed*1000+")"));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                               ((Node)owner).getID()+" speed "+
+                                               speed*1000+" DeltaV "+
+                                               d_speed1*1000+" distance "+d_1+" --> newSpeed "+
+                                               newSpeed*1000+" (desired "+desiredSpeed*1000+")"));
 
     // a minimum threshold speed of
     // 0.001 m/s (0.000001 m/ms) is set
@@ -405,11 +435,53 @@ public class IDM_IM extends IntelligentDriverMotion
       action = spatialModel.allowedMovements((Node)this.owner, edge_b, vertex_i, vertex_a);
     }
 
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
-                                             " got action " + action));
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
+                                               " got action " + action));
     return action;
   }
 
+  /**
+   * Publishes the vehicle's state to the other vehicles. <br>
+   * <br>
+   * The method is called at the end of every movement step.
+   */
+  protected void publishState() {
+    publishedLightsManagement = lightsManagement;
+    publishedStopManagement = stopManagement;
+    publishedStopWaitTime = stopWaitTime;
+    super.publishState();
+  }
+
+  /**
+   * Checks if the vehicle is moving through an intersection. <br>
+   * <br>
+   * While the nodes are prepared in parallel, the state published
+   * at the end of the last step is used.
+   * @return true, if the vehicle is moving through an intersection
+   */
+  protected boolean isCrossingIntersection() {
+    if (u.isPreparing())
+      return (publishedStopManagement && publishedStopWaitTime <= 0) ||
+              publishedLightsManagement;
+
+    return (stopManagement && stopWaitTime <= 0) || lightsManagement;
+  }
+
+  /**
+   * Registers the vehicle as waiting at a stop sign junction. <br>
+   * <br>
+   * While the nodes are prepared in parallel, the registration is
+   * deferred to the vehicle's execution.
+   * @param junction junction vertex
+   */
+  protected void joinJunction(Vertex junction) {
+    if (u.isPreparing())
+      pendingJunction = junction;
+    else
+      spatialModel.addVehicleInJunction(junction);
+  }
+
   /**
    * Recalculates the vehicle's speed
    */
@@ -439,104 +511,90 @@ public class IDM_IM extends IntelligentDriverMotion
         float d_speed1 = 0.0f;
         float d_1 = Float.MAX_VALUE;
 
-        float d_speed2 = 0.0f;
-        float d_2 = Float.MAX_VALUE;
-
         // this vechile's distance from next intersection
         float thisDistance = getDistanceToIntersection();
 
-        // find two closest cars in front
-        java.util.Iterator iter = u.getNodes().iterator();
+        // find the closest car in front, looking only at
+        // cars on the same road and lane, closest first
+        TrafficIndex index = spatialModel.getTrafficIndex();
+        float maxLength = index.getMaxLength();
+        java.util.Iterator iter = index.getAhead(trafficRoad, owner.getLane(), thisDistance);
         while (iter.hasNext())
         {
           Node node = (Node)iter.next();
           if (owner==node)
             continue;
 
-          Movement n_m = (Movement)node.getExtension("Movement");
+          Movement n_m = (Movement)node.getExtension(Movement.SLOT);
           if (!(n_m instanceof IDM_IM))
             continue;
 
           IDM_IM n_mf = (IDM_IM)n_m;
+
+          // current vehicle's distance from intersection
+          float nodeDistance = n_mf.getDistanceToIntersection();
+
+          // stop when no further car can be closer, nor within jam distance
+          float minDistance = thisDistance - nodeDistance - maxLength;
+          if (minDistance>=d_1 && (speed!=0 || minDistance>=s0))
+            break;
+
           // ignore paused cars
           if ((n_mf.destination==null)||(n_mf.stay!=0))
             continue;
 
           // ignore cars moving through an intersection
-          if ((n_mf.stopManagement && n_mf.stopWaitTime <= 0) ||
-               n_mf.lightsManagement)
-            continue;
-
-          // check if on the same road
-          if(!onSameRoad(owner, node))
-            continue;
-
-          // check if on the same lane
-          if(owner.getLane() != node.getLane())
+          if (n_mf.isCrossingIntersection())
             continue;
 
-          // current vehicle's distance from intersection
-          float nodeDistance = n_mf.getDistanceToIntersection();
-
-          // check if in front
-          if (thisDistance >= nodeDistance)
+          float d = thisDistance - nodeDistance - n_mf.vehicleLength;
+          // check if closer than at jam distance
+          if (d<s0)
           {
-            float d = thisDistance - nodeDistance - n_mf.vehicleLength;
-            // check if closer than at jam distance
-            if (d<s0)
+            if (speed==0)
             {
-              if (speed==0)
+              // wait till nodes with lower IDs depart
+              //if (owner.getID().compareTo(node.getID())>=0)
+              if (Integer.parseInt(owner.getID().substring(1)) >= Integer.parseInt(node.getID().substring(1)))
               {
-                // wait till nodes with lower IDs depart
-                //if (owner.getID().compareTo(node.getID())>=0)
-                if (Integer.parseInt(owner.getID().substring(1)) >= Integer.parseInt(node.getID().substring(1)))
-                {
-                  //speed = Float.NaN;
-                  speed = 0.0f;
-                  u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
+                //speed = Float.NaN;
+                speed = 0.0f;
+                if (u.isDebugEnabled(DebugNotification.FINEST))
+                  u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
                                                    ((Node)owner).getID()+" found identical node "+
                                                    ((Node)node).getID()));
-                  return;
-                }
-                else {
-                  // if distance is less than zero, it means that the nodes
-                  // are overlapped at some entry/exit point. Ignore the node
-                  if (d <= 0)
-                    continue;
-                  // if the distance is less than than the safety, but higher
-                  // than zero, it means that the current car stopped within
-                  // safety distance from the ahead vehicle, due to the finite
-                  // precision of the model. The node has to be considered in
-                  // the front node discovery process
-                  else
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                   ((Node)owner).getID()+" found node within safety distance "+
-                                                   ((Node)node).getID()));
-                }
+                return;
+              }
+              else {
+                // if distance is less than zero, it means that the nodes
+                // are overlapped at some entry/exit point. Ignore the node
+                if (d <= 0)
+                  continue;
+                // if the distance is less than than the safety, but higher
+                // than zero, it means that the current car stopped within
+                // safety distance from the ahead vehicle, due to the finite
+                // precision of the model. The node has to be considered in
+                // the front node discovery process
+                else
+                if (u.isDebugEnabled(DebugNotification.FINEST))
+                  u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
+                                                 ((Node)owner).getID()+" found node within safety distance "+
+                                                 ((Node)node).getID()));
               }
             }
+          }
 
-            if (d<d_1)
-            {
-              d_2 = d_1;
-              d_speed2 = d_speed1;
-
-              d_1 = d;
-              d_speed1 = speed - n_mf.speed;
-              n1_mf = n_mf;
-              front = node;
-            }
-            else
-            if (d<d_2)
-            {
-              d_2 = d;
-              d_speed2 = speed - n_mf.speed;
-            }
+          if (d<d_1)
+          {
+            d_1 = d;
+            d_speed1 = speed - n_mf.getObservedSpeed();
+            n1_mf = n_mf;
+            front = node;
           }
         }
 
-        if(front!=null)
-          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
+        if(front!=null && u.isDebugEnabled(DebugNotification.FINEST))
+          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
                                                    ((Node)owner).getID()+" found front node "+
                                                    ((Node)front).getID()));
 
@@ -555,9 +613,10 @@ public class IDM_IM extends IntelligentDriverMotion
         // A 1.0 meter bias is introduced so to ensure
         // that the end of trip is actually reached
         float tripEndSpeed = IDM(speed, getDistanceToTripEnd()+s0+1.0f);
-        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                 ((Node)owner).getID()+" trip end speed "+
-                                                 tripEndSpeed*1000));
+        if (u.isDebugEnabled(DebugNotification.FINE))
+          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                   ((Node)owner).getID()+" trip end speed "+
+                                                   tripEndSpeed*1000));
 
         // if this vehicle is not the first on its
         // lane, use standard IDM speed computation
@@ -589,8 +648,9 @@ public class IDM_IM extends IntelligentDriverMotion
 
             case 5: // green traffic light: do not stop
                     speed = Math.min(tripEndSpeed,IDM(d_speed1, d_1));
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+": green light"));
+                    if (u.isDebugEnabled(DebugNotification.FINE))
+                      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+": green light"));
                     break;
 
             case 1: // red traffic light: stop if safe
@@ -598,27 +658,31 @@ public class IDM_IM extends IntelligentDriverMotion
                     float minimumStopDistance = (float)Math.pow((double)speed,2)/(kappa*b);
                     // if the vechicle is already within safety distance S
                     // from intersection, keep crossing the intersection
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+": red light |"+
-                                                             " distance to stop place "+safeDistance+
-                                                             ", minimum stop distance "+minimumStopDistance));
+                    if (u.isDebugEnabled(DebugNotification.FINE))
+                      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+": red light |"+
+                                                               " distance to stop place "+safeDistance+
+                                                               ", minimum stop distance "+minimumStopDistance));
                     if(safeDistance < minimumStopDistance) {
                       speed = Math.min(tripEndSpeed,IDM(d_speed1, d_1));
                       if(lightsManagement == false) {
                         lightsManagement = true;
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+" setting light management ON"));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+" setting light management ON"));
                       }
                       else {
                         float covered = (recalculation_step-u.getTimeInSteps()%recalculation_step)*u.getStepDuration()*speed;
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                   ((Node)owner).getID()+" covered "+covered+
-                                                                   ", distance "+getDistanceToIntersection()));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                     ((Node)owner).getID()+" covered "+covered+
+                                                                     ", distance "+getDistanceToIntersection()));
                         // stop crossing the intersection
                         if(getDistanceToIntersection() < covered) {
                           lightsManagement = false;
-                          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+" setting light management OFF"));
+                          if (u.isDebugEnabled(DebugNotification.FINE))
+                            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+" setting light management OFF"));
                         }
                       }
                     }
@@ -630,27 +694,30 @@ public class IDM_IM extends IntelligentDriverMotion
 
             case 2: // stop sign: stop and wait
                     if(speed != 0) {
-                      u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                               ((Node)owner).getID()+" speed != 0"));
+                      if (u.isDebugEnabled(DebugNotification.FINE))
+                        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                 ((Node)owner).getID()+" speed != 0"));
                       // if the vehicle is approaching the stop sign, update
                       // speed according to IDM in a way to stop at intersection
                       if(!stopManagement) {
                         safeDistance = getDistanceToIntersection() - S;
                         speed = Math.min(tripEndSpeed,IDM(speed, safeDistance));
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                 ((Node)owner).getID()+" approaching intersection, "+
-                                                                 "distance-S = "+safeDistance+", speed "+speed*1000));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                   ((Node)owner).getID()+" approaching intersection, "+
+                                                                   "distance-S = "+safeDistance+", speed "+speed*1000));
                         // if the IDM computation leads to zero speed, it means
                         // that we reached the stop sign: start to wait
                         if(speed == 0) {
                           Point intersection_p = getNextIntersection();
                           Vertex intersection_v = graph.getVertex(intersection_p.getX(), intersection_p.getY());
                           stopWaitTime = spatialModel.vehiclesInJunction(intersection_v) * stopWaitStep;
-                          spatialModel.addVehicleInJunction(intersection_v);
-                          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                            ((Node)owner).getID()+" add vehicle to intersection " +
-                                                                            intersection_p.getX()+","+intersection_p.getY()+
-                                                                            " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
+                          joinJunction(intersection_v);
+                          if (u.isDebugEnabled(DebugNotification.FINE))
+                            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                              ((Node)owner).getID()+" add vehicle to intersection " +
+                                                                              intersection_p.getX()+","+intersection_p.getY()+
+                                                                              " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
                           stopManagement = true;
                         }
                       }
@@ -664,12 +731,14 @@ public class IDM_IM extends IntelligentDriverMotion
                     // if it can move on or it still has to keep waiting 
                     else {
                       stopWaitTime -= recalculation_step*u.getStepDuration();
-                      u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                               ((Node)owner).getID()+" waiting, still "+
-                                                               stopWaitTime+" before leaving"));
+                      if (u.isDebugEnabled(DebugNotification.FINE))
+                        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                 ((Node)owner).getID()+" waiting, still "+
+                                                                 stopWaitTime+" before leaving"));
                       if (stopWaitTime <= 0) {
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                 ((Node)owner).getID()+" leaving now!"));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                   ((Node)owner).getID()+" leaving now!"));
                         speed = Math.min(tripEndSpeed,IDM(d_speed1, d_1));
                       }
                     }
@@ -680,7 +749,8 @@ public class IDM_IM extends IntelligentDriverMotion
       }
     }
     
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
   }
 
   /**
@@ -694,11 +764,25 @@ public class IDM_IM extends IntelligentDriverMotion
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     boolean speedChanged = false;
+
+    // the speed may have been recalculated by prepare(),
+    // the junction is joined in order
+    boolean prepared = this.prepared;
+    this.prepared = false;
+    if (pendingJunction!=null)
+    {
+      spatialModel.addVehicleInJunction(pendingJunction);
+      pendingJunction = null;
+    }
     
     //if node has arrived to destination and stayed enough, a new destination
     //choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -720,23 +804,27 @@ public class IDM_IM extends IntelligentDriverMotion
     {
       if ((!speedChanged) && (u.getTimeInSteps()%recalculation_step==0))
       {
-        recalculateSpeed();
+        if (!prepared)
+          recalculateSpeed();
         speedChanged = true;
       }
 
       // do not move in a jam, wait for the next recalculation
       if (speed==0.0f)
+      {
+        publishState();
         return 0;
+      }
 
       //move towards destination
-      Vector3D m = movement.mult(speed*u.getStepDuration());
-      if(owner.getPosition().getDistance(destination) >= m.getLength())
+      Vector3D m = stepMovement.setScaled(movement, speed*u.getStepDuration());
+      if(owner.getDistance(destination) >= m.getLength())
       {
         if (speedChanged)
         {
           // check if the next speed change event is about to occur before arriving to destination
           double dist = (recalculation_step-u.getTimeInSteps()%recalculation_step)*u.getStepDuration()*(double)speed;
-          if (owner.getPosition().getDistance(destination) < dist)
+          if (owner.getDistance(destination) < dist)
           {                
             /* u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
                                                ((Node)owner).getID()+
@@ -744,33 +832,36 @@ public class IDM_IM extends IntelligentDriverMotion
                                                ","+owner.getPosition().getY()+
                                                "], dest ["+destination.getX()+
                                                ","+destination.getY()+
-                                               "] --> distance "+owner.getPosition().getDistance(destination)+
+                                               "] --> distance "+owner.getDistance(destination)+
                                                ", stepMovement "+m.getLength()+
                                                ", speedChanged "+speedChanged+
                                                ", speed "+speed+" ")); */
             // move to destination
-            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
             // update distance and segments to next intersection and trip end
-            distanceToIntersection -= (float)owner.getPosition().getDistance(destination);
-            distanceToTripEnd -= (float)owner.getPosition().getDistance(destination);
+            distanceToIntersection -= (float)owner.getDistance(destination);
+            distanceToTripEnd -= (float)owner.getDistance(destination);
             segmentsToIntersection--;
           }
           else
           {
             // move until the next speed change event occur
-            u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
             // update distance to next intersection and trip end
             distanceToIntersection -= (float)dist;
             distanceToTripEnd -= (float)dist;
           }
         }
         
-        owner.setPosition(owner.getPosition().add(m));
+        owner.move(m);
       }
       else
       {
         if (speedChanged) {
-          u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+          if (u.hasNotificationListeners(MovementChangedNotification.class))
+            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
           // update distance and segmentsto next intersection and trip end
           distanceToIntersection -= (float)m.getLength();
           distanceToTripEnd -= (float)m.getLength();
@@ -787,11 +878,12 @@ public class IDM_IM extends IntelligentDriverMotion
         if (graph != null) {
           Point intersection_p = getNextIntersection();
           if (intersection_p != null) {
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" reached destination [" +
-                                                     destination.getX()+","+destination.getY()+
-                                                     "], next intersection ["+intersection_p.getX()+
-                                                     ","+intersection_p.getY()+"]"));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" reached destination [" +
+                                                       destination.getX()+","+destination.getY()+
+                                                       "], next intersection ["+intersection_p.getX()+
+                                                       ","+intersection_p.getY()+"]"));
             // if this vehicle reached the intersection and stop intersection
             // management is active disable it and notify junction
             if (stopManagement &&
@@ -800,10 +892,11 @@ public class IDM_IM extends IntelligentDriverMotion
               stopManagement = false;
               Vertex intersection_v = graph.getVertex(intersection_p.getX(), intersection_p.getY());
               spatialModel.removeVehicleInJunction(intersection_v);
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" remove vehicle from intersection " +
-                                                       destination.getX()+","+destination.getY()+
-                                                       " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" remove vehicle from intersection " +
+                                                         destination.getX()+","+destination.getY()+
+                                                         " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
             }
             // if this vehicle reached the intersection and traffic
             // lights intersection management is active disable it
@@ -811,8 +904,9 @@ public class IDM_IM extends IntelligentDriverMotion
                 destination.getX() == intersection_p.getX() &&
                 destination.getY() == intersection_p.getY()) {
               lightsManagement = false;
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" setting light management OFF"));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" setting light management OFF"));
             }
           }
           else {
@@ -820,10 +914,11 @@ public class IDM_IM extends IntelligentDriverMotion
             //                      and there is no intersection before the end of trip,
             //                      we cannot reach any intersection. So, just update
             //                      the car position and wait for the next time step
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" reached destination [" +
-                                                     destination.getX()+","+destination.getY()+
-                                                     "] no new intersection before the end of this trip (end of trip on intermediate point"));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" reached destination [" +
+                                                       destination.getX()+","+destination.getY()+
+                                                       "] no new intersection before the end of this trip (end of trip on intermediate point"));
             // if stop management is active, turn it off now
             if (stopManagement) {
               stopManagement = false;
@@ -837,6 +932,8 @@ public class IDM_IM extends IntelligentDriverMotion
       }
     }
     
+    publishState();
+
     return 0;
   }
 
@@ -34,6 +34,11 @@ import de.uni_stuttgart.informatik.canu.uomm.*;
  */
 public class IDM_LC extends IDM_IM
 {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * Maximum safe deceleration (in meters/ms^2) 
    */
@@ -61,6 +66,43 @@ public class IDM_LC extends IDM_IM
    */
   protected float biasRight = 0.2e-6f;         // in m/ms^2
 
+  /**
+   * Selects the vehicles considered as neighbours by MOBIL
+   */
+  protected TrafficIndex.Filter neighbourFilter = createNeighbourFilter();
+
+  /**
+   * Creates the filter selecting the neighbours of the vehicle. <br>
+   * <br>
+   * @return neighbour filter
+   */
+  protected TrafficIndex.Filter createNeighbourFilter()
+  {
+    return new TrafficIndex.Filter()
+    {
+      public boolean accept(Node node)
+      {
+        if (owner==node)
+          return false;
+
+        Movement n_m = (Movement)node.getExtension(Movement.SLOT);
+        if (!(n_m instanceof IDM_LC))
+          return false;
+
+        IDM_LC n_mf = (IDM_LC)n_m;
+        // ignore paused cars
+        if ((n_mf.destination==null)||(n_mf.stay!=0))
+          return false;
+
+        // ignore cars moving through an intersection
+        if (n_mf.isCrossingIntersection())
+          return false;
+
+        return true;
+      }
+    };
+  }
+
   /**
    * Constructor
    */
@@ -78,6 +120,20 @@ public class IDM_LC extends IDM_IM
     return "Intelligent Driver Model with Lane Changing Behavior";
   }
 
+  /**
+   * Creates a copy of the module for another object. <br>
+   * <br>
+   * @param owner owner of the copy
+   * @return copy of the module
+   */
+  public ExtensionModule copy(ExtendableObject owner)
+  {
+    IDM_LC res = (IDM_LC)super.copy(owner);
+    res.neighbourFilter = res.createNeighbourFilter();
+
+    return res;
+  }
+
   /**
    * Returns new IDM acceleration between two nodes. <br>
    * <br>
@@ -92,24 +148,25 @@ public class IDM_LC extends IDM_IM
     float speedDiff = 0.0f;
  
     if (backNode != null)
-      backMobil = (IDM_LC)backNode.getExtension("Movement");
+      backMobil = (IDM_LC)backNode.getExtension(Movement.SLOT);
     else
       return 0.0f;
+    float backSpeed = backMobil.getObservedSpeed();
 
     if (frontNode != null) {
-      frontMobil = (IDM_LC)frontNode.getExtension("Movement");
+      frontMobil = (IDM_LC)frontNode.getExtension(Movement.SLOT);
       float backDistance = backMobil.getDistanceToIntersection();
       float frontDistance = frontMobil.getDistanceToIntersection();
       gap = backDistance - frontDistance - frontMobil.vehicleLength;
-      speedDiff = backMobil.speed - frontMobil.speed;
+      speedDiff = backSpeed - frontMobil.getObservedSpeed();
     }
     else {
       //gap = (float)backNode.getPosition().getDistance(oldPosition);
-      speedDiff = backMobil.speed - 0.0f;
+      speedDiff = backSpeed - 0.0f;
     }
 
-    float ss = (float)(s0 + Math.max(backMobil.speed*t+backMobil.speed*speedDiff/(2.0*Math.sqrt(a*b)), 0));
-    float dv = (float)(a*(1-Math.pow(backMobil.speed/backMobil.desiredSpeed, 4)-Math.pow(ss/gap, 2)));
+    float ss = (float)(s0 + Math.max(backSpeed*t+backSpeed*speedDiff/(2.0*Math.sqrt(a*b)), 0));
+    float dv = (float)(a*(1-Math.pow(backSpeed/backMobil.desiredSpeed, 4)-Math.pow(ss/gap, 2)));
     
     return dv;
   }
@@ -144,140 +201,57 @@ public class IDM_LC extends IDM_IM
       // proceed only if the current road has multiple lanes
       if (nextRoadElement != null && numLanes > 1) {
 
-        // initialize front and back nodes nodes on the current, right and left lanes
-        Node currFrontNode = null, currBackNode = null;
-        float currFrontGap = Float.MAX_VALUE;
-        float currBackGap = Float.MAX_VALUE;
-        Node  rightFrontNode = null, rightBackNode = null;
-        float rightFrontGap = Float.MAX_VALUE;
-        float rightBackGap = Float.MAX_VALUE;
-        Node leftFrontNode = null, leftBackNode = null;
-        float leftFrontGap = Float.MAX_VALUE;
-        float leftBackGap = Float.MAX_VALUE;
-
-        // find front and back nodes nodes on the current, right and left lanes
-        java.util.Iterator iter = u.getNodes().iterator();
-        while (iter.hasNext()) {
-          Node node = (Node)iter.next();
-
-          if (owner==node)
-            continue;
-
-          Movement n_m = (Movement)node.getExtension("Movement");
-          if (!(n_m instanceof IDM_LC))
-            continue;
-          
-          IDM_LC n_mf = (IDM_LC)n_m;
-          // ignore paused cars
-          if ((n_mf.destination==null)||(n_mf.stay!=0))
-            continue;
-
-          // ignore cars moving through an intersection
-          if ((n_mf.stopManagement && n_mf.stopWaitTime <= 0) ||
-               n_mf.lightsManagement)
-            continue;
-
-          // check if on the same road
-          if(!onSameRoad(owner, node))
-            continue;
-          
-          // current vehicle is on same lane
-          if (node.getLane() == owner.getLane()) {
-            float thisDistance = getDistanceToIntersection();
-            float nodeDistance = n_mf.getDistanceToIntersection();
-            // check if front vehicle
-            if (thisDistance >= nodeDistance) {
-              float d = thisDistance - nodeDistance - n_mf.vehicleLength;
-              if(d < currFrontGap) {
-                currFrontNode = node;
-                currFrontGap = d;
-              }
-            }
-            // check if back vehicle
-            else {
-              float d = nodeDistance - thisDistance - vehicleLength;
-              if(d < currBackGap) {
-                currBackNode = node;
-                currBackGap = d;
-              }
-            }
-          }
-  
-          // current vehicle is on the right lane
-          else if (node.getLane() == owner.getLane()-1) {
-            float thisDistance = getDistanceToIntersection();
-            float nodeDistance = n_mf.getDistanceToIntersection();
-            // check if front vehicle
-            if (thisDistance >= nodeDistance) {
-              float d = thisDistance - nodeDistance - n_mf.vehicleLength;
-              if(d < rightFrontGap) {
-                rightFrontNode = node;
-                rightFrontGap = d;
-              }
-            }
-            // check if back vehicle
-            else {
-              float d = nodeDistance - thisDistance - vehicleLength;
-              if(d < rightBackGap) {
-                rightBackNode = node;
-                rightBackGap = d;
-              }
-            }
-          }
+        // find front and back nodes on the current, right and left lanes
+        TrafficIndex index = spatialModel.getTrafficIndex();
+        int lane = owner.getLane();
+        float thisDistance = getDistanceToIntersection();
 
-          // current vehicle is on the left lane
-          else if (node.getLane() == owner.getLane()+1) {
-            float thisDistance = getDistanceToIntersection();
-            float nodeDistance = n_mf.getDistanceToIntersection();
-            // check if front vehicle
-            if (thisDistance >= nodeDistance) {
-              float d = thisDistance - nodeDistance - n_mf.vehicleLength;
-              if(d < leftFrontGap) {
-                leftFrontNode = node;
-                leftFrontGap = d;
-              }
-            }
-            // check if back vehicle
-            else {
-              float d = nodeDistance - thisDistance - vehicleLength;
-              if(d < leftBackGap) {
-                leftBackNode = node;
-                leftBackGap = d;
-              }
-            }
-          }
-      
-          // current vehicle is more than one lane far away
-          else
-            continue;
-        }
+        TrafficIndex.Neighbour currFront = index.findAhead(trafficRoad, lane, thisDistance, neighbourFilter);
+        TrafficIndex.Neighbour currBack = index.findBehind(trafficRoad, lane, thisDistance, vehicleLength, neighbourFilter);
+        TrafficIndex.Neighbour rightFront = index.findAhead(trafficRoad, lane-1, thisDistance, neighbourFilter);
+        TrafficIndex.Neighbour rightBack = index.findBehind(trafficRoad, lane-1, thisDistance, vehicleLength, neighbourFilter);
+        TrafficIndex.Neighbour leftFront = index.findAhead(trafficRoad, lane+1, thisDistance, neighbourFilter);
+        TrafficIndex.Neighbour leftBack = index.findBehind(trafficRoad, lane+1, thisDistance, vehicleLength, neighbourFilter);
+
+        Node currFrontNode = currFront.getNode(), currBackNode = currBack.getNode();
+        float currFrontGap = currFront.getGap();
+        float currBackGap = currBack.getGap();
+        Node  rightFrontNode = rightFront.getNode(), rightBackNode = rightBack.getNode();
+        float rightFrontGap = rightFront.getGap();
+        float rightBackGap = rightBack.getGap();
+        Node leftFrontNode = leftFront.getNode(), leftBackNode = leftBack.getNode();
+        float leftFrontGap = leftFront.getGap();
+        float leftBackGap = leftBack.getGap();
         
         // debug
-        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()));
-        if (currFrontNode != null)
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] currFrontNode "+currFrontNode.getID()+", gap "+currFrontGap));
-        else
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] currFrontNode NULL, gap "+currFrontGap));
-        if (currBackNode != null)
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] currBackNode "+currBackNode.getID()+", gap "+currBackGap));
-        else
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] currBackNode NULL, gap "+currBackGap));
-        if (rightFrontNode != null)
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] rightFrontNode "+rightFrontNode.getID()+", gap "+rightFrontGap));
-        else
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] rightFrontNode NULL, gap "+rightFrontGap));
-        if (rightBackNode != null)
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] rightBackNode "+rightBackNode.getID()+", gap "+rightBackGap));
-        else
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] rightBackNode NULL, gap "+rightBackGap));
-        if (leftFrontNode != null)
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] leftFrontNode "+leftFrontNode.getID()+", gap "+leftFrontGap));
-        else
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] leftFrontNode NULL, gap "+leftFrontGap));
-        if (leftBackNode != null)
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] leftBackNode "+leftBackNode.getID()+", gap "+leftBackGap));
-        else
-          u.sendNotification(new DebugNotification(this, u, "               [MOBIL] leftBackNode NULL, gap "+leftBackGap));
+        if (u.isDebugEnabled(DebugNotification.FINEST))
+        {
+          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+((Node)owner).getID()));
+          if (currFrontNode != null)
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] currFrontNode "+currFrontNode.getID()+", gap "+currFrontGap));
+          else
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] currFrontNode NULL, gap "+currFrontGap));
+          if (currBackNode != null)
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] currBackNode "+currBackNode.getID()+", gap "+currBackGap));
+          else
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] currBackNode NULL, gap "+currBackGap));
+          if (rightFrontNode != null)
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] rightFrontNode "+rightFrontNode.getID()+", gap "+rightFrontGap));
+          else
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] rightFrontNode NULL, gap "+rightFrontGap));
+          if (rightBackNode != null)
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] rightBackNode "+rightBackNode.getID()+", gap "+rightBackGap));
+          else
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] rightBackNode NULL, gap "+rightBackGap));
+          if (leftFrontNode != null)
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] leftFrontNode "+leftFrontNode.getID()+", gap "+leftFrontGap));
+          else
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] leftFrontNode NULL, gap "+leftFrontGap));
+          if (leftBackNode != null)
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] leftBackNode "+leftBackNode.getID()+", gap "+leftBackGap));
+          else
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "               [MOBIL] leftBackNode NULL, gap "+leftBackGap));
+        }
 
         // if right lane exists and safety conditions
         // are respected, evaluate movement to right lane
@@ -319,20 +293,23 @@ public class IDM_LC extends IDM_IM
           leftAdv -= p * disadv;
         }
 
-        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
-                                                          " [MOBIL] rightAdv "+rightAdv+ ", leftAdv "+leftAdv));
+        if (u.isDebugEnabled(DebugNotification.FINE))
+          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
+                                                            " [MOBIL] rightAdv "+rightAdv+ ", leftAdv "+leftAdv));
 
         // move to right lane
         if(rightAdv >= leftAdv && rightAdv > athr) {
           owner.setLane(owner.getLane()-1);
-          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
-                                                            " [MOBIL] move to right lane,"));
+          if (u.isDebugEnabled(DebugNotification.FINE))
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
+                                                              " [MOBIL] move to right lane,"));
         }
         // move to left lane
         if(leftAdv > rightAdv && leftAdv > athr) {
           owner.setLane(owner.getLane()+1);
-          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
-                                                            " [MOBIL] move to left lane,"));
+          if (u.isDebugEnabled(DebugNotification.FINE))
+            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+
+                                                              " [MOBIL] move to left lane,"));
         }
       }
 
@@ -376,104 +353,90 @@ public class IDM_LC extends IDM_IM
         float d_speed1 = 0.0f;
         float d_1 = Float.MAX_VALUE;
 
-        float d_speed2 = 0.0f;
-        float d_2 = Float.MAX_VALUE;
-        
         // this vechile's distance from next intersection
         float thisDistance = getDistanceToIntersection();
 
-        // find two closest cars in front
-        java.util.Iterator iter = u.getNodes().iterator();
+        // find the closest car in front, looking only at
+        // cars on the same road and lane, closest first
+        TrafficIndex index = spatialModel.getTrafficIndex();
+        float maxLength = index.getMaxLength();
+        java.util.Iterator iter = index.getAhead(trafficRoad, owner.getLane(), thisDistance);
         while (iter.hasNext())
         {
           Node node = (Node)iter.next();
           if (owner==node)
             continue;
 
-          Movement n_m = (Movement)node.getExtension("Movement");
+          Movement n_m = (Movement)node.getExtension(Movement.SLOT);
           if (!(n_m instanceof IDM_LC))
             continue;
-          
+
           IDM_LC n_mf = (IDM_LC)n_m;
+
+          // current vehicle's distance from intersection
+          float nodeDistance = n_mf.getDistanceToIntersection();
+
+          // stop when no further car can be closer, nor within jam distance
+          float minDistance = thisDistance - nodeDistance - maxLength;
+          if (minDistance>=d_1 && (speed!=0 || minDistance>=s0))
+            break;
+
           // ignore paused cars
           if ((n_mf.destination==null)||(n_mf.stay!=0))
             continue;
 
           // ignore cars moving through an intersection
-          if ((n_mf.stopManagement && n_mf.stopWaitTime <= 0) ||
-               n_mf.lightsManagement)
-            continue;
-
-          // check if on the same road
-          if(!onSameRoad(owner, node))
-            continue;
-          
-          // check if on the same lane
-          if(owner.getLane() != node.getLane())
+          if (n_mf.isCrossingIntersection())
             continue;
 
-          // current vehicle's distance from intersection
-          float nodeDistance = n_mf.getDistanceToIntersection();
-
-          // check if in front
-          if (thisDistance >= nodeDistance)
+          float d = thisDistance - nodeDistance - n_mf.vehicleLength;
+          // check if closer than at jam distance
+          if (d<s0)
           {
-            float d = thisDistance - nodeDistance - n_mf.vehicleLength;
-            // check if closer than at jam distance
-            if (d<s0)
+            if (speed==0)
             {
-              if (speed==0)
+              // wait till nodes with lower IDs depart
+              //if (owner.getID().compareTo(node.getID())>=0)
+              if (Integer.parseInt(owner.getID().substring(1)) >= Integer.parseInt(node.getID().substring(1)))
               {
-                // wait till nodes with lower IDs depart
-                //if (owner.getID().compareTo(node.getID())>=0)
-                if (Integer.parseInt(owner.getID().substring(1)) >= Integer.parseInt(node.getID().substring(1)))
-                {
-                  //speed = Float.NaN;
-                  speed = 0.0f;
-                  u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
+                //speed = Float.NaN;
+                speed = 0.0f;
+                if (u.isDebugEnabled(DebugNotification.FINEST))
+                  u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
                                                    ((Node)owner).getID()+" found identical node "+
                                                    ((Node)node).getID()));
-                  return;
-                }
-                else {
-                  // if distance is less than zero, it means that the nodes
-                  // are overlapped at some entry/exit point. Ignore the node
-                  if (d <= 0)
-                    continue;
-                  // if the distance is less than than the safety, but higher
-                  // than zero, it means that the current car stopped within
-                  // safety distance from the ahead vehicle, due to the finite
-                  // precision of the model. The node has to be considered in
-                  // the front node discovery process
-                  else
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                   ((Node)owner).getID()+" found node within safety distance "+
-                                                   ((Node)node).getID()));
-                }
+                return;
+              }
+              else {
+                // if distance is less than zero, it means that the nodes
+                // are overlapped at some entry/exit point. Ignore the node
+                if (d <= 0)
+                  continue;
+                // if the distance is less than than the safety, but higher
+                // than zero, it means that the current car stopped within
+                // safety distance from the ahead vehicle, due to the finite
+                // precision of the model. The node has to be considered in
+                // the front node discovery process
+                else
+                if (u.isDebugEnabled(DebugNotification.FINEST))
+                  u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
+                                                 ((Node)owner).getID()+" found node within safety distance "+
+                                                 ((Node)node).getID()));
               }
             }
-            
-            if (d<d_1)
-            {
-              d_2 = d_1;
-              d_speed2 = d_speed1;
+          }
 
-              d_1 = d;
-              d_speed1 = speed - n_mf.speed;
-              n1_mf = n_mf;
-              front = node;
-            }
-            else
-            if (d<d_2)
-            {
-              d_2 = d;
-              d_speed2 = speed - n_mf.speed;
-            }
+          if (d<d_1)
+          {
+            d_1 = d;
+            d_speed1 = speed - n_mf.getObservedSpeed();
+            n1_mf = n_mf;
+            front = node;
           }
         }
 
-        if(front!=null)
-          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
+        if(front!=null && u.isDebugEnabled(DebugNotification.FINEST))
+          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINEST, "at "+u.getTimeAsString()+" "+
                                                    ((Node)owner).getID()+" found front node "+
                                                    ((Node)front).getID()));
 
@@ -492,9 +455,10 @@ public class IDM_LC extends IDM_IM
         // A 1.0 meter bias is introduced so to ensure
         // that the end of trip is actually reached
         float tripEndSpeed = IDM(speed, getDistanceToTripEnd()+s0+1.0f);
-        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                 ((Node)owner).getID()+" trip end speed "+
-                                                 tripEndSpeed*1000));
+        if (u.isDebugEnabled(DebugNotification.FINE))
+          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                   ((Node)owner).getID()+" trip end speed "+
+                                                   tripEndSpeed*1000));
 
         // if this vehicle is not the first on its
         // lane, use standard IDM speed computation
@@ -538,10 +502,11 @@ public class IDM_LC extends IDM_IM
             if (Integer.parseInt((String)road_a.getAttributes().get("NL")) < owner.getLane()) {
               d_1 = getDistanceToIntersection() - S;
               d_speed1 = speed;
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+
-                                                       " "+((Node)owner).getID()+ " current lane "+owner.getLane()+
-                                                       ", next road has"+Integer.parseInt((String)road_a.getAttributes().get("NL"))+
-                                                       " lanes --> force merging to the right"));    
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+
+                                                         " "+((Node)owner).getID()+ " current lane "+owner.getLane()+
+                                                         ", next road has"+Integer.parseInt((String)road_a.getAttributes().get("NL"))+
+                                                         " lanes --> force merging to the right"));    
             }
           }
 
@@ -564,8 +529,9 @@ public class IDM_LC extends IDM_IM
 
             case 5: // green traffic light: do not stop
                     speed = Math.min(tripEndSpeed,IDM(d_speed1, d_1));
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+": green light"));
+                    if (u.isDebugEnabled(DebugNotification.FINE))
+                      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+": green light"));
                     break;
 
             case 1: // red traffic light: stop if safe
@@ -573,27 +539,31 @@ public class IDM_LC extends IDM_IM
                     float minimumStopDistance = (float)Math.pow((double)speed,2)/(5*b);
                     // if the vechicle is already within safety distance S
                     // from intersection, keep crossing the intersection
-                    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+": red light |"+
-                                                             " distance to stop place "+safeDistance+
-                                                             ", minimum stop distance "+minimumStopDistance));
+                    if (u.isDebugEnabled(DebugNotification.FINE))
+                      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+": red light |"+
+                                                               " distance to stop place "+safeDistance+
+                                                               ", minimum stop distance "+minimumStopDistance));
                     if(safeDistance < minimumStopDistance) {
                       speed = Math.min(tripEndSpeed,IDM(d_speed1, d_1));
                       if(lightsManagement == false) {
                         lightsManagement = true;
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+" setting light management ON"));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+" setting light management ON"));
                       }
                       else {
                         float covered = (recalculation_step-u.getTimeInSteps()%recalculation_step)*u.getStepDuration()*speed;
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                   ((Node)owner).getID()+" covered "+covered+
-                                                                   ", distance "+getDistanceToIntersection()));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                     ((Node)owner).getID()+" covered "+covered+
+                                                                     ", distance "+getDistanceToIntersection()));
                         // stop crossing the intersection
                         if(getDistanceToIntersection() < covered) {
                           lightsManagement = false;
-                          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                             ((Node)owner).getID()+" setting light management OFF"));
+                          if (u.isDebugEnabled(DebugNotification.FINE))
+                            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                               ((Node)owner).getID()+" setting light management OFF"));
                         }
                       }
                     }
@@ -605,27 +575,30 @@ public class IDM_LC extends IDM_IM
 
             case 2: // stop sign: stop and wait
                     if(speed != 0) {
-                      u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                               ((Node)owner).getID()+" speed != 0"));
+                      if (u.isDebugEnabled(DebugNotification.FINE))
+                        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                 ((Node)owner).getID()+" speed != 0"));
                       // if the vehicle is approaching the stop sign, update
                       // speed according to IDM in a way to stop at intersection
                       if(!stopManagement) {
                         safeDistance = getDistanceToIntersection() - S;
                         speed = Math.min(tripEndSpeed,IDM(speed, safeDistance));
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                 ((Node)owner).getID()+" approaching intersection, "+
-                                                                 "distance-S = "+safeDistance+", speed "+speed*1000));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                   ((Node)owner).getID()+" approaching intersection, "+
+                                                                   "distance-S = "+safeDistance+", speed "+speed*1000));
                         // if the IDM computation leads to zero speed, it means
                         // that we reached the stop sign: start to wait
                         if(speed == 0) {
                           Point intersection_p = getNextIntersection();
                           Vertex intersection_v = graph.getVertex(intersection_p.getX(), intersection_p.getY());
                           stopWaitTime = spatialModel.vehiclesInJunction(intersection_v) * stopWaitStep;
-                          spatialModel.addVehicleInJunction(intersection_v);
-                          u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                            ((Node)owner).getID()+" add vehicle to intersection " +
-                                                                            intersection_p.getX()+","+intersection_p.getY()+
-                                                                            " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
+                          joinJunction(intersection_v);
+                          if (u.isDebugEnabled(DebugNotification.FINE))
+                            u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                              ((Node)owner).getID()+" add vehicle to intersection " +
+                                                                              intersection_p.getX()+","+intersection_p.getY()+
+                                                                              " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
                           stopManagement = true;
                         }
                       }
@@ -639,12 +612,14 @@ public class IDM_LC extends IDM_IM
                     // if it can move on or it still has to keep waiting 
                     else {
                       stopWaitTime -= recalculation_step*u.getStepDuration();
-                      u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                               ((Node)owner).getID()+" waiting, still "+
-                                                               stopWaitTime+" before leaving"));
+                      if (u.isDebugEnabled(DebugNotification.FINE))
+                        u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                 ((Node)owner).getID()+" waiting, still "+
+                                                                 stopWaitTime+" before leaving"));
                       if (stopWaitTime <= 0) {
-                        u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                                 ((Node)owner).getID()+" leaving now!"));
+                        if (u.isDebugEnabled(DebugNotification.FINE))
+                          u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                                   ((Node)owner).getID()+" leaving now!"));
                         speed = Math.min(tripEndSpeed,IDM(d_speed1, d_1));
                       }
                     }
@@ -655,7 +630,38 @@ public class IDM_LC extends IDM_IM
       }
     }
     
-    u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
+    if (u.isDebugEnabled(DebugNotification.FINE))
+      u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+((Node)owner).getID()+" changes speed to "+speed*1000.0f+" m/s"));    
+  }
+
+  /**
+   * Prepares the next execution of the extension. <br>
+   * <br>
+   * Performs the lane change and recalculates the vehicle's speed
+   * before the nodes are executed.
+   */
+  public void prepare()
+  {
+    if (isPreparable() && (u.getTimeInSteps()%recalculation_step == recalculation_step-1))
+    {
+      changeLane();
+      prepared = true;
+    }
+    else
+      super.prepare();
+  }
+
+  /**
+   * Gets the next timestep, at which the vehicle's speed or lane may change. <br>
+   * <br>
+   * @return first timestep after the current one, at which the lane change
+   *         or the speed is computed
+   */
+  protected long getNextRecalculationTime()
+  {
+    long time = super.getNextRecalculationTime();
+    // the lane change is computed one step before the speed
+    return (time-1>u.getTimeInSteps()) ? time-1 : time;
   }
 
   /**
@@ -669,11 +675,25 @@ public class IDM_LC extends IDM_IM
   {
     Node owner = (Node)this.owner;
 
+    // consume the stay skipped by the event scheduler
+    stay -= skippedStaySteps*u.getStepDuration();
+    skippedStaySteps = 0;
+
     boolean speedChanged = false;
+
+    // the speed may have been recalculated by prepare(),
+    // the junction is joined in order
+    boolean prepared = this.prepared;
+    this.prepared = false;
+    if (pendingJunction!=null)
+    {
+      spatialModel.addVehicleInJunction(pendingJunction);
+      pendingJunction = null;
+    }
     
     //if node has arrived to destination and stayed enough, a new destination
     //choosen
-    if ((destination==null)||(owner.getPosition().equals(destination)))
+    if ((destination==null)||(owner.isAt(destination)))
     {
       if(movement != null)
       {
@@ -694,29 +714,33 @@ public class IDM_LC extends IDM_IM
     if (movement!=null)
     {
       // perform lane changing computation one simulation step before AIDM computation
-      if (u.getTimeInSteps()%recalculation_step == recalculation_step-1) {
+      if ((!prepared) && (u.getTimeInSteps()%recalculation_step == recalculation_step-1)) {
         changeLane();
       }
 
       if ((!speedChanged) && (u.getTimeInSteps()%recalculation_step==0))
       {
-        recalculateSpeed();
+        if (!prepared)
+          recalculateSpeed();
         speedChanged = true;
       }
 
       // do not move in a jam, wait for the next recalculation
       if (speed==0.0f)
+      {
+        publishState();
         return 0;
+      }
 
       // move towards destination
-      Vector3D m = movement.mult(speed*u.getStepDuration());
-      if(owner.getPosition().getDistance(destination) >= m.getLength())
+      Vector3D m = stepMovement.setScaled(movement, speed*u.getStepDuration());
+      if(owner.getDistance(destination) >= m.getLength())
       {
         if (speedChanged)
         {
           // check if the next speed change event is about to occur before arriving to destination
           double dist = (recalculation_step-u.getTimeInSteps()%recalculation_step)*u.getStepDuration()*(double)speed;
-          if (owner.getPosition().getDistance(destination) < dist)
+          if (owner.getDistance(destination) < dist)
           {                
             /* u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
                                                ((Node)owner).getID()+
@@ -724,33 +748,36 @@ public class IDM_LC extends IDM_IM
                                                ","+owner.getPosition().getY()+
                                                "], dest ["+destination.getX()+
                                                ","+destination.getY()+
-                                               "] --> distance "+owner.getPosition().getDistance(destination)+
+                                               "] --> distance "+owner.getDistance(destination)+
                                                ", stepMovement "+m.getLength()+
                                                ", speedChanged "+speedChanged+
                                                ", speed "+speed+" ")); */
             // move to destination
-            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
             // update distance and segments to next intersection and trip end
-            distanceToIntersection -= (float)owner.getPosition().getDistance(destination);
-            distanceToTripEnd -= (float)owner.getPosition().getDistance(destination);
+            distanceToIntersection -= (float)owner.getDistance(destination);
+            distanceToTripEnd -= (float)owner.getDistance(destination);
             segmentsToIntersection--;
           }
           else
           {
             // move until the next speed change event occur
-            u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
+            if (u.hasNotificationListeners(MovementChangedNotification.class))
+              u.sendNotification(new MovementChangedNotification(this, u, owner.getPosition().add(movement.mult(dist)), speed*1000f));
             // update distance to next intersection and trip end
             distanceToIntersection -= (float)dist;
             distanceToTripEnd -= (float)dist;
           }
         }
         
-        owner.setPosition(owner.getPosition().add(m));
+        owner.move(m);
       }
       else
       {
         if (speedChanged) {
-          u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
+          if (u.hasNotificationListeners(MovementChangedNotification.class))
+            u.sendNotification(new MovementChangedNotification(this, u, destination, speed*1000f));
           // update distance and segmentsto next intersection and trip end
           distanceToIntersection -= (float)m.getLength();
           distanceToTripEnd -= (float)m.getLength();
@@ -767,11 +794,12 @@ public class IDM_LC extends IDM_IM
         if (graph!=null) {
           Point intersection_p = getNextIntersection();
           if (intersection_p != null) {
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" reached destination [" +
-                                                     destination.getX()+","+destination.getY()+
-                                                     "], next intersection ["+intersection_p.getX()+
-                                                     ","+intersection_p.getY()+"]"));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" reached destination [" +
+                                                       destination.getX()+","+destination.getY()+
+                                                       "], next intersection ["+intersection_p.getX()+
+                                                       ","+intersection_p.getY()+"]"));
             // if this vehicle reached the intersection and stop intersection
             // management is active disable it and notify junction
             if (stopManagement &&
@@ -780,10 +808,11 @@ public class IDM_LC extends IDM_IM
               stopManagement = false;
               Vertex intersection_v = graph.getVertex(intersection_p.getX(), intersection_p.getY());
               spatialModel.removeVehicleInJunction(intersection_v);
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" remove vehicle from intersection " +
-                                                       destination.getX()+","+destination.getY()+
-                                                       " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" remove vehicle from intersection " +
+                                                         destination.getX()+","+destination.getY()+
+                                                         " --> total "+spatialModel.vehiclesInJunction(intersection_v)));
             }
             // if this vehicle reached the intersection and traffic
             // lights intersection management is active disable it
@@ -791,8 +820,9 @@ public class IDM_LC extends IDM_IM
                 destination.getX() == intersection_p.getX() &&
                 destination.getY() == intersection_p.getY()) {
               lightsManagement = false;
-              u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                       ((Node)owner).getID()+" setting light management OFF"));
+              if (u.isDebugEnabled(DebugNotification.FINE))
+                u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                         ((Node)owner).getID()+" setting light management OFF"));
             }
           }
           else {
@@ -800,10 +830,11 @@ public class IDM_LC extends IDM_IM
             //                      and there is no intersection before the end of trip,
             //                      we cannot reach any intersection. So, just update
             //                      the car position and wait for the next time step
-            u.sendNotification(new DebugNotification(this, u, "at "+u.getTimeAsString()+" "+
-                                                     ((Node)owner).getID()+" reached destination [" +
-                                                     destination.getX()+","+destination.getY()+
-                                                     "] no new intersection before the end of this trip (end of trip on intermediate point"));
+            if (u.isDebugEnabled(DebugNotification.FINE))
+              u.sendNotification(new DebugNotification(this, u, DebugNotification.FINE, "at "+u.getTimeAsString()+" "+
+                                                       ((Node)owner).getID()+" reached destination [" +
+                                                       destination.getX()+","+destination.getY()+
+                                                       "] no new intersection before the end of this trip (end of trip on intermediate point"));
             // if stop management is active, turn it off now
             if (stopManagement) {
               stopManagement = false;
@@ -817,6 +848,8 @@ public class IDM_LC extends IDM_IM
       }
     }
     
+    publishState();
+
     return 0;
   }
 
@@ -27,6 +27,10 @@ import eurecom.spatialmodel.extensions.*;
  * @version 1.0
  */
 public class UserGraph extends ExtensionModule {
+  /**
+   * Version of the class in the checkpoints
+   */
+  private static final long serialVersionUID = 1L;
   
 
  /**
@@ -110,7 +114,7 @@ public class UserGraph extends ExtensionModule {
 			try {
 				
 				java.util.Map elements = spatialModel.getElements();
-				java.util.Random rand=u.getRandom();
+				java.util.Random rand=getRandom();
 				
 				// JHNote (18/08/2005): We only consider roadElements and junctions.
 				String class_code = "41";
@@ -266,7 +270,7 @@ public class UserGraph extends ExtensionModule {
     }
 		
 		else {
-			spatialModel = (SpatialModel)u.getExtension("SpatialModel");
+			spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
 		}
 		
 		if (spatialModel == null)
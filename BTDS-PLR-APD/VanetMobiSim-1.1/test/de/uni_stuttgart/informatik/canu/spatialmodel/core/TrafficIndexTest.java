@@ -0,0 +1,102 @@
+package de.uni_stuttgart.informatik.canu.spatialmodel.core;
+
+/**
+ * <p>Title: Spatial Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002</p>
+ * <p>Company: University of Stuttgart</p>
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+
+/**
+ * This class tests the index of the vehicles moving on the roads. <br>
+ * <br>
+ * Run by the "test" target of the build script, the test fails
+ * by throwing an exception.
+ * @version 1.1
+ */
+public class TrafficIndexTest
+{
+  /**
+   * Runs the tests. <br>
+   * <br>
+   * @param args command line arguments (ignored)
+   * @throws Exception if a test fails
+   */
+  public static void main(String[] args) throws Exception
+  {
+    testRemovedLeader();
+  }
+
+  /**
+   * Checks that a node removed from the simulation is no longer
+   * found as the leader of its follower. <br>
+   * <br>
+   * @throws Exception if the test fails
+   */
+  protected static void testRemovedLeader() throws Exception
+  {
+    Universe u = new Universe();
+    Universe.setReference(u);
+    try
+    {
+      org.w3c.dom.Document document = javax.xml.parsers.DocumentBuilderFactory
+        .newInstance().newDocumentBuilder().newDocument();
+      SpatialModel spatialModel = new SpatialModel();
+      spatialModel.load(document.createElement("extension"));
+
+      Node prototype = new Node();
+      Node leader = prototype.copy("leader");
+      final Node follower = prototype.copy("follower");
+      u.addNode(leader);
+      u.addNode(follower);
+
+      TrafficIndex index = spatialModel.getTrafficIndex();
+      TrafficIndex.Road road = index.getRoad(
+        new Vertex("1", "", "0", "0"), new Vertex("2", "", "100", "0"));
+      index.update(leader, road, 0, 50.0f, 5.0f);
+      index.update(follower, road, 0, 80.0f, 5.0f);
+
+      // the follower looks for the vehicles other than itself
+      TrafficIndex.Filter others = new TrafficIndex.Filter()
+      {
+        public boolean accept(Node node)
+        {
+          return node!=follower;
+        }
+      };
+
+      TrafficIndex.Neighbour ahead = index.findAhead(road, 0, 80.0f, others);
+      check(ahead.getNode()==leader, "leader not found");
+      check(ahead.getGap()==25.0f, "wrong gap to the leader: "+ahead.getGap());
+
+      u.removeNode(leader);
+
+      ahead = index.findAhead(road, 0, 80.0f, others);
+      check(ahead.getNode()==null, "removed leader found");
+      java.util.Iterator iter = index.getAhead(road, 0, 80.0f);
+      while (iter.hasNext())
+        check(iter.next()!=leader, "removed leader still ahead");
+    }
+    finally
+    {
+      Universe.setReference(null);
+    }
+  }
+
+  /**
+   * Checks a condition. <br>
+   * <br>
+   * @param condition condition
+   * @param message message of the failure
+   * @throws Exception if the condition is false
+   */
+  protected static void check(boolean condition, String message) throws Exception
+  {
+    if (!condition)
+      throw new Exception(message);
+  }
+}
@@ -0,0 +1,327 @@
+package de.uni_stuttgart.informatik.canu.tripmodel.pathalgorithms;
+
+/**
+ * <p>Title: Trip Model</p>
+ * <p>Description: </p>
+ * <p>Copyright: Copyright (c) 2002-2003</p>
+ * <p>Company: University of Stuttgart</p>
+ * @author Canu Research group
+ * @version 1.1
+ */
+
+import de.uni_stuttgart.informatik.canu.mobisim.core.*;
+import de.uni_stuttgart.informatik.canu.mobisim.extensions.Graph;
+import de.uni_stuttgart.informatik.canu.mobisim.simulations.SimulationEngine;
+import de.uni_stuttgart.informatik.canu.senv.core.*;
+import de.uni_stuttgart.informatik.canu.spatialmodel.core.*;
+import de.uni_stuttgart.informatik.canu.tripmodel.core.PathSearchingAlgorithm;
+
+/**
+ * This class tests the path searches of the shortest path engine. <br>
+ * <br>
+ * The paths are searched with A*, the bidirectional search and the
+ * contraction hierarchy on a grid of roads with random speed limits, some
+ * of which are one-way roads. Their costs are compared with the costs
+ * found by a plain Dijkstra search of the test and by
+ * {@link ShortestPathEngine#findPath findPath}, for both metrics and with
+ * the one-way restriction on and off. Run by the "test" target of the
+ * build script, the test fails by throwing an exception.
+ * @author Canu Research group
+ */
+public class ShortestPathEngineTest
+{
+  /**
+   * Seed of the road network and of the searched vertices
+   */
+  protected static final long SEED = 25;
+
+  /**
+   * Number of blocks per side of the grid
+   */
+  protected static final int BLOCKS = 10;
+
+  /**
+   * Number of the searched pairs of vertices, per metric and flags
+   */
+  protected static final int PAIRS = 300;
+
+  /**
+   * Runs the tests. <br>
+   * <br>
+   * @param args command line arguments (ignored)
+   * @throws Exception if a test fails
+   */
+  public static void main(String[] args) throws Exception
+  {
+    java.util.Random rand = new java.util.Random(SEED);
+    Universe u = SimulationEngine.load(createScenario(rand));
+    Universe.setReference(u);
+    try
+    {
+      SpatialModel spatialModel = (SpatialModel)u.getExtension(SpatialModel.SLOT);
+      ShortestPathEngine old = ShortestPathEngine.getInstance(spatialModel);
+      old.getProhibited(spatialModel);
+      makeOneWayRoads(spatialModel, rand);
+
+      // the instance keeps the prohibited arcs of the two-way roads
+      ShortestPathEngine.reset(spatialModel);
+      ShortestPathEngine engine = ShortestPathEngine.getInstance(spatialModel);
+      check(engine!=old, "instance not reset");
+
+      // searches whole trees, which are then reused by the other searches
+      ShortestPathEngine plain = new ShortestPathEngine(spatialModel.getGraph());
+
+      int[] flags = {PathSearchingAlgorithm.FLAG_IGNORE_DIRECTIONS,
+                     PathSearchingAlgorithm.FLAG_REFLECT_DIRECTIONS};
+      int[] metrics = {ShortestPathEngine.DISTANCE, ShortestPathEngine.TRAVEL_TIME};
+      for (int i=0; i<flags.length; i++)
+        for (int j=0; j<metrics.length; j++)
+          testSearches(engine, plain, spatialModel, flags[i], metrics[j], rand);
+    }
+    finally
+    {
+      Universe.setReference(null);
+    }
+  }
+
+  /**
+   * Creates a scenario with a grid of roads with random speed limits. <br>
+   * <br>
+   * @param rand random number generator
+   * @return root tag of the scenario
+   * @throws Exception if the scenario could not be created
+   */
+  protected static org.w3c.dom.Element createScenario(java.util.Random rand) throws Exception
+  {
+    int block = 200;
+    int side = (BLOCKS+1)*block;
+
+    StringBuffer s = new StringBuffer();
+    s.append("<universe>");
+    s.append("<dimx>"+side+"</dimx><dimy>"+side+"</dimy>");
+    s.append("<seed>"+SEED+"</seed>");
+    s.append("<extension name=\"SpatialModel\" class=\"de.uni_stuttgart.informatik.canu.spatialmodel.core.SpatialModel\"");
+    s.append(" min_x=\"0\" max_x=\""+side+"\" min_y=\"0\" max_y=\""+side+"\"/>");
+    s.append("<extension class=\"eurecom.usergraph.UserGraph\">");
+    for (int i=0; i<=BLOCKS; i++)
+      for (int j=0; j<=BLOCKS; j++)
+        s.append("<vertex><id>"+i+"_"+j+"</id><x>"+(i+0.5)*block+"</x><y>"+(j+0.5)*block+"</y></vertex>");
+    for (int i=0; i<=BLOCKS; i++)
+      for (int j=0; j<=BLOCKS; j++)
+      {
+        if (i<BLOCKS)
+          s.append("<edge><v1>"+i+"_"+j+"</v1><v2>"+(i+1)+"_"+j+"</v2><speed>"+
+            (5+rand.nextInt(30))+"</speed></edge>");
+        if (j<BLOCKS)
+          s.append("<edge><v1>"+i+"_"+j+"</v1><v2>"+i+"_"+(j+1)+"</v2><speed>"+
+            (5+rand.nextInt(30))+"</speed></edge>");
+      }
+    s.append("</extension>");
+    s.append("</universe>");
+
+    org.w3c.dom.Document document = javax.xml.parsers.DocumentBuilderFactory
+      .newInstance().newDocumentBuilder().parse(
+        new java.io.ByteArrayInputStream(s.toString().getBytes("UTF-8")));
+
+    return document.getDocumentElement();
+  }
+
+  /**
+   * Makes a third of the roads one-way roads, in a random direction. <br>
+   * <br>
+   * @param spatialModel spatial model
+   * @param rand random number generator
+   */
+  protected static void makeOneWayRoads(SpatialModel spatialModel, java.util.Random rand)
+  {
+    // sorted by id, so that the same roads are chosen on every run
+    java.util.TreeMap elements = new java.util.TreeMap(spatialModel.getElements());
+    java.util.Iterator iter = elements.values().iterator();
+    while (iter.hasNext())
+    {
+      SpatialModelElement element = (SpatialModelElement)iter.next();
+      if ( (element.getAttributes().get("DF")!=null) && (rand.nextInt(3)==0) )
+        element.getAttributes().put("DF", rand.nextBoolean() ? "2" : "3");
+    }
+  }
+
+  /**
+   * Compares the costs of the paths found with A*, the bidirectional
+   * search and the contraction hierarchy with the costs of a plain
+   * Dijkstra search. <br>
+   * <br>
+   * @param engine shortest path engine
+   * @param plain shortest path engine searching with findPath
+   * @param spatialModel spatial model
+   * @param flag path-searching flags
+   * @param metric metric of the paths
+   * @param rand random number generator choosing the vertices
+   * @throws Exception if the test fails
+   */
+  protected static void testSearches(ShortestPathEngine engine, ShortestPathEngine plain,
+    SpatialModel spatialModel, int flag, int metric, java.util.Random rand) throws Exception
+  {
+    Graph graph = spatialModel.getGraph();
+    java.util.ArrayList vv = graph.getVertices();
+    double[] cost = engine.getCosts(spatialModel, metric);
+    boolean[] skip = getProhibited(engine, spatialModel, flag);
+    String name = "metric "+metric+", flag "+flag;
+
+    int paths = 0;
+    for (int n=0; n<PAIRS; n++)
+    {
+      Vertex vs = (Vertex)vv.get(rand.nextInt(vv.size()));
+      Vertex vd = (Vertex)vv.get(rand.nextInt(vv.size()));
+      if (vs==vd)
+        continue;
+
+      double expected = searchCost(engine, vs.getInternalID(), vd.getInternalID(), cost, skip);
+      int[] path = engine.findPathAStar(spatialModel, vs, vd, flag, metric);
+      checkPath(engine, vs, vd, path, cost, skip, expected, "A*, "+name);
+      path = engine.findPathBidirectional(spatialModel, vs, vd, flag, metric);
+      checkPath(engine, vs, vd, path, cost, skip, expected, "bidirectional, "+name);
+      path = engine.findPathHierarchy(spatialModel, vs, vd, flag, metric);
+      checkPath(engine, vs, vd, path, cost, skip, expected, "contraction hierarchy, "+name);
+      if (path!=null)
+        paths++;
+
+      // findPath minimizes the length only
+      if (metric==ShortestPathEngine.DISTANCE)
+      {
+        path = plain.findPath(spatialModel, vs, vd, flag, null);
+        checkPath(engine, vs, vd, path, cost, skip, expected, "findPath, "+name);
+      }
+    }
+
+    check(paths>0, "no path found, "+name);
+  }
+
+  /**
+   * Checks a path found by a search. <br>
+   * <br>
+   * @param engine shortest path engine
+   * @param vs source vertex
+   * @param vd destination vertex
+   * @param path internal ids of the path's vertices, null if not found
+   * @param cost costs of the arcs
+   * @param skip flags of the arcs to be skipped
+   * @param expected cost of the shortest path, Double.MAX_VALUE if none exists
+   * @param name name of the search
+   * @throws Exception if the path is not a shortest path
+   */
+  protected static void checkPath(ShortestPathEngine engine, Vertex vs, Vertex vd, int[] path,
+    double[] cost, boolean[] skip, double expected, String name) throws Exception
+  {
+    String pair = vs.getID()+" -> "+vd.getID()+", "+name;
+    if (expected==Double.MAX_VALUE)
+    {
+      check(path==null, "path found between unconnected vertices "+pair);
+      return;
+    }
+
+    check(path!=null, "no path found "+pair);
+    check(path[0]==vs.getInternalID(), "path doesn't start at the source "+pair);
+    check(path[path.length-1]==vd.getInternalID(), "path doesn't end at the destination "+pair);
+
+    double res = 0.0;
+    for (int i=0; i+1<path.length; i++)
+    {
+      int a = findArc(engine, path[i], path[i+1], cost, skip);
+      check(a!=-1, "path uses a missing or prohibited arc "+path[i]+" -> "+path[i+1]+", "+pair);
+      res += cost[a];
+    }
+
+    check(Math.abs(res-expected)<=1e-9*Math.max(1.0, expected),
+      "path cost "+res+" instead of "+expected+", "+pair);
+  }
+
+  /**
+   * Finds the cheapest allowed arc between two vertices. <br>
+   * <br>
+   * @param engine shortest path engine
+   * @param from internal id of the source vertex
+   * @param to internal id of the target vertex
+   * @param cost costs of the arcs
+   * @param skip flags of the arcs to be skipped
+   * @return index of the arc, -1 if none
+   */
+  protected static int findArc(ShortestPathEngine engine, int from, int to, double[] cost, boolean[] skip)
+  {
+    int res = -1;
+    for (int a=engine.first[from]; a<engine.first[from+1]; a++)
+      if ( (engine.target[a]==to) && !skip[a] && ((res==-1)||(cost[a]<cost[res])) )
+        res = a;
+
+    return res;
+  }
+
+  /**
+   * Gets the flags of the arcs the movement along is prohibited,
+   * asking the spatial model for every arc. <br>
+   * <br>
+   * @param engine shortest path engine
+   * @param spatialModel spatial model
+   * @param flag path-searching flags
+   * @return flags, per arc
+   */
+  protected static boolean[] getProhibited(ShortestPathEngine engine, SpatialModel spatialModel, int flag)
+  {
+    java.util.ArrayList vv = spatialModel.getGraph().getVertices();
+    boolean[] res = new boolean[engine.target.length];
+    if ((flag & PathSearchingAlgorithm.FLAG_REFLECT_DIRECTIONS)==0)
+      return res;
+
+    for (int i=0; i<engine.vertices; i++)
+      for (int a=engine.first[i]; a<engine.first[i+1]; a++)
+        res[a] = spatialModel.isMovementProhibited((Vertex)vv.get(i), (Vertex)vv.get(engine.target[a]));
+
+    return res;
+  }
+
+  /**
+   * Searches the cost of the shortest path between two vertices with
+   * a plain Dijkstra search scanning for the closest vertex. <br>
+   * <br>
+   * @param engine shortest path engine
+   * @param s internal id of the source vertex
+   * @param d internal id of the destination vertex
+   * @param cost costs of the arcs
+   * @param skip flags of the arcs to be skipped
+   * @return cost of the shortest path, Double.MAX_VALUE if none exists
+   */
+  protected static double searchCost(ShortestPathEngine engine, int s, int d, double[] cost, boolean[] skip)
+  {
+    double[] dist = new double[engine.vertices];
+    boolean[] settled = new boolean[engine.vertices];
+    java.util.Arrays.fill(dist, Double.MAX_VALUE);
+    dist[s] = 0.0;
+
+    while (true)
+    {
+      int v = -1;
+      for (int i=0; i<engine.vertices; i++)
+        if (!settled[i] && (dist[i]!=Double.MAX_VALUE) && ((v==-1)||(dist[i]<dist[v])))
+          v = i;
+      if ( (v==-1) || (v==d) )
+        return dist[d];
+
+      settled[v] = true;
+      for (int a=engine.first[v]; a<engine.first[v+1]; a++)
+        if (!skip[a] && (dist[v]+cost[a]<dist[engine.target[a]]))
+          dist[engine.target[a]] = dist[v]+cost[a];
+    }
+  }
+
+  /**
+   * Checks a condition. <br>
+   * <br>
+   * @param condition condition
+   * @param message message of the failure
+   * @throws Exception if the condition is false
+   */
+  protected static void check(boolean condition, String message) throws Exception
+  {
+    if (!condition)
+      throw new Exception(message);
+  }
+}